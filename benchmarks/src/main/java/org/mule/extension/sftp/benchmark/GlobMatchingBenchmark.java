@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.benchmark;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import org.mule.extension.sftp.internal.util.GlobMatcher;
+import org.mule.extension.sftp.internal.util.UriUtils;
+
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the engines a glob pattern of a matcher can be evaluated with, on the names of a listing
+ *
+ * @since 2.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlobMatchingBenchmark {
+
+  private static final int NAMES = 1024;
+  private static final String[] EXTENSIONS = {".csv", ".txt", ".xml", ".CSV"};
+
+  @Param({"*.csv", "**/*.{csv,txt}", "data_[0-9][0-9]?.csv"})
+  private String pattern;
+
+  @Param({"true", "false"})
+  private boolean caseSensitive;
+
+  private String[] names;
+  private Predicate<String> regex;
+  private PathMatcher pathMatcher;
+  private Predicate<String> globMatcher;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    names = new String[NAMES];
+    for (int i = 0; i < NAMES; i++) {
+      String name = "data_" + random.nextInt(1000) + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+      names[i] = random.nextBoolean() ? name : "/inbound/" + random.nextInt(10) + "/" + name;
+    }
+    regex = Pattern.compile(UriUtils.toRegexPattern(pattern), caseSensitive ? 0 : Pattern.CASE_INSENSITIVE).asPredicate();
+    pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    globMatcher = GlobMatcher.compile(pattern, caseSensitive, true)
+        .orElseThrow(() -> new IllegalStateException("Pattern not supported: " + pattern));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NAMES)
+  public int regex() {
+    int matches = 0;
+    for (String name : names) {
+      if (regex.test(name)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NAMES)
+  public int pathMatcher() {
+    int matches = 0;
+    for (String name : names) {
+      if (pathMatcher.matches(Paths.get(name))) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NAMES)
+  public int globMatcher() {
+    int matches = 0;
+    for (String name : names) {
+      if (globMatcher.test(name)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.api;
+
+/**
+ * List different options regarding the order in which a listener processes the files it finds on each poll
+ *
+ * @since 2.5
+ */
+public enum FileProcessingOrder {
+  /**
+   * Means that each file is processed as soon as it's listed, in the order the server lists them
+   */
+  LISTING,
+  /**
+   * Means that the files are processed starting from the one with the oldest modification time. The whole directory is listed
+   * before processing the first file
+   */
+  OLDEST_FIRST,
+  /**
+   * Means that the files are processed starting from the smallest one. The whole directory is listed before processing the first
+   * file
+   */
+  SMALLEST_FIRST
+}
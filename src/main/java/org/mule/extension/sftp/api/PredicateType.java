@@ -6,11 +6,14 @@
  */
 package org.mule.extension.sftp.api;
 
+import org.mule.extension.sftp.internal.util.GlobMatcher;
 import org.mule.extension.sftp.internal.util.UriUtils;
 
 import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
@@ -28,7 +31,12 @@ public enum PredicateType {
 
     @Override
     public Predicate<String> getPredicate(final String pattern, final boolean caseSensitive) {
-      final String regex = UriUtils.toRegexPattern(getPattern(pattern));
+      final String glob = getPattern(pattern);
+      Optional<GlobMatcher> matcher = GlobMatcher.compile(glob, caseSensitive, true);
+      if (matcher.isPresent()) {
+        return matcher.get();
+      }
+      final String regex = UriUtils.toRegexPattern(glob);
       return Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE).asPredicate();
     }
   },
@@ -40,7 +48,15 @@ public enum PredicateType {
     @Override
     public Predicate<String> getPredicate(final String pattern, final boolean caseSensitive) {
       PathMatcher matcher = FileSystems.getDefault().getPathMatcher(pattern);
-      return path -> matcher.matches(Paths.get(path));
+      Predicate<String> pathMatcher = path -> matcher.matches(Paths.get(path));
+      if (!UNIX_GLOBS || !pattern.startsWith(GLOB_PREFIX)) {
+        return pathMatcher;
+      }
+      // the default file system uses the same glob syntax as the external one, so the path only has to be parsed when
+      // parsing it would change it
+      return GlobMatcher.compile(pattern.substring(GLOB_PREFIX.length()), true, false)
+          .<Predicate<String>>map(globMatcher -> path -> isParsedAsIs(path) ? globMatcher.test(path) : pathMatcher.test(path))
+          .orElse(pathMatcher);
     }
   };
 
@@ -51,6 +67,32 @@ public enum PredicateType {
    */
   public abstract Predicate<String> getPredicate(final String pattern, final boolean caseSensitive);
 
+  private static final String GLOB_PREFIX = "glob:";
+  private static final String UNICODE_PATH = "e\u0301";
+  private static final boolean UNIX_GLOBS = FileSystems.getDefault().getSeparator().equals("/");
+  private static final boolean UNICODE_PATHS_KEPT = UNIX_GLOBS && keepsUnicodePaths();
+
+  // some file systems normalize the unicode characters of the paths they parse, or can't encode them at all
+  private static boolean keepsUnicodePaths() {
+    try {
+      return Paths.get(UNICODE_PATH).toString().equals(UNICODE_PATH);
+    } catch (InvalidPathException e) {
+      return false;
+    }
+  }
+
+  private static boolean isParsedAsIs(String path) {
+    char previous = 0;
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == 0 || c == '/' && previous == '/' || c > 0x7F && !UNICODE_PATHS_KEPT || Character.isSurrogate(c)) {
+        return false;
+      }
+      previous = c;
+    }
+    return previous != '/' || path.length() == 1;
+  }
+
   private static String getPattern(final String syntaxAndInput) {
     int pos = syntaxAndInput.indexOf(':');
     return syntaxAndInput.substring(pos + 1);
@@ -19,6 +19,7 @@ import org.mule.runtime.extension.api.annotation.param.display.Summary;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
@@ -99,17 +100,17 @@ public class SftpFileMatcher extends FileMatcher<SftpFileMatcher, SftpFileAttrib
   }
 
   @Override
-  protected Predicate<SftpFileAttributes> addConditions(Predicate<SftpFileAttributes> predicate) {
+  protected void addCriteria(List<Predicate<SftpFileAttributes>> criteria) {
     setPredicateType(PredicateType.EXTERNAL_FILE_SYSTEM);
     setCaseSensitive(caseSensitive);
 
     if (timestampSince != null) {
-      predicate = predicate.and(attributes -> attributes.getTimestamp() == null
+      criteria.add(attributes -> attributes.getTimestamp() == null
           || fileTimeSince.apply(timestampSince, attributes.getTimestamp()));
     }
 
     if (timestampUntil != null) {
-      predicate = predicate.and(attributes -> attributes.getTimestamp() == null
+      criteria.add(attributes -> attributes.getTimestamp() == null
           || fileTimeUntil.apply(timestampUntil, attributes.getTimestamp()));
     }
 
@@ -117,22 +118,20 @@ public class SftpFileMatcher extends FileMatcher<SftpFileMatcher, SftpFileAttrib
     ZonedDateTime now = ZonedDateTime.now();
 
     if (notUpdatedInTheLast != null) {
-      predicate = predicate.and(attributes -> {
+      ZonedDateTime notUpdatedSince = minusTime(now, notUpdatedInTheLast, timeUnit);
+      criteria.add(attributes -> {
         checkTimestampPrecision(attributes);
-        return attributes.getTimestamp() == null
-            || fileTimeUntil.apply(minusTime(now, notUpdatedInTheLast, timeUnit), attributes.getTimestamp());
+        return attributes.getTimestamp() == null || fileTimeUntil.apply(notUpdatedSince, attributes.getTimestamp());
       });
     }
 
     if (updatedInTheLast != null) {
-      predicate = predicate.and(attributes -> {
+      ZonedDateTime updatedSince = minusTime(now, updatedInTheLast, timeUnit);
+      criteria.add(attributes -> {
         checkTimestampPrecision(attributes);
-        return attributes.getTimestamp() == null
-            || fileTimeSince.apply(minusTime(now, updatedInTheLast, timeUnit), attributes.getTimestamp());
+        return attributes.getTimestamp() == null || fileTimeSince.apply(updatedSince, attributes.getTimestamp());
       });
     }
-
-    return predicate;
   }
 
   private void checkTimestampPrecision(SftpFileAttributes attributes) {
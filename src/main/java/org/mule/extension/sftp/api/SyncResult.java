@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.api;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+/**
+ * The outcome of synchronizing a directory into another one
+ *
+ * @since 2.5
+ */
+public class SyncResult implements Serializable {
+
+  private static final long serialVersionUID = 5301716523908418726L;
+
+  @Parameter
+  private List<String> transferredFiles;
+
+  @Parameter
+  private List<String> deletedFiles;
+
+  @Parameter
+  private int unchangedFiles;
+
+  public SyncResult() {}
+
+  /**
+   * @param transferredFiles the target paths of the files which were new or changed and got transferred
+   * @param deletedFiles     the target paths which didn't exist in the source and got deleted
+   * @param unchangedFiles   the amount of files which were already up to date
+   */
+  public SyncResult(List<String> transferredFiles, List<String> deletedFiles, int unchangedFiles) {
+    this.transferredFiles = transferredFiles;
+    this.deletedFiles = deletedFiles;
+    this.unchangedFiles = unchangedFiles;
+  }
+
+  /**
+   * @return the target paths of the files which were new or changed and got transferred
+   */
+  public List<String> getTransferredFiles() {
+    return transferredFiles;
+  }
+
+  /**
+   * @return the target paths which didn't exist in the source and got deleted
+   */
+  public List<String> getDeletedFiles() {
+    return deletedFiles;
+  }
+
+  /**
+   * @return the amount of files which were already up to date
+   */
+  public int getUnchangedFiles() {
+    return unchangedFiles;
+  }
+
+  @Override
+  public String toString() {
+    return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.api;
+
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+/**
+ * A directory watched by a listener which polls several directories
+ *
+ * @since 2.5
+ */
+public class WatchedDirectory {
+
+  @Parameter
+  @Summary("Path of the directory to watch")
+  private String path;
+
+  @Parameter
+  @Optional(defaultValue = "1")
+  @Summary("Share of the files dispatched by each poll which this directory gets, relative to the other directories")
+  private int weight = 1;
+
+  @Parameter
+  @Optional
+  @Summary("Maximum amount of files from this directory being processed at the same time. When not set, there's no limit.")
+  private Integer maxFilesInFlight;
+
+  public WatchedDirectory() {}
+
+  public WatchedDirectory(String path, int weight, Integer maxFilesInFlight) {
+    this.path = path;
+    this.weight = weight;
+    this.maxFilesInFlight = maxFilesInFlight;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public int getWeight() {
+    return weight;
+  }
+
+  public void setWeight(int weight) {
+    this.weight = weight;
+  }
+
+  public Integer getMaxFilesInFlight() {
+    return maxFilesInFlight;
+  }
+
+  public void setMaxFilesInFlight(Integer maxFilesInFlight) {
+    this.maxFilesInFlight = maxFilesInFlight;
+  }
+}
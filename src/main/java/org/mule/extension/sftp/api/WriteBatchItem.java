@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.api;
+
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+
+import java.io.InputStream;
+
+/**
+ * A file to be written by the write batch operation
+ *
+ * @since 2.5
+ */
+public class WriteBatchItem {
+
+  @Parameter
+  @Summary("Path of the file to be written")
+  private String path;
+
+  @Parameter
+  @Summary("Content to be written into the file")
+  private InputStream content;
+
+  public WriteBatchItem() {}
+
+  public WriteBatchItem(String path, InputStream content) {
+    this.path = path;
+    this.content = content;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public InputStream getContent() {
+    return content;
+  }
+
+  public void setContent(InputStream content) {
+    this.content = content;
+  }
+}
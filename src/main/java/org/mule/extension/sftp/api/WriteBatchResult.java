@@ -0,0 +1,85 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.api;
+
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+/**
+ * The outcome of writing one of the files of a write batch operation
+ *
+ * @since 2.5
+ */
+public class WriteBatchResult implements Serializable {
+
+  private static final long serialVersionUID = -2170912734551084367L;
+
+  @Parameter
+  private String path;
+
+  @Parameter
+  private boolean successful;
+
+  @Parameter
+  private String errorMessage;
+
+  public WriteBatchResult() {}
+
+  private WriteBatchResult(String path, boolean successful, String errorMessage) {
+    this.path = path;
+    this.successful = successful;
+    this.errorMessage = errorMessage;
+  }
+
+  /**
+   * @param path the path of the written file
+   * @return a result for a file which was successfully written
+   */
+  public static WriteBatchResult success(String path) {
+    return new WriteBatchResult(path, true, null);
+  }
+
+  /**
+   * @param path         the path of the file which could not be written
+   * @param errorMessage the reason why the file could not be written
+   * @return a result for a file which could not be written
+   */
+  public static WriteBatchResult failure(String path, String errorMessage) {
+    return new WriteBatchResult(path, false, errorMessage);
+  }
+
+  /**
+   * @return the path of the file, as given in the batch
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return whether the file was written
+   */
+  public boolean isSuccessful() {
+    return successful;
+  }
+
+  /**
+   * @return the reason why the file could not be written, or {@code null} if it was written
+   */
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  @Override
+  public String toString() {
+    return ReflectionToStringBuilder.toString(this, SHORT_PREFIX_STYLE);
+  }
+}
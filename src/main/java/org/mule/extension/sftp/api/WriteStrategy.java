@@ -19,5 +19,15 @@ public enum WriteStrategy {
   /**
    * Means that a custom write function is used to write to files where offset is manually calculated
    */
-  CUSTOM
+  CUSTOM,
+  /**
+   * Means that several write requests are sent without waiting for the acknowledgement of the previous ones, keeping up to a
+   * configurable amount of them in flight. The offset is manually calculated as in {@link #CUSTOM}
+   */
+  PIPELINED,
+  /**
+   * Means that the content is split into parts which are written concurrently at their offsets, each one through its own
+   * channel. Unless appending, the file is written under a temporary name and renamed once every part succeeded
+   */
+  MULTIPART
 }
@@ -14,12 +14,15 @@ import static java.lang.String.format;
 
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.PredicateType;
+import org.mule.extension.sftp.internal.util.MultiPatternMatcher;
 import org.mule.extension.sftp.internal.util.ZonedDateTimeGreaterOrEqualAssessment;
 import org.mule.extension.sftp.internal.util.ZonedDateTimeLowerOrEqualAssessment;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.display.Summary;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -67,6 +70,24 @@ public abstract class FileMatcher<T extends FileMatcher, A extends FileAttribute
   @Summary("A matching pattern to be applied on the file path")
   private String pathPattern;
 
+  /**
+   * Matching patterns to be applied on the file name, the file has to match at least one of them. These patterns need to be
+   * consistent with the rules of {@link org.mule.extension.sftp.api.matcher.PathMatcherPredicate}
+   */
+  @Parameter
+  @Optional
+  @Summary("Matching patterns to be applied on the file name. The file has to match at least one of them.")
+  private List<String> includedFilenamePatterns;
+
+  /**
+   * Matching patterns to be applied on the file name, the file must not match any of them. These patterns need to be consistent
+   * with the rules of {@link org.mule.extension.sftp.api.matcher.PathMatcherPredicate}
+   */
+  @Parameter
+  @Optional
+  @Summary("Matching patterns to be applied on the file name. The file must not match any of them.")
+  private List<String> excludedFilenamePatterns;
+
   /**
    * If {@code true}, the predicate will only accept files which are directories. If {@code false}, the predicate will only accept
    * files which are not directories. If not set, then the criteria doesn't apply.
@@ -120,44 +141,71 @@ public abstract class FileMatcher<T extends FileMatcher, A extends FileAttribute
    * @return a {@link Predicate}
    */
   public Predicate<A> build() {
-    Predicate<A> predicate = payload -> true;
-    if (filenamePattern != null) {
-      org.mule.extension.sftp.api.matcher.PathMatcherPredicate pathMatcher =
-          new org.mule.extension.sftp.api.matcher.PathMatcherPredicate(filenamePattern, predicateType, caseSensitive);
-      predicate = predicate.and(payload -> pathMatcher.test(payload.getName()));
-    }
-
-    if (pathPattern != null) {
-      org.mule.extension.sftp.api.matcher.PathMatcherPredicate pathMatcher =
-          new PathMatcherPredicate(pathPattern, predicateType, caseSensitive);
-      predicate = predicate.and(payload -> pathMatcher.test(payload.getPath()));
-    }
-
+    // cheap checks on the attributes go first, so the patterns are only evaluated on the files which passed them
+    List<Predicate<A>> criteria = new ArrayList<>();
     if (!directories.acceptsAll()) {
-      predicate = predicate.and(attributes -> directories.asBoolean().get().equals(attributes.isDirectory()));
+      boolean directory = directories.asBoolean().get();
+      criteria.add(attributes -> attributes.isDirectory() == directory);
     }
 
     if (!regularFiles.acceptsAll()) {
-      predicate = predicate.and(attributes -> regularFiles.asBoolean().get().equals(attributes.isRegularFile()));
+      boolean regularFile = regularFiles.asBoolean().get();
+      criteria.add(attributes -> attributes.isRegularFile() == regularFile);
     }
 
     if (!symLinks.acceptsAll()) {
-      predicate = predicate.and(attributes -> symLinks.asBoolean().get().equals(attributes.isSymbolicLink()));
+      boolean symLink = symLinks.asBoolean().get();
+      criteria.add(attributes -> attributes.isSymbolicLink() == symLink);
     }
 
     if (minSize != null) {
       checkArgument(minSize > 0, format(SIZE_MUST_BE_GREATER_THAN_ZERO_MESSAGE, "minSize", minSize));
-      predicate = predicate.and(attributes -> attributes.getSize() >= minSize);
+      long min = minSize;
+      criteria.add(attributes -> attributes.getSize() >= min);
     }
 
     if (maxSize != null) {
       checkArgument(maxSize > 0, format(SIZE_MUST_BE_GREATER_THAN_ZERO_MESSAGE, "maxSize", maxSize));
-      predicate = predicate.and(attributes -> attributes.getSize() <= maxSize);
+      long max = maxSize;
+      criteria.add(attributes -> attributes.getSize() <= max);
+    }
+
+    addCriteria(criteria);
+
+    if (filenamePattern != null) {
+      Predicate<String> pathMatcher = new PathMatcherPredicate(filenamePattern, predicateType, caseSensitive);
+      criteria.add(payload -> pathMatcher.test(payload.getName()));
+    }
+
+    if (pathPattern != null) {
+      Predicate<String> pathMatcher = new PathMatcherPredicate(pathPattern, predicateType, caseSensitive);
+      criteria.add(payload -> pathMatcher.test(payload.getPath()));
+    }
+
+    if (includedFilenamePatterns != null && !includedFilenamePatterns.isEmpty()) {
+      Predicate<String> included = MultiPatternMatcher.compile(includedFilenamePatterns, predicateType, caseSensitive);
+      criteria.add(payload -> included.test(payload.getName()));
     }
 
-    return addConditions(predicate);
+    if (excludedFilenamePatterns != null && !excludedFilenamePatterns.isEmpty()) {
+      Predicate<String> excluded = MultiPatternMatcher.compile(excludedFilenamePatterns, predicateType, caseSensitive);
+      criteria.add(payload -> !excluded.test(payload.getName()));
+    }
+
+    return addConditions(allOf(criteria));
   }
 
+  /**
+   * This method is invoked by {@link #build()} after adding the criterias on the type and size of the file and before adding the
+   * ones on its name and path, which are more expensive to evaluate.
+   * <p>
+   * It allows extending classes to add their own criterias, and to change the type and case sensitivity of the patterns.
+   *
+   * @param criteria the criterias the built {@link Predicate} requires, in the order they are evaluated
+   * @since 2.5
+   */
+  protected void addCriteria(List<Predicate<A>> criteria) {}
+
   /**
    * This method is invoked by {@link #build()} before returning the built {@link Predicate}.
    * <p>
@@ -170,6 +218,38 @@ public abstract class FileMatcher<T extends FileMatcher, A extends FileAttribute
     return predicate;
   }
 
+  private static <A> Predicate<A> allOf(List<Predicate<A>> criteria) {
+    if (criteria.isEmpty()) {
+      return attributes -> true;
+    }
+    if (criteria.size() == 1) {
+      return criteria.get(0);
+    }
+    return new AllOf<>(criteria);
+  }
+
+  /**
+   * Evaluates a number of criterias in a single loop, instead of through a chain of {@link Predicate#and(Predicate)} calls
+   */
+  private static final class AllOf<A> implements Predicate<A> {
+
+    private final Predicate<A>[] criteria;
+
+    private AllOf(List<Predicate<A>> criteria) {
+      this.criteria = criteria.toArray(new Predicate[0]);
+    }
+
+    @Override
+    public boolean test(A attributes) {
+      for (Predicate<A> criterion : criteria) {
+        if (!criterion.test(attributes)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   public ZonedDateTimeLowerOrEqualAssessment getFileTimeUntil() {
     return fileTimeUntil;
   }
@@ -194,6 +274,14 @@ public abstract class FileMatcher<T extends FileMatcher, A extends FileAttribute
     this.pathPattern = pathPattern;
   }
 
+  public List<String> getIncludedFilenamePatterns() {
+    return includedFilenamePatterns;
+  }
+
+  public List<String> getExcludedFilenamePatterns() {
+    return excludedFilenamePatterns;
+  }
+
   public org.mule.extension.sftp.api.matcher.MatchPolicy getDirectories() {
     return directories;
   }
@@ -260,6 +348,16 @@ public abstract class FileMatcher<T extends FileMatcher, A extends FileAttribute
     return (T) this;
   }
 
+  public T setIncludedFilenamePatterns(List<String> includedFilenamePatterns) {
+    this.includedFilenamePatterns = includedFilenamePatterns;
+    return (T) this;
+  }
+
+  public T setExcludedFilenamePatterns(List<String> excludedFilenamePatterns) {
+    this.excludedFilenamePatterns = excludedFilenamePatterns;
+    return (T) this;
+  }
+
   public T setDirectories(org.mule.extension.sftp.api.matcher.MatchPolicy directories) {
     this.directories = directories;
     return (T) this;
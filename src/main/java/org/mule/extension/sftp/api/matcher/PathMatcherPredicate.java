@@ -13,6 +13,8 @@ import static org.mule.runtime.api.util.Preconditions.checkArgument;
 import org.mule.extension.sftp.api.PredicateType;
 import org.mule.runtime.core.api.util.StringUtils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
@@ -21,6 +23,9 @@ import java.util.regex.Pattern;
  * <p>
  * The pattern can be either a regex or glob expression. The pattern can qualify itself by using thee &quot;glob:&quot; or
  * &quot;regex:&quot; prefixes. If no prefix is supplied, glob is assumed by default.
+ * <p>
+ * Compiled patterns are cached and shared by every instance, since matchers are built again on each poll of a listener and on
+ * each list operation while they are usually built from the same few patterns.
  *
  * @since 1.0
  */
@@ -28,6 +33,8 @@ public final class PathMatcherPredicate implements Predicate<String> {
 
   private static final String GLOB_PREFIX = "glob:";
   private static final String REGEX_PREFIX = "regex:";
+  private static final int MAX_CACHED_PATTERNS = 512;
+  private static final Map<String, Predicate<String>> COMPILED_PATTERNS = new ConcurrentHashMap<>();
 
   private final Predicate<String> delegate;
 
@@ -41,7 +48,7 @@ public final class PathMatcherPredicate implements Predicate<String> {
    */
 
   public PathMatcherPredicate(String pattern) {
-    delegate = getPredicateForFilename(pattern, LOCAL_FILE_SYSTEM, DEFAULT_CASE_SENSITIVE);
+    delegate = getCompiledPredicate(pattern, LOCAL_FILE_SYSTEM, DEFAULT_CASE_SENSITIVE);
   }
 
   /**
@@ -53,7 +60,7 @@ public final class PathMatcherPredicate implements Predicate<String> {
    */
 
   public PathMatcherPredicate(String pattern, PredicateType predicateType, final boolean caseSensitive) {
-    delegate = getPredicateForFilename(pattern, predicateType, caseSensitive);
+    delegate = getCompiledPredicate(pattern, predicateType, caseSensitive);
   }
 
   public PathMatcherPredicate() {
@@ -83,6 +90,21 @@ public final class PathMatcherPredicate implements Predicate<String> {
     return delegate.test(path);
   }
 
+  private Predicate<String> getCompiledPredicate(String pattern, PredicateType predicateType, final boolean caseSensitive) {
+    String key = predicateType.name() + ':' + caseSensitive + ':' + pattern;
+    Predicate<String> predicate = COMPILED_PATTERNS.get(key);
+    if (predicate == null) {
+      // patterns which fail to compile are not cached, so they keep failing
+      predicate = getPredicateForFilename(pattern, predicateType, caseSensitive);
+      if (COMPILED_PATTERNS.size() >= MAX_CACHED_PATTERNS) {
+        // patterns built from expressions could grow the cache without limit
+        COMPILED_PATTERNS.clear();
+      }
+      COMPILED_PATTERNS.put(key, predicate);
+    }
+    return predicate;
+  }
+
   private Predicate<String> getPredicateForFilename(String pattern, PredicateType predicateType, final boolean caseSensitive) {
     if (pattern.startsWith(REGEX_PREFIX)) {
       return Pattern.compile(stripRegexPrefix(pattern)).asPredicate();
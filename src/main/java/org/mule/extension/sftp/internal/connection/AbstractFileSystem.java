@@ -11,6 +11,9 @@ import static java.lang.String.format;
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.internal.exception.FileLockedException;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
@@ -21,6 +24,7 @@ import org.mule.extension.sftp.internal.operation.ListCommand;
 import org.mule.extension.sftp.internal.operation.MoveCommand;
 import org.mule.extension.sftp.internal.operation.ReadCommand;
 import org.mule.extension.sftp.internal.operation.RenameCommand;
+import org.mule.extension.sftp.internal.operation.TransferCommand;
 import org.mule.extension.sftp.internal.operation.WriteCommand;
 import org.mule.extension.sftp.internal.lock.PathLock;
 import org.mule.extension.sftp.internal.subset.SubsetList;
@@ -98,6 +102,11 @@ public abstract class AbstractFileSystem<A extends org.mule.extension.sftp.api.F
    */
   protected abstract CreateDirectoryCommand getCreateDirectoryCommand();
 
+  /**
+   * @return a {@link TransferCommand}
+   */
+  protected abstract TransferCommand getTransferCommand();
+
   /**
    * {@inheritDoc}
    */
@@ -138,8 +147,21 @@ public abstract class AbstractFileSystem<A extends org.mule.extension.sftp.api.F
   @Override
   public void write(String filePath, InputStream content, FileWriteMode mode,
                     boolean lock, boolean createParentDirectories, WriteStrategy writeStrategy,
-                    CustomWriteBufferSize bufferSizeForWriteStrategy) {
-    getWriteCommand().write(filePath, content, mode, lock, createParentDirectories, writeStrategy, bufferSizeForWriteStrategy);
+                    CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites, int uploadParts,
+                    boolean uploadToTemporaryFile) {
+    getWriteCommand().write(filePath, content, mode, lock, createParentDirectories, writeStrategy, bufferSizeForWriteStrategy,
+                            maxPendingWrites, uploadParts, uploadToTemporaryFile);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<WriteBatchResult> writeBatch(List<WriteBatchItem> items, FileWriteMode mode, boolean createParentDirectories,
+                                           int maxConcurrentWrites, CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                           int maxPendingWrites) {
+    return getWriteCommand().writeBatch(items, mode, createParentDirectories, maxConcurrentWrites, bufferSizeForWriteStrategy,
+                                        maxPendingWrites);
   }
 
   /**
@@ -148,8 +170,9 @@ public abstract class AbstractFileSystem<A extends org.mule.extension.sftp.api.F
   @Override
   public void copy(FileConnectorConfig config, String sourcePath, String targetDirectory,
                    boolean overwrite,
-                   boolean createParentDirectories, String renameTo) {
-    getCopyCommand().copy(config, sourcePath, targetDirectory, overwrite, createParentDirectories, renameTo);
+                   boolean createParentDirectories, String renameTo, int maxConcurrentCopies, boolean continueOnError) {
+    getCopyCommand().copy(config, sourcePath, targetDirectory, overwrite, createParentDirectories, renameTo, maxConcurrentCopies,
+                          continueOnError);
   }
 
   /**
@@ -161,6 +184,28 @@ public abstract class AbstractFileSystem<A extends org.mule.extension.sftp.api.F
     getMoveCommand().move(config, sourcePath, targetDirectory, overwrite, createParentDirectories, renameTo);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transfer(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetDirectory,
+                       boolean overwrite, boolean createParentDirectories, boolean verifyChecksum, int maxConcurrentTransfers,
+                       boolean continueOnError) {
+    getTransferCommand().transfer(config, sourcePath, targetConfig, targetDirectory, overwrite, createParentDirectories,
+                                  verifyChecksum, maxConcurrentTransfers, continueOnError);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SyncResult sync(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                         boolean compareChecksums, boolean deleteExtraneous, int maxConcurrentTransfers,
+                         boolean continueOnError) {
+    return getTransferCommand().sync(config, sourcePath, targetConfig, targetPath, compareChecksums, deleteExtraneous,
+                                     maxConcurrentTransfers, continueOnError);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -169,6 +214,23 @@ public abstract class AbstractFileSystem<A extends org.mule.extension.sftp.api.F
     getDeleteCommand().delete(filePath);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher) {
+    return getDeleteCommand().deleteMatching(directoryPath, matcher);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher,
+                                   boolean overwrite, boolean createParentDirectories) {
+    return getMoveCommand().moveMatching(directoryPath, targetPath, matcher, overwrite, createParentDirectories);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import org.mule.runtime.api.connection.ConnectionException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Implementation of {@link ConnectionSource} which bounds how many connections are obtained from a delegate {@link ConnectionSource}
+ * at the same time by all the instances sharing a {@link Semaphore}. {@link #getConnection()} waits for a permit before obtaining
+ * a connection, which is given back once the connection is released.
+ *
+ * @since 2.5
+ */
+public class BoundedConnectionSource<T extends FileSystem> implements ConnectionSource<T> {
+
+  private final ConnectionSource<T> delegate;
+  private final Semaphore permits;
+  private boolean permitAcquired;
+
+  /**
+   * @param delegate the {@link ConnectionSource} the connections are obtained from
+   * @param permits  the {@link Semaphore} shared by the instances whose connections are bounded together
+   */
+  public BoundedConnectionSource(ConnectionSource<T> delegate, Semaphore permits) {
+    this.delegate = delegate;
+    this.permits = permits;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public T getConnection() throws ConnectionException {
+    if (!permitAcquired) {
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ConnectionException("Interrupted while waiting for a connection to become available", e);
+      }
+      permitAcquired = true;
+    }
+    try {
+      return delegate.getConnection();
+    } catch (ConnectionException | RuntimeException e) {
+      releaseConnection();
+      throw e;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void releaseConnection() {
+    try {
+      delegate.releaseConnection();
+    } finally {
+      if (permitAcquired) {
+        permitAcquired = false;
+        permits.release();
+      }
+    }
+  }
+}
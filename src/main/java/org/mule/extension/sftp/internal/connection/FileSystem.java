@@ -9,6 +9,9 @@ package org.mule.extension.sftp.internal.connection;
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.lock.PathLock;
@@ -144,11 +147,35 @@ public interface FileSystem<A extends FileAttributes> {
    * @param lock                    whether or not to lock the file
    * @param writeStrategy           a {@link WriteStrategy} defaults to STANDARD
    * @param bufferSizeForWriteStrategy  a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites        the maximum amount of write requests in flight for the PIPELINED strategy
+   * @param uploadParts             the amount of parts uploaded concurrently by the MULTIPART strategy
+   * @param uploadToTemporaryFile   whether the MULTIPART strategy writes into a temporary file renamed at the end
    * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
    * @throws IllegalArgumentException   if an illegal combination of arguments is supplied
    */
   void write(String filePath, InputStream content, FileWriteMode mode, boolean lock, boolean createParentDirectories,
-             WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy);
+             WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites,
+             int uploadParts, boolean uploadToTemporaryFile);
+
+  /**
+   * Writes each one of the {@code items} into the file pointed by its path, keeping up to {@code maxConcurrentWrites} of them
+   * in progress at the same time over this file system's connection.
+   * <p>
+   * Each file is written under the same considerations as {@link #write(String, InputStream, FileWriteMode, boolean, boolean,
+   * WriteStrategy, CustomWriteBufferSize, int, int, boolean)}, but a file which can't be written doesn't stop the rest of the
+   * batch: its failure is reported in the returned {@link WriteBatchResult} instead.
+   *
+   * @param items                      the files to be written
+   * @param mode                       a {@link FileWriteMode}
+   * @param createParentDirectories    whether or not to attempt creating any parent directories which don't exists.
+   * @param maxConcurrentWrites        the maximum amount of files being written at the same time
+   * @param bufferSizeForWriteStrategy a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites           the maximum amount of write requests in flight for each file
+   * @return a {@link WriteBatchResult} for each one of the {@code items}, in the same order
+   */
+  List<WriteBatchResult> writeBatch(List<WriteBatchItem> items, FileWriteMode mode, boolean createParentDirectories,
+                                    int maxConcurrentWrites, CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                    int maxPendingWrites);
 
 
   /**
@@ -166,7 +193,7 @@ public interface FileSystem<A extends FileAttributes> {
    * {@link IllegalArgumentException} will be thrown
    * <p>
    * As for the {@code sourcePath}, it can either be a file or a directory. If it points to a directory, then it will be copied
-   * recursively
+   * recursively, copying up to {@code maxConcurrentCopies} files at the same time
    *
    * @param config                  the config that is parameterizing this operation
    * @param sourcePath              the path to the file to be copied
@@ -174,11 +201,14 @@ public interface FileSystem<A extends FileAttributes> {
    * @param overwrite               whether or not overwrite the file if the target destination already exists.
    * @param createParentDirectories whether or not to attempt creating any parent directories which doesn't exist.
    * @param renameTo                the new file name, {@code null} if the file doesn't need to be renamed
+   * @param maxConcurrentCopies     the maximum amount of files of a directory being copied at the same time
+   * @param continueOnError         whether a directory copy goes on after a file failed to be copied, reporting every failure
+   *                                at the end
    * @throws IllegalArgumentException if an illegal combination of arguments is supplied
    */
   void copy(FileConnectorConfig config, String sourcePath, String targetPath, boolean overwrite,
             boolean createParentDirectories,
-            String renameTo);
+            String renameTo, int maxConcurrentCopies, boolean continueOnError);
 
   /**
    * Moves the file at the {@code sourcePath} into the {@code targetPath}.
@@ -208,6 +238,55 @@ public interface FileSystem<A extends FileAttributes> {
   void move(FileConnectorConfig config, String sourcePath, String targetPath, boolean overwrite, boolean createParentDirectories,
             String renameTo);
 
+  /**
+   * Transfers the file at the {@code sourcePath} into the {@code targetPath} of the server of the {@code targetConfig}, streaming
+   * the content from one server to the other.
+   * <p>
+   * The {@code targetPath} is resolved on the target server following the same rules as
+   * {@link #copy(FileConnectorConfig, String, String, boolean, boolean, String, int, boolean)}. If the {@code sourcePath} points
+   * to a directory, then it will be transferred recursively, transferring up to {@code maxConcurrentTransfers} files at the same
+   * time
+   *
+   * @param config                  the config that is parameterizing this operation
+   * @param sourcePath              the path to the file to be transferred
+   * @param targetConfig            the config of the server the file is transferred to
+   * @param targetPath              the target directory
+   * @param overwrite               whether or not overwrite the file if the target destination already exists.
+   * @param createParentDirectories whether or not to attempt creating any parent directories which doesn't exist.
+   * @param verifyChecksum          whether to compare the checksum of every transferred file against the source one
+   * @param maxConcurrentTransfers  the maximum amount of files of a directory being transferred at the same time
+   * @param continueOnError         whether a directory transfer goes on after a file failed to be transferred, reporting every
+   *                                failure at the end
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  void transfer(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                boolean overwrite, boolean createParentDirectories, boolean verifyChecksum, int maxConcurrentTransfers,
+                boolean continueOnError);
+
+  /**
+   * Synchronizes the directory at the {@code sourcePath} into the {@code targetPath} of the server of the {@code targetConfig},
+   * so the latter mirrors the content of the former.
+   * <p>
+   * Both trees are listed and compared directory by directory. A file is transferred only if it doesn't exist in the target, its
+   * size differs or, depending on {@code compareChecksums}, either its checksum differs or the source was modified after the
+   * target. Up to {@code maxConcurrentTransfers} files are transferred at the same time. If {@code deleteExtraneous} is
+   * {@code true}, the target entries which don't exist in the source are deleted.
+   *
+   * @param config                 the config that is parameterizing this operation
+   * @param sourcePath             the path to the directory to be synchronized
+   * @param targetConfig           the config of the server the directory is synchronized into
+   * @param targetPath             the directory which mirrors the source one, created if it doesn't exist
+   * @param compareChecksums       whether files of the same size are compared by checksum instead of by modification time
+   * @param deleteExtraneous       whether the target entries which don't exist in the source are deleted
+   * @param maxConcurrentTransfers the maximum amount of files being transferred at the same time
+   * @param continueOnError        whether the synchronization goes on after a file failed to be transferred, reporting every
+   *                               failure at the end
+   * @return a {@link SyncResult} describing the changes done to the target
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  SyncResult sync(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                  boolean compareChecksums, boolean deleteExtraneous, int maxConcurrentTransfers, boolean continueOnError);
+
   /**
    * Deletes the file pointed by {@code filePath}, provided that it's not locked
    *
@@ -216,6 +295,38 @@ public interface FileSystem<A extends FileAttributes> {
    */
   void delete(String filePath);
 
+  /**
+   * Deletes the files directly under the {@code directoryPath} which match the given {@code matcher}, provided that they're not
+   * locked. Subdirectories are left untouched.
+   * <p>
+   * Files which can't be deleted don't stop the rest from being deleted, they are all reported at the end.
+   *
+   * @param directoryPath the path to the directory which files are deleted
+   * @param matcher       the predicate the deleted files match
+   * @return the paths of the deleted files
+   * @throws IllegalArgumentException if {@code directoryPath} doesn't exist or is not a directory
+   */
+  List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher);
+
+  /**
+   * Moves the files directly under the {@code directoryPath} which match the given {@code matcher} into the {@code targetPath}
+   * directory, keeping their names. Subdirectories are left untouched.
+   * <p>
+   * If the {@code targetPath} doesn't exist, then it is created depending on the value of {@code createParentDirectories}.
+   * Files which already exist in the {@code targetPath} are replaced only if {@code overwrite} is {@code true}. Files which can't
+   * be moved don't stop the rest from being moved, they are all reported at the end.
+   *
+   * @param directoryPath           the path to the directory which files are moved
+   * @param targetPath              the target directory
+   * @param matcher                 the predicate the moved files match
+   * @param overwrite               whether or not overwrite the files which already exist in the target directory
+   * @param createParentDirectories whether or not to attempt creating the target directory if it doesn't exist
+   * @return the new paths of the moved files
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher, boolean overwrite,
+                            boolean createParentDirectories);
+
   /**
    * Renames the file pointed by {@code filePath} to the provided {@code newName}
    *
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+import org.mule.runtime.api.exception.MuleRuntimeException;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the entries which could not be processed by a batch of pipelined requests so they can all be reported at the end.
+ *
+ * @since 2.5
+ */
+final class SftpBatchFailures {
+
+  private static final int MAX_REPORTED_FAILURES = 10;
+
+  private final Queue<Entry<String, Exception>> failures = new ConcurrentLinkedQueue<>();
+
+  void add(String path, Exception cause) {
+    failures.add(new SimpleImmutableEntry<>(path, cause));
+  }
+
+  boolean isEmpty() {
+    return failures.isEmpty();
+  }
+
+  int size() {
+    return failures.size();
+  }
+
+  /**
+   * @return the failures keyed by the path they happened for, in the order they happened
+   */
+  Map<String, Exception> toMap() {
+    Map<String, Exception> failuresByPath = new LinkedHashMap<>();
+    failures.forEach(failure -> failuresByPath.put(failure.getKey(), failure.getValue()));
+    return failuresByPath;
+  }
+
+  /**
+   * A single failure is surfaced as is, so it keeps its error type. Many failures are summarized listing the first
+   * {@link #MAX_REPORTED_FAILURES} paths.
+   *
+   * @param client  the client used to map a single failure which is not a {@link RuntimeException}
+   * @param action  the action which failed, as in {@code Could not <action> <path>}
+   * @param summary the message preceding the list of failed paths when there is more than one
+   * @return the exception to be thrown
+   */
+  RuntimeException toException(SftpClient client, String action, String summary) {
+    Entry<String, Exception> first = failures.peek();
+    if (failures.size() == 1) {
+      return first.getValue() instanceof RuntimeException ? (RuntimeException) first.getValue()
+          : client.handleException(format("Could not %s %s", action, first.getKey()), first.getValue());
+    }
+    String failedPaths = failures.stream().limit(MAX_REPORTED_FAILURES).map(Entry::getKey).collect(joining(", "));
+    if (failures.size() > MAX_REPORTED_FAILURES) {
+      failedPaths += ", ...";
+    }
+    return new MuleRuntimeException(createStaticMessage(summary + ": " + failedPaths), first.getValue());
+  }
+}
@@ -6,6 +6,8 @@
  */
 package org.mule.extension.sftp.internal.connection;
 
+import static org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter.DEFAULT_UPLOAD_PARTS;
+import static org.mule.extension.sftp.internal.connection.write.SftpPipelinedWriter.DEFAULT_MAX_PENDING_WRITES;
 import static org.mule.extension.sftp.internal.error.FileError.CONNECTIVITY;
 import static org.mule.extension.sftp.internal.util.SftpUtils.normalizePath;
 import static org.mule.extension.sftp.internal.util.SftpUtils.resolvePathOrResource;
@@ -20,7 +22,11 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_CONNECTION_LOST;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_FAILURE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_FILE_ALREADY_EXISTS;
 import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_NO_CONNECTION;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_NO_SUCH_FILE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_OP_UNSUPPORTED;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import org.apache.sshd.client.config.SshClientConfigFileReader;
@@ -39,6 +45,7 @@ import org.mule.extension.sftp.internal.connection.write.SftpWriteStrategyHelper
 import org.mule.extension.sftp.internal.connection.write.SftpWriter;
 import org.mule.extension.sftp.internal.error.FileError;
 import org.mule.extension.sftp.internal.exception.FileAccessDeniedException;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
 import org.mule.extension.sftp.internal.exception.IllegalPathException;
 import org.mule.extension.sftp.internal.exception.SftpConnectionException;
 import org.mule.runtime.api.connection.ConnectionException;
@@ -55,14 +62,21 @@ import java.net.SocketAddress;
 import java.net.URI;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.time.Duration;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.sshd.client.ClientBuilder;
 import org.apache.sshd.client.SshClient;
@@ -73,6 +87,12 @@ import org.apache.sshd.common.config.keys.FilePasswordProvider;
 import org.apache.sshd.common.util.GenericUtils;
 import org.apache.sshd.core.CoreModuleProperties;
 import org.apache.sshd.sftp.client.SftpClient.OpenMode;
+import org.apache.sshd.sftp.client.extensions.CopyDataExtension;
+import org.apache.sshd.sftp.client.extensions.CopyFileExtension;
+import org.apache.sshd.sftp.client.extensions.MD5FileExtension;
+import org.apache.sshd.sftp.client.extensions.openssh.OpenSSHPosixRenameExtension;
+import org.apache.sshd.sftp.client.impl.AbstractSftpClient;
+import org.apache.sshd.sftp.client.impl.SftpOutputStreamAsync;
 import org.apache.sshd.sftp.common.SftpConstants;
 import org.apache.sshd.sftp.common.SftpException;
 import org.slf4j.Logger;
@@ -86,6 +106,7 @@ public class SftpClient {
 
   private static final Logger LOGGER = getLogger(SftpClient.class);
   protected static final OpenMode[] CREATE_MODES = {OpenMode.Write, OpenMode.Create, OpenMode.Truncate};
+  protected static final OpenMode[] CREATE_NEW_MODES = {OpenMode.Write, OpenMode.Create, OpenMode.Exclusive};
   //This change is required for SFTP protocol version 6 and to create file in append mode if it does not exist.
   protected static final OpenMode[] APPEND_MODES = {OpenMode.Write, OpenMode.Append, OpenMode.Create};
   protected static final OpenMode[] CUSTOM_APPEND_MODES = {OpenMode.Write, OpenMode.Create};
@@ -114,11 +135,14 @@ public class SftpClient {
   private SftpFileSystemConnection owner;
 
   private String cwd = "/";
+  // directories known to exist in the remote server, used to skip creating them again
+  private final Set<String> knownDirectories = ConcurrentHashMap.newKeySet();
   private static final Object LOCK = new Object();
   private String home;
   private long heartBeatInterval = 30000; // 30 seconds heartbeat interval
 
   protected SchedulerService schedulerService;
+  private Scheduler ioScheduler;
 
   /**
    * Creates a new instance which connects to a server on a given {@code host} and {@code port}
@@ -348,7 +372,9 @@ public class SftpClient {
    */
   public void rename(String sourcePath, String target) {
     try {
-      sftp.rename(normalizeRemotePath(sourcePath), normalizeRemotePath(target));
+      String remoteSourcePath = normalizeRemotePath(sourcePath);
+      sftp.rename(remoteSourcePath, normalizeRemotePath(target));
+      forgetDirectory(remoteSourcePath);
       if (LOGGER.isTraceEnabled()) {
         LOGGER.trace("Renamed {} to {}", sourcePath, target);
       }
@@ -357,6 +383,32 @@ public class SftpClient {
     }
   }
 
+  /**
+   * Renames the file at {@code sourcePath} to {@code target} through the {@code posix-rename@openssh.com} extension, which
+   * atomically replaces the {@code target} if it already exists, in a single round trip.
+   *
+   * @param sourcePath the path to the renamed file
+   * @param target     the new path
+   * @return {@code false} if the server doesn't support the extension, in which case nothing was done
+   * @throws IOException if the server failed to rename the file
+   */
+  public boolean posixRename(String sourcePath, String target) throws IOException {
+    OpenSSHPosixRenameExtension posixRename = sftp.getExtension(OpenSSHPosixRenameExtension.class);
+    if (posixRename == null || !posixRename.isSupported()) {
+      return false;
+    }
+
+    String remoteSourcePath = normalizeRemotePath(sourcePath);
+    String remoteTargetPath = normalizeRemotePath(target);
+    posixRename.posixRename(remoteSourcePath, remoteTargetPath);
+    forgetDirectory(remoteSourcePath);
+    forgetDirectory(remoteTargetPath);
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace("Renamed {} to {} using the {} extension", sourcePath, target, posixRename.getName());
+    }
+    return true;
+  }
+
   /**
    * Deletes the file at the given {@code path}
    *
@@ -374,6 +426,91 @@ public class SftpClient {
     }
   }
 
+  /**
+   * Copies the file at {@code sourcePath} into {@code targetPath} on the server side, without transferring its content
+   * through this client. The {@code copy-file} SFTP extension is used if the server advertises it, {@code copy-data} is used
+   * otherwise, opening the target like a regular write would. Missing parent directories of the target are created.
+   *
+   * @param sourcePath the path of the file to copy
+   * @param targetPath the path of the copy
+   * @param overwrite  whether to overwrite the target if it already exists
+   * @return {@code false} if the server supports none of the extensions, in which case nothing was done
+   * @throws IOException if the server failed to copy the file
+   */
+  public boolean copyOnServer(String sourcePath, String targetPath, boolean overwrite) throws IOException {
+    String remoteSourcePath = normalizeRemotePath(sourcePath);
+    String remoteTargetPath = normalizeRemotePath(targetPath);
+
+    CopyFileExtension copyFile = sftp.getExtension(CopyFileExtension.class);
+    if (copyFile != null && copyFile.isSupported()) {
+      try {
+        copyFile.copyFile(remoteSourcePath, remoteTargetPath, overwrite);
+      } catch (SftpException e) {
+        String parent = getParentPath(remoteTargetPath);
+        if (e.getStatus() != SSH_FX_NO_SUCH_FILE || parent == null) {
+          throw e;
+        }
+        knownDirectories.remove(parent);
+        createDirectories(parent);
+        copyFile.copyFile(remoteSourcePath, remoteTargetPath, overwrite);
+      }
+      LOGGER.debug("Copied {} to {} on the server using the {} extension", sourcePath, targetPath, copyFile.getName());
+      return true;
+    }
+
+    CopyDataExtension copyData = sftp.getExtension(CopyDataExtension.class);
+    if (copyData != null && copyData.isSupported()) {
+      try (org.apache.sshd.sftp.client.SftpClient.CloseableHandle source = sftp.open(remoteSourcePath, OpenMode.Read);
+          org.apache.sshd.sftp.client.SftpClient.CloseableHandle target =
+              open(remoteTargetPath, overwrite ? FileWriteMode.OVERWRITE : FileWriteMode.CREATE_NEW, true)) {
+        // a length of zero copies up to the end of the source
+        copyData.copyData(source, 0, 0, target, 0);
+      } catch (SftpException e) {
+        if (e.getStatus() == SSH_FX_OP_UNSUPPORTED) {
+          // the caller falls back to streaming, which must not find the file created above
+          sftp.remove(remoteTargetPath);
+        }
+        throw e;
+      }
+      LOGGER.debug("Copied {} to {} on the server using the {} extension", sourcePath, targetPath, copyData.getName());
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Computes the MD5 hash of the file at the given {@code path}. The server computes it if it supports the {@code md5-hash}
+   * extension, otherwise the file is read and hashed locally.
+   *
+   * @param path the path to the file
+   * @return the MD5 hash of the file content
+   * @throws IOException if the file could not be hashed
+   */
+  public byte[] md5(String path) throws IOException {
+    String remotePath = normalizeRemotePath(path);
+    MD5FileExtension md5 = sftp.getExtension(MD5FileExtension.class);
+    if (md5 != null && md5.isSupported()) {
+      // a length of zero hashes up to the end of the file, an empty quick hash skips the server side precheck
+      return md5.getHash(remotePath, 0, 0, new byte[0]);
+    }
+
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new MuleRuntimeException(createStaticMessage("MD5 is not available to hash the file " + path), e);
+    }
+    try (InputStream content = sftp.read(remotePath)) {
+      byte[] buffer = new byte[32 * 1024];
+      int read;
+      while ((read = content.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return digest.digest();
+  }
+
   /**
    * Closes the active session and severs the connection (if any of those were active)
    */
@@ -405,6 +542,8 @@ public class SftpClient {
         sftp = null;
       }
     }
+    knownDirectories.clear();
+    stopIoScheduler();
     if (LOGGER.isTraceEnabled()) {
       LOGGER.trace("Disconnected from {}:{}", host, port);
     }
@@ -442,6 +581,44 @@ public class SftpClient {
         .collect(toImmutableList());
   }
 
+  /**
+   * Lists the given {@code path} handing its entries to the {@code consumer} one chunk at a time, as they arrive from the server,
+   * instead of waiting for the whole directory to be read.
+   *
+   * @param path     the path of the directory to list
+   * @param consumer receives every chunk of entries, including the {@code .} and {@code ..} ones
+   */
+  public void list(String path, Consumer<List<SftpFileAttributes>> consumer) {
+    listWhile(path, entries -> {
+      consumer.accept(entries);
+      return true;
+    });
+  }
+
+  /**
+   * Same as {@link #list(String, Consumer)}, except that the listing stops as soon as the {@code consumer} returns {@code false},
+   * without reading the rest of the directory.
+   *
+   * @param path     the path of the directory to list
+   * @param consumer receives every chunk of entries, including the {@code .} and {@code ..} ones, and tells whether to go on
+   * @return whether every entry of the directory was handed to the {@code consumer}
+   */
+  public boolean listWhile(String path, Predicate<List<SftpFileAttributes>> consumer) {
+    try (org.apache.sshd.sftp.client.SftpClient.CloseableHandle handle = sftp.openDir(normalizeRemotePath(path))) {
+      for (List<org.apache.sshd.sftp.client.SftpClient.DirEntry> entries = sftp.readDir(handle); entries != null; entries =
+          sftp.readDir(handle)) {
+        if (!consumer.test(entries.stream()
+            .map(entry -> new SftpFileAttributes(createUri(path, entry.getFilename()), entry.getAttributes()))
+            .collect(toImmutableList()))) {
+          return false;
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      throw handleException(format("Found exception trying to list path %s", path), e);
+    }
+  }
+
   /**
    * An {@link InputStream} with the contents of the file at the given {@code path}
    *
@@ -469,8 +646,32 @@ public class SftpClient {
   public void write(String path, InputStream stream, FileWriteMode mode, URI uri,
                     WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy)
       throws IOException {
-    SftpWriter sftpWriter = SftpWriteStrategyHelper.getStrategy(this, this.sftp, writeStrategy, bufferSizeForWriteStrategy);
-    sftpWriter.write(path, stream, mode, uri);
+    write(path, stream, mode, uri, false, writeStrategy, bufferSizeForWriteStrategy, DEFAULT_MAX_PENDING_WRITES,
+          DEFAULT_UPLOAD_PARTS, true);
+  }
+
+  /**
+   * Writes the contents of the {@code stream} into the file at the given {@code path}
+   *
+   * @param path   the path to write into
+   * @param stream the content to be written
+   * @param mode   the write mode
+   * @param uri    the uri of the file
+   * @param createParentDirectories whether to create the missing parent directories of the file
+   * @param writeStrategy           a {@link WriteStrategy} defaults to STANDARD
+   * @param bufferSizeForWriteStrategy  a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites        the maximum amount of write requests in flight when using {@link WriteStrategy#PIPELINED}
+   * @param uploadParts             the amount of parts uploaded concurrently when using {@link WriteStrategy#MULTIPART}
+   * @param uploadToTemporaryFile   whether {@link WriteStrategy#MULTIPART} uploads into a temporary file renamed at the end
+   */
+  public void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories,
+                    WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites,
+                    int uploadParts, boolean uploadToTemporaryFile)
+      throws IOException {
+    SftpWriter sftpWriter =
+        SftpWriteStrategyHelper.getStrategy(this, this.sftp, writeStrategy, bufferSizeForWriteStrategy, maxPendingWrites,
+                                            uploadParts, uploadToTemporaryFile);
+    sftpWriter.write(path, stream, mode, uri, createParentDirectories);
   }
 
   public SftpFileAttributes getFile(URI uri) {
@@ -541,13 +742,33 @@ public class SftpClient {
    * @return an {@link OutputStream}
    */
   public OutputStream getOutputStream(String path, FileWriteMode mode) throws IOException {
-    return sftp.write(normalizeRemotePath(path), toApacheSshdModes(mode));
+    return getOutputStream(path, mode, false);
+  }
+
+  /**
+   * Opens an {@link OutputStream} which allows writing into the file pointed by {@code path}. The file is opened through
+   * {@link #open(String, FileWriteMode, boolean)}.
+   *
+   * @param path                    the path to write into
+   * @param mode                    the write mode
+   * @param createParentDirectories whether to create the missing parent directories of {@code path}
+   * @return an {@link OutputStream}
+   */
+  public OutputStream getOutputStream(String path, FileWriteMode mode, boolean createParentDirectories) throws IOException {
+    org.apache.sshd.sftp.client.SftpClient.CloseableHandle handle = open(path, mode, createParentDirectories);
+    if (!(sftp instanceof AbstractSftpClient)) {
+      handle.close();
+      return sftp.write(normalizeRemotePath(path), toApacheSshdModes(mode));
+    }
+    return new SftpOutputStreamAsync((AbstractSftpClient) sftp, 0, normalizeRemotePath(path), handle);
   }
 
   private OpenMode[] toApacheSshdModes(FileWriteMode mode) {
     OpenMode[] modes;
     switch (mode) {
       case CREATE_NEW:
+        modes = CREATE_NEW_MODES;
+        break;
       case OVERWRITE:
         modes = CREATE_MODES;
         break;
@@ -588,12 +809,98 @@ public class SftpClient {
    */
   public void deleteDirectory(String path) {
     try {
-      sftp.rmdir(normalizeRemotePath(path));
+      String remotePath = normalizeRemotePath(path);
+      sftp.rmdir(remotePath);
+      forgetDirectory(remotePath);
     } catch (IOException e) {
       throw handleException(format("Could not delete directory %s", path), e);
     }
   }
 
+  /**
+   * Deletes the directory at the given {@code path} with all of its content, keeping several removal requests in flight at the
+   * same time. Entries which can't be deleted don't stop the rest of the tree from being deleted, they are all reported at the
+   * end.
+   *
+   * @param path               the path of the directory to be deleted
+   * @param beforeFileDeletion invoked with the path of every file before it is deleted, the file is kept if it throws
+   * @return {@code false} if this client can't pipeline requests, in which case nothing was done
+   */
+  public boolean deleteTree(String path, Consumer<String> beforeFileDeletion) {
+    if (!(sftp instanceof SftpConcurrentClient)) {
+      return false;
+    }
+    String remotePath = normalizeRemotePath(path);
+    try {
+      new SftpTreeDeleter(this, (SftpConcurrentClient) sftp, beforeFileDeletion, SftpTreeDeleter.DEFAULT_MAX_PENDING_REQUESTS)
+          .delete(remotePath);
+    } finally {
+      forgetDirectory(remotePath);
+    }
+    return true;
+  }
+
+  /**
+   * Deletes the files directly under the directory at {@code path} which match the {@code matcher}, keeping many removal
+   * requests in flight and issuing them as the listing arrives. Files which can't be deleted don't stop the rest, they are all
+   * reported at the end.
+   *
+   * @param path               the path of the directory
+   * @param matcher            the predicate the deleted files match, tested against the attributes of the listing
+   * @param beforeFileDeletion invoked with the path of every matching file before it is deleted, the file is kept if it throws
+   * @return the paths of the deleted files
+   */
+  public List<String> deleteMatching(String path, Predicate<SftpFileAttributes> matcher, Consumer<String> beforeFileDeletion) {
+    return newFileBatch().delete(path, matcher, beforeFileDeletion);
+  }
+
+  /**
+   * Moves the files directly under the directory at {@code path} which match the {@code matcher} into the existing
+   * {@code targetDirectory}, keeping many rename requests in flight and issuing them as the listing arrives. Files which can't
+   * be moved don't stop the rest, they are all reported at the end.
+   *
+   * @param path            the path of the directory
+   * @param targetDirectory the path of the directory the files are moved into
+   * @param matcher         the predicate the moved files match, tested against the attributes of the listing
+   * @param overwrite       whether files which already exist in the {@code targetDirectory} are replaced
+   * @param beforeFileMove  invoked with the path of every matching file before it is moved, the file is kept if it throws
+   * @return the new paths of the moved files
+   */
+  public List<String> moveMatching(String path, String targetDirectory, Predicate<SftpFileAttributes> matcher, boolean overwrite,
+                                   Consumer<String> beforeFileMove) {
+    return newFileBatch().move(path, targetDirectory, matcher, overwrite, beforeFileMove);
+  }
+
+  /**
+   * Renames each file to the path it is mapped to, keeping many rename requests in flight. Files which can't be renamed don't
+   * stop the rest, their failures are returned instead of thrown.
+   *
+   * @param targets   the paths of the files mapped to their new paths, which must be in existing directories
+   * @param overwrite whether targets which already exist are replaced
+   * @return the failures of the files which could not be renamed, keyed by their paths
+   */
+  public Map<String, Exception> renameAll(Map<String, String> targets, boolean overwrite) {
+    return newFileBatch().rename(targets, overwrite);
+  }
+
+  /**
+   * Deletes each of the given files, keeping many removal requests in flight. Files which can't be deleted don't stop the rest,
+   * their failures are returned instead of thrown.
+   *
+   * @param paths the paths of the files
+   * @return the failures of the files which could not be deleted, keyed by their paths
+   */
+  public Map<String, Exception> deleteAll(Collection<String> paths) {
+    return newFileBatch().remove(paths);
+  }
+
+  private SftpFileBatch newFileBatch() {
+    if (!(sftp instanceof SftpConcurrentClient)) {
+      throw new MuleRuntimeException(createStaticMessage("The SFTP channel of this connection can't pipeline requests"));
+    }
+    return new SftpFileBatch(this, (SftpConcurrentClient) sftp, SftpFileBatch.DEFAULT_MAX_PENDING_REQUESTS);
+  }
+
   public String getHost() {
     return host;
   }
@@ -689,6 +996,177 @@ public class SftpClient {
   }
 
   public org.apache.sshd.sftp.client.SftpClient.CloseableHandle open(String path, FileWriteMode writeMode) throws IOException {
-    return sftp.open(normalizeRemotePath(path), toApacheSshdModes(writeMode));
+    return open(path, writeMode, false);
+  }
+
+  /**
+   * Opens the file at {@code path} for writing without checking its parent directory first. Only if the server answers
+   * that the path doesn't exist, the missing parent directories are created (starting from the deepest one) and the file
+   * is opened again.
+   *
+   * @param path                    the path of the file to open
+   * @param writeMode               the write mode
+   * @param createParentDirectories whether to create the missing parent directories of {@code path}
+   * @return the handle of the open file
+   * @throws IllegalPathException       if the parent directory doesn't exist and {@code createParentDirectories} is false
+   * @throws FileAlreadyExistsException if {@code writeMode} is {@link FileWriteMode#CREATE_NEW} and the file exists
+   */
+  public org.apache.sshd.sftp.client.SftpClient.CloseableHandle open(String path, FileWriteMode writeMode,
+                                                                     boolean createParentDirectories)
+      throws IOException {
+    String remotePath = normalizeRemotePath(path);
+    OpenMode[] modes = toApacheSshdModes(writeMode);
+    try {
+      return doOpen(path, remotePath, writeMode, modes);
+    } catch (SftpException e) {
+      String parent = getParentPath(remotePath);
+      if (e.getStatus() != SSH_FX_NO_SUCH_FILE || parent == null) {
+        throw e;
+      }
+      if (!createParentDirectories) {
+        throw new IllegalPathException(format("Cannot write to file '%s' because path to it doesn't exist. Consider setting the 'createParentDirectories' attribute to 'true'",
+                                              path),
+                                       e);
+      }
+      // the cached parent, if any, is stale
+      knownDirectories.remove(parent);
+      createDirectories(parent);
+      return doOpen(path, remotePath, writeMode, modes);
+    }
+  }
+
+  private org.apache.sshd.sftp.client.SftpClient.CloseableHandle doOpen(String path, String remotePath, FileWriteMode writeMode,
+                                                                        OpenMode[] modes)
+      throws IOException {
+    try {
+      return sftp.open(remotePath, modes);
+    } catch (SftpException e) {
+      if (writeMode == FileWriteMode.CREATE_NEW
+          && (e.getStatus() == SSH_FX_FILE_ALREADY_EXISTS || e.getStatus() == SSH_FX_FAILURE)
+          && stat(remotePath) != null) {
+        throw new FileAlreadyExistsException(format("Cannot write to path '%s' because it already exists and write mode '%s' was selected. "
+            + "Use a different write mode or point to a path which doesn't exist", path, writeMode));
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Creates the directory at {@code path} and any missing parent, skipping the ones already known to exist.
+   *
+   * @param path the path of the directory to create
+   */
+  public void mkdirs(String path) {
+    String remotePath = normalizeRemotePath(path);
+    try {
+      knownDirectories.remove(remotePath);
+      createDirectories(remotePath);
+    } catch (IOException e) {
+      throw handleException(format("Could not create the directory %s", path), e);
+    }
+  }
+
+  private void createDirectories(String directory) throws IOException {
+    if (directory == null || "/".equals(directory) || knownDirectories.contains(directory)) {
+      return;
+    }
+    try {
+      makeDirectory(directory);
+    } catch (SftpException e) {
+      String parent = getParentPath(directory);
+      if (e.getStatus() != SSH_FX_NO_SUCH_FILE || parent == null) {
+        throw e;
+      }
+      knownDirectories.remove(parent);
+      createDirectories(parent);
+      makeDirectory(directory);
+    }
+    knownDirectories.add(directory);
+  }
+
+  private void makeDirectory(String directory) throws IOException {
+    if (LOGGER.isTraceEnabled()) {
+      LOGGER.trace("Trying to create directory {}", directory);
+    }
+    try {
+      sftp.mkdir(directory);
+    } catch (SftpException e) {
+      // it may have been created concurrently
+      if (e.getStatus() == SSH_FX_NO_SUCH_FILE) {
+        throw e;
+      }
+      org.apache.sshd.sftp.client.SftpClient.Attributes attributes = stat(directory);
+      if (attributes == null || !attributes.isDirectory()) {
+        throw e;
+      }
+    }
+  }
+
+  private org.apache.sshd.sftp.client.SftpClient.Attributes stat(String remotePath) throws IOException {
+    try {
+      return sftp.stat(remotePath);
+    } catch (SftpException e) {
+      if (e.getStatus() == SSH_FX_NO_SUCH_FILE) {
+        return null;
+      }
+      throw e;
+    }
+  }
+
+  private void forgetDirectory(String remotePath) {
+    knownDirectories.removeIf(directory -> directory.equals(remotePath) || directory.startsWith(remotePath + "/"));
+  }
+
+  /**
+   * @return the parent of the given normalized remote path, or {@code null} if it is the root
+   */
+  private static String getParentPath(String remotePath) {
+    int index = remotePath.lastIndexOf('/');
+    if (index < 0 || remotePath.length() == 1) {
+      return null;
+    }
+    return index == 0 ? "/" : remotePath.substring(0, index);
+  }
+
+  /**
+   * Opens an additional SFTP channel over the session of this client. The caller is responsible for closing it.
+   *
+   * @return a new {@link org.apache.sshd.sftp.client.SftpClient} sharing this client's session
+   * @throws IOException if the channel could not be opened
+   */
+  public org.apache.sshd.sftp.client.SftpClient openChannel() throws IOException {
+    if (session == null || !session.isOpen()) {
+      throw new IOException("Cannot open a new channel because the session is not open");
+    }
+    return SftpConcurrentClientFactory.instance().createSftpClient(session);
+  }
+
+  public SchedulerService getSchedulerService() {
+    return schedulerService;
+  }
+
+  /**
+   * Returns the scheduler the operations over this connection run their concurrent work on. It's created on first use, shared
+   * by all of them and stopped when this client is {@link #disconnect() disconnected}, so the operations must not stop it. Each
+   * operation bounds its own concurrency through the number of tasks it submits.
+   *
+   * @return the IO {@link Scheduler} of this connection, or {@code null} if there's no {@link SchedulerService}
+   * @since 2.5
+   */
+  public synchronized Scheduler getIoScheduler() {
+    if (ioScheduler == null && schedulerService != null) {
+      ioScheduler = schedulerService.ioScheduler(SchedulerConfig.config().withName("sftp-connection-io"));
+    }
+    return ioScheduler;
+  }
+
+  private synchronized void stopIoScheduler() {
+    if (ioScheduler != null) {
+      try {
+        ioScheduler.stop();
+      } finally {
+        ioScheduler = null;
+      }
+    }
   }
 }
@@ -12,9 +12,13 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.common.util.buffer.Buffer;
+import org.apache.sshd.common.util.buffer.ByteArrayBuffer;
+import org.apache.sshd.sftp.client.SftpClient;
 import org.apache.sshd.sftp.client.SftpErrorDataHandler;
 import org.apache.sshd.sftp.client.SftpVersionSelector;
+import org.apache.sshd.sftp.client.extensions.openssh.OpenSSHPosixRenameExtension;
 import org.apache.sshd.sftp.client.impl.DefaultSftpClient;
+import org.apache.sshd.sftp.common.SftpConstants;
 
 
 /**
@@ -57,4 +61,131 @@ public class SftpConcurrentClient extends DefaultSftpClient {
       this.sendLock.unlock();
     }
   }
+
+  /**
+   * Sends a SSH_FXP_WRITE request without waiting for the server acknowledgement. The returned request id must be
+   * handed to {@link #checkWriteResponse(int)} to collect the status of the write.
+   *
+   * @param handle the handle of the open file
+   * @param offset the offset in the remote file at which the data is written
+   * @param buf    the data to write
+   * @param off    the offset in {@code buf} of the first byte to write
+   * @param len    the number of bytes to write
+   * @return the id of the request sent
+   * @throws IOException if the request could not be sent
+   */
+  public int sendWrite(SftpClient.Handle handle, long offset, byte[] buf, int off, int len) throws IOException {
+    if (!isOpen()) {
+      throw new IOException("write(" + handle + "/" + offset + ")[" + off + "/" + len + "] client is closed");
+    }
+    byte[] id = handle.getIdentifier();
+    Buffer buffer = new ByteArrayBuffer(id.length + len + Long.SIZE, false);
+    buffer.putBytes(id);
+    buffer.putLong(offset);
+    buffer.putBytes(buf, off, len);
+    return send(SftpConstants.SSH_FXP_WRITE, buffer);
+  }
+
+  /**
+   * Waits for the acknowledgement of a write request previously sent through {@link #sendWrite}.
+   *
+   * @param requestId the id returned by {@link #sendWrite}
+   * @throws IOException if the server reported an error for the write or the response could not be read
+   */
+  public void checkWriteResponse(int requestId) throws IOException {
+    checkResponseStatus(response(SftpConstants.SSH_FXP_WRITE, requestId));
+  }
+
+  /**
+   * Sends a SSH_FXP_REMOVE request without waiting for the server acknowledgement. The returned request id must be handed
+   * to {@link #checkStatusResponse(int, int)} to collect the status of the removal.
+   *
+   * @param path the path of the file to remove
+   * @return the id of the request sent
+   * @throws IOException if the request could not be sent
+   */
+  public int sendRemove(String path) throws IOException {
+    return sendPathRequest(SftpConstants.SSH_FXP_REMOVE, path);
+  }
+
+  /**
+   * Sends a SSH_FXP_RMDIR request without waiting for the server acknowledgement. The returned request id must be handed
+   * to {@link #checkStatusResponse(int, int)} to collect the status of the removal.
+   *
+   * @param path the path of the directory to remove
+   * @return the id of the request sent
+   * @throws IOException if the request could not be sent
+   */
+  public int sendRmdir(String path) throws IOException {
+    return sendPathRequest(SftpConstants.SSH_FXP_RMDIR, path);
+  }
+
+  /**
+   * Sends a request renaming {@code source} to {@code target} without waiting for the server acknowledgement. The returned
+   * request id must be handed to {@link #checkStatusResponse(int, int)} along with {@link SftpConstants#SSH_FXP_RENAME}.
+   * <p>
+   * When {@code overwrite} is {@code true} the {@code posix-rename@openssh.com} extension is preferred, falling back to the
+   * overwrite flag of version 5 and later of the protocol. Callers should check {@link #canRenameOverwriting()} first, since
+   * otherwise the rename fails if the {@code target} exists.
+   *
+   * @param source    the path of the file to rename
+   * @param target    the new path
+   * @param overwrite whether the {@code target} is replaced if it exists
+   * @return the id of the request sent
+   * @throws IOException if the request could not be sent
+   */
+  public int sendRename(String source, String target, boolean overwrite) throws IOException {
+    if (!isOpen()) {
+      throw new IOException("rename(" + source + " => " + target + ") client is closed");
+    }
+    OpenSSHPosixRenameExtension posixRename = overwrite ? getPosixRenameExtension() : null;
+    if (posixRename != null) {
+      Buffer buffer = new ByteArrayBuffer(source.length() + target.length() + Long.SIZE, false);
+      buffer.putString(posixRename.getName());
+      buffer.putString(source);
+      buffer.putString(target);
+      return send(SftpConstants.SSH_FXP_EXTENDED, buffer);
+    }
+
+    Buffer buffer = new ByteArrayBuffer(source.length() + target.length() + Long.SIZE, false);
+    buffer = putReferencedName(SftpConstants.SSH_FXP_RENAME, buffer, source, 0);
+    buffer = putReferencedName(SftpConstants.SSH_FXP_RENAME, buffer, target, 1);
+    if (getVersion() >= SftpConstants.SFTP_V5) {
+      buffer.putInt(overwrite ? SftpConstants.SSH_FXP_RENAME_OVERWRITE : 0);
+    }
+    return send(SftpConstants.SSH_FXP_RENAME, buffer);
+  }
+
+  /**
+   * @return whether {@link #sendRename(String, String, boolean)} is able to replace an existing target
+   */
+  public boolean canRenameOverwriting() {
+    return getVersion() >= SftpConstants.SFTP_V5 || getPosixRenameExtension() != null;
+  }
+
+  /**
+   * Waits for the status response of a request previously sent through {@link #sendRemove}, {@link #sendRmdir} or
+   * {@link #sendRename}.
+   *
+   * @param cmd       the command of the request
+   * @param requestId the id returned when the request was sent
+   * @throws IOException if the server reported an error for the request or the response could not be read
+   */
+  public void checkStatusResponse(int cmd, int requestId) throws IOException {
+    checkResponseStatus(response(cmd, requestId));
+  }
+
+  private OpenSSHPosixRenameExtension getPosixRenameExtension() {
+    OpenSSHPosixRenameExtension posixRename = getExtension(OpenSSHPosixRenameExtension.class);
+    return posixRename != null && posixRename.isSupported() ? posixRename : null;
+  }
+
+  private int sendPathRequest(int cmd, String path) throws IOException {
+    if (!isOpen()) {
+      throw new IOException(SftpConstants.getCommandMessageName(cmd) + "(" + path + ") client is closed");
+    }
+    Buffer buffer = new ByteArrayBuffer(path.length() + Long.SIZE, false);
+    buffer = putReferencedName(cmd, buffer, path, 0);
+    return send(cmd, buffer);
+  }
 }
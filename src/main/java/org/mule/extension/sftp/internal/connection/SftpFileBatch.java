@@ -0,0 +1,306 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.extension.sftp.internal.util.UriUtils.trimLastFragment;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toSet;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_REMOVE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_RENAME;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.FileAttributes;
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+
+/**
+ * Deletes or moves the files of a directory which match a given predicate, keeping a window of requests in flight on a single
+ * channel instead of waiting for the acknowledgement of each one before sending the next.
+ * <p>
+ * Requests are issued as the chunks of the listing arrive from the server and rely on the attributes of the listing, so no file
+ * is stat'ed. Files which can't be processed don't stop the rest, they are all reported at the end.
+ *
+ * @since 2.5
+ */
+final class SftpFileBatch {
+
+  private static final Logger LOGGER = getLogger(SftpFileBatch.class);
+
+  /**
+   * Default amount of requests kept in flight
+   */
+  static final int DEFAULT_MAX_PENDING_REQUESTS = 64;
+
+  private final SftpClient muleSftpClient;
+  private final SftpConcurrentClient apacheSftpClient;
+  private final int maxPendingRequests;
+
+  private final Deque<Request> inFlight = new ArrayDeque<>();
+  private final SftpBatchFailures failures = new SftpBatchFailures();
+  private final List<String> processed = new ArrayList<>();
+
+  /**
+   * @param muleSftpClient     the client used to list the directories
+   * @param apacheSftpClient   the client through which the requests are sent
+   * @param maxPendingRequests the maximum amount of requests in flight
+   */
+  SftpFileBatch(SftpClient muleSftpClient, SftpConcurrentClient apacheSftpClient, int maxPendingRequests) {
+    this.muleSftpClient = muleSftpClient;
+    this.apacheSftpClient = apacheSftpClient;
+    this.maxPendingRequests = Math.max(1, maxPendingRequests);
+  }
+
+  /**
+   * Deletes the files directly under {@code directory} which match the {@code matcher}
+   *
+   * @param directory          the path of the directory
+   * @param matcher            the predicate the deleted files match
+   * @param beforeFileDeletion invoked with the path of every matching file before requesting its removal. The file is kept if it
+   *                           throws
+   * @return the paths of the deleted files
+   */
+  List<String> delete(String directory, Predicate<SftpFileAttributes> matcher, Consumer<String> beforeFileDeletion) {
+    run(directory, matcher, file -> {
+      beforeFileDeletion.accept(file.getPath());
+      return new Request(SSH_FXP_REMOVE, file.getPath(), null, false, file.getPath());
+    });
+
+    LOGGER.debug("Deleted {} files from {}, {} could not be deleted", processed.size(), directory, failures.size());
+    if (!failures.isEmpty()) {
+      String summary = format("Deleted %d files from '%s' but %d could not be deleted", processed.size(), directory,
+                              failures.size());
+      throw failures.toException(muleSftpClient, "delete", summary);
+    }
+    return processed;
+  }
+
+  /**
+   * Moves the files directly under {@code directory} which match the {@code matcher} into the {@code targetDirectory}, keeping
+   * their names.
+   *
+   * @param directory       the path of the directory
+   * @param targetDirectory the path of the existing directory the files are moved into
+   * @param matcher         the predicate the moved files match
+   * @param overwrite       whether files which already exist in the {@code targetDirectory} are replaced
+   * @param beforeFileMove  invoked with the path of every matching file before requesting its move. The file is kept if it
+   *                        throws
+   * @return the new paths of the moved files
+   */
+  List<String> move(String directory, String targetDirectory, Predicate<SftpFileAttributes> matcher, boolean overwrite,
+                    Consumer<String> beforeFileMove) {
+    // a single listing of the target tells which files collide, instead of a stat per file
+    Set<String> existing = muleSftpClient.list(targetDirectory).stream().map(FileAttributes::getName).collect(toSet());
+    boolean replaceInOneRequest = overwrite && apacheSftpClient.canRenameOverwriting();
+
+    run(directory, matcher, file -> {
+      beforeFileMove.accept(file.getPath());
+      String target = createUri(targetDirectory, file.getName()).getPath();
+      Request rename = new Request(SSH_FXP_RENAME, file.getPath(), target, overwrite, file.getPath());
+      if (!existing.contains(file.getName()) || replaceInOneRequest) {
+        return rename;
+      }
+      if (!overwrite) {
+        throw new FileAlreadyExistsException(format("'%s' already exists. Set the 'overwrite' parameter to 'true' to perform the operation anyway",
+                                                    target));
+      }
+      // the server can't replace the target while renaming, so it is removed first
+      Request removal = new Request(SSH_FXP_REMOVE, target, null, false, file.getPath());
+      removal.next = rename;
+      return removal;
+    });
+
+    LOGGER.debug("Moved {} files from {} to {}, {} could not be moved", processed.size(), directory, targetDirectory,
+                 failures.size());
+    if (!failures.isEmpty()) {
+      String summary = format("Moved %d files from '%s' to '%s' but %d could not be moved", processed.size(), directory,
+                              targetDirectory, failures.size());
+      throw failures.toException(muleSftpClient, "move", summary);
+    }
+    return processed;
+  }
+
+  /**
+   * Renames each file to the path it is mapped to. The targets which already exist are found listing their directories once,
+   * instead of a stat per file.
+   *
+   * @param targets   the paths of the files mapped to their new paths
+   * @param overwrite whether targets which already exist are replaced
+   * @return the failures of the files which could not be renamed, keyed by their paths
+   */
+  Map<String, Exception> rename(Map<String, String> targets, boolean overwrite) {
+    boolean replaceInOneRequest = overwrite && apacheSftpClient.canRenameOverwriting();
+    Map<String, Set<String>> existingByDirectory = new HashMap<>();
+
+    sendAll(targets.keySet(), path -> {
+      String target = targets.get(path);
+      Request rename = new Request(SSH_FXP_RENAME, path, target, overwrite, path);
+      if (replaceInOneRequest) {
+        return rename;
+      }
+      URI targetUri = createUri(target);
+      Set<String> existing = existingByDirectory
+          .computeIfAbsent(trimLastFragment(targetUri).getPath(),
+                           directory -> muleSftpClient.list(directory).stream().map(FileAttributes::getName).collect(toSet()));
+      if (!existing.contains(FilenameUtils.getName(targetUri.getPath()))) {
+        return rename;
+      }
+      if (!overwrite) {
+        throw new FileAlreadyExistsException(format("'%s' already exists. Set the 'overwrite' parameter to 'true' to perform the operation anyway",
+                                                    target));
+      }
+      Request removal = new Request(SSH_FXP_REMOVE, target, null, false, path);
+      removal.next = rename;
+      return removal;
+    });
+
+    LOGGER.debug("Renamed {} files, {} could not be renamed", processed.size(), failures.size());
+    return failures.toMap();
+  }
+
+  /**
+   * Deletes each of the given files
+   *
+   * @param paths the paths of the files
+   * @return the failures of the files which could not be deleted, keyed by their paths
+   */
+  Map<String, Exception> remove(Collection<String> paths) {
+    sendAll(paths, path -> new Request(SSH_FXP_REMOVE, path, null, false, path));
+
+    LOGGER.debug("Deleted {} files, {} could not be deleted", processed.size(), failures.size());
+    return failures.toMap();
+  }
+
+  private void sendAll(Collection<String> paths, Function<String, Request> toRequest) {
+    try {
+      for (String path : paths) {
+        Request request;
+        try {
+          request = toRequest.apply(path);
+        } catch (RuntimeException e) {
+          failures.add(path, e);
+          continue;
+        }
+        send(request);
+      }
+      while (!inFlight.isEmpty()) {
+        acknowledge();
+      }
+    } catch (RuntimeException e) {
+      discardInFlight();
+      throw e;
+    }
+  }
+
+  private void run(String directory, Predicate<SftpFileAttributes> matcher, Function<SftpFileAttributes, Request> toRequest) {
+    try {
+      muleSftpClient.list(directory, files -> {
+        for (SftpFileAttributes file : files) {
+          if (file.isDirectory() || !matcher.test(file)) {
+            continue;
+          }
+          Request request;
+          try {
+            request = toRequest.apply(file);
+          } catch (RuntimeException e) {
+            failures.add(file.getPath(), e);
+            continue;
+          }
+          send(request);
+        }
+      });
+      while (!inFlight.isEmpty()) {
+        acknowledge();
+      }
+    } catch (RuntimeException e) {
+      discardInFlight();
+      throw e;
+    }
+  }
+
+  private void send(Request request) {
+    while (inFlight.size() >= maxPendingRequests) {
+      acknowledge();
+    }
+    try {
+      request.requestId = request.cmd == SSH_FXP_REMOVE ? apacheSftpClient.sendRemove(request.path)
+          : apacheSftpClient.sendRename(request.path, request.target, request.overwrite);
+    } catch (IOException e) {
+      // the request could not even be sent, the channel is unusable
+      throw muleSftpClient.handleException(format("Could not process %s", request.source), e);
+    }
+    inFlight.add(request);
+  }
+
+  private void acknowledge() {
+    Request request = inFlight.poll();
+    try {
+      apacheSftpClient.checkStatusResponse(request.cmd, request.requestId);
+    } catch (IOException e) {
+      failures.add(request.source, e);
+      return;
+    }
+    if (request.next != null) {
+      send(request.next);
+    } else {
+      processed.add(request.cmd == SSH_FXP_RENAME ? request.target : request.path);
+    }
+  }
+
+  /**
+   * Consumes the responses of the requests which are still in flight so they are not retained by the client.
+   */
+  private void discardInFlight() {
+    for (Request request : inFlight) {
+      try {
+        apacheSftpClient.checkStatusResponse(request.cmd, request.requestId);
+      } catch (IOException e) {
+        LOGGER.debug("Discarded failed response for pending request on {}", request.path, e);
+      }
+    }
+    inFlight.clear();
+  }
+
+  private static final class Request {
+
+    private final int cmd;
+    private final String path;
+    private final String target;
+    private final boolean overwrite;
+    // the listed file this request was issued for
+    private final String source;
+    // sent once this request is acknowledged
+    private Request next;
+    private int requestId;
+
+    private Request(int cmd, String path, String target, boolean overwrite, String source) {
+      this.cmd = cmd;
+      this.path = path;
+      this.target = target;
+      this.overwrite = overwrite;
+      this.source = source;
+    }
+  }
+}
@@ -31,7 +31,9 @@ import org.mule.extension.sftp.internal.operation.SftpListCommand;
 import org.mule.extension.sftp.internal.operation.SftpMoveCommand;
 import org.mule.extension.sftp.internal.operation.SftpReadCommand;
 import org.mule.extension.sftp.internal.operation.SftpRenameCommand;
+import org.mule.extension.sftp.internal.operation.SftpTransferCommand;
 import org.mule.extension.sftp.internal.operation.SftpWriteCommand;
+import org.mule.extension.sftp.internal.operation.TransferCommand;
 import org.mule.extension.sftp.internal.operation.WriteCommand;
 import org.mule.extension.sftp.internal.lock.URLPathLock;
 import org.mule.extension.sftp.internal.lock.UriLock;
@@ -73,6 +75,7 @@ public class SftpFileSystemConnection extends AbstractExternalFileSystem {
   protected final SftpReadCommand readCommand;
   protected final RenameCommand renameCommand;
   protected final WriteCommand writeCommand;
+  protected final TransferCommand transferCommand;
   private final LockFactory lockFactory;
 
   public SftpFileSystemConnection(SftpClient client, String basePath, LockFactory lockFactory) {
@@ -88,6 +91,7 @@ public class SftpFileSystemConnection extends AbstractExternalFileSystem {
     listCommand = new SftpListCommand(this, client);
     renameCommand = new SftpRenameCommand(this, client);
     writeCommand = new SftpWriteCommand(this, client);
+    transferCommand = new SftpTransferCommand(this, client);
     client.setOwner(this);
   }
 
@@ -204,6 +208,14 @@ public class SftpFileSystemConnection extends AbstractExternalFileSystem {
     return writeCommand;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public TransferCommand getTransferCommand() {
+    return transferCommand;
+  }
+
   /**
    * Validates the underlying connection to the remote server
    *
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_REMOVE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_RMDIR;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.util.ConcurrentTasks;
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+/**
+ * Deletes a directory tree keeping a window of removal requests in flight instead of waiting for the acknowledgement of each
+ * one before sending the next.
+ * <p>
+ * The tree is walked listing up to {@link #MAX_CONCURRENT_LISTINGS} directories at the same time, and the removals of the files
+ * of a directory are sent as soon as its listing arrives, while the rest of the tree is still being listed. Each directory is
+ * removed as soon as the removal of all of its children was acknowledged, so the tree goes away bottom-up. Entries which can't
+ * be removed don't stop the rest, they are all reported at the end. Their ancestors are left in place.
+ *
+ * @since 2.5
+ */
+final class SftpTreeDeleter {
+
+  private static final Logger LOGGER = getLogger(SftpTreeDeleter.class);
+
+  /**
+   * Default amount of removal requests kept in flight
+   */
+  static final int DEFAULT_MAX_PENDING_REQUESTS = 64;
+
+  private static final int MAX_CONCURRENT_LISTINGS = 4;
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
+  private final SftpClient muleSftpClient;
+  private final SftpConcurrentClient apacheSftpClient;
+  private final Consumer<String> beforeFileDeletion;
+  private final int maxPendingRequests;
+
+  // the removals which can be sent, fed by the listings and by the acknowledgements which leave a directory empty
+  private final BlockingQueue<Removal> ready = new LinkedBlockingQueue<>();
+  private final Deque<Removal> inFlight = new ArrayDeque<>();
+  private final SftpBatchFailures failures = new SftpBatchFailures();
+  private int deleted;
+
+  /**
+   * @param muleSftpClient     the client used to list the directories
+   * @param apacheSftpClient   the client through which the removal requests are sent
+   * @param beforeFileDeletion invoked with the path of every file before requesting its removal. The file is kept if it throws
+   * @param maxPendingRequests the maximum amount of removal requests in flight
+   */
+  SftpTreeDeleter(SftpClient muleSftpClient, SftpConcurrentClient apacheSftpClient, Consumer<String> beforeFileDeletion,
+                  int maxPendingRequests) {
+    this.muleSftpClient = muleSftpClient;
+    this.apacheSftpClient = apacheSftpClient;
+    this.beforeFileDeletion = beforeFileDeletion;
+    this.maxPendingRequests = Math.max(1, maxPendingRequests);
+  }
+
+  /**
+   * Deletes the directory at the given {@code path} with all of its content
+   *
+   * @param path the normalized remote path of the directory
+   * @throws MuleRuntimeException if any entry of the tree could not be deleted
+   */
+  void delete(String path) {
+    Directory root = new Directory(path, null);
+    Scheduler scheduler = muleSftpClient.getIoScheduler();
+    try {
+      if (scheduler == null) {
+        removeListingInline(root);
+      } else {
+        removeListingConcurrently(root, scheduler);
+      }
+    } catch (RuntimeException e) {
+      discardInFlight();
+      throw e;
+    }
+
+    LOGGER.debug("Deleted {} entries of the tree at {}, {} could not be deleted", deleted, path, failures.size());
+    if (!failures.isEmpty()) {
+      String summary = format("Deleted %d entries of the tree at '%s' but %d could not be deleted", deleted, path,
+                              failures.size());
+      throw failures.toException(muleSftpClient, "delete", summary);
+    }
+  }
+
+  /**
+   * Lists the directories on this thread, whenever there's room in the window and nothing ready to be sent
+   */
+  private void removeListingInline(Directory root) {
+    Deque<Directory> unlisted = new ArrayDeque<>();
+    unlisted.add(root);
+    while (true) {
+      if (sendReady()) {
+        continue;
+      }
+      if (!unlisted.isEmpty() && inFlight.size() < maxPendingRequests) {
+        list(unlisted.poll()).forEach(unlisted::add);
+      } else if (!inFlight.isEmpty()) {
+        acknowledge();
+      } else if (unlisted.isEmpty()) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Lists the directories on up to {@link #MAX_CONCURRENT_LISTINGS} workers, sending the removals from this thread as their
+   * listings arrive
+   */
+  private void removeListingConcurrently(Directory root, Scheduler scheduler) {
+    BlockingQueue<Directory> pending = new LinkedBlockingQueue<>();
+    AtomicInteger unlisted = new AtomicInteger(1);
+    AtomicBoolean aborted = new AtomicBoolean();
+    pending.add(root);
+    ConcurrentTasks workers = new ConcurrentTasks(scheduler);
+    boolean completed = false;
+    try {
+      for (int i = 0; i < MAX_CONCURRENT_LISTINGS; i++) {
+        workers.submit(() -> {
+          while (unlisted.get() > 0 && !aborted.get()) {
+            Directory directory;
+            try {
+              directory = pending.poll(POLL_INTERVAL_MILLIS, MILLISECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            }
+            if (directory != null) {
+              List<Directory> subdirectories = list(directory);
+              unlisted.addAndGet(subdirectories.size());
+              pending.addAll(subdirectories);
+              unlisted.decrementAndGet();
+            }
+          }
+        });
+      }
+
+      while (true) {
+        if (sendReady()) {
+          continue;
+        }
+        if (!inFlight.isEmpty()) {
+          acknowledge();
+          continue;
+        }
+        // the listings are checked before the queue, so nothing they add can be missed
+        if (unlisted.get() == 0 || workers.isDone()) {
+          if (ready.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+        Removal removal = ready.poll(POLL_INTERVAL_MILLIS, MILLISECONDS);
+        if (removal != null) {
+          send(removal);
+        }
+      }
+      completed = true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MuleRuntimeException(createStaticMessage("Interrupted while deleting the tree at " + root.path), e);
+    } finally {
+      // the workers list over this client, so none may be left running once the deletion is over
+      aborted.set(true);
+      Throwable workerFailure = workers.cancelAll();
+      if (workerFailure != null) {
+        if (completed) {
+          throw new MuleRuntimeException(createStaticMessage("Found exception listing the tree at " + root.path), workerFailure);
+        }
+        LOGGER.debug("Found exception listing the tree at {} after the deletion already failed", root.path, workerFailure);
+      }
+    }
+  }
+
+  /**
+   * Lists the given {@code directory}, making the removals of its files ready to be sent
+   *
+   * @return the subdirectories which are yet to be listed
+   */
+  private List<Directory> list(Directory directory) {
+    List<SftpFileAttributes> entries;
+    try {
+      entries = muleSftpClient.list(directory.path);
+    } catch (RuntimeException e) {
+      // the directory keeps a pending child, so neither it nor its ancestors are removed
+      failures.add(directory.path, e);
+      return new ArrayList<>();
+    }
+
+    List<Directory> subdirectories = new ArrayList<>();
+    for (SftpFileAttributes entry : entries) {
+      if (".".equals(entry.getName()) || "..".equals(entry.getName())) {
+        continue;
+      }
+      directory.pendingChildren.incrementAndGet();
+      if (entry.isDirectory()) {
+        subdirectories.add(new Directory(entry.getPath(), directory));
+      } else {
+        ready.add(new Removal(SSH_FXP_REMOVE, entry.getPath(), directory));
+      }
+    }
+    // the directory is listed, from now on only its children keep it from being removed
+    childDone(directory);
+    return subdirectories;
+  }
+
+  /**
+   * Sends the next ready removal if there's room in the window
+   *
+   * @return whether there was one
+   */
+  private boolean sendReady() {
+    if (inFlight.size() >= maxPendingRequests) {
+      return false;
+    }
+    Removal removal = ready.poll();
+    if (removal == null) {
+      return false;
+    }
+    send(removal);
+    return true;
+  }
+
+  private void acknowledge() {
+    Removal removal = inFlight.poll();
+    try {
+      apacheSftpClient.checkStatusResponse(removal.cmd, removal.requestId);
+    } catch (IOException e) {
+      failures.add(removal.path, e);
+      return;
+    }
+    deleted++;
+    if (removal.parent != null) {
+      childDone(removal.parent);
+    }
+  }
+
+  private void childDone(Directory directory) {
+    if (directory.pendingChildren.decrementAndGet() == 0) {
+      ready.add(new Removal(SSH_FXP_RMDIR, directory.path, directory.parent));
+    }
+  }
+
+  /**
+   * Sends the request of the given {@code removal}, unless its file must be kept
+   */
+  private void send(Removal removal) {
+    try {
+      if (removal.cmd == SSH_FXP_REMOVE) {
+        beforeFileDeletion.accept(removal.path);
+        removal.requestId = apacheSftpClient.sendRemove(removal.path);
+      } else {
+        removal.requestId = apacheSftpClient.sendRmdir(removal.path);
+      }
+    } catch (IOException e) {
+      // the request could not even be sent, the channel is unusable
+      throw muleSftpClient.handleException(format("Could not delete %s", removal.path), e);
+    } catch (RuntimeException e) {
+      failures.add(removal.path, e);
+      return;
+    }
+    inFlight.add(removal);
+  }
+
+  /**
+   * Consumes the responses of the requests which are still in flight so they are not retained by the client.
+   */
+  private void discardInFlight() {
+    for (Removal removal : inFlight) {
+      try {
+        apacheSftpClient.checkStatusResponse(removal.cmd, removal.requestId);
+      } catch (IOException e) {
+        LOGGER.debug("Discarded failed response for pending removal of {}", removal.path, e);
+      }
+    }
+    inFlight.clear();
+  }
+
+  private static final class Directory {
+
+    private final String path;
+    private final Directory parent;
+    // starts at one so the directory is not removed before it was listed
+    private final AtomicInteger pendingChildren = new AtomicInteger(1);
+
+    private Directory(String path, Directory parent) {
+      this.path = path;
+      this.parent = parent;
+    }
+  }
+
+  private static final class Removal {
+
+    private final int cmd;
+    private final String path;
+    private final Directory parent;
+    private int requestId;
+
+    private Removal(int cmd, String path, Directory parent) {
+      this.cmd = cmd;
+      this.path = path;
+      this.parent = parent;
+    }
+  }
+}
@@ -7,7 +7,6 @@
 package org.mule.extension.sftp.internal.connection.write;
 
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
-import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
 import org.mule.extension.sftp.internal.connection.SftpClient;
 
@@ -38,11 +37,11 @@ public class SftpCustomWriter implements SftpWriter {
    * {@inheritDoc}
    */
   @Override
-  public void write(String path, InputStream stream, FileWriteMode mode, URI uri) throws IOException {
-    FileAttributes file = muleSftpClient.getFile(uri);
-    long offSet = file != null ? file.getSize() : 0;
+  public void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories)
+      throws IOException {
     try (org.apache.sshd.sftp.client.SftpClient.CloseableHandle handle =
-        muleSftpClient.open(path, mode)) {
+        muleSftpClient.open(path, mode, createParentDirectories)) {
+      long offSet = getInitialOffset(apacheSftpClient, handle, mode);
       byte[] buf = new byte[bufferSizeForWriteStrategy.getCustomWriteBufferSize()];
       int n;
       while ((n = stream.read(buf)) != -1) {
@@ -52,4 +51,19 @@ public class SftpCustomWriter implements SftpWriter {
     }
 
   }
+
+  /**
+   * Obtains the offset at which writing into an open file starts. Only appending modes need to ask the server for the size
+   * of the file, which is done through the open handle.
+   *
+   * @param apacheSftpClient the client owning the {@code handle}
+   * @param handle           the handle of the open file
+   * @param mode             the mode the file was opened with
+   * @return the size of the file when appending, {@code 0} otherwise
+   */
+  static long getInitialOffset(org.apache.sshd.sftp.client.SftpClient apacheSftpClient,
+                               org.apache.sshd.sftp.client.SftpClient.Handle handle, FileWriteMode mode)
+      throws IOException {
+    return mode == FileWriteMode.APPEND || mode == FileWriteMode.CUSTOM_APPEND ? apacheSftpClient.stat(handle).getSize() : 0;
+  }
 }
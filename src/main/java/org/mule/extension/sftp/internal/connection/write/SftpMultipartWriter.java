@@ -0,0 +1,254 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection.write;
+
+import static org.mule.extension.sftp.api.FileWriteMode.APPEND;
+import static org.mule.extension.sftp.api.FileWriteMode.CREATE_NEW;
+import static org.mule.extension.sftp.api.FileWriteMode.CUSTOM_APPEND;
+import static org.mule.extension.sftp.api.FileWriteMode.OVERWRITE;
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.UUID.randomUUID;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.CustomWriteBufferSize;
+import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpConcurrentClient;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.extension.sftp.internal.util.ConcurrentTasks;
+import org.mule.runtime.api.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.sshd.sftp.client.SftpClient.CloseableHandle;
+import org.apache.sshd.sftp.client.SftpClient.OpenMode;
+import org.slf4j.Logger;
+
+/**
+ * A {@link SftpWriter} which spools the content to a local temporary file, splits it into byte ranges and writes them
+ * concurrently at their offsets, each one through its own SFTP channel over the connection's session.
+ * <p>
+ * Unless appending, the parts are written into a temporary remote file which is renamed to the target path only once every
+ * part was acknowledged and the size of the uploaded file matches the size of the content. If any part fails the temporary
+ * file is removed and the target is left untouched.
+ *
+ * @since 2.5
+ */
+public class SftpMultipartWriter implements SftpWriter {
+
+  private static final Logger LOGGER = getLogger(SftpMultipartWriter.class);
+
+  /**
+   * Default amount of parts uploaded concurrently
+   */
+  public static final int DEFAULT_UPLOAD_PARTS = 4;
+
+  /**
+   * Payloads are not split into parts smaller than this
+   */
+  static final long MIN_PART_SIZE = 1024L * 1024L;
+
+  private static final String TEMPORARY_FILE_SUFFIX = ".part";
+
+  private final SftpClient muleSftpClient;
+  private final org.apache.sshd.sftp.client.SftpClient apacheSftpClient;
+  private final CustomWriteBufferSize bufferSizeForWriteStrategy;
+  private final int maxPendingWrites;
+  private final int uploadParts;
+  private final boolean uploadToTemporaryFile;
+
+  public SftpMultipartWriter(SftpClient muleSftpClient,
+                             org.apache.sshd.sftp.client.SftpClient apacheSftpClient,
+                             CustomWriteBufferSize bufferSizeForWriteStrategy,
+                             int maxPendingWrites,
+                             int uploadParts,
+                             boolean uploadToTemporaryFile) {
+    this.muleSftpClient = muleSftpClient;
+    this.apacheSftpClient = apacheSftpClient;
+    this.bufferSizeForWriteStrategy = bufferSizeForWriteStrategy;
+    this.maxPendingWrites = Math.max(1, maxPendingWrites);
+    this.uploadParts = Math.max(1, uploadParts);
+    this.uploadToTemporaryFile = uploadToTemporaryFile;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories)
+      throws IOException {
+    Path spool = Files.createTempFile("mule-sftp-upload", TEMPORARY_FILE_SUFFIX);
+    try {
+      Files.copy(stream, spool, REPLACE_EXISTING);
+      upload(path, spool, mode, uri, createParentDirectories);
+    } finally {
+      Files.deleteIfExists(spool);
+    }
+  }
+
+  private void upload(String path, Path spool, FileWriteMode mode, URI uri, boolean createParentDirectories)
+      throws IOException {
+    long size = Files.size(spool);
+    boolean append = mode == APPEND || mode == CUSTOM_APPEND;
+    String target = append || !uploadToTemporaryFile ? path : format("%s.%s%s", path, randomUUID(), TEMPORARY_FILE_SUFFIX);
+
+    if (mode == CREATE_NEW && !target.equals(path) && muleSftpClient.getFile(uri) != null) {
+      // fail before uploading, the final rename would fail anyway
+      throw new FileAlreadyExistsException(format("Cannot write to path '%s' because it already exists and write mode '%s' was selected. "
+          + "Use a different write mode or point to a path which doesn't exist", path, mode));
+    }
+
+    FileWriteMode createMode = mode;
+    if (append) {
+      createMode = CUSTOM_APPEND;
+    } else if (!target.equals(path)) {
+      createMode = OVERWRITE;
+    }
+    // creates (or truncates) the file once so that every part only needs to open it for writing
+    long startOffset;
+    try (CloseableHandle handle = muleSftpClient.open(target, createMode, createParentDirectories)) {
+      startOffset = SftpCustomWriter.getInitialOffset(apacheSftpClient, handle, createMode);
+      LOGGER.trace("Created {} to upload {} bytes at offset {}", target, size, startOffset);
+    }
+
+    try {
+      writeParts(muleSftpClient.normalizeRemotePath(target), spool, size, startOffset);
+      long uploadedSize = apacheSftpClient.stat(muleSftpClient.normalizeRemotePath(target)).getSize();
+      if (uploadedSize != startOffset + size) {
+        throw new IOException(format("Uploaded file '%s' has %d bytes but %d were expected", target, uploadedSize,
+                                     startOffset + size));
+      }
+      if (!target.equals(path)) {
+        moveToTarget(target, path, mode);
+      }
+    } catch (IOException | RuntimeException e) {
+      if (!target.equals(path)) {
+        discardTemporaryFile(target);
+      }
+      throw e;
+    }
+  }
+
+  private void moveToTarget(String temporaryPath, String path, FileWriteMode mode) throws IOException {
+    if (mode == OVERWRITE && muleSftpClient.posixRename(temporaryPath, path)) {
+      return;
+    }
+    try {
+      muleSftpClient.rename(temporaryPath, path);
+    } catch (RuntimeException e) {
+      if (mode != OVERWRITE) {
+        throw e;
+      }
+      // the target exists, most servers don't replace it on rename
+      LOGGER.debug("Could not rename {} to {}, deleting the target and retrying", temporaryPath, path);
+      muleSftpClient.deleteFile(path);
+      muleSftpClient.rename(temporaryPath, path);
+    }
+  }
+
+  private void writeParts(String remotePath, Path spool, long size, long startOffset) throws IOException {
+    if (size == 0) {
+      return;
+    }
+    int parts = (int) Math.min(uploadParts, (size + MIN_PART_SIZE - 1) / MIN_PART_SIZE);
+    long partSize = (size + parts - 1) / parts;
+    Scheduler scheduler = parts == 1 ? null : muleSftpClient.getIoScheduler();
+
+    if (parts == 1 || scheduler == null) {
+      for (long start = 0; start < size; start += partSize) {
+        writePart(apacheSftpClient, remotePath, spool, start, Math.min(partSize, size - start), startOffset);
+      }
+      return;
+    }
+
+    LOGGER.debug("Uploading {} bytes to {} in {} parts of {} bytes", size, remotePath, parts, partSize);
+    AtomicBoolean failed = new AtomicBoolean();
+    ConcurrentTasks partUploads = new ConcurrentTasks(scheduler);
+    for (long start = 0; start < size; start += partSize) {
+      final long partStart = start;
+      final long partLength = Math.min(partSize, size - start);
+      partUploads.submit(() -> {
+        if (failed.get()) {
+          return;
+        }
+        try (org.apache.sshd.sftp.client.SftpClient channel = muleSftpClient.openChannel()) {
+          writePart(channel, remotePath, spool, partStart, partLength, startOffset);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    // the temporary file is only discarded once no part is being written into it anymore
+    throwPartFailure(partUploads.awaitAll(() -> failed.set(true)));
+  }
+
+  private void throwPartFailure(Throwable failure) throws IOException {
+    if (failure == null) {
+      return;
+    }
+    if (failure instanceof InterruptedException) {
+      InterruptedIOException interrupted =
+          new InterruptedIOException("Interrupted while waiting for the upload parts to complete");
+      interrupted.initCause(failure);
+      throw interrupted;
+    }
+    if (failure instanceof UncheckedIOException) {
+      IOException cause = ((UncheckedIOException) failure).getCause();
+      for (Throwable suppressed : failure.getSuppressed()) {
+        cause.addSuppressed(suppressed);
+      }
+      throw cause;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    throw new IOException("Upload part failed", failure);
+  }
+
+  private void writePart(org.apache.sshd.sftp.client.SftpClient channel, String remotePath, Path spool, long start,
+                         long length, long startOffset)
+      throws IOException {
+    try (CloseableHandle handle = channel.open(remotePath, OpenMode.Write);
+        InputStream in = new BoundedInputStream(Channels.newInputStream(FileChannel.open(spool).position(start)), length)) {
+      byte[] buf = new byte[bufferSizeForWriteStrategy.getCustomWriteBufferSize()];
+      long written;
+      if (channel instanceof SftpConcurrentClient) {
+        written = SftpPipelinedWriter.write((SftpConcurrentClient) channel, handle, startOffset + start, in, buf,
+                                            maxPendingWrites);
+      } else {
+        written = 0;
+        int n;
+        while ((n = in.read(buf)) != -1) {
+          channel.write(handle, startOffset + start + written, buf, 0, n);
+          written += n;
+        }
+      }
+      if (written != length) {
+        throw new IOException(format("Upload part at offset %d wrote %d bytes but %d were expected", start, written, length));
+      }
+    }
+  }
+
+  private void discardTemporaryFile(String temporaryPath) {
+    try {
+      muleSftpClient.deleteFile(temporaryPath);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not remove temporary upload file {}", temporaryPath, e);
+    }
+  }
+}
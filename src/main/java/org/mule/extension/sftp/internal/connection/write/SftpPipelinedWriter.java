@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection.write;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.CustomWriteBufferSize;
+import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpConcurrentClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.slf4j.Logger;
+
+/**
+ * A {@link SftpWriter} which keeps up to {@code maxPendingWrites} write requests in flight instead of waiting for the
+ * acknowledgement of each one before sending the next. Acknowledgements are collected in the order the requests were sent
+ * and the write fails on the first error reported by the server.
+ * <p>
+ * Each request carries a copy of at most one buffer, so the memory held by the requests in flight is bounded by
+ * {@code maxPendingWrites * bufferSizeForWriteStrategy}.
+ *
+ * @since 2.5
+ */
+public class SftpPipelinedWriter implements SftpWriter {
+
+  private static final Logger LOGGER = getLogger(SftpPipelinedWriter.class);
+
+  /**
+   * Default amount of write requests kept in flight
+   */
+  public static final int DEFAULT_MAX_PENDING_WRITES = 16;
+
+  private final SftpClient muleSftpClient;
+  private final org.apache.sshd.sftp.client.SftpClient apacheSftpClient;
+  private final CustomWriteBufferSize bufferSizeForWriteStrategy;
+  private final int maxPendingWrites;
+
+  public SftpPipelinedWriter(SftpClient muleSftpClient,
+                             org.apache.sshd.sftp.client.SftpClient apacheSftpClient,
+                             CustomWriteBufferSize bufferSizeForWriteStrategy,
+                             int maxPendingWrites) {
+    this.muleSftpClient = muleSftpClient;
+    this.apacheSftpClient = apacheSftpClient;
+    this.bufferSizeForWriteStrategy = bufferSizeForWriteStrategy;
+    this.maxPendingWrites = Math.max(1, maxPendingWrites);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories)
+      throws IOException {
+    if (!(apacheSftpClient instanceof SftpConcurrentClient)) {
+      LOGGER.debug("Pipelined writes are not supported by {}, falling back to sequential writes",
+                   apacheSftpClient.getClass().getName());
+      new SftpCustomWriter(muleSftpClient, apacheSftpClient, bufferSizeForWriteStrategy).write(path, stream, mode, uri,
+                                                                                              createParentDirectories);
+      return;
+    }
+
+    try (org.apache.sshd.sftp.client.SftpClient.CloseableHandle handle =
+        muleSftpClient.open(path, mode, createParentDirectories)) {
+      long offSet = SftpCustomWriter.getInitialOffset(apacheSftpClient, handle, mode);
+      write((SftpConcurrentClient) apacheSftpClient, handle, offSet, stream,
+            new byte[bufferSizeForWriteStrategy.getCustomWriteBufferSize()], maxPendingWrites);
+    }
+  }
+
+  /**
+   * Writes the whole {@code stream} into the file pointed by {@code handle}, starting at {@code offSet} and keeping up to
+   * {@code maxPendingWrites} requests in flight.
+   *
+   * @param client           the client owning the {@code handle}
+   * @param handle           the handle of the open file
+   * @param offSet           the offset at which the first byte is written
+   * @param stream           the content to be written
+   * @param buf              the buffer used to read the {@code stream}
+   * @param maxPendingWrites the maximum amount of write requests in flight
+   * @return the amount of bytes written
+   * @throws IOException if a request could not be sent or the server reported an error
+   */
+  static long write(SftpConcurrentClient client, org.apache.sshd.sftp.client.SftpClient.Handle handle, long offSet,
+                    InputStream stream, byte[] buf, int maxPendingWrites)
+      throws IOException {
+    Deque<Integer> pendingWrites = new ArrayDeque<>(maxPendingWrites);
+    long written = 0;
+    try {
+      int n;
+      while ((n = stream.read(buf)) != -1) {
+        if (pendingWrites.size() >= maxPendingWrites) {
+          client.checkWriteResponse(pendingWrites.poll());
+        }
+        pendingWrites.add(client.sendWrite(handle, offSet + written, buf, 0, n));
+        written += n;
+      }
+      while (!pendingWrites.isEmpty()) {
+        client.checkWriteResponse(pendingWrites.poll());
+      }
+      return written;
+    } catch (IOException | RuntimeException e) {
+      discardPendingWrites(client, pendingWrites);
+      throw e;
+    }
+  }
+
+  /**
+   * Consumes the responses of the requests which are still in flight so they are not retained by the client.
+   */
+  private static void discardPendingWrites(SftpConcurrentClient client, Deque<Integer> pendingWrites) {
+    while (!pendingWrites.isEmpty()) {
+      int requestId = pendingWrites.poll();
+      try {
+        client.checkWriteResponse(requestId);
+      } catch (IOException e) {
+        LOGGER.debug("Discarded failed response for pending write request {}", requestId, e);
+      }
+    }
+  }
+}
@@ -33,8 +33,9 @@ public class SftpStandardWriter implements SftpWriter {
    * {@inheritDoc}
    */
   @Override
-  public void write(String path, InputStream stream, FileWriteMode mode, URI uri) throws IOException {
-    try (OutputStream out = sftpClient.getOutputStream(path, mode)) {
+  public void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories)
+      throws IOException {
+    try (OutputStream out = sftpClient.getOutputStream(path, mode, createParentDirectories)) {
       byte[] buf = new byte[BUFFER_SIZE_8KB.getCustomWriteBufferSize()];
       int n;
       while ((n = stream.read(buf)) != -1) {
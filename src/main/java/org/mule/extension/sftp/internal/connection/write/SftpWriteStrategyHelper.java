@@ -30,13 +30,22 @@ public class SftpWriteStrategyHelper {
    * @param apacheSftpClient            the Apache client instance for writing to the file
    * @param writeStrategy               a {@link WriteStrategy}. Defaults to STANDARD
    * @param bufferSizeForWriteStrategy  a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites            the maximum amount of write requests in flight for the PIPELINED strategy
+   * @param uploadParts                 the amount of parts uploaded concurrently by the MULTIPART strategy
+   * @param uploadToTemporaryFile       whether the MULTIPART strategy writes into a temporary file which is renamed at the end
    */
   public static SftpWriter getStrategy(org.mule.extension.sftp.internal.connection.SftpClient muleSftpClient,
                                        org.apache.sshd.sftp.client.SftpClient apacheSftpClient,
-                                       WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy) {
+                                       WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                       int maxPendingWrites, int uploadParts, boolean uploadToTemporaryFile) {
     switch (writeStrategy) {
       case CUSTOM:
         return new SftpCustomWriter(muleSftpClient, apacheSftpClient, bufferSizeForWriteStrategy);
+      case PIPELINED:
+        return new SftpPipelinedWriter(muleSftpClient, apacheSftpClient, bufferSizeForWriteStrategy, maxPendingWrites);
+      case MULTIPART:
+        return new SftpMultipartWriter(muleSftpClient, apacheSftpClient, bufferSizeForWriteStrategy, maxPendingWrites,
+                                       uploadParts, uploadToTemporaryFile);
       default: // STANDARD
         return new SftpStandardWriter(muleSftpClient);
     }
@@ -26,7 +26,8 @@ public interface SftpWriter {
    * @param stream                      the content to be written into the file
    * @param mode                        a {@link FileWriteMode}
    * @param uri                         the URI of the file to be written
+   * @param createParentDirectories     whether to create the missing parent directories of the file
    */
-  void write(String path, InputStream stream, FileWriteMode mode, URI uri) throws IOException;
+  void write(String path, InputStream stream, FileWriteMode mode, URI uri, boolean createParentDirectories) throws IOException;
 
 }
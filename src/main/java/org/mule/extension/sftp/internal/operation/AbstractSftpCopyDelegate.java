@@ -6,7 +6,10 @@
  */
 package org.mule.extension.sftp.internal.operation;
 
+import static org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter.DEFAULT_UPLOAD_PARTS;
+import static org.mule.extension.sftp.internal.connection.write.SftpPipelinedWriter.DEFAULT_MAX_PENDING_WRITES;
 import static java.lang.String.format;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_OP_UNSUPPORTED;
 
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.api.FileAttributes;
@@ -15,14 +18,17 @@ import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 import org.mule.extension.sftp.internal.extension.SftpConnector;
+import org.mule.extension.sftp.internal.stream.ReadAheadInputStream;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionHandler;
+import org.mule.runtime.api.scheduler.Scheduler;
 import org.mule.runtime.extension.api.exception.ModuleException;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+import org.apache.sshd.sftp.common.SftpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +44,9 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
   private final SftpFileSystemConnection fileSystem;
   private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSftpCopyDelegate.class);
 
+  private static final int READ_AHEAD_BUFFERS = 4;
+  private static final int READ_AHEAD_BUFFER_SIZE = 32 * 1024;
+
   /**
    * Creates new instance
    *
@@ -60,15 +69,17 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
   @Override
   public void doCopy(FileConnectorConfig config, FileAttributes source, URI targetUri, boolean overwrite) {
     String path = source.getPath();
-    ConnectionHandler<SftpFileSystemConnection> writerConnectionHandler;
-    final SftpFileSystemConnection writerConnection;
-    try {
-      writerConnectionHandler = getWriterConnection(config);
-      writerConnection = writerConnectionHandler.getConnection();
-    } catch (ConnectionException e) {
-      throw command
-          .exception(format("FTP Copy operations require the use of two FTP connections. An exception was found trying to obtain second connection to"
-              + "copy the path '%s' to '%s'", path, targetUri.getPath()), e);
+    ConnectionHandler<SftpFileSystemConnection> writerConnectionHandler = null;
+    SftpFileSystemConnection writerConnection = null;
+    if (needsWriterConnection(source)) {
+      try {
+        writerConnectionHandler = borrowConnection(config);
+        writerConnection = writerConnectionHandler.getConnection();
+      } catch (ConnectionException e) {
+        throw command
+            .exception(format("FTP Copy operations require the use of two FTP connections. An exception was found trying to obtain second connection to"
+                + "copy the path '%s' to '%s'", path, targetUri.getPath()), e);
+      }
     }
     try {
       if (source.isDirectory()) {
@@ -87,10 +98,23 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
     } catch (Exception e) {
       throw command.exception(format("Found exception copying file '%s' to '%s'", source, targetUri.getPath()), e);
     } finally {
-      writerConnectionHandler.release();
+      if (writerConnectionHandler != null) {
+        writerConnectionHandler.release();
+      }
     }
   }
 
+  /**
+   * Whether {@link #doCopy} has to borrow the connection the {@code source} is written through. Implementations which obtain
+   * their own connections to copy it return {@code false}, in which case {@link #copyDirectory} gets a {@code null} one.
+   *
+   * @param source the {@link FileAttributes} for the file to be copied
+   * @return whether a writer connection is needed, {@code true} by default
+   */
+  protected boolean needsWriterConnection(FileAttributes source) {
+    return true;
+  }
+
   /**
    * Performs a recursive copy of a directory
    * 
@@ -98,7 +122,8 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
    * @param sourceUri        the path to the directory to be copied
    * @param target           the target path
    * @param overwrite        whether to overwrite the target files if they already exists
-   * @param writerConnection the {@link SftpFileSystemConnection} which connects to the target endpoint
+   * @param writerConnection the {@link SftpFileSystemConnection} which connects to the target endpoint, {@code null} if
+   *                         {@link #needsWriterConnection} returned {@code false}
    */
   protected abstract void copyDirectory(FileConnectorConfig config, URI sourceUri, URI target, boolean overwrite,
                                         SftpFileSystemConnection writerConnection);
@@ -123,7 +148,13 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
       }
     }
 
-    try (InputStream inputStream = fileSystem.retrieveFileContent(source)) {
+    if (copyOnServer(source, target, overwrite)) {
+      return;
+    }
+
+    // the read ahead runs on the scheduler the connection shares between all the files it copies
+    Scheduler readAheadScheduler = fileSystem.getClient().getIoScheduler();
+    try (InputStream inputStream = readAhead(fileSystem.retrieveFileContent(source), readAheadScheduler)) {
       if (inputStream == null) {
         throw command
             .exception(format("Could not read file '%s' while trying to copy it to remote path '%s'", source.getPath(), target));
@@ -136,15 +167,57 @@ public abstract class AbstractSftpCopyDelegate implements SftpCopyDelegate {
     }
   }
 
+  /**
+   * Has the source content read on its own thread, so that reading from the source connection overlaps with writing through
+   * the target one instead of each waiting for the other.
+   */
+  private InputStream readAhead(InputStream content, Scheduler scheduler) {
+    if (content == null || scheduler == null) {
+      return content;
+    }
+    return new ReadAheadInputStream(content, scheduler, READ_AHEAD_BUFFERS, READ_AHEAD_BUFFER_SIZE);
+  }
+
+  /**
+   * Tries to have the server copy the file by itself, so that its content doesn't travel back and forth between the server and
+   * this client.
+   *
+   * @return whether the file was copied, {@code false} if the content has to be streamed instead
+   */
+  private boolean copyOnServer(FileAttributes source, URI target, boolean overwrite) {
+    try {
+      if (fileSystem.getClient().copyOnServer(source.getPath(), target.getPath(), overwrite)) {
+        return true;
+      }
+      LOGGER.debug("Server side copy is not supported, streaming {} to {}", source.getPath(), target.getPath());
+    } catch (IOException e) {
+      if (!(e instanceof SftpException) || ((SftpException) e).getStatus() != SSH_FX_OP_UNSUPPORTED) {
+        throw command.exception(format("Found exception while trying to copy file '%s' to remote path '%s'", source.getPath(),
+                                       target),
+                                e);
+      }
+      LOGGER.debug("Server rejected copying {} to {} on its side, streaming it instead", source.getPath(), target.getPath());
+    }
+    return false;
+  }
+
   private void writeCopy(FileConnectorConfig config, String targetPath, InputStream inputStream, boolean overwrite,
                          SftpFileSystemConnection writerConnection)
       throws IOException {
     final FileWriteMode mode = overwrite ? FileWriteMode.OVERWRITE : FileWriteMode.CREATE_NEW;
-    writerConnection.write(targetPath, inputStream, mode, false, true, WriteStrategy.STANDARD,
-                           CustomWriteBufferSize.BUFFER_SIZE_8KB);
+    writerConnection.write(targetPath, inputStream, mode, false, true, WriteStrategy.PIPELINED,
+                           CustomWriteBufferSize.BUFFER_SIZE_16KB, DEFAULT_MAX_PENDING_WRITES, DEFAULT_UPLOAD_PARTS, true);
   }
 
-  private ConnectionHandler<SftpFileSystemConnection> getWriterConnection(FileConnectorConfig config) throws ConnectionException {
+  /**
+   * Obtains a connection from the pool of the given {@code config}. The caller is responsible for releasing it.
+   *
+   * @param config the config which is parameterizing this operation
+   * @return a {@link ConnectionHandler} for the obtained connection
+   * @throws ConnectionException if a connection could not be obtained
+   */
+  protected ConnectionHandler<SftpFileSystemConnection> borrowConnection(FileConnectorConfig config)
+      throws ConnectionException {
     return ((SftpConnector) config).getConnectionManager().getConnection(config);
   }
 }
@@ -6,6 +6,8 @@
  */
 package org.mule.extension.sftp.internal.operation;
 
+import static org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter.DEFAULT_UPLOAD_PARTS;
+import static org.mule.extension.sftp.internal.connection.write.SftpPipelinedWriter.DEFAULT_MAX_PENDING_WRITES;
 import static org.mule.runtime.core.api.util.StringUtils.isBlank;
 import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
 
@@ -15,6 +17,7 @@ import static java.nio.file.Paths.get;
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.api.SyncResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.api.matcher.FileMatcher;
 import org.mule.extension.sftp.api.matcher.NullFilePayloadPredicate;
@@ -135,7 +138,7 @@ public abstract class BaseFileSystemOperations {
     fileSystem.changeToBaseDir();
 
     fileSystem.write(path, content, mode, lock, createParentDirectories, WriteStrategy.STANDARD,
-                     CustomWriteBufferSize.BUFFER_SIZE_8KB);
+                     CustomWriteBufferSize.BUFFER_SIZE_8KB, DEFAULT_MAX_PENDING_WRITES, DEFAULT_UPLOAD_PARTS, true);
   }
 
   /**
@@ -158,15 +161,19 @@ public abstract class BaseFileSystemOperations {
    * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
    * @param overwrite               whether or not overwrite the file if the target destination already exists.
    * @param renameTo                the new file name, {@code null} if the file doesn't need to be renamed
+   * @param maxConcurrentCopies     the maximum amount of files of a directory being copied at the same time
+   * @param continueOnError         whether a directory copy goes on after a file failed to be copied
    * @throws IllegalArgumentException if an illegal combination of arguments is supplied
    */
   protected void doCopy(FileConnectorConfig config, FileSystem fileSystem,
                         String sourcePath,
-                        String targetPath, boolean createParentDirectories, boolean overwrite, String renameTo) {
+                        String targetPath, boolean createParentDirectories, boolean overwrite, String renameTo,
+                        int maxConcurrentCopies, boolean continueOnError) {
     fileSystem.changeToBaseDir();
     validatePath(targetPath, "target path");
     validatePath(sourcePath, "source path");
-    fileSystem.copy(config, sourcePath, targetPath, overwrite, createParentDirectories, renameTo);
+    fileSystem.copy(config, sourcePath, targetPath, overwrite, createParentDirectories, renameTo, maxConcurrentCopies,
+                    continueOnError);
   }
 
   /**
@@ -199,6 +206,60 @@ public abstract class BaseFileSystemOperations {
     fileSystem.move(config, sourcePath, targetPath, overwrite, createParentDirectories, renameTo);
   }
 
+  /**
+   * Transfers the file at the {@code sourcePath} into the {@code targetPath} of the server of the {@code targetConfig}.
+   * <p>
+   * The {@code targetPath} is resolved on the target server under the same rules as a copy. As for the {@code sourcePath}, it can
+   * either be a file or a directory. If it points to a directory, then it will be transferred recursively.
+   *
+   * @param config                  the config that is parameterizing this operation
+   * @param fileSystem              a reference to the host {@link FileSystem}
+   * @param sourcePath              the path to the file to be transferred
+   * @param targetConfig            the config of the server the file is transferred to
+   * @param targetPath              the target directory on the server of the {@code targetConfig}
+   * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
+   * @param overwrite               whether or not overwrite the file if the target destination already exists.
+   * @param verifyChecksum          whether to compare the checksum of every transferred file against the source one
+   * @param maxConcurrentTransfers  the maximum amount of files of a directory being transferred at the same time
+   * @param continueOnError         whether a directory transfer goes on after a file failed to be transferred
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  protected void doTransfer(FileConnectorConfig config, FileSystem fileSystem, String sourcePath,
+                            FileConnectorConfig targetConfig, String targetPath, boolean createParentDirectories,
+                            boolean overwrite, boolean verifyChecksum, int maxConcurrentTransfers, boolean continueOnError) {
+    fileSystem.changeToBaseDir();
+    validatePath(targetPath, "target path");
+    validatePath(sourcePath, "source path");
+    fileSystem.transfer(config, sourcePath, targetConfig, targetPath, overwrite, createParentDirectories, verifyChecksum,
+                        maxConcurrentTransfers, continueOnError);
+  }
+
+  /**
+   * Synchronizes the directory at the {@code sourcePath} into the {@code targetPath} of the server of the {@code targetConfig},
+   * transferring only the files which are new or changed.
+   *
+   * @param config                 the config that is parameterizing this operation
+   * @param fileSystem             a reference to the host {@link FileSystem}
+   * @param sourcePath             the path to the directory to be synchronized
+   * @param targetConfig           the config of the server the directory is synchronized into
+   * @param targetPath             the directory which mirrors the source one
+   * @param compareChecksums       whether files of the same size are compared by checksum instead of by modification time
+   * @param deleteExtraneous       whether the target entries which don't exist in the source are deleted
+   * @param maxConcurrentTransfers the maximum amount of files being transferred at the same time
+   * @param continueOnError        whether the synchronization goes on after a file failed to be transferred
+   * @return a {@link SyncResult} describing the changes done to the target
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  protected SyncResult doSync(FileConnectorConfig config, FileSystem fileSystem, String sourcePath,
+                              FileConnectorConfig targetConfig, String targetPath, boolean compareChecksums,
+                              boolean deleteExtraneous, int maxConcurrentTransfers, boolean continueOnError) {
+    fileSystem.changeToBaseDir();
+    validatePath(targetPath, "target path");
+    validatePath(sourcePath, "source path");
+    return fileSystem.sync(config, sourcePath, targetConfig, targetPath, compareChecksums, deleteExtraneous,
+                           maxConcurrentTransfers, continueOnError);
+  }
+
   /**
    * Deletes the file pointed by {@code path}, provided that it's not locked
    *
@@ -211,6 +272,43 @@ public abstract class BaseFileSystemOperations {
     fileSystem.delete(path);
   }
 
+  /**
+   * Deletes the files directly under the {@code directoryPath} which match the given {@code matcher}, provided that they're not
+   * locked
+   *
+   * @param fileSystem    a reference to the host {@link FileSystem}
+   * @param directoryPath the path to the directory which files are deleted
+   * @param matchWith     a matcher used to select the deleted files
+   * @return the paths of the deleted files
+   * @throws IllegalArgumentException if {@code directoryPath} doesn't exist or is not a directory
+   */
+  protected List<String> doDeleteMatching(FileSystem fileSystem, String directoryPath, FileMatcher matchWith) {
+    validatePath(directoryPath, "directory path");
+    fileSystem.changeToBaseDir();
+    return fileSystem.deleteMatching(directoryPath, getPredicate(matchWith));
+  }
+
+  /**
+   * Moves the files directly under the {@code directoryPath} which match the given {@code matcher} into the {@code targetPath}
+   * directory
+   *
+   * @param fileSystem              a reference to the host {@link FileSystem}
+   * @param directoryPath           the path to the directory which files are moved
+   * @param targetPath              the target directory
+   * @param matchWith               a matcher used to select the moved files
+   * @param createParentDirectories whether or not to attempt creating the target directory if it doesn't exist
+   * @param overwrite               whether or not overwrite the files which already exist in the target directory
+   * @return the new paths of the moved files
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  protected List<String> doMoveMatching(FileSystem fileSystem, String directoryPath, String targetPath, FileMatcher matchWith,
+                                        boolean createParentDirectories, boolean overwrite) {
+    validatePath(directoryPath, "directory path");
+    validatePath(targetPath, "target path");
+    fileSystem.changeToBaseDir();
+    return fileSystem.moveMatching(directoryPath, targetPath, getPredicate(matchWith), overwrite, createParentDirectories);
+  }
+
   /**
    * Renames the file pointed by {@code path} to the name provided on the {@code to} parameter
    * <p>
@@ -18,7 +18,7 @@ public interface CopyCommand {
 
   /**
    * Performs a copy operation under the considerations of
-   * {@link FileSystem#copy(FileConnectorConfig, String, String, boolean, boolean, String)}
+   * {@link FileSystem#copy(FileConnectorConfig, String, String, boolean, boolean, String, int, boolean)}
    *
    * @param config                  the config that is parameterizing this operation
    * @param sourcePath              the path to the file to be copied
@@ -26,8 +26,10 @@ public interface CopyCommand {
    * @param overwrite               whether or not overwrite the file if the target destination already exists.
    * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
    * @param renameTo                the new file name, {@code null} if the file doesn't need to be renamed
+   * @param maxConcurrentCopies     the maximum amount of files of a directory being copied at the same time
+   * @param continueOnError         whether a directory copy goes on after a file failed to be copied
    * @throws IllegalArgumentException if an illegal combination of arguments is supplied
    */
   void copy(FileConnectorConfig config, String sourcePath, String targetPath, boolean overwrite, boolean createParentDirectories,
-            String renameTo);
+            String renameTo, int maxConcurrentCopies, boolean continueOnError);
 }
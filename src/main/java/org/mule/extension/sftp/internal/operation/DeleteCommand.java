@@ -6,9 +6,13 @@
  */
 package org.mule.extension.sftp.internal.operation;
 
+import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.connection.FileSystem;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Command design pattern for deleting files
  *
@@ -23,4 +27,14 @@ public interface DeleteCommand {
    * @throws IllegalArgumentException if {@code filePath} doesn't exist or is locked
    */
   void delete(String filePath);
+
+  /**
+   * Deletes files under the considerations of {@link FileSystem#deleteMatching(String, Predicate)}
+   *
+   * @param directoryPath the path to the directory which files are deleted
+   * @param matcher       the predicate the deleted files match
+   * @return the paths of the deleted files
+   * @throws IllegalArgumentException if {@code directoryPath} doesn't exist or is not a directory
+   */
+  List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher);
 }
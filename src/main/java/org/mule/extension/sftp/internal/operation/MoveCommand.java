@@ -6,9 +6,13 @@
  */
 package org.mule.extension.sftp.internal.operation;
 
+import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.connection.FileSystem;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Command design pattern for moving files
  *
@@ -30,4 +34,18 @@ public interface MoveCommand {
    */
   void move(FileConnectorConfig config, String sourcePath, String targetPath, boolean overwrite, boolean createParentDirectories,
             String renameTo);
+
+  /**
+   * Moves files under the considerations of {@link FileSystem#moveMatching(String, String, Predicate, boolean, boolean)}
+   *
+   * @param directoryPath           the path to the directory which files are moved
+   * @param targetPath              the target directory
+   * @param matcher                 the predicate the moved files match
+   * @param overwrite               whether or not overwrite the files which already exist in the target directory
+   * @param createParentDirectories whether or not to attempt creating the target directory if it doesn't exist
+   * @return the new paths of the moved files
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher, boolean overwrite,
+                            boolean createParentDirectories);
 }
@@ -33,6 +33,13 @@ public class MoveSftpDelegate implements SftpCopyDelegate {
   public void doCopy(FileConnectorConfig config, FileAttributes source, URI targetUri, boolean overwrite) {
     String path = source.getPath();
     try {
+      if (overwrite && command.replaceAtomically(path, targetUri.getPath())) {
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("Moved file {} to {}", path, targetUri.getPath());
+        }
+        return;
+      }
+
       if (command.exists(targetUri)) {
         if (overwrite) {
           fileSystem.delete(targetUri.getPath());
@@ -25,8 +25,8 @@ import org.mule.extension.sftp.internal.connection.FileSystem;
 import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.Stack;
 
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
@@ -158,6 +158,11 @@ public abstract class SftpCommand extends ExternalFileCommand<SftpFileSystemConn
     URI sourceUri = resolveExistingPath(filePath);
     URI targetUri = createUri(trimLastFragment(sourceUri).getPath(), newName);
 
+    if (overwrite && replaceAtomically(sourceUri.getPath(), targetUri.getPath())) {
+      LOGGER.debug("{} renamed to {}", filePath, newName);
+      return;
+    }
+
     if (exists(targetUri)) {
       if (!overwrite) {
         throw new FileAlreadyExistsException(format("'%s' cannot be renamed because '%s' already exists", sourceUri.getPath(),
@@ -189,6 +194,23 @@ public abstract class SftpCommand extends ExternalFileCommand<SftpFileSystemConn
     client.rename(normalizePath(filePath), newName);
   }
 
+  /**
+   * Renames {@code filePath} to {@code targetPath} replacing the target, if any, in a single atomic step. Servers which can't
+   * do that are left untouched, so that the caller falls back to deleting the target and renaming.
+   *
+   * @param filePath   the path of the file to be renamed
+   * @param targetPath the new path, which is replaced if it already exists
+   * @return whether the file was renamed
+   */
+  protected boolean replaceAtomically(String filePath, String targetPath) {
+    try {
+      return client.posixRename(normalizePath(filePath), targetPath);
+    } catch (IOException e) {
+      // e.g. the target is a non empty directory, which the fallback deletes first
+      LOGGER.debug("Could not atomically rename {} to {}, deleting the target and renaming instead", filePath, targetPath, e);
+      return false;
+    }
+  }
 
   protected void createDirectory(String directoryPath) {
     final URI uri = createUri(fileSystem.getBasePath(), directoryPath);
@@ -254,22 +276,8 @@ public abstract class SftpCommand extends ExternalFileCommand<SftpFileSystemConn
    */
   @Override
   protected void doMkDirs(URI directoryUri) {
-    Stack<URI> fragments = new Stack<>();
-    String[] subPaths = directoryUri.getPath().split("/");
     // This uri needs to be normalized so that if it has a trailing separator it is erased.
-    URI subUri = normalizeUri(directoryUri);
-    for (int i = subPaths.length - 1; i > 0; i--) {
-      if (exists(subUri)) {
-        break;
-      }
-      fragments.push(subUri);
-      subUri = trimLastFragment(subUri);
-    }
-
-    while (!fragments.isEmpty()) {
-      URI fragment = fragments.pop();
-      client.mkdir(fragment.getPath());
-    }
+    client.mkdirs(normalizeUri(directoryUri).getPath());
   }
 
   /**
@@ -7,15 +7,31 @@
 package org.mule.extension.sftp.internal.operation;
 
 import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
 
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.joining;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.util.ConcurrentTasks;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionHandler;
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.scheduler.Scheduler;
 
 import java.net.URI;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 
@@ -29,6 +45,10 @@ public class SftpCopyCommand extends SftpCommand implements CopyCommand {
 
   private static final Logger LOGGER = getLogger(SftpCopyCommand.class);
 
+  private static final int PROGRESS_LOG_INTERVAL = 100;
+  private static final int MAX_REPORTED_FAILURES = 10;
+  private static final long POLL_INTERVAL_MILLIS = 100;
+
   /**
    * {@inheritDoc}
    */
@@ -41,20 +61,38 @@ public class SftpCopyCommand extends SftpCommand implements CopyCommand {
    */
   @Override
   public void copy(FileConnectorConfig config, String sourcePath, String targetPath, boolean overwrite,
-                   boolean createParentDirectories, String renameTo) {
+                   boolean createParentDirectories, String renameTo, int maxConcurrentCopies, boolean continueOnError) {
     copy(config, sourcePath, targetPath, overwrite, createParentDirectories, renameTo,
-         new SftpCopyDelegate(this, this.fileSystem));
+         new SftpCopyDelegate(this, this.fileSystem, maxConcurrentCopies, continueOnError));
   }
 
   private class SftpCopyDelegate extends AbstractSftpCopyDelegate {
 
-    public SftpCopyDelegate(SftpCommand command, SftpFileSystemConnection fileSystem) {
+    private final int maxConcurrentCopies;
+    private final boolean continueOnError;
+
+    public SftpCopyDelegate(SftpCommand command, SftpFileSystemConnection fileSystem, int maxConcurrentCopies,
+                            boolean continueOnError) {
       super(command, fileSystem);
+      this.maxConcurrentCopies = maxConcurrentCopies;
+      this.continueOnError = continueOnError;
+    }
+
+    @Override
+    protected boolean needsWriterConnection(FileAttributes source) {
+      // the workers of a parallel copy borrow their own writer connections
+      return !source.isDirectory() || parallelScheduler() == null;
     }
 
     @Override
     protected void copyDirectory(FileConnectorConfig config, URI sourceUri, URI target, boolean overwrite,
                                  SftpFileSystemConnection writerConnection) {
+      Scheduler scheduler = parallelScheduler();
+      if (scheduler != null) {
+        new ParallelTreeCopy(this, config, overwrite).copy(scheduler, sourceUri, target);
+        return;
+      }
+
       for (FileAttributes fileAttributes : client.list(sourceUri.getPath())) {
         String path = fileAttributes.getPath();
         if (isVirtualDirectory(fileAttributes.getName())) {
@@ -75,5 +113,153 @@ public class SftpCopyCommand extends SftpCommand implements CopyCommand {
         }
       }
     }
+
+    private Scheduler parallelScheduler() {
+      return maxConcurrentCopies > 1 ? client.getIoScheduler() : null;
+    }
+  }
+
+  /**
+   * Copies a directory tree walking it on this command's connection, creating the target directories as they are found and
+   * handing the files to up to {@code maxConcurrentCopies} workers. The workers read the files over this command's connection
+   * too, whose channel carries the requests of all of them interleaved, and each one writes them over a connection of its own
+   * borrowed from the pool, so the copy holds {@code maxConcurrentCopies + 1} connections.
+   */
+  private class ParallelTreeCopy {
+
+    private final SftpCopyDelegate delegate;
+    private final FileConnectorConfig config;
+    private final boolean overwrite;
+    private final BlockingQueue<Entry<FileAttributes, URI>> pendingFiles = new LinkedBlockingQueue<>();
+    private final Queue<Entry<String, RuntimeException>> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger copiedFiles = new AtomicInteger();
+    private int foundFiles;
+    private volatile boolean walkFinished;
+    private volatile boolean aborted;
+
+    private ParallelTreeCopy(SftpCopyDelegate delegate, FileConnectorConfig config, boolean overwrite) {
+      this.delegate = delegate;
+      this.config = config;
+      this.overwrite = overwrite;
+    }
+
+    private void copy(Scheduler scheduler, URI sourceUri, URI target) {
+      ConcurrentTasks workers = new ConcurrentTasks(scheduler);
+      for (int i = 0; i < delegate.maxConcurrentCopies; i++) {
+        workers.submit(this::work);
+      }
+      try {
+        walk(sourceUri, target);
+      } catch (RuntimeException e) {
+        abort();
+        Throwable workerFailure = workers.cancelAll();
+        if (workerFailure != null) {
+          e.addSuppressed(workerFailure);
+        }
+        throw e;
+      } finally {
+        walkFinished = true;
+      }
+      awaitWorkers(workers);
+
+      LOGGER.debug("Copied {} of {} files from {} to {}", copiedFiles.get(), foundFiles, sourceUri.getPath(), target.getPath());
+      if (!failures.isEmpty()) {
+        throw failure(sourceUri, target);
+      }
+    }
+
+    private void walk(URI sourceUri, URI target) {
+      client.mkdirs(target.getPath());
+      for (FileAttributes fileAttributes : client.list(sourceUri.getPath())) {
+        if (aborted) {
+          return;
+        }
+        if (isVirtualDirectory(fileAttributes.getName())) {
+          continue;
+        }
+
+        URI targetUri = createUri(target.getPath(), fileAttributes.getName());
+        if (fileAttributes.isDirectory()) {
+          walk(URI.create(fileAttributes.getPath()), targetUri);
+        } else {
+          foundFiles++;
+          pendingFiles.add(new SimpleImmutableEntry<>(fileAttributes, targetUri));
+        }
+      }
+    }
+
+    private void work() {
+      ConnectionHandler<SftpFileSystemConnection> writerConnectionHandler = null;
+      try {
+        writerConnectionHandler = delegate.borrowConnection(config);
+        SftpFileSystemConnection writerConnection = writerConnectionHandler.getConnection();
+
+        while (!aborted) {
+          Entry<FileAttributes, URI> file = pendingFiles.poll(POLL_INTERVAL_MILLIS, MILLISECONDS);
+          if (file == null) {
+            if (walkFinished && pendingFiles.isEmpty()) {
+              return;
+            }
+            continue;
+          }
+          copyFile(file.getKey(), file.getValue(), writerConnection);
+        }
+      } catch (ConnectionException e) {
+        failures.add(new SimpleImmutableEntry<>(null, exception("Could not obtain a connection to copy the directory files", e)));
+        abort();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        abort();
+      } finally {
+        if (writerConnectionHandler != null) {
+          writerConnectionHandler.release();
+        }
+      }
+    }
+
+    private void copyFile(FileAttributes source, URI target, SftpFileSystemConnection writerConnection) {
+      try {
+        delegate.copyFile(config, source, target, overwrite, writerConnection);
+        int copied = copiedFiles.incrementAndGet();
+        if (copied % PROGRESS_LOG_INTERVAL == 0) {
+          LOGGER.debug("Copied {} files so far, {} waiting to be copied", copied, pendingFiles.size());
+        }
+      } catch (RuntimeException e) {
+        LOGGER.debug("Could not copy file {} to {}", source.getPath(), target.getPath(), e);
+        failures.add(new SimpleImmutableEntry<>(source.getPath(), e));
+        if (!delegate.continueOnError) {
+          abort();
+        }
+      }
+    }
+
+    private void abort() {
+      aborted = true;
+      pendingFiles.clear();
+    }
+
+    private void awaitWorkers(ConcurrentTasks workers) {
+      Throwable failure = workers.awaitAll(this::abort);
+      if (failure instanceof InterruptedException) {
+        throw exception("Interrupted while copying the directory files", (InterruptedException) failure);
+      }
+      if (failure != null) {
+        throw new MuleRuntimeException(createStaticMessage("Found exception while copying the directory files"), failure);
+      }
+    }
+
+    private RuntimeException failure(URI sourceUri, URI target) {
+      Entry<String, RuntimeException> first = failures.peek();
+      if (first.getKey() == null || !delegate.continueOnError) {
+        return first.getValue();
+      }
+      String failedFiles = failures.stream().limit(MAX_REPORTED_FAILURES).map(Entry::getKey).collect(joining(", "));
+      if (failures.size() > MAX_REPORTED_FAILURES) {
+        failedFiles += ", ...";
+      }
+      return exception(format("Could not copy %d of %d files from '%s' to '%s': %s", failures.size(), foundFiles,
+                              sourceUri.getPath(), target.getPath(), failedFiles),
+                       first.getValue());
+    }
   }
 }
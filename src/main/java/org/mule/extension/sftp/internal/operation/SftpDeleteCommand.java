@@ -15,6 +15,8 @@ import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 
 import java.net.URI;
+import java.util.List;
+import java.util.function.Predicate;
 
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
@@ -56,6 +58,23 @@ public final class SftpDeleteCommand extends SftpCommand implements DeleteComman
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher) {
+    FileAttributes directory = getExistingFile(directoryPath);
+    final String path = directory.getPath();
+    if (!directory.isDirectory()) {
+      throw cannotListFileException(createUri(path, ""));
+    }
+
+    LOGGER.debug("Preparing to delete the matching files of directory '{}'", path);
+    List<String> deleted = client.deleteMatching(path, matcher::test, filePath -> fileSystem.verifyNotLocked(createUri(filePath)));
+    LOGGER.debug("Deleted {} matching files of directory '{}'", deleted.size(), path);
+    return deleted;
+  }
+
   private void deleteFile(String path) {
     fileSystem.verifyNotLocked(createUri(path));
     LOGGER.debug("Preparing to delete file '{}'", path);
@@ -66,6 +85,11 @@ public final class SftpDeleteCommand extends SftpCommand implements DeleteComman
 
   private void deleteDirectory(String path) {
     LOGGER.debug("Preparing to delete directory '{}'", path);
+    if (client.deleteTree(path, filePath -> fileSystem.verifyNotLocked(createUri(filePath)))) {
+      logDelete(path);
+      return;
+    }
+
     for (FileAttributes file : client.list(path)) {
       final String filePath = file.getPath();
       if (isVirtualDirectory(file.getName())) {
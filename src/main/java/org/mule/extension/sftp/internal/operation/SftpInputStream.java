@@ -8,6 +8,9 @@ package org.mule.extension.sftp.internal.operation;
 
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.connection.BoundedConnectionSource;
+import org.mule.extension.sftp.internal.connection.ConnectionSource;
+import org.mule.extension.sftp.internal.connection.ManagerBasedConnectionSource;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 import org.mule.extension.sftp.internal.extension.SftpConnector;
 import org.mule.extension.sftp.internal.lock.UriLock;
@@ -19,6 +22,7 @@ import org.mule.runtime.core.api.connector.ConnectionManager;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Semaphore;
 
 import org.apache.sshd.sftp.common.SftpConstants;
 import org.apache.sshd.sftp.common.SftpException;
@@ -54,6 +58,30 @@ public class SftpInputStream extends AbstractNonFinalizableFileInputStream {
     return new SftpInputStream(sftpFileInputStreamSupplier, lock);
   }
 
+  /**
+   * Using the given {@code config}, returns a new instance of this class which reads the file's content over a connection borrowed
+   * from the config's pool once one of the {@code connectionPermits} is available. Both are given back when the stream is closed.
+   * <p>
+   * Instances returned by this method <b>MUST</b> be closed or fully consumed.
+   *
+   * @param config               the config which is parameterizing this operation
+   * @param attributes           a {@link FileAttributes} referencing the file which contents are to be fetched
+   * @param lock                 the {@link UriLock} to be used
+   * @param timeBetweenSizeCheck time in milliseconds to wait between size checks to decide if a file is ready to be read
+   * @param connectionPermits    the {@link Semaphore} bounding how many streams sharing it hold a connection at the same time
+   * @return a new {@link SftpInputStream}
+   * @throws ConnectionException if a connection could not be established
+   * @since 2.5
+   */
+  public static SftpInputStream newInstance(SftpConnector config, SftpFileAttributes attributes, UriLock lock,
+                                            Long timeBetweenSizeCheck, Semaphore connectionPermits)
+      throws ConnectionException {
+    ConnectionSource<SftpFileSystemConnection> connectionSource =
+        new BoundedConnectionSource<>(new ManagerBasedConnectionSource<>(config, getConnectionManager(config)),
+                                      connectionPermits);
+    return new SftpInputStream(new SftpFileInputStreamSupplier(attributes, timeBetweenSizeCheck, connectionSource), lock);
+  }
+
   /**
    * Using the given connection ,returns a new instance of this class.
    * <p>
@@ -101,6 +129,11 @@ public class SftpInputStream extends AbstractNonFinalizableFileInputStream {
       super(attributes, timeBetweenSizeCheck, fileSystem);
     }
 
+    private SftpFileInputStreamSupplier(SftpFileAttributes attributes, Long timeBetweenSizeCheck,
+                                        ConnectionSource<SftpFileSystemConnection> connectionSource) {
+      super(attributes, timeBetweenSizeCheck, connectionSource);
+    }
+
     @Override
     protected FileAttributes getUpdatedAttributes(SftpFileSystemConnection fileSystem) {
       return fileSystem.readFileAttributes(attributes.getPath());
@@ -6,9 +6,20 @@
  */
 package org.mule.extension.sftp.internal.operation;
 
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.extension.sftp.internal.util.UriUtils.normalizeUri;
+
+import static java.lang.String.format;
+
+import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.IllegalPathException;
+
+import java.net.URI;
+import java.util.List;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,4 +49,37 @@ public class SftpMoveCommand extends SftpCommand implements MoveCommand {
     copy(config, sourcePath, targetPath, overwrite, createParentDirectories, renameTo, new MoveSftpDelegate(this, fileSystem));
     LOGGER.debug("Moved '{}' to '{}'", sourcePath, targetPath);
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher, boolean overwrite,
+                                   boolean createParentDirectories) {
+    FileAttributes directory = getExistingFile(directoryPath);
+    if (!directory.isDirectory()) {
+      throw cannotListFileException(createUri(directory.getPath(), ""));
+    }
+
+    URI targetUri = resolvePath(targetPath);
+    FileAttributes targetDirectory = getFile(targetUri.getPath());
+    if (targetDirectory == null) {
+      if (!createParentDirectories) {
+        throw pathNotFoundException(targetUri);
+      }
+      mkdirs(targetUri);
+    } else if (!targetDirectory.isDirectory()) {
+      throw new IllegalPathException(format("Cannot move files into '%s' because it's a file", targetDirectory.getPath()));
+    }
+
+    String targetDirectoryPath = normalizeUri(targetUri).getPath();
+    if (targetDirectoryPath.equals(directory.getPath())) {
+      throw new IllegalPathException(format("Cannot move the files of '%s' into the same directory", directory.getPath()));
+    }
+
+    List<String> moved = client.moveMatching(directory.getPath(), targetDirectoryPath, matcher::test, overwrite,
+                                             filePath -> fileSystem.verifyNotLocked(createUri(filePath)));
+    LOGGER.debug("Moved {} matching files of '{}' to '{}'", moved.size(), directory.getPath(), targetDirectoryPath);
+    return moved;
+  }
 }
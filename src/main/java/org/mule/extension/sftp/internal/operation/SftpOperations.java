@@ -13,10 +13,15 @@ import static org.mule.runtime.core.api.util.StringUtils.isBlank;
 import static org.mule.runtime.extension.api.annotation.param.MediaType.ANY;
 import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
 
+import static java.lang.String.format;
+
 import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
 import org.mule.extension.sftp.api.SftpFileAttributes;
 import org.mule.extension.sftp.api.SftpFileMatcher;
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.internal.connection.FileSystem;
@@ -30,6 +35,7 @@ import org.mule.extension.sftp.internal.error.provider.FileWriteErrorTypeProvide
 import org.mule.extension.sftp.internal.exception.IllegalContentException;
 import org.mule.extension.sftp.internal.exception.IllegalPathException;
 import org.mule.extension.sftp.internal.extension.SftpConnector;
+import org.mule.runtime.api.artifact.Registry;
 import org.mule.runtime.api.message.Message;
 import org.mule.runtime.extension.api.annotation.error.Throws;
 import org.mule.runtime.extension.api.annotation.param.Config;
@@ -42,12 +48,16 @@ import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
 import org.mule.runtime.extension.api.annotation.param.display.Path;
 import org.mule.runtime.extension.api.annotation.param.display.Placement;
 import org.mule.runtime.extension.api.annotation.param.display.Summary;
+import org.mule.runtime.extension.api.annotation.param.reference.ConfigReference;
+import org.mule.runtime.extension.api.runtime.config.ConfigurationProvider;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 
 import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import javax.inject.Inject;
+
 /**
  * Ftp connector operations
  *
@@ -56,6 +66,9 @@ import java.util.concurrent.TimeUnit;
 @SuppressWarnings({"rawtypes", "java:S107"})
 public final class SftpOperations extends BaseFileSystemOperations {
 
+  @Inject
+  private Registry registry;
+
   /**
    * Lists all the files in the {@code directoryPath} which match the given {@code matcher}.
    * <p>
@@ -152,6 +165,13 @@ public final class SftpOperations extends BaseFileSystemOperations {
    * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
    * @param lock                    whether or not to lock the file. Defaults to false
    * @param mode                    a {@link FileWriteMode}. Defaults to {@code OVERWRITE}
+   * @param writeStrategy           a {@link WriteStrategy}. Defaults to {@code STANDARD}
+   * @param bufferSizeForWriteStrategy the size of the buffer used by the {@code CUSTOM} and {@code PIPELINED} strategies
+   * @param maxPendingWrites        the maximum amount of write requests awaiting acknowledgement when using the
+   *                                {@code PIPELINED} strategy
+   * @param uploadParts             the amount of parts uploaded concurrently when using the {@code MULTIPART} strategy
+   * @param uploadToTemporaryFile   whether the {@code MULTIPART} strategy writes into a temporary file which is renamed to
+   *                                {@code path} once every part succeeded
    * @throws IllegalArgumentException if an illegal combination of arguments is supplied
    */
   @Summary("Writes the given \"Content\" in the file pointed by \"Path\"")
@@ -165,7 +185,13 @@ public final class SftpOperations extends BaseFileSystemOperations {
                     @Placement(tab = ADVANCED_TAB) @Optional(
                         defaultValue = "STANDARD") @Summary("Strategy to write the file.") WriteStrategy writeStrategy,
                     @Placement(tab = ADVANCED_TAB) @Optional(
-                        defaultValue = "BUFFER_SIZE_8KB") @Summary("Buffer size for the custom write.") CustomWriteBufferSize bufferSizeForWriteStrategy) {
+                        defaultValue = "BUFFER_SIZE_8KB") @Summary("Buffer size for the custom write.") CustomWriteBufferSize bufferSizeForWriteStrategy,
+                    @Placement(tab = ADVANCED_TAB) @Optional(
+                        defaultValue = "16") @Summary("Maximum number of write requests awaiting acknowledgement when using the PIPELINED write strategy.") int maxPendingWrites,
+                    @Placement(tab = ADVANCED_TAB) @Optional(
+                        defaultValue = "4") @Summary("Number of parts uploaded concurrently when using the MULTIPART write strategy.") int uploadParts,
+                    @Placement(tab = ADVANCED_TAB) @Optional(
+                        defaultValue = "true") @Summary("Whether the MULTIPART write strategy uploads into a temporary file which is renamed once every part succeeded.") boolean uploadToTemporaryFile) {
     // TODO: Revert changes after removing changeToBaseDir() calls in File Commons (MULE-17483).
     if (content == null) {
       throw new IllegalContentException("Cannot write a null content");
@@ -175,7 +201,47 @@ public final class SftpOperations extends BaseFileSystemOperations {
       throw new IllegalPathException("path cannot be null nor blank");
     }
 
-    fileSystem.write(path, content, mode, lock, createParentDirectories, writeStrategy, bufferSizeForWriteStrategy);
+    fileSystem.write(path, content, mode, lock, createParentDirectories, writeStrategy, bufferSizeForWriteStrategy,
+                     maxPendingWrites, uploadParts, uploadToTemporaryFile);
+  }
+
+  /**
+   * Writes each one of the {@code items} into the file pointed by its path, keeping up to {@code maxConcurrentWrites} files in
+   * progress at the same time over a single connection.
+   * <p>
+   * This is meant for writing many small files, which spend most of their time waiting for the server to answer: the requests
+   * of the files in progress are interleaved so their round trips overlap. Each file is written following the same rules as the
+   * write operation, but a file which can't be written doesn't stop the batch. Instead, the returned list holds a
+   * {@link WriteBatchResult} for each item, in the same order, telling whether it was written and why not.
+   *
+   * @param fileSystem                 a reference to the host {@link FileSystem}
+   * @param items                      the files to be written, each one with its path and content
+   * @param createParentDirectories    whether or not to attempt creating any parent directories which don't exists.
+   * @param mode                       a {@link FileWriteMode}. Defaults to {@code OVERWRITE}
+   * @param maxConcurrentWrites        the maximum amount of files being written at the same time
+   * @param bufferSizeForWriteStrategy the size of the buffer used to write each file
+   * @param maxPendingWrites           the maximum amount of write requests awaiting acknowledgement for each file
+   * @return a {@link WriteBatchResult} for each one of the {@code items}
+   */
+  @Summary("Writes many files over a single connection, reporting the outcome of each one")
+  @Throws(FileWriteErrorTypeProvider.class)
+  public List<WriteBatchResult> writeBatch(@Connection SftpFileSystemConnection fileSystem,
+                                           @Content @Summary("Files to be written, each one with its path and content") List<WriteBatchItem> items,
+                                           @Optional(defaultValue = "true") boolean createParentDirectories,
+                                           @Optional(
+                                               defaultValue = "OVERWRITE") @Summary("How the files are going to be written") @DisplayName("Write Mode") FileWriteMode mode,
+                                           @Placement(tab = ADVANCED_TAB) @Optional(
+                                               defaultValue = "8") @Summary("Maximum number of files being written at the same time.") int maxConcurrentWrites,
+                                           @Placement(tab = ADVANCED_TAB) @Optional(
+                                               defaultValue = "BUFFER_SIZE_8KB") @Summary("Buffer size used to write each file.") CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                           @Placement(tab = ADVANCED_TAB) @Optional(
+                                               defaultValue = "16") @Summary("Maximum number of write requests awaiting acknowledgement for each file.") int maxPendingWrites) {
+    if (items == null) {
+      throw new IllegalContentException("Cannot write a null batch of files");
+    }
+
+    return fileSystem.writeBatch(items, mode, createParentDirectories, maxConcurrentWrites, bufferSizeForWriteStrategy,
+                                 maxPendingWrites);
   }
 
   /**
@@ -189,7 +255,11 @@ public final class SftpOperations extends BaseFileSystemOperations {
    * {@code SFTP:FILE_ALREADY_EXISTS} error will be thrown.
    * <p>
    * As for the {@code sourcePath}, it can either be a file or a directory. If it points to a directory, then it will be copied
-   * recursively.
+   * recursively. Directories are created as the source tree is walked and up to {@code maxConcurrentCopies} files are copied
+   * at the same time, each one holding its own connection borrowed from the pool. Files are copied on the server when it
+   * supports it, otherwise they are read over the connection of the operation and written over the borrowed one. If a file
+   * can't be copied, the operation either fails right away or, if {@code continueOnError} is {@code true}, copies the rest and
+   * then fails reporting every file which could not be copied.
    *
    * @param config                  the config that is parameterizing this operation
    * @param fileSystem              a reference to the host {@link FileSystem}
@@ -198,6 +268,8 @@ public final class SftpOperations extends BaseFileSystemOperations {
    * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
    * @param overwrite               whether or not overwrite the file if the target destination already exists.
    * @param renameTo                copied file's new name. If not provided, original file name will be kept.
+   * @param maxConcurrentCopies     the maximum amount of files of a directory being copied at the same time
+   * @param continueOnError         whether to keep copying the rest of a directory after a file failed to be copied
    * @throws IllegalArgumentException if an illegal combination of arguments is supplied
    */
   @Summary("Copies a file")
@@ -207,8 +279,13 @@ public final class SftpOperations extends BaseFileSystemOperations {
                    @Path(location = EXTERNAL) String sourcePath,
                    @Path(type = DIRECTORY, location = EXTERNAL) String targetPath,
                    @Optional(defaultValue = "true") boolean createParentDirectories,
-                   @Optional(defaultValue = "false") boolean overwrite, @Optional String renameTo) {
-    super.doCopy(config, fileSystem, sourcePath, targetPath, createParentDirectories, overwrite, renameTo);
+                   @Optional(defaultValue = "false") boolean overwrite, @Optional String renameTo,
+                   @Placement(tab = ADVANCED_TAB) @Optional(
+                       defaultValue = "1") @Summary("Maximum number of files copied at the same time when copying a directory. Each concurrent copy borrows a connection from the pool to write the files.") int maxConcurrentCopies,
+                   @Placement(tab = ADVANCED_TAB) @Optional(
+                       defaultValue = "false") @Summary("Whether to keep copying the rest of a directory after a file failed to be copied, reporting every failure at the end.") boolean continueOnError) {
+    super.doCopy(config, fileSystem, sourcePath, targetPath, createParentDirectories, overwrite, renameTo, maxConcurrentCopies,
+                 continueOnError);
   }
 
   /**
@@ -244,6 +321,115 @@ public final class SftpOperations extends BaseFileSystemOperations {
     super.doMove(config, fileSystem, sourcePath, targetPath, createParentDirectories, overwrite, renameTo);
   }
 
+  /**
+   * Transfers the file at the {@code sourcePath} of this config's server into the {@code targetPath} of the server of the
+   * {@code targetConfig}. The content is streamed from one server to the other, reading the source ahead while the target is
+   * written, without being buffered through the Mule event.
+   * <p>
+   * The {@code targetPath} is resolved on the target server under the same rules as the copy operation: if it doesn't exist it
+   * is created depending on the value of the {@code createParentDirectories} argument and if the target file already exists,
+   * then it will be overwritten if the {@code overwrite} argument is {@code true}. Otherwise, {@code SFTP:FILE_ALREADY_EXISTS}
+   * error will be thrown.
+   * <p>
+   * If {@code sourcePath} points to a directory, then it will be transferred recursively, up to {@code maxConcurrentTransfers}
+   * files at the same time, each additional one over its own pair of connections borrowed from the pools of both configs. If
+   * {@code verifyChecksum} is {@code true}, the MD5 hash of the streamed content is compared against the one of the written
+   * file, which is deleted if they don't match.
+   *
+   * @param config                  the config that is parameterizing this operation
+   * @param fileSystem              a reference to the host {@link FileSystem}
+   * @param sourcePath              the path to the file to be transferred
+   * @param targetConfig            the name of the SFTP config of the server the file is transferred to
+   * @param targetPath              the target directory on the server of the {@code targetConfig}
+   * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
+   * @param overwrite               whether or not overwrite the file if the target destination already exists.
+   * @param verifyChecksum          whether to compare the checksum of every transferred file against the source one
+   * @param maxConcurrentTransfers  the maximum amount of files of a directory being transferred at the same time
+   * @param continueOnError         whether to keep transferring the rest of a directory after a file failed to be transferred
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  @Summary("Transfers a file to the server of another SFTP config")
+  @Throws(FileCopyErrorTypeProvider.class)
+  public void transfer(@Config SftpConnector config,
+                       @Connection SftpFileSystemConnection fileSystem,
+                       @Path(location = EXTERNAL) String sourcePath,
+                       @ConfigReference(namespace = "SFTP",
+                           name = "CONFIG") @Summary("The SFTP config of the server the file is transferred to") String targetConfig,
+                       @Path(type = DIRECTORY, location = EXTERNAL) String targetPath,
+                       @Optional(defaultValue = "true") boolean createParentDirectories,
+                       @Optional(defaultValue = "false") boolean overwrite,
+                       @Placement(tab = ADVANCED_TAB) @Optional(
+                           defaultValue = "false") @Summary("Whether to compare the MD5 checksum of every transferred file against the source content.") boolean verifyChecksum,
+                       @Placement(tab = ADVANCED_TAB) @Optional(
+                           defaultValue = "1") @Summary("Maximum number of files transferred at the same time when transferring a directory. Each additional transfer borrows a connection from the pool of each config.") int maxConcurrentTransfers,
+                       @Placement(tab = ADVANCED_TAB) @Optional(
+                           defaultValue = "false") @Summary("Whether to keep transferring the rest of a directory after a file failed to be transferred, reporting every failure at the end.") boolean continueOnError) {
+    super.doTransfer(config, fileSystem, sourcePath, lookupConfig(targetConfig), targetPath, createParentDirectories, overwrite,
+                     verifyChecksum, maxConcurrentTransfers, continueOnError);
+  }
+
+  /**
+   * Synchronizes the directory at the {@code sourcePath} into the {@code targetPath}, so the latter mirrors the content of the
+   * former. The {@code targetPath} may be on this config's server or, if a {@code targetConfig} is given, on the server of that
+   * config. The content of the source directory goes directly under the {@code targetPath}, which is created if it doesn't exist.
+   * <p>
+   * Both trees are listed and compared directory by directory, each target directory being listed while its source counterpart
+   * is. A file is transferred only if it doesn't exist in the target or its size differs. Files of the same size are considered
+   * changed if the source was modified after the target or, when {@code compareChecksums} is {@code true}, if their MD5
+   * checksums differ, in which case the checksum of every transferred file is verified as well. Up to
+   * {@code maxConcurrentTransfers} files are transferred at the same time, so the cost of a synchronization tracks the changed
+   * data instead of the size of the tree.
+   * <p>
+   * If {@code deleteExtraneous} is {@code true}, the target entries which don't exist in the source are deleted, as well as those
+   * which are a file on one side and a directory on the other.
+   *
+   * @param config                 the config that is parameterizing this operation
+   * @param fileSystem             a reference to the host {@link FileSystem}
+   * @param sourcePath             the path to the directory to be synchronized
+   * @param targetConfig           the name of the SFTP config of the server the directory is synchronized into. Defaults to
+   *                               this config
+   * @param targetPath             the directory which mirrors the source one
+   * @param deleteExtraneous       whether the target entries which don't exist in the source are deleted
+   * @param compareChecksums       whether files of the same size are compared by checksum instead of by modification time
+   * @param maxConcurrentTransfers the maximum amount of files being transferred at the same time
+   * @param continueOnError        whether to keep transferring the rest of the files after one failed to be transferred
+   * @return a {@link SyncResult} describing the changes done to the target
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  @Summary("Mirrors a directory into another one, transferring only the files which are new or changed")
+  @Throws(FileCopyErrorTypeProvider.class)
+  public SyncResult sync(@Config SftpConnector config,
+                         @Connection SftpFileSystemConnection fileSystem,
+                         @Path(type = DIRECTORY, location = EXTERNAL) String sourcePath,
+                         @Optional @ConfigReference(namespace = "SFTP",
+                             name = "CONFIG") @Summary("The SFTP config of the server the directory is mirrored to. Defaults to this config") String targetConfig,
+                         @Path(type = DIRECTORY, location = EXTERNAL) String targetPath,
+                         @Optional(defaultValue = "false") @Summary("Whether the target entries which don't exist in the source are deleted") boolean deleteExtraneous,
+                         @Placement(tab = ADVANCED_TAB) @Optional(
+                             defaultValue = "false") @Summary("Whether files of the same size are compared by MD5 checksum instead of by modification time.") boolean compareChecksums,
+                         @Placement(tab = ADVANCED_TAB) @Optional(
+                             defaultValue = "4") @Summary("Maximum number of files transferred at the same time. Each additional transfer borrows a connection from the pool of each config.") int maxConcurrentTransfers,
+                         @Placement(tab = ADVANCED_TAB) @Optional(
+                             defaultValue = "false") @Summary("Whether to keep transferring the rest of the files after one failed to be transferred, reporting every failure at the end.") boolean continueOnError) {
+    SftpConnector target = targetConfig != null ? lookupConfig(targetConfig) : config;
+    return super.doSync(config, fileSystem, sourcePath, target, targetPath, compareChecksums, deleteExtraneous,
+                        maxConcurrentTransfers, continueOnError);
+  }
+
+  private SftpConnector lookupConfig(String configName) {
+    ConfigurationProvider provider = registry.<ConfigurationProvider>lookupByName(configName)
+        .orElseThrow(() -> new IllegalArgumentException(format("There is no config named '%s'", configName)));
+    if (provider.isDynamic()) {
+      throw new IllegalArgumentException(format("Config '%s' is dynamic, files can only be transferred to a static config",
+                                                configName));
+    }
+    Object targetConfig = provider.get(null).getValue();
+    if (!(targetConfig instanceof SftpConnector)) {
+      throw new IllegalArgumentException(format("Config '%s' is not an SFTP config", configName));
+    }
+    return (SftpConnector) targetConfig;
+  }
+
 
   /**
    * Deletes the file pointed by {@code path}, provided that it's not locked
@@ -258,6 +444,62 @@ public final class SftpOperations extends BaseFileSystemOperations {
     super.doDelete(fileSystem, path);
   }
 
+  /**
+   * Deletes the files directly under the {@code directoryPath} which match the given {@code matcher}, provided that they're not
+   * locked. Subdirectories are left untouched.
+   * <p>
+   * The removals are requested over a single connection as the directory is listed, without waiting for each one to be
+   * acknowledged, and the matcher is evaluated against the attributes of the listing. Files which can't be deleted don't stop the
+   * rest from being deleted, they are all reported at the end.
+   *
+   * @param fileSystem    a reference to the host {@link FileSystem}
+   * @param directoryPath the path to the directory which files are deleted
+   * @param matcher       a matcher used to select the deleted files. All the files are deleted if not provided
+   * @return the paths of the deleted files
+   * @throws IllegalArgumentException if {@code directoryPath} doesn't exist or is not a directory
+   */
+  @Summary("Deletes the files of a directory which match the given rules")
+  @Throws(FileDeleteErrorTypeProvider.class)
+  public List<String> deleteMatching(@Connection SftpFileSystemConnection fileSystem,
+                                     @DisplayName("Directory Path") @Path(type = DIRECTORY,
+                                         location = EXTERNAL) String directoryPath,
+                                     @Optional @DisplayName("File Matching Rules") @Summary("Matcher to select the deleted files") SftpFileMatcher matcher) {
+    return super.doDeleteMatching(fileSystem, directoryPath, matcher);
+  }
+
+  /**
+   * Moves the files directly under the {@code directoryPath} which match the given {@code matcher} into the {@code targetPath}
+   * directory, keeping their names. Subdirectories are left untouched.
+   * <p>
+   * If the {@code targetPath} doesn't exist, then it is created depending on the value of the {@code createParentDirectories}
+   * argument. If it's {@code false}, then a {@code SFTP:ILLEGAL_PATH} will be thrown. Files which already exist in the
+   * {@code targetPath} are replaced only if the {@code overwrite} argument is {@code true}.
+   * <p>
+   * The renames are requested over a single connection as the directory is listed, without waiting for each one to be
+   * acknowledged, and the matcher is evaluated against the attributes of the listing. Files which can't be moved don't stop the
+   * rest from being moved, they are all reported at the end.
+   *
+   * @param fileSystem              a reference to the host {@link FileSystem}
+   * @param directoryPath           the path to the directory which files are moved
+   * @param targetPath              the target directory
+   * @param createParentDirectories whether or not to attempt creating the target directory if it doesn't exist
+   * @param overwrite               whether or not overwrite the files which already exist in the target directory
+   * @param matcher                 a matcher used to select the moved files. All the files are moved if not provided
+   * @return the new paths of the moved files
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  @Summary("Moves the files of a directory which match the given rules")
+  @Throws(FileCopyErrorTypeProvider.class)
+  public List<String> moveMatching(@Connection SftpFileSystemConnection fileSystem,
+                                   @DisplayName("Directory Path") @Path(type = DIRECTORY,
+                                       location = EXTERNAL) String directoryPath,
+                                   @Path(type = DIRECTORY, location = EXTERNAL) String targetPath,
+                                   @Optional(defaultValue = "true") boolean createParentDirectories,
+                                   @Optional(defaultValue = "false") boolean overwrite,
+                                   @Optional @DisplayName("File Matching Rules") @Summary("Matcher to select the moved files") SftpFileMatcher matcher) {
+    return super.doMoveMatching(fileSystem, directoryPath, targetPath, matcher, createParentDirectories, overwrite);
+  }
+
   /**
    * Renames the file pointed by {@code path} to the name provided on the {@code to} parameter
    * <p>
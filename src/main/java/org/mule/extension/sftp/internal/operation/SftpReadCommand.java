@@ -23,6 +23,7 @@ import org.mule.runtime.extension.api.runtime.operation.Result;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.util.concurrent.Semaphore;
 
 /**
  * A {@link SftpCommand} which implements the {@link ReadCommand} contract
@@ -46,14 +47,9 @@ public final class SftpReadCommand extends SftpCommand implements ReadCommand<Sf
   public Result<InputStream, SftpFileAttributes> read(FileConnectorConfig config, String filePath, boolean lock,
                                                       Long timeBetweenSizeCheck) {
     SftpFileAttributes attributes = getExistingFile(filePath);
-    if (attributes.isDirectory()) {
-      throw cannotReadDirectoryException(createUri(attributes.getPath()));
-    }
-    if (!isReadable(attributes)) {
-      throw cannotReadFileException(createUri(attributes.getPath()));
-    }
+    checkCanRead(attributes);
 
-    return read(config, attributes, lock, timeBetweenSizeCheck, true);
+    return read(config, attributes, lock, timeBetweenSizeCheck, true, null);
   }
 
   /**
@@ -62,7 +58,47 @@ public final class SftpReadCommand extends SftpCommand implements ReadCommand<Sf
   @Override
   public Result<InputStream, SftpFileAttributes> read(FileConnectorConfig config, SftpFileAttributes attributes, boolean lock,
                                                       Long timeBetweenSizeCheck) {
-    return read(config, attributes, lock, timeBetweenSizeCheck, false);
+    return read(config, attributes, lock, timeBetweenSizeCheck, false, null);
+  }
+
+  /**
+   * Reads the file described by the given {@code attributes}, as obtained when listing its directory, without fetching them
+   * again. This saves a round trip per file compared to {@link #read(FileConnectorConfig, String, boolean, Long)}.
+   *
+   * @param config               the config that is parameterizing this operation
+   * @param attributes           the attributes of the file to read
+   * @param lock                 whether or not to lock the file
+   * @param timeBetweenSizeCheck wait time between size checks to determine if a file is ready to be read in milliseconds
+   * @param useCurrentConnection whether the content is read over this command's connection or over one borrowed from the
+   *                             {@code config}'s pool
+   * @return a {@link Result} with an {@link InputStream} with the file's content as payload
+   * @since 2.5
+   */
+  public Result<InputStream, SftpFileAttributes> read(FileConnectorConfig config, SftpFileAttributes attributes, boolean lock,
+                                                      Long timeBetweenSizeCheck, boolean useCurrentConnection) {
+    if (!isReadable(attributes)) {
+      throw cannotReadFileException(createUri(attributes.getPath()));
+    }
+    return read(config, attributes, lock, timeBetweenSizeCheck, useCurrentConnection, null);
+  }
+
+  /**
+   * Reads the file described by the given {@code attributes} without fetching them again. Its content is read over a connection
+   * borrowed from the {@code config}'s pool once one of the {@code connectionPermits} is available, so files read concurrently
+   * don't share a channel. Both are given back when the returned stream is closed.
+   *
+   * @param config               the config that is parameterizing this operation
+   * @param attributes           the attributes of the file to read
+   * @param lock                 whether or not to lock the file
+   * @param timeBetweenSizeCheck wait time between size checks to determine if a file is ready to be read in milliseconds
+   * @param connectionPermits    the {@link Semaphore} bounding how many files sharing it are read at the same time
+   * @return a {@link Result} with an {@link InputStream} with the file's content as payload
+   * @since 2.5
+   */
+  public Result<InputStream, SftpFileAttributes> read(FileConnectorConfig config, SftpFileAttributes attributes, boolean lock,
+                                                      Long timeBetweenSizeCheck, Semaphore connectionPermits) {
+    checkCanRead(attributes);
+    return read(config, attributes, lock, timeBetweenSizeCheck, false, connectionPermits);
   }
 
   public SftpFileAttributes readAttributes(String filePath) {
@@ -70,14 +106,16 @@ public final class SftpReadCommand extends SftpCommand implements ReadCommand<Sf
   }
 
   private Result<InputStream, SftpFileAttributes> read(FileConnectorConfig config, SftpFileAttributes attributes, boolean lock,
-                                                       Long timeBetweenSizeCheck, boolean useCurrentConnection) {
+                                                       Long timeBetweenSizeCheck, boolean useCurrentConnection,
+                                                       Semaphore connectionPermits) {
     URI uri = UriUtils.createUri(attributes.getPath());
 
     UriLock pathLock = lock ? fileSystem.lock(uri) : new NullUriLock(uri);
     InputStream payload = null;
 
     try {
-      payload = getFileInputStream((SftpConnector) config, attributes, pathLock, timeBetweenSizeCheck, useCurrentConnection);
+      payload = getFileInputStream((SftpConnector) config, attributes, pathLock, timeBetweenSizeCheck, useCurrentConnection,
+                                   connectionPermits);
       MediaType resolvedMediaType = fileSystem.getFileMessageMediaType(attributes);
       return Result.<InputStream, SftpFileAttributes>builder().output(payload).mediaType(resolvedMediaType).attributes(attributes)
           .build();
@@ -90,15 +128,27 @@ public final class SftpReadCommand extends SftpCommand implements ReadCommand<Sf
   }
 
   private InputStream getFileInputStream(SftpConnector config, SftpFileAttributes attributes, UriLock pathLock,
-                                         Long timeBetweenSizeCheck, boolean useCurrentConnection)
+                                         Long timeBetweenSizeCheck, boolean useCurrentConnection,
+                                         Semaphore connectionPermits)
       throws ConnectionException {
     if (useCurrentConnection) {
       return SftpInputStream.newInstance(fileSystem, attributes, pathLock, timeBetweenSizeCheck);
+    } else if (connectionPermits != null) {
+      return SftpInputStream.newInstance(config, attributes, pathLock, timeBetweenSizeCheck, connectionPermits);
     } else {
       return SftpInputStream.newInstance(config, attributes, pathLock, timeBetweenSizeCheck);
     }
   }
 
+  private void checkCanRead(SftpFileAttributes attributes) {
+    if (attributes.isDirectory()) {
+      throw cannotReadDirectoryException(createUri(attributes.getPath()));
+    }
+    if (!isReadable(attributes)) {
+      throw cannotReadFileException(createUri(attributes.getPath()));
+    }
+  }
+
   private boolean isReadable(SftpFileAttributes attributes) {
     int perms = attributes.getPermissions();
     return (((perms & OWNER_READ) != 0) || ((perms & GROUP_READ) != 0) || ((perms & OTHERS_READ) != 0));
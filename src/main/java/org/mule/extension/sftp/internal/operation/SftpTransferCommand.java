@@ -0,0 +1,532 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import static org.mule.extension.sftp.api.CustomWriteBufferSize.BUFFER_SIZE_16KB;
+import static org.mule.extension.sftp.api.FileWriteMode.CREATE_NEW;
+import static org.mule.extension.sftp.api.FileWriteMode.OVERWRITE;
+import static org.mule.extension.sftp.api.WriteStrategy.PIPELINED;
+import static org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter.DEFAULT_UPLOAD_PARTS;
+import static org.mule.extension.sftp.internal.connection.write.SftpPipelinedWriter.DEFAULT_MAX_PENDING_WRITES;
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.extension.sftp.internal.util.UriUtils.normalizeUri;
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.FileAttributes;
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.internal.config.FileConnectorConfig;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.IllegalPathException;
+import org.mule.extension.sftp.internal.extension.SftpConnector;
+import org.mule.extension.sftp.internal.stream.ReadAheadInputStream;
+import org.mule.extension.sftp.internal.util.ConcurrentTasks;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionHandler;
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.extension.api.exception.ModuleException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+
+/**
+ * A {@link SftpCommand} which implements the {@link TransferCommand} contract.
+ * <p>
+ * The content of each file flows from this command's server to the target one without going through the Mule event: the
+ * source is read ahead into a bounded ring of buffers while the target is written through pipelined requests. A synchronization
+ * only transfers the files which differ between both trees.
+ *
+ * @since 2.5
+ */
+public class SftpTransferCommand extends SftpCommand implements TransferCommand {
+
+  private static final Logger LOGGER = getLogger(SftpTransferCommand.class);
+
+  private static final int READ_AHEAD_BUFFERS = 4;
+  private static final int READ_AHEAD_BUFFER_SIZE = 32 * 1024;
+  private static final int MAX_REPORTED_FAILURES = 10;
+
+  /**
+   * {@inheritDoc}
+   */
+  public SftpTransferCommand(SftpFileSystemConnection fileSystem, SftpClient client) {
+    super(fileSystem, client);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transfer(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                       boolean overwrite, boolean createParentDirectories, boolean verifyChecksum, int maxConcurrentTransfers,
+                       boolean continueOnError) {
+    FileAttributes source = getExistingFile(sourcePath);
+    ConnectionHandler<SftpFileSystemConnection> targetConnectionHandler = null;
+    try {
+      targetConnectionHandler = getConnection(targetConfig);
+      SftpFileSystemConnection targetConnection = targetConnectionHandler.getConnection();
+      targetConnection.changeToBaseDir();
+      SftpTransferCommand targetCommand = new SftpTransferCommand(targetConnection, targetConnection.getClient());
+      URI targetUri = targetCommand.resolveTarget(source, targetPath, overwrite, createParentDirectories);
+
+      List<Entry<FileAttributes, String>> files = new ArrayList<>();
+      if (source.isDirectory()) {
+        collectFiles(source.getPath(), targetUri.getPath(), targetConnection.getClient(), files);
+      } else {
+        files.add(new SimpleImmutableEntry<>(source, targetUri.getPath()));
+      }
+
+      new Transfer(config, targetConfig, overwrite, verifyChecksum, continueOnError)
+          .run(files, targetConnection, maxConcurrentTransfers, source.getPath(), targetUri.getPath());
+    } catch (ConnectionException e) {
+      throw exception(format("Could not obtain a connection to transfer '%s' to '%s'", source.getPath(), targetPath), e);
+    } finally {
+      if (targetConnectionHandler != null) {
+        targetConnectionHandler.release();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SyncResult sync(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                         boolean compareChecksums, boolean deleteExtraneous, int maxConcurrentTransfers,
+                         boolean continueOnError) {
+    FileAttributes source = getExistingFile(sourcePath);
+    if (!source.isDirectory()) {
+      throw cannotListFileException(createUri(source.getPath(), ""));
+    }
+
+    ConnectionHandler<SftpFileSystemConnection> targetConnectionHandler = null;
+    try {
+      targetConnectionHandler = getConnection(targetConfig);
+      SftpFileSystemConnection targetConnection = targetConnectionHandler.getConnection();
+      targetConnection.changeToBaseDir();
+      SftpTransferCommand targetCommand = new SftpTransferCommand(targetConnection, targetConnection.getClient());
+      String targetDirectory = normalizeUri(targetCommand.resolvePath(targetPath)).getPath();
+      if (config == targetConfig && overlap(source.getPath(), targetDirectory)) {
+        throw new IllegalPathException(format("Cannot sync '%s' into '%s' because one contains the other", source.getPath(),
+                                              targetDirectory));
+      }
+      targetCommand.createSyncTarget(targetDirectory);
+
+      // the comparison submits a single target listing at a time to the scheduler the connection shares
+      Comparison comparison = new Comparison(targetCommand, client.getIoScheduler(), compareChecksums, deleteExtraneous);
+      comparison.compare(source.getPath(), targetDirectory, true);
+
+      if (!comparison.changed.isEmpty()) {
+        new Transfer(config, targetConfig, true, compareChecksums, continueOnError)
+            .run(comparison.changed, targetConnection, maxConcurrentTransfers, source.getPath(), targetDirectory);
+      }
+
+      List<String> transferred = new ArrayList<>(comparison.changed.size());
+      comparison.changed.forEach(file -> transferred.add(file.getValue()));
+      LOGGER.debug("Synced {} into {}: {} files transferred, {} deleted and {} unchanged", source.getPath(), targetDirectory,
+                   transferred.size(), comparison.deleted.size(), comparison.unchanged);
+      return new SyncResult(transferred, comparison.deleted, comparison.unchanged);
+    } catch (ConnectionException e) {
+      throw exception(format("Could not obtain a connection to sync '%s' into '%s'", source.getPath(), targetPath), e);
+    } finally {
+      if (targetConnectionHandler != null) {
+        targetConnectionHandler.release();
+      }
+    }
+  }
+
+  /**
+   * Creates the directory on this command's server which mirrors the synchronized one if it doesn't exist
+   */
+  private void createSyncTarget(String targetDirectory) {
+    FileAttributes targetFile = getFile(targetDirectory);
+    if (targetFile == null) {
+      mkdirs(createUri(targetDirectory));
+    } else if (!targetFile.isDirectory()) {
+      throw new IllegalPathException(format("Cannot sync into '%s' because it's a file", targetFile.getPath()));
+    }
+  }
+
+  private static boolean overlap(String path, String otherPath) {
+    return path.equals(otherPath) || path.startsWith(otherPath + "/") || otherPath.startsWith(path + "/");
+  }
+
+  /**
+   * Resolves the path on this command's server at which the {@code source} is transferred, following the same rules as a copy
+   */
+  private URI resolveTarget(FileAttributes source, String targetPath, boolean overwrite, boolean createParentDirectories) {
+    URI targetUri = resolvePath(targetPath);
+    FileAttributes targetFile = getFile(targetUri.getPath());
+
+    if (targetFile == null) {
+      if (!createParentDirectories) {
+        throw pathNotFoundException(targetUri);
+      }
+      mkdirs(targetUri);
+    } else if (!targetFile.isDirectory()) {
+      if (!overwrite) {
+        throw alreadyExistsException(targetUri);
+      }
+      return targetUri;
+    }
+    return createUri(targetUri.getPath(), source.getName());
+  }
+
+  /**
+   * Walks the source directory, creating its tree on the target server and collecting every file to be transferred
+   */
+  private void collectFiles(String sourceDirectory, String targetDirectory, SftpClient targetClient,
+                            List<Entry<FileAttributes, String>> files) {
+    targetClient.mkdirs(targetDirectory);
+    for (FileAttributes fileAttributes : client.list(sourceDirectory)) {
+      if (isVirtualDirectory(fileAttributes.getName())) {
+        continue;
+      }
+
+      String target = createUri(targetDirectory, fileAttributes.getName()).getPath();
+      if (fileAttributes.isDirectory()) {
+        collectFiles(fileAttributes.getPath(), target, targetClient, files);
+      } else {
+        files.add(new SimpleImmutableEntry<>(fileAttributes, target));
+      }
+    }
+  }
+
+  /**
+   * Compares a source tree against the target one directory by directory, listing each target directory while its source
+   * counterpart is listed, and collects the files which need to be transferred.
+   */
+  private class Comparison {
+
+    private final SftpTransferCommand targetCommand;
+    private final SftpClient targetClient;
+    private final Scheduler listingScheduler;
+    private final boolean compareChecksums;
+    private final boolean deleteExtraneous;
+    private final List<Entry<FileAttributes, String>> changed = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+    private int unchanged;
+
+    private Comparison(SftpTransferCommand targetCommand, Scheduler listingScheduler, boolean compareChecksums,
+                       boolean deleteExtraneous) {
+      this.targetCommand = targetCommand;
+      this.targetClient = targetCommand.client;
+      this.listingScheduler = listingScheduler;
+      this.compareChecksums = compareChecksums;
+      this.deleteExtraneous = deleteExtraneous;
+    }
+
+    private void compare(String sourceDirectory, String targetDirectory, boolean targetExists) {
+      Map<String, SftpFileAttributes> targetEntries = new HashMap<>();
+      List<SftpFileAttributes> sourceEntries;
+      if (targetExists) {
+        Future<List<SftpFileAttributes>> targetListing = listTarget(targetDirectory);
+        try {
+          sourceEntries = client.list(sourceDirectory);
+        } catch (RuntimeException e) {
+          // the listing runs over the target connection, which is released as soon as the sync fails
+          try {
+            awaitListing(targetListing, targetDirectory);
+          } catch (RuntimeException listingFailure) {
+            e.addSuppressed(listingFailure);
+          }
+          throw e;
+        }
+        awaitListing(targetListing, targetDirectory).forEach(entry -> targetEntries.put(entry.getName(), entry));
+      } else {
+        sourceEntries = client.list(sourceDirectory);
+      }
+
+      for (SftpFileAttributes source : sourceEntries) {
+        if (isVirtualDirectory(source.getName())) {
+          continue;
+        }
+        String target = createUri(targetDirectory, source.getName()).getPath();
+        SftpFileAttributes existing = targetEntries.remove(source.getName());
+        if (existing != null && existing.isDirectory() != source.isDirectory()) {
+          if (!deleteExtraneous) {
+            throw new IllegalPathException(format("Cannot sync '%s' into '%s' because one is a file and the other a directory. "
+                + "Consider setting the 'deleteExtraneous' parameter to 'true'", source.getPath(), target));
+          }
+          delete(target);
+          existing = null;
+        }
+
+        if (source.isDirectory()) {
+          if (existing == null) {
+            targetClient.mkdirs(target);
+          }
+          compare(source.getPath(), target, existing != null);
+        } else if (existing == null || differ(source, existing)) {
+          changed.add(new SimpleImmutableEntry<>(source, target));
+        } else {
+          unchanged++;
+        }
+      }
+
+      if (deleteExtraneous) {
+        targetEntries.values().stream().filter(extraneous -> !isVirtualDirectory(extraneous.getName()))
+            .forEach(extraneous -> delete(extraneous.getPath()));
+      }
+    }
+
+    private Future<List<SftpFileAttributes>> listTarget(String targetDirectory) {
+      FutureTask<List<SftpFileAttributes>> listing = new FutureTask<>(() -> targetClient.list(targetDirectory));
+      if (listingScheduler != null) {
+        listingScheduler.submit(listing);
+      } else {
+        listing.run();
+      }
+      return listing;
+    }
+
+    private List<SftpFileAttributes> awaitListing(Future<List<SftpFileAttributes>> listing, String targetDirectory) {
+      try {
+        return listing.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        listing.cancel(true);
+        throw exception(format("Interrupted while listing '%s'", targetDirectory), e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+            : new MuleRuntimeException(createStaticMessage(format("Found exception listing '%s'", targetDirectory)),
+                                       e.getCause());
+      }
+    }
+
+    private boolean differ(SftpFileAttributes source, SftpFileAttributes target) {
+      if (source.getSize() != target.getSize()) {
+        return true;
+      }
+      if (compareChecksums) {
+        return !MessageDigest.isEqual(md5(client, source.getPath()), md5(targetClient, target.getPath()));
+      }
+      ZonedDateTime sourceTimestamp = source.getTimestamp();
+      ZonedDateTime targetTimestamp = target.getTimestamp();
+      return sourceTimestamp == null || targetTimestamp == null || sourceTimestamp.isAfter(targetTimestamp);
+    }
+
+    private byte[] md5(SftpClient sftpClient, String path) {
+      try {
+        return sftpClient.md5(path);
+      } catch (IOException e) {
+        throw exception(format("Could not compute the checksum of '%s'", path), e);
+      }
+    }
+
+    private void delete(String target) {
+      new SftpDeleteCommand(targetCommand.fileSystem, targetClient).delete(target);
+      deleted.add(target);
+    }
+  }
+
+  private ConnectionHandler<SftpFileSystemConnection> getConnection(FileConnectorConfig config) throws ConnectionException {
+    return ((SftpConnector) config).getConnectionManager().getConnection(config);
+  }
+
+  /**
+   * Transfers a set of files over the connections of the operation and, when {@code maxConcurrentTransfers} allows more than one
+   * file at a time, over a pair of connections borrowed from the pools of both configs for each additional worker.
+   */
+  private class Transfer {
+
+    private final FileConnectorConfig config;
+    private final FileConnectorConfig targetConfig;
+    private final boolean overwrite;
+    private final boolean verifyChecksum;
+    private final boolean continueOnError;
+    private final Queue<Entry<String, RuntimeException>> failures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextFile = new AtomicInteger();
+    private volatile boolean aborted;
+
+    private Transfer(FileConnectorConfig config, FileConnectorConfig targetConfig, boolean overwrite, boolean verifyChecksum,
+                     boolean continueOnError) {
+      this.config = config;
+      this.targetConfig = targetConfig;
+      this.overwrite = overwrite;
+      this.verifyChecksum = verifyChecksum;
+      this.continueOnError = continueOnError;
+    }
+
+    private void run(List<Entry<FileAttributes, String>> files, SftpFileSystemConnection targetConnection,
+                     int maxConcurrentTransfers, String sourcePath, String targetPath) {
+      int concurrency = Math.max(1, Math.min(maxConcurrentTransfers, files.size()));
+      // shared by the whole connection, so the transfer is bound to the workers it submits and the read-ahead of their files
+      Scheduler scheduler = client.getIoScheduler();
+      if (concurrency == 1 || scheduler == null) {
+        transferFiles(files, fileSystem, targetConnection.getClient(), scheduler);
+      } else {
+        runConcurrently(files, targetConnection.getClient(), scheduler, concurrency);
+      }
+
+      LOGGER.debug("Transferred {} of {} files from {} to {}", files.size() - failures.size(), files.size(), sourcePath,
+                   targetPath);
+      if (!failures.isEmpty()) {
+        throw failure(files.size(), sourcePath, targetPath);
+      }
+    }
+
+    private void runConcurrently(List<Entry<FileAttributes, String>> files, SftpClient targetClient, Scheduler scheduler,
+                                 int concurrency) {
+      ConcurrentTasks workers = new ConcurrentTasks(scheduler);
+      try {
+        for (int i = 1; i < concurrency; i++) {
+          workers.submit(() -> work(files, scheduler));
+        }
+        // the connections of the operation serve the first worker instead of sitting idle
+        transferFiles(files, fileSystem, targetClient, scheduler);
+      } catch (RuntimeException | Error e) {
+        aborted = true;
+        Throwable workerFailure = workers.cancelAll();
+        if (workerFailure != null) {
+          e.addSuppressed(workerFailure);
+        }
+        if (e instanceof Error) {
+          // wrapped like the failures of the other workers
+          throw new MuleRuntimeException(createStaticMessage("Found exception while transferring files"), e);
+        }
+        throw e;
+      }
+      Throwable failure = workers.awaitAll(() -> aborted = true);
+      if (failure instanceof InterruptedException) {
+        throw exception("Interrupted while transferring files", (InterruptedException) failure);
+      }
+      if (failure != null) {
+        throw new MuleRuntimeException(createStaticMessage("Found exception while transferring files"), failure);
+      }
+    }
+
+    private void work(List<Entry<FileAttributes, String>> files, Scheduler readAheadScheduler) {
+      ConnectionHandler<SftpFileSystemConnection> sourceConnectionHandler = null;
+      ConnectionHandler<SftpFileSystemConnection> targetConnectionHandler = null;
+      try {
+        sourceConnectionHandler = getConnection(config);
+        targetConnectionHandler = getConnection(targetConfig);
+        transferFiles(files, sourceConnectionHandler.getConnection(), targetConnectionHandler.getConnection().getClient(),
+                      readAheadScheduler);
+      } catch (ConnectionException e) {
+        failures.add(new SimpleImmutableEntry<>(null, exception("Could not obtain a connection to transfer the files", e)));
+        aborted = true;
+      } finally {
+        if (sourceConnectionHandler != null) {
+          sourceConnectionHandler.release();
+        }
+        if (targetConnectionHandler != null) {
+          targetConnectionHandler.release();
+        }
+      }
+    }
+
+    private void transferFiles(List<Entry<FileAttributes, String>> files, SftpFileSystemConnection sourceConnection,
+                               SftpClient targetClient, Scheduler readAheadScheduler) {
+      int index;
+      while (!aborted && (index = nextFile.getAndIncrement()) < files.size()) {
+        Entry<FileAttributes, String> file = files.get(index);
+        try {
+          transferFile(sourceConnection, file.getKey(), targetClient, file.getValue(), readAheadScheduler);
+        } catch (RuntimeException e) {
+          LOGGER.debug("Could not transfer file {} to {}", file.getKey().getPath(), file.getValue(), e);
+          failures.add(new SimpleImmutableEntry<>(file.getKey().getPath(), e));
+          if (!continueOnError) {
+            aborted = true;
+          }
+        }
+      }
+    }
+
+    private void transferFile(SftpFileSystemConnection sourceConnection, FileAttributes source, SftpClient targetClient,
+                              String targetPath, Scheduler readAheadScheduler) {
+      MessageDigest digest = verifyChecksum ? md5Digest() : null;
+      try (InputStream content = content(sourceConnection.retrieveFileContent(source), readAheadScheduler, digest)) {
+        targetClient.write(targetPath, content, overwrite ? OVERWRITE : CREATE_NEW, createUri(targetPath), true, PIPELINED,
+                           BUFFER_SIZE_16KB, DEFAULT_MAX_PENDING_WRITES, DEFAULT_UPLOAD_PARTS, true);
+      } catch (ModuleException e) {
+        throw e;
+      } catch (Exception e) {
+        throw exception(format("Found exception while trying to transfer file '%s' to '%s'", source.getPath(), targetPath), e);
+      }
+
+      if (digest != null) {
+        verifyChecksum(source, targetClient, targetPath, digest.digest());
+      }
+      if (LOGGER.isTraceEnabled()) {
+        LOGGER.trace("Transferred file {} to {}", source.getPath(), targetPath);
+      }
+    }
+
+    private InputStream content(InputStream content, Scheduler readAheadScheduler, MessageDigest digest) {
+      if (content == null) {
+        throw exception("Could not read the file to transfer");
+      }
+      if (readAheadScheduler != null) {
+        content = new ReadAheadInputStream(content, readAheadScheduler, READ_AHEAD_BUFFERS, READ_AHEAD_BUFFER_SIZE);
+      }
+      return digest != null ? new DigestInputStream(content, digest) : content;
+    }
+
+    private void verifyChecksum(FileAttributes source, SftpClient targetClient, String targetPath, byte[] expected) {
+      byte[] actual;
+      try {
+        actual = targetClient.md5(targetPath);
+      } catch (IOException e) {
+        throw exception(format("Could not compute the checksum of transferred file '%s'", targetPath), e);
+      }
+      if (!MessageDigest.isEqual(expected, actual)) {
+        targetClient.deleteFile(targetPath);
+        throw exception(format("Checksum of '%s' doesn't match the one of '%s' after transferring it, the target was deleted",
+                               targetPath, source.getPath()));
+      }
+    }
+
+    private MessageDigest md5Digest() {
+      try {
+        return MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw exception("MD5 is not available to verify the checksum of transferred files", e);
+      }
+    }
+
+    private RuntimeException failure(int totalFiles, String sourcePath, String targetPath) {
+      Entry<String, RuntimeException> first = failures.peek();
+      if (first.getKey() == null || !continueOnError || totalFiles == 1) {
+        return first.getValue();
+      }
+      String failedFiles = failures.stream().limit(MAX_REPORTED_FAILURES).map(Entry::getKey).collect(joining(", "));
+      if (failures.size() > MAX_REPORTED_FAILURES) {
+        failedFiles += ", ...";
+      }
+      return exception(format("Could not transfer %d of %d files from '%s' to '%s': %s", failures.size(), totalFiles,
+                              sourcePath, targetPath, failedFiles),
+                       first.getValue());
+    }
+  }
+}
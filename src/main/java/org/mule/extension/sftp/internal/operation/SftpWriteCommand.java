@@ -8,23 +8,36 @@ package org.mule.extension.sftp.internal.operation;
 
 import static java.lang.String.format;
 
+import static org.mule.extension.sftp.api.WriteStrategy.PIPELINED;
+import static org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter.DEFAULT_UPLOAD_PARTS;
 import static org.mule.extension.sftp.internal.util.SftpUtils.normalizePath;
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
-import org.mule.extension.sftp.api.FileAttributes;
 import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.internal.exception.DeletedFileWhileReadException;
 import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
 import org.mule.extension.sftp.internal.exception.FileDoesNotExistsException;
+import org.mule.extension.sftp.internal.exception.IllegalPathException;
 import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 import org.mule.extension.sftp.internal.lock.UriLock;
 import org.mule.extension.sftp.internal.lock.NullUriLock;
+import org.mule.extension.sftp.internal.util.ConcurrentTasks;
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.scheduler.Scheduler;
 
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 
@@ -49,27 +62,19 @@ public final class SftpWriteCommand extends SftpCommand implements WriteCommand
    */
   @Override
   public void write(String filePath, InputStream content, FileWriteMode mode, boolean lock, boolean createParentDirectory,
-                    WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy) {
+                    WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites,
+                    int uploadParts, boolean uploadToTemporaryFile) {
 
     URI uri = resolvePath(normalizePath(filePath));
-    FileAttributes file = getFile(filePath);
-
-    if (file == null) {
-      assureParentFolderExists(uri, createParentDirectory);
-    } else {
-      if (mode == FileWriteMode.CREATE_NEW) {
-        throw new FileAlreadyExistsException(format(
-                                                    "Cannot write to path '%s' because it already exists and write mode '%s' was selected. "
-                                                        + "Use a different write mode or point to a path which doesn't exist",
-                                                    uri.getPath(), mode));
-      }
-    }
-
     UriLock pathLock = lock ? fileSystem.lock(uri) : new NullUriLock(uri);
 
     try {
-      client.write(uri.getPath(), content, mode, uri, writeStrategy, bufferSizeForWriteStrategy);
+      // the file is opened right away, parent directories and existing files are only looked at when opening fails
+      client.write(uri.getPath(), content, mode, uri, createParentDirectory, writeStrategy, bufferSizeForWriteStrategy,
+                   maxPendingWrites, uploadParts, uploadToTemporaryFile);
       LOGGER.debug("Successfully wrote to path {} mode {}", uri.getPath(), mode);
+    } catch (FileAlreadyExistsException | IllegalPathException e) {
+      throw e;
     } catch (Exception e) {
       LOGGER.error("Error writing to file {} mode {}", filePath, mode, e);
       if (e instanceof DeletedFileWhileReadException) {
@@ -81,4 +86,68 @@ public final class SftpWriteCommand extends SftpCommand implements WriteCommand
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Every file is written with the {@code PIPELINED} strategy over this connection's SFTP channel, which carries the requests
+   * of all the files in progress interleaved, so the round trips of one file overlap with those of the others.
+   */
+  @Override
+  public List<WriteBatchResult> writeBatch(List<WriteBatchItem> items, FileWriteMode mode, boolean createParentDirectory,
+                                           int maxConcurrentWrites, CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                           int maxPendingWrites) {
+    WriteBatchResult[] results = new WriteBatchResult[items.size()];
+    int concurrency = Math.max(1, Math.min(maxConcurrentWrites, items.size()));
+    Scheduler scheduler = concurrency == 1 ? null : client.getIoScheduler();
+
+    if (concurrency == 1 || scheduler == null) {
+      for (int i = 0; i < results.length; i++) {
+        results[i] = writeBatchItem(items.get(i), mode, createParentDirectory, bufferSizeForWriteStrategy, maxPendingWrites);
+      }
+      return Arrays.asList(results);
+    }
+
+    AtomicInteger nextItem = new AtomicInteger();
+    AtomicBoolean aborted = new AtomicBoolean();
+    ConcurrentTasks workers = new ConcurrentTasks(scheduler);
+    for (int i = 0; i < concurrency; i++) {
+      workers.submit(() -> {
+        int index;
+        while (!aborted.get() && (index = nextItem.getAndIncrement()) < results.length) {
+          results[index] =
+              writeBatchItem(items.get(index), mode, createParentDirectory, bufferSizeForWriteStrategy, maxPendingWrites);
+        }
+      });
+    }
+    Throwable failure = workers.awaitAll(() -> aborted.set(true));
+    if (failure instanceof InterruptedException) {
+      throw new MuleRuntimeException(createStaticMessage("Interrupted while writing a batch of files"), failure);
+    }
+    if (failure != null) {
+      throw new MuleRuntimeException(createStaticMessage("Exception was found writing a batch of files"), failure);
+    }
+    LOGGER.debug("Wrote a batch of {} files using {} concurrent writes", results.length, concurrency);
+    return Arrays.asList(results);
+  }
+
+  private WriteBatchResult writeBatchItem(WriteBatchItem item, FileWriteMode mode, boolean createParentDirectory,
+                                          CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites) {
+    String filePath = item.getPath();
+    if (isBlank(filePath)) {
+      return WriteBatchResult.failure(filePath, "path cannot be null nor blank");
+    }
+    if (item.getContent() == null) {
+      return WriteBatchResult.failure(filePath, "Cannot write a null content");
+    }
+
+    try {
+      URI uri = resolvePath(normalizePath(filePath));
+      client.write(uri.getPath(), item.getContent(), mode, uri, createParentDirectory, PIPELINED, bufferSizeForWriteStrategy,
+                   maxPendingWrites, DEFAULT_UPLOAD_PARTS, false);
+      return WriteBatchResult.success(filePath);
+    } catch (Exception e) {
+      LOGGER.debug("Error writing to file {} mode {} as part of a batch", filePath, mode, e);
+      return WriteBatchResult.failure(filePath, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+    }
+  }
 }
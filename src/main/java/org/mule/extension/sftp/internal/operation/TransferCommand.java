@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.internal.config.FileConnectorConfig;
+import org.mule.extension.sftp.internal.connection.FileSystem;
+
+/**
+ * Command for transferring files to the server of another config, or synchronizing a directory into it
+ *
+ * @since 2.5
+ */
+public interface TransferCommand {
+
+  /**
+   * Performs a transfer operation under the considerations of
+   * {@link FileSystem#transfer(FileConnectorConfig, String, FileConnectorConfig, String, boolean, boolean, boolean, int, boolean)}
+   *
+   * @param config                  the config that is parameterizing this operation
+   * @param sourcePath              the path to the file to be transferred
+   * @param targetConfig            the config of the server the file is transferred to
+   * @param targetPath              the target directory
+   * @param overwrite               whether or not overwrite the file if the target destination already exists.
+   * @param createParentDirectories whether or not to attempt creating any parent directories which don't exists.
+   * @param verifyChecksum          whether to compare the checksum of every transferred file against the source one
+   * @param maxConcurrentTransfers  the maximum amount of files of a directory being transferred at the same time
+   * @param continueOnError         whether a directory transfer goes on after a file failed to be transferred
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  void transfer(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                boolean overwrite, boolean createParentDirectories, boolean verifyChecksum, int maxConcurrentTransfers,
+                boolean continueOnError);
+
+  /**
+   * Performs a synchronization under the considerations of
+   * {@link FileSystem#sync(FileConnectorConfig, String, FileConnectorConfig, String, boolean, boolean, int, boolean)}
+   *
+   * @param config                 the config that is parameterizing this operation
+   * @param sourcePath             the path to the directory to be synchronized
+   * @param targetConfig           the config of the server the directory is synchronized into
+   * @param targetPath             the directory which mirrors the source one
+   * @param compareChecksums       whether files of the same size are compared by checksum instead of by modification time
+   * @param deleteExtraneous       whether the target entries which don't exist in the source are deleted
+   * @param maxConcurrentTransfers the maximum amount of files being transferred at the same time
+   * @param continueOnError        whether the synchronization goes on after a file failed to be transferred
+   * @return a {@link SyncResult} describing the changes done to the target
+   * @throws IllegalArgumentException if an illegal combination of arguments is supplied
+   */
+  SyncResult sync(FileConnectorConfig config, String sourcePath, FileConnectorConfig targetConfig, String targetPath,
+                  boolean compareChecksums, boolean deleteExtraneous, int maxConcurrentTransfers, boolean continueOnError);
+}
@@ -8,10 +8,13 @@ package org.mule.extension.sftp.internal.operation;
 
 import org.mule.extension.sftp.api.CustomWriteBufferSize;
 import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
 import org.mule.extension.sftp.api.WriteStrategy;
 import org.mule.extension.sftp.internal.connection.FileSystem;
 
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Command design pattern for writing files
@@ -23,7 +26,7 @@ public interface WriteCommand {
   String IS_A_DIRECTORY_MESSAGE = "Is a directory";
 
   /**
-   * Writes a file under the considerations of {@link FileSystem#write(String, InputStream, FileWriteMode, boolean, boolean, WriteStrategy, CustomWriteBufferSize)}
+   * Writes a file under the considerations of {@link FileSystem#write(String, InputStream, FileWriteMode, boolean, boolean, WriteStrategy, CustomWriteBufferSize, int, int, boolean)}
    *
    * @param filePath                    the path of the file to be written
    * @param content                     the content to be written into the file
@@ -32,8 +35,27 @@ public interface WriteCommand {
    * @param createParentDirectory       whether or not to attempt creating the parent directory if it doesn't exist.
    * @param writeStrategy               a {@link WriteStrategy}. Defaults to STANDARD
    * @param bufferSizeForWriteStrategy  a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites            the maximum amount of write requests in flight for the PIPELINED strategy
+   * @param uploadParts                 the amount of parts uploaded concurrently by the MULTIPART strategy
+   * @param uploadToTemporaryFile       whether the MULTIPART strategy writes into a temporary file renamed at the end
    * @throws IllegalArgumentException   if an illegal combination of arguments is supplied
    */
   void write(String filePath, InputStream content, FileWriteMode mode, boolean lock, boolean createParentDirectory,
-             WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy);
+             WriteStrategy writeStrategy, CustomWriteBufferSize bufferSizeForWriteStrategy, int maxPendingWrites,
+             int uploadParts, boolean uploadToTemporaryFile);
+
+  /**
+   * Writes many files under the considerations of {@link FileSystem#writeBatch(List, FileWriteMode, boolean, int, CustomWriteBufferSize, int)}
+   *
+   * @param items                       the files to be written
+   * @param mode                        a {@link FileWriteMode}
+   * @param createParentDirectory       whether or not to attempt creating the parent directory if it doesn't exist.
+   * @param maxConcurrentWrites         the maximum amount of files being written at the same time
+   * @param bufferSizeForWriteStrategy  a {@link CustomWriteBufferSize}. Defaults to 8192
+   * @param maxPendingWrites            the maximum amount of write requests in flight for each file
+   * @return a {@link WriteBatchResult} for each one of the {@code items}, in the same order
+   */
+  List<WriteBatchResult> writeBatch(List<WriteBatchItem> items, FileWriteMode mode, boolean createParentDirectory,
+                                    int maxConcurrentWrites, CustomWriteBufferSize bufferSizeForWriteStrategy,
+                                    int maxPendingWrites);
 }
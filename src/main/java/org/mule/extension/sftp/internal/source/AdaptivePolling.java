@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.lang.Math.min;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Decides which of the polls triggered by a listener's scheduler actually list the directory, so a directory which keeps being
+ * found without new files is listed less and less often.
+ * <p>
+ * The scheduler's frequency is the shortest interval between listings. Each poll which finds no new files doubles the interval
+ * until the next listing, up to a maximum, and a poll which finds new files brings it back to the scheduler's frequency. The
+ * frequency is measured as the time between the last two polls, so this works with any scheduling strategy.
+ * <p>
+ * Optionally, a directory whose modification time didn't change since it was last listed and found empty isn't listed again
+ * until the maximum interval elapses, since no file was created, renamed or deleted in it.
+ * <p>
+ * Times are given as {@link System#nanoTime()} values. Instances are not thread safe, polls of a source don't run concurrently.
+ *
+ * @since 2.5
+ */
+final class AdaptivePolling {
+
+  // listings can't be exactly one period apart, polls this close to being due are considered due
+  private static final int TOLERANCE_DIVISOR = 2;
+  private static final int MAX_BACKOFF_SHIFT = 30;
+
+  private final long maxIntervalNanos;
+
+  private long lastTick = -1;
+  private long period;
+  private long lastPoll;
+  private int emptyPolls;
+  private long lastListing;
+  private ZonedDateTime emptyDirectoryTimestamp;
+
+  /**
+   * @param maxIntervalNanos the maximum time between listings while the directory is found without new files
+   */
+  AdaptivePolling(long maxIntervalNanos) {
+    this.maxIntervalNanos = maxIntervalNanos;
+  }
+
+  /**
+   * Invoked each time the scheduler triggers a poll, before the directory is listed
+   *
+   * @param now the time of the poll
+   * @return whether the directory is to be listed
+   */
+  boolean isDue(long now) {
+    if (lastTick >= 0) {
+      period = now - lastTick;
+    }
+    lastTick = now;
+    if (emptyPolls > 0 && now - lastPoll + period / TOLERANCE_DIVISOR < getInterval()) {
+      return false;
+    }
+    lastPoll = now;
+    return true;
+  }
+
+  /**
+   * Tells whether the directory can be considered unchanged without listing it
+   *
+   * @param directoryTimestamp the current modification time of the directory
+   * @param now                the time of the poll
+   * @return whether the directory was found empty the last time it was listed and it wasn't modified since then
+   */
+  boolean isUnchanged(ZonedDateTime directoryTimestamp, long now) {
+    return directoryTimestamp != null && directoryTimestamp.equals(emptyDirectoryTimestamp)
+        && now - lastListing < maxIntervalNanos;
+  }
+
+  /**
+   * Records that the directory was listed
+   *
+   * @param directoryTimestamp the modification time of the directory obtained before listing it, or {@code null} if unknown
+   * @param empty              whether the listing had no files
+   * @param now                the time of the poll
+   */
+  void listed(ZonedDateTime directoryTimestamp, boolean empty, long now) {
+    emptyDirectoryTimestamp = empty ? directoryTimestamp : null;
+    lastListing = now;
+  }
+
+  /**
+   * Records the outcome of a poll
+   *
+   * @param foundNewFiles whether the poll dispatched any file
+   */
+  void polled(boolean foundNewFiles) {
+    emptyPolls = foundNewFiles ? 0 : min(emptyPolls + 1, MAX_BACKOFF_SHIFT);
+  }
+
+  /**
+   * @return the current time between listings
+   */
+  long getInterval() {
+    if (emptyPolls == 0) {
+      return period;
+    }
+    int shift = emptyPolls - 1;
+    return period > maxIntervalNanos >> shift ? maxIntervalNanos : min(period << shift, maxIntervalNanos);
+  }
+}
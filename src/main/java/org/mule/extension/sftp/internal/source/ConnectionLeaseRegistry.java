@@ -0,0 +1,207 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+/**
+ * Tracks the connections of a single listener and the files being processed out of them, so each connection is disconnected once
+ * the listener stopped using it and every file read from it was processed.
+ * <p>
+ * Every registered connection is reference counted: the listener holds one reference until it {@link #retire retires} the
+ * connection, and every dispatched file holds a {@link Lease} until its post action runs. All the bookkeeping is lock free, so
+ * leases can be acquired on the poll thread and released on flow threads concurrently.
+ * <p>
+ * Leases which are held for longer than a threshold are reported as suspected leaks the next time {@link #detectLeaks()} runs.
+ *
+ * @since 2.5
+ */
+final class ConnectionLeaseRegistry {
+
+  private static final Logger LOGGER = getLogger(ConnectionLeaseRegistry.class);
+
+  private final Consumer<SftpFileSystemConnection> disconnector;
+  private final long leakThresholdNanos;
+
+  private final Map<SftpFileSystemConnection, LeasedConnection> connections = new ConcurrentHashMap<>();
+  private final Set<Lease> activeLeases = ConcurrentHashMap.newKeySet();
+  private final AtomicLong totalLeases = new AtomicLong();
+  private final AtomicLong leakedLeases = new AtomicLong();
+
+  /**
+   * @param disconnector        disconnects a connection which is no longer used
+   * @param leakThresholdMillis the time after which a lease which hasn't been released is reported as a suspected leak
+   */
+  ConnectionLeaseRegistry(Consumer<SftpFileSystemConnection> disconnector, long leakThresholdMillis) {
+    this.disconnector = disconnector;
+    this.leakThresholdNanos = MILLISECONDS.toNanos(leakThresholdMillis);
+  }
+
+  /**
+   * Starts tracking a connection the listener just opened, holding the listener's reference on it
+   */
+  void register(SftpFileSystemConnection connection) {
+    connections.put(connection, new LeasedConnection(connection));
+  }
+
+  /**
+   * Leases the {@code connection} to a file which is about to be dispatched, so it isn't disconnected while the file is processed
+   *
+   * @param connection the connection the file is read from
+   * @param path       the path of the file
+   * @return the {@link Lease} to release once the file was processed
+   * @throws IllegalStateException if the connection isn't registered or it was already disconnected
+   */
+  Lease acquire(SftpFileSystemConnection connection, String path) {
+    LeasedConnection leasedConnection = connections.get(connection);
+    if (leasedConnection == null || !leasedConnection.reference()) {
+      throw new IllegalStateException(format("Cannot lease connection %s to process file '%s' since it was already closed",
+                                             connection, path));
+    }
+    Lease lease = new Lease(leasedConnection, path);
+    activeLeases.add(lease);
+    totalLeases.incrementAndGet();
+    return lease;
+  }
+
+  /**
+   * Drops the listener's reference on the {@code connection}. It's disconnected right away if no file is leasing it, otherwise it
+   * is once the last lease is released. Retiring a connection more than once has no effect.
+   */
+  void retire(SftpFileSystemConnection connection) {
+    LeasedConnection leasedConnection = connections.get(connection);
+    if (leasedConnection != null && leasedConnection.retired.compareAndSet(false, true)) {
+      leasedConnection.dereference();
+    }
+  }
+
+  /**
+   * Reports the leases which have been held for longer than the leak threshold. Each lease is reported once.
+   *
+   * @return the amount of leases found to be leaked by this invocation
+   */
+  int detectLeaks() {
+    long now = System.nanoTime();
+    int leaked = 0;
+    for (Lease lease : activeLeases) {
+      if (now - lease.acquiredAt > leakThresholdNanos && lease.reported.compareAndSet(false, true)) {
+        leaked++;
+        leakedLeases.incrementAndGet();
+        LOGGER.warn("The connection used to read file '{}' has been leased for {} ms without being released, "
+            + "the file may never finish being processed", lease.path, NANOSECONDS.toMillis(now - lease.acquiredAt));
+      }
+    }
+    return leaked;
+  }
+
+  /**
+   * @return the amount of files being processed out of this listener's connections
+   */
+  int getActiveLeases() {
+    return activeLeases.size();
+  }
+
+  /**
+   * @return the amount of connections which are still open, either because the listener uses them or files leased them
+   */
+  int getOpenConnections() {
+    return connections.size();
+  }
+
+  /**
+   * @return the amount of leases acquired since this registry was created
+   */
+  long getTotalLeases() {
+    return totalLeases.get();
+  }
+
+  /**
+   * @return the amount of leases reported as suspected leaks since this registry was created
+   */
+  long getLeakedLeases() {
+    return leakedLeases.get();
+  }
+
+  @Override
+  public String toString() {
+    return format("%d active leases over %d open connections, %d leases acquired and %d suspected leaks", getActiveLeases(),
+                  getOpenConnections(), getTotalLeases(), getLeakedLeases());
+  }
+
+  private final class LeasedConnection {
+
+    private final SftpFileSystemConnection connection;
+    // the listener's reference plus one per active lease
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean retired = new AtomicBoolean();
+
+    private LeasedConnection(SftpFileSystemConnection connection) {
+      this.connection = connection;
+    }
+
+    private boolean reference() {
+      int current;
+      do {
+        current = references.get();
+        if (current == 0) {
+          return false;
+        }
+      } while (!references.compareAndSet(current, current + 1));
+      return true;
+    }
+
+    private void dereference() {
+      if (references.decrementAndGet() == 0) {
+        connections.remove(connection, this);
+        LOGGER.debug("Disconnecting connection {} since it's no longer used", connection);
+        disconnector.accept(connection);
+      }
+    }
+  }
+
+  /**
+   * The lease a dispatched file holds on the connection it's read from
+   */
+  final class Lease {
+
+    private final LeasedConnection connection;
+    private final String path;
+    private final long acquiredAt = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final AtomicBoolean reported = new AtomicBoolean();
+
+    private Lease(LeasedConnection connection, String path) {
+      this.connection = connection;
+      this.path = path;
+    }
+
+    /**
+     * Releases the lease. Subsequent invocations have no effect.
+     */
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        activeLeases.remove(this);
+        connection.dereference();
+      }
+    }
+  }
+}
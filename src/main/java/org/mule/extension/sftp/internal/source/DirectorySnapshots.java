@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.lang.String.format;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Remembers the entries of the directories a recursive listener walked through, along with the modification time and size the
+ * directories had when they were listed, so directories which didn't change can be walked again without listing them.
+ * <p>
+ * Creating, renaming or deleting an entry changes the modification time of the directory containing it. Since servers usually
+ * report modification times in seconds, an entry created in the same second a directory was listed may not change it, so a
+ * directory is only considered unchanged once it was listed twice in a row with the same modification time.
+ * <p>
+ * The attributes of the remembered files are the ones they had when their directory was listed, changes to the content of a
+ * file don't change its directory. Instances are not thread safe, polls of a source don't run concurrently.
+ *
+ * @since 2.5
+ */
+final class DirectorySnapshots {
+
+  private final Map<String, Snapshot> snapshots = new HashMap<>();
+
+  /**
+   * @param directory the current attributes of a directory
+   * @return the entries the directory had when it was last listed if it didn't change since then, {@code null} otherwise
+   */
+  List<SftpFileAttributes> getUnchangedEntries(SftpFileAttributes directory) {
+    Snapshot snapshot = snapshots.get(directory.getPath());
+    return snapshot != null && snapshot.confirmed && snapshot.isStateOf(directory) ? snapshot.entries : null;
+  }
+
+  /**
+   * Remembers the entries a directory was just listed with
+   *
+   * @param directory the attributes of the directory, obtained before listing it
+   * @param entries   the entries of the directory
+   */
+  void update(SftpFileAttributes directory, List<SftpFileAttributes> entries) {
+    Snapshot previous = snapshots.get(directory.getPath());
+    snapshots.put(directory.getPath(), new Snapshot(directory, entries, previous != null && previous.isStateOf(directory)));
+  }
+
+  /**
+   * Forgets the directories which are not in {@code paths}, since they no longer exist
+   *
+   * @param paths the paths of the directories found by the last walk
+   */
+  void retainAll(Set<String> paths) {
+    snapshots.keySet().retainAll(paths);
+  }
+
+  /**
+   * @return the amount of directories remembered
+   */
+  int size() {
+    return snapshots.size();
+  }
+
+  @Override
+  public String toString() {
+    return format("%d directory snapshots", size());
+  }
+
+  private static final class Snapshot {
+
+    private final ZonedDateTime timestamp;
+    private final long size;
+    private final List<SftpFileAttributes> entries;
+    // whether the directory already had the same state the previous time it was listed
+    private final boolean confirmed;
+
+    private Snapshot(SftpFileAttributes directory, List<SftpFileAttributes> entries, boolean confirmed) {
+      this.timestamp = directory.getTimestamp();
+      this.size = directory.getSize();
+      this.entries = entries;
+      this.confirmed = confirmed;
+    }
+
+    private boolean isStateOf(SftpFileAttributes directory) {
+      // without a modification time there's no way of telling whether the directory changed
+      return timestamp != null && Objects.equals(timestamp, directory.getTimestamp()) && size == directory.getSize();
+    }
+  }
+}
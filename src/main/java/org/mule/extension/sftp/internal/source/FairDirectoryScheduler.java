@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Comparator.comparingDouble;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides the order in which a listener watching several directories polls them and how many files each one gets to dispatch,
+ * so a directory which keeps getting files doesn't starve the others.
+ * <p>
+ * Each directory has a virtual time which grows by the files it dispatches divided by its weight, and each poll goes through
+ * the directories from the lowest virtual time. When the poll has a limit of files, each directory gets a share of what's left
+ * of it proportional to its weight, and the files it doesn't use are left to the directories polled after it. A directory
+ * which dispatches nothing is brought up to the virtual time of the ones which did, so it can't bank an advantage while idle.
+ * <p>
+ * Instances are not thread safe, polls of a source don't run concurrently.
+ *
+ * @since 2.5
+ */
+final class FairDirectoryScheduler {
+
+  private final List<PolledDirectory> directories;
+  private final double[] virtualTimes;
+  private final int[] dispatched;
+  private final int totalWeight;
+
+  private Integer remainingFiles;
+  private int remainingWeight;
+
+  /**
+   * @param directories the directories polled by the listener
+   */
+  FairDirectoryScheduler(List<PolledDirectory> directories) {
+    this.directories = directories;
+    this.virtualTimes = new double[directories.size()];
+    this.dispatched = new int[directories.size()];
+    this.totalWeight = directories.stream().mapToInt(PolledDirectory::getWeight).sum();
+  }
+
+  /**
+   * Starts a poll
+   *
+   * @param maxFiles the maximum amount of files the poll dispatches, or {@code null} if there's no limit
+   * @return the directories in the order they are to be polled
+   */
+  List<PolledDirectory> startPoll(Integer maxFiles) {
+    remainingFiles = maxFiles;
+    remainingWeight = totalWeight;
+    for (int i = 0; i < dispatched.length; i++) {
+      dispatched[i] = 0;
+    }
+    List<PolledDirectory> order = new ArrayList<>(directories);
+    // the sort is stable, so directories with the same virtual time are polled in the order they were declared
+    order.sort(comparingDouble(directory -> virtualTimes[directories.indexOf(directory)]));
+    return order;
+  }
+
+  /**
+   * @param directory the directory about to be polled
+   * @return how many files the directory can dispatch, or {@code null} if there's no limit
+   */
+  Integer getLimit(PolledDirectory directory) {
+    Integer limit = null;
+    if (remainingFiles != null) {
+      // rounding up, so a directory with a small weight still gets to dispatch a file
+      limit = (int) ((remainingFiles * (long) directory.getWeight() + remainingWeight - 1) / remainingWeight);
+    }
+    Integer availableSlots = directory.getAvailableSlots();
+    if (availableSlots != null) {
+      limit = limit != null ? min(limit, availableSlots) : availableSlots;
+    }
+    return limit;
+  }
+
+  /**
+   * Records the files a directory dispatched, it has to be invoked for every directory the poll went through
+   *
+   * @param directory       the polled directory
+   * @param dispatchedFiles the amount of files it dispatched
+   */
+  void polled(PolledDirectory directory, int dispatchedFiles) {
+    int index = directories.indexOf(directory);
+    dispatched[index] = dispatchedFiles;
+    virtualTimes[index] += (double) dispatchedFiles / directory.getWeight();
+    remainingWeight -= directory.getWeight();
+    if (remainingFiles != null) {
+      remainingFiles = max(0, remainingFiles - dispatchedFiles);
+    }
+  }
+
+  /**
+   * Finishes a poll, including the one which was stopped before going through every directory
+   */
+  void finishPoll() {
+    double busyTime = Double.MAX_VALUE;
+    for (int i = 0; i < virtualTimes.length; i++) {
+      if (dispatched[i] > 0) {
+        busyTime = min(busyTime, virtualTimes[i]);
+      }
+    }
+    if (busyTime == Double.MAX_VALUE) {
+      return;
+    }
+    double minTime = Double.MAX_VALUE;
+    for (int i = 0; i < virtualTimes.length; i++) {
+      if (dispatched[i] == 0) {
+        virtualTimes[i] = max(virtualTimes[i], busyTime);
+      }
+      minTime = min(minTime, virtualTimes[i]);
+    }
+    // only the differences between directories matter, keeping them small avoids losing precision
+    for (int i = 0; i < virtualTimes.length; i++) {
+      virtualTimes[i] -= minTime;
+    }
+  }
+
+  /**
+   * @param directory a directory polled by the listener
+   * @return its virtual time
+   */
+  double getVirtualTime(PolledDirectory directory) {
+    return virtualTimes[directories.indexOf(directory)];
+  }
+}
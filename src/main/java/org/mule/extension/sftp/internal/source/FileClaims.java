@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+
+import static java.lang.String.format;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.store.ObjectAlreadyExistsException;
+import org.mule.runtime.api.store.ObjectDoesNotExistException;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreException;
+
+import org.slf4j.Logger;
+
+/**
+ * Claims the files found by a listener which polls on every node of a cluster, so each file is dispatched by a single node.
+ * <p>
+ * A claim is an entry of an object store shared by the nodes, which is only created if the file has none yet. It's removed once
+ * the post processing action of the file was applied, so the file is already gone when another node gets to claim it. Claims
+ * expire after a while, so the files claimed by a node which left the cluster are picked up by the others.
+ *
+ * @since 2.5
+ */
+final class FileClaims {
+
+  private static final Logger LOGGER = getLogger(FileClaims.class);
+
+  private final ObjectStore<String> store;
+  private final String claimant;
+
+  /**
+   * @param store    the object store shared by the nodes, which expires its entries
+   * @param claimant identifies this node on the claims it makes
+   */
+  FileClaims(ObjectStore<String> store, String claimant) {
+    this.store = store;
+    this.claimant = claimant;
+  }
+
+  /**
+   * @param path the path of a file
+   * @return whether the file was claimed by this node, {@code false} if it's already claimed by any node
+   */
+  boolean claim(String path) {
+    try {
+      store.store(path, claimant);
+      return true;
+    } catch (ObjectAlreadyExistsException e) {
+      return false;
+    } catch (ObjectStoreException e) {
+      throw new MuleRuntimeException(createStaticMessage(format("Could not claim file '%s'", path)), e);
+    }
+  }
+
+  /**
+   * Releases the claim of a file, unless it expired and was claimed by another node in the meantime
+   *
+   * @param path the path of a file claimed by this node
+   */
+  void release(String path) {
+    try {
+      if (claimant.equals(store.retrieve(path))) {
+        store.remove(path);
+      }
+    } catch (ObjectDoesNotExistException e) {
+      LOGGER.debug("The claim of file '{}' had already expired", path);
+    } catch (ObjectStoreException e) {
+      LOGGER.warn("Could not release the claim of file '{}', it will be released once it expires. {}", path, e.getMessage());
+    }
+  }
+}
@@ -6,10 +6,25 @@
  */
 package org.mule.extension.sftp.internal.source;
 
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.extension.sftp.internal.util.UriUtils.normalizeUri;
+
+import static java.lang.String.format;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
 import org.mule.extension.sftp.internal.operation.SftpCommand;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
 
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
 
 /**
  * A {@link SftpCommand} which implements support functionality for {@link SftpDirectorySource}
@@ -18,6 +33,8 @@ import java.net.URI;
  */
 public class OnNewFileCommand extends SftpCommand {
 
+  private static final Logger LOGGER = getLogger(OnNewFileCommand.class);
+
   OnNewFileCommand(SftpFileSystemConnection fileSystem) {
     super(fileSystem);
   }
@@ -31,4 +48,137 @@ public class OnNewFileCommand extends SftpCommand {
   public URI resolveRootPath(String directory) {
     return resolveExistingPath(directory);
   }
+
+  /**
+   * Resolves the directory processed files are moved into, which doesn't need to exist
+   *
+   * @param directory the path that the user configured as the post processing action's move to directory
+   * @return the resolved {@link URI} of the directory
+   */
+  public URI resolveTargetDirectory(String directory) {
+    return normalizeUri(resolvePath(directory));
+  }
+
+  /**
+   * Walks the directory at {@code directoryPath}, handing its matching files and directories to the {@code visitor} as soon as
+   * the chunk of the listing they are in arrives from the server, instead of waiting for the whole tree to be listed. The
+   * entries of a directory are visited before walking into its sub directories.
+   * <p>
+   * When {@code snapshots} are given, the directories which didn't change since they were last listed are walked through using
+   * their snapshots instead of listing them again. Only their sub directories are stat'ed, to find out whether they changed.
+   *
+   * @param directoryPath the path of the directory to walk
+   * @param recursive     whether to walk into sub directories
+   * @param matcher       the predicate the visited files and directories match
+   * @param snapshots     the entries of the directories listed by previous walks, which are updated by this one. May be
+   *                      {@code null}
+   * @param fullScan      whether every directory is to be listed, regardless of its snapshot
+   * @param visitor       receives the matching entries, the walk stops as soon as it returns {@code false}
+   * @return whether the whole tree was walked
+   */
+  public boolean walk(String directoryPath, boolean recursive, Predicate<SftpFileAttributes> matcher,
+                      DirectorySnapshots snapshots, boolean fullScan, Predicate<SftpFileAttributes> visitor) {
+    SftpFileAttributes directory = getExistingFile(directoryPath);
+    if (!directory.isDirectory()) {
+      throw cannotListFileException(createUri(directory.getPath(), ""));
+    }
+
+    Walk walk = new Walk(recursive, matcher, snapshots, fullScan, visitor);
+    boolean complete = walk.walk(directory);
+    // the snapshots of the directories an interrupted walk didn't get to are still valid
+    if (complete && snapshots != null) {
+      snapshots.retainAll(walk.walkedDirectories);
+    }
+
+    LOGGER.debug("Walked {} directories under {}, {} of them had to be listed{}", walk.walkedDirectories.size(),
+                 directory.getPath(), walk.listedDirectories, complete ? "" : ". The walk was stopped before it finished");
+    return complete;
+  }
+
+  private final class Walk {
+
+    private final boolean recursive;
+    private final Predicate<SftpFileAttributes> matcher;
+    private final DirectorySnapshots snapshots;
+    private final boolean fullScan;
+    private final Predicate<SftpFileAttributes> visitor;
+    private final Set<String> walkedDirectories = new HashSet<>();
+    private int listedDirectories;
+
+    private Walk(boolean recursive, Predicate<SftpFileAttributes> matcher, DirectorySnapshots snapshots, boolean fullScan,
+                 Predicate<SftpFileAttributes> visitor) {
+      this.recursive = recursive;
+      this.matcher = matcher;
+      this.snapshots = snapshots;
+      this.fullScan = fullScan;
+      this.visitor = visitor;
+    }
+
+    private boolean walk(SftpFileAttributes directory) {
+      walkedDirectories.add(directory.getPath());
+      List<SftpFileAttributes> subDirectories = new ArrayList<>();
+      List<SftpFileAttributes> unchangedEntries =
+          snapshots != null && !fullScan ? snapshots.getUnchangedEntries(directory) : null;
+
+      if (unchangedEntries != null) {
+        for (SftpFileAttributes entry : unchangedEntries) {
+          if (!visit(entry, true, subDirectories)) {
+            return false;
+          }
+        }
+      } else {
+        LOGGER.debug("Listing directory {}", directory.getPath());
+        listedDirectories++;
+        List<SftpFileAttributes> entries = snapshots != null ? new ArrayList<>() : null;
+        boolean listed = client.listWhile(directory.getPath(), chunk -> {
+          for (SftpFileAttributes entry : chunk) {
+            if (isVirtualDirectory(entry.getName())) {
+              continue;
+            }
+            if (entries != null) {
+              entries.add(entry);
+            }
+            if (!visit(entry, false, subDirectories)) {
+              return false;
+            }
+          }
+          return true;
+        });
+        if (!listed) {
+          return false;
+        }
+        if (snapshots != null) {
+          snapshots.update(directory, entries);
+        }
+      }
+
+      for (SftpFileAttributes subDirectory : subDirectories) {
+        if (!walk(subDirectory)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean visit(SftpFileAttributes entry, boolean fromSnapshot, List<SftpFileAttributes> subDirectories) {
+      if (entry.isDirectory() && recursive) {
+        // a snapshot has the attributes the sub directory had back then, they are needed as they are now
+        entry = fromSnapshot ? getCurrentAttributes(entry) : entry;
+        if (entry == null) {
+          return true;
+        }
+        subDirectories.add(entry);
+      }
+      return !matcher.test(entry) || visitor.test(entry);
+    }
+  }
+
+  private SftpFileAttributes getCurrentAttributes(SftpFileAttributes directory) {
+    try {
+      SftpFileAttributes attributes = client.getAttributes(createUri(directory.getPath()));
+      return attributes != null && attributes.isDirectory() ? attributes : null;
+    } catch (IOException e) {
+      throw client.handleException(format("Could not obtain attributes for path %s", directory.getPath()), e);
+    }
+  }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.lang.Math.max;
+import static java.lang.String.format;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A directory polled by a listener, along with the state the listener keeps for it across polls
+ *
+ * @since 2.5
+ */
+final class PolledDirectory {
+
+  private final URI uri;
+  private final int weight;
+  private final Integer maxFilesInFlight;
+  private final DirectorySnapshots snapshots;
+  private final AtomicInteger filesInFlight = new AtomicInteger();
+
+  /**
+   * @param uri              the resolved path of the directory
+   * @param weight           the share of the files dispatched by each poll the directory gets, relative to the other ones
+   * @param maxFilesInFlight the maximum amount of files of the directory being processed at the same time, or {@code null}
+   * @param snapshots        the snapshots of the directory and its sub directories, or {@code null} if they are always listed
+   */
+  PolledDirectory(URI uri, int weight, Integer maxFilesInFlight, DirectorySnapshots snapshots) {
+    this.uri = uri;
+    this.weight = weight;
+    this.maxFilesInFlight = maxFilesInFlight;
+    this.snapshots = snapshots;
+  }
+
+  URI getUri() {
+    return uri;
+  }
+
+  String getPath() {
+    return uri.getPath();
+  }
+
+  int getWeight() {
+    return weight;
+  }
+
+  DirectorySnapshots getSnapshots() {
+    return snapshots;
+  }
+
+  /**
+   * @return how many more files of the directory can be dispatched, or {@code null} if there's no limit
+   */
+  Integer getAvailableSlots() {
+    return maxFilesInFlight != null ? max(0, maxFilesInFlight - filesInFlight.get()) : null;
+  }
+
+  /**
+   * Invoked when a file of the directory was accepted for processing
+   */
+  void fileDispatched() {
+    filesInFlight.incrementAndGet();
+  }
+
+  /**
+   * Invoked when a file of the directory finished being processed
+   */
+  void fileProcessed() {
+    filesInFlight.decrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return format("%s (weight %d, %d files in flight)", getPath(), weight, filesInFlight.get());
+  }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
+import static org.mule.extension.sftp.internal.util.UriUtils.trimLastFragment;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_NO_SUCH_FILE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.sftp.api.FileAttributes;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.sshd.sftp.common.SftpException;
+import org.slf4j.Logger;
+
+/**
+ * Applies the post processing actions of the files processed by a listener asynchronously, so the flow which processed a file
+ * doesn't wait for it to be moved, renamed or deleted.
+ * <p>
+ * Actions are queued and applied in batches over a connection which is kept open between batches, sending the rename and
+ * removal requests of a whole batch without waiting for the response of each one. The queue is bounded, once it's full
+ * {@link #submit} blocks until there's room, slowing down the flows instead of buffering without limit.
+ * <p>
+ * An action which fails is retried in a later drain, over a new connection if the one in use was found to be closed. Each retry
+ * waits twice as long as the previous one, starting at {@link #DEFAULT_RETRY_DELAY_MILLIS}, so that a transient failure has time
+ * to go away. The retries are scheduled when the executor is a {@link ScheduledExecutorService}, otherwise the ones which are
+ * due are applied along with the next submitted action. Actions which still fail after {@link #DEFAULT_MAX_ATTEMPTS} attempts
+ * are logged and counted as failed. While an action is pending, {@link #isPending(String)} tells the listener not to dispatch
+ * its file again.
+ *
+ * @since 2.5
+ */
+final class PostActionExecutor {
+
+  private static final Logger LOGGER = getLogger(PostActionExecutor.class);
+
+  /**
+   * Default amount of actions which can be waiting to be applied before {@link #submit} blocks
+   */
+  static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  /**
+   * Default amount of actions applied in a single batch
+   */
+  static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+  /**
+   * Default amount of times an action is attempted before giving up
+   */
+  static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+  /**
+   * Default time the first retry of an action waits for
+   */
+  static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+
+  private static final int MAX_BACKOFF_SHIFT = 10;
+
+  private final ConnectionProvider<SftpFileSystemConnection> connectionProvider;
+  private final Executor executor;
+  private final int maxBatchSize;
+  private final int maxAttempts;
+  private final long retryDelayNanos;
+
+  private final BlockingQueue<PendingAction> queue;
+  private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean draining = new AtomicBoolean();
+  private final AtomicBoolean retryScheduled = new AtomicBoolean();
+  private final AtomicLong appliedActions = new AtomicLong();
+  private final AtomicLong failedActions = new AtomicLong();
+  private final AtomicLong retriedActions = new AtomicLong();
+  private volatile boolean closed;
+
+  // only accessed while holding the batchLock
+  private final Lock batchLock = new ReentrantLock();
+  private final List<PendingAction> retries = new ArrayList<>();
+  private SftpFileSystemConnection connection;
+
+  /**
+   * @param connectionProvider the provider of the connection the actions are applied through
+   * @param executor           runs the batches, it only needs to run one at a time
+   */
+  PostActionExecutor(ConnectionProvider<SftpFileSystemConnection> connectionProvider, Executor executor) {
+    this(connectionProvider, executor, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_ATTEMPTS,
+         DEFAULT_RETRY_DELAY_MILLIS);
+  }
+
+  PostActionExecutor(ConnectionProvider<SftpFileSystemConnection> connectionProvider, Executor executor, int queueCapacity,
+                     int maxBatchSize, int maxAttempts, long retryDelayMillis) {
+    this.connectionProvider = connectionProvider;
+    this.executor = executor;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxAttempts = maxAttempts;
+    this.retryDelayNanos = MILLISECONDS.toNanos(retryDelayMillis);
+  }
+
+  /**
+   * Queues the post processing action of a file, blocking while the queue is full. Actions which neither move, rename nor
+   * delete the file are ignored.
+   *
+   * @param postAction the action to apply
+   * @param attributes the attributes of the processed file
+   */
+  void submit(AbstractPostActionGroup postAction, FileAttributes attributes) {
+    submit(postAction, attributes, () -> {
+    });
+  }
+
+  /**
+   * Same as {@link #submit(AbstractPostActionGroup, FileAttributes)}, but notifying once the action is no longer pending.
+   *
+   * @param postAction   the action to apply
+   * @param attributes   the attributes of the processed file
+   * @param onCompletion invoked once the action was applied or given up on, only if it was queued
+   * @return whether the action was queued
+   */
+  boolean submit(AbstractPostActionGroup postAction, FileAttributes attributes, Runnable onCompletion) {
+    if (!postAction.isAutoDelete() && postAction.getMoveToDirectory() == null && postAction.getRenameTo() == null) {
+      return false;
+    }
+    String path = attributes.getPath();
+    pendingPaths.add(path);
+    try {
+      queue.put(new PendingAction(postAction, attributes, onCompletion));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pendingPaths.remove(path);
+      LOGGER.error("Interrupted while queueing the post processing action of file '{}', it was neither moved nor deleted.", path);
+      return false;
+    }
+    scheduleDrain();
+    return true;
+  }
+
+  /**
+   * @param path the path of a file
+   * @return whether the post processing action of the file is yet to be applied
+   */
+  boolean isPending(String path) {
+    return pendingPaths.contains(path);
+  }
+
+  /**
+   * Applies the actions which are still queued and closes the connection. The actions waiting to be retried are retried right
+   * away, since there won't be a later drain. Actions submitted afterwards are applied right away by the thread submitting them,
+   * over a connection which is closed once they are applied.
+   */
+  void close() {
+    closed = true;
+    batchLock.lock();
+    try {
+      applyQueued();
+    } finally {
+      batchLock.unlock();
+    }
+    // a drain which was scheduled but never ran must not keep later submissions from being applied
+    draining.set(false);
+  }
+
+  private void scheduleDrain() {
+    if (!draining.compareAndSet(false, true)) {
+      return;
+    }
+    if (closed) {
+      drain();
+      return;
+    }
+    try {
+      executor.execute(this::drain);
+    } catch (RejectedExecutionException e) {
+      drain();
+    }
+  }
+
+  private void drain() {
+    do {
+      batchLock.lock();
+      try {
+        applyQueued();
+      } finally {
+        batchLock.unlock();
+      }
+      draining.set(false);
+      // an action queued right before the flag was cleared would otherwise wait for the next submission
+    } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+  }
+
+  private void applyQueued() {
+    // the actions which fail during this drain are not due before it ends
+    long now = System.nanoTime();
+    List<PendingAction> batch = new ArrayList<>(maxBatchSize);
+    while (true) {
+      takeDueRetries(batch, now);
+      queue.drainTo(batch, Math.max(0, maxBatchSize - batch.size()));
+      if (batch.isEmpty()) {
+        break;
+      }
+      applyBatch(batch);
+      batch.clear();
+    }
+    if (closed) {
+      releaseConnection();
+    } else {
+      scheduleRetries();
+    }
+  }
+
+  private void takeDueRetries(List<PendingAction> batch, long now) {
+    Iterator<PendingAction> iterator = retries.iterator();
+    while (iterator.hasNext() && batch.size() < maxBatchSize) {
+      PendingAction action = iterator.next();
+      if (closed || action.retryAt - now <= 0) {
+        batch.add(action);
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Schedules a drain for when the earliest retry is due, unless there's one scheduled already
+   */
+  private void scheduleRetries() {
+    if (retries.isEmpty() || !(executor instanceof ScheduledExecutorService) || !retryScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    long earliest = retries.stream().mapToLong(action -> action.retryAt - System.nanoTime()).min().getAsLong();
+    try {
+      ((ScheduledExecutorService) executor).schedule(() -> {
+        retryScheduled.set(false);
+        scheduleDrain();
+      }, Math.max(0, earliest), NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      // the retries are applied along with the next submitted action
+      retryScheduled.set(false);
+    }
+  }
+
+  private void applyBatch(List<PendingAction> batch) {
+    long startTime = System.nanoTime();
+    SftpFileSystemConnection fileSystem;
+    try {
+      fileSystem = getConnection();
+    } catch (ConnectionException | RuntimeException e) {
+      LOGGER.warn("Could not obtain a connection to apply the post processing actions of {} files. {}", batch.size(),
+                  e.getMessage());
+      batch.forEach(action -> onFailure(action, e));
+      return;
+    }
+
+    SftpClient client = fileSystem.getClient();
+    OnNewFileCommand command = new OnNewFileCommand(fileSystem);
+    Set<String> targetDirectories = new HashSet<>();
+    Map<String, PendingAction> actions = new HashMap<>();
+    Map<String, String> overwritingRenames = new LinkedHashMap<>();
+    Map<String, String> renames = new LinkedHashMap<>();
+    List<String> deletions = new ArrayList<>();
+
+    for (PendingAction action : batch) {
+      actions.put(action.path, action);
+      try {
+        String target = action.resolveTarget(command, client, targetDirectories);
+        if (target == null) {
+          deletions.add(action.path);
+        } else {
+          (action.postAction.getOverwrite() ? overwritingRenames : renames).put(action.path, target);
+        }
+      } catch (RuntimeException e) {
+        onRenameFailure(actions, action, e, deletions);
+      }
+    }
+
+    try {
+      if (!overwritingRenames.isEmpty()) {
+        onRenamed(actions, overwritingRenames, client.renameAll(overwritingRenames, true), deletions);
+      }
+      if (!renames.isEmpty()) {
+        onRenamed(actions, renames, client.renameAll(renames, false), deletions);
+      }
+      if (!deletions.isEmpty()) {
+        onDeleted(actions, deletions, client.deleteAll(deletions));
+      }
+    } catch (RuntimeException e) {
+      // the channel broke, the actions whose outcome is unknown are retried over a new connection
+      LOGGER.warn("Failed to apply the post processing actions of {} files. {}", actions.size(), e.getMessage());
+      releaseConnection();
+      actions.values().forEach(action -> onFailure(action, e));
+    }
+
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Applied a batch of {} post processing actions in {} ms, {}", batch.size(),
+                   NANOSECONDS.toMillis(System.nanoTime() - startTime), this);
+    }
+  }
+
+  private void onRenamed(Map<String, PendingAction> actions, Map<String, String> renames, Map<String, Exception> failures,
+                         List<String> deletions) {
+    for (String path : renames.keySet()) {
+      PendingAction action = actions.get(path);
+      Exception failure = failures.get(path);
+      if (failure == null) {
+        LOGGER.debug("Post processing action moved file '{}' to '{}'", path, renames.get(path));
+        actions.remove(path);
+        onSuccess(action);
+      } else {
+        onRenameFailure(actions, action, failure, deletions);
+      }
+    }
+  }
+
+  /**
+   * Handles an action whose file could not be moved, leaving it in {@code actions} only if the file is still to be deleted
+   */
+  private void onRenameFailure(Map<String, PendingAction> actions, PendingAction action, Exception failure,
+                               List<String> deletions) {
+    if (action.postAction.isAutoDelete()) {
+      // just like when the action is applied synchronously, a file which could not be moved is deleted
+      deletions.add(action.path);
+      return;
+    }
+    actions.remove(action.path);
+    if (failure instanceof FileAlreadyExistsException) {
+      LOGGER.warn("{}. The file '{}' was not moved and it remains on the poll directory.", failure.getMessage(), action.path);
+      failedActions.incrementAndGet();
+      complete(action);
+    } else {
+      onFailure(action, failure);
+    }
+  }
+
+  private void onDeleted(Map<String, PendingAction> actions, Collection<String> deletions, Map<String, Exception> failures) {
+    for (String path : deletions) {
+      PendingAction action = actions.remove(path);
+      Exception failure = failures.get(path);
+      if (failure == null) {
+        LOGGER.debug("Post processing action deleted file '{}'", path);
+        onSuccess(action);
+      } else {
+        onFailure(action, failure);
+      }
+    }
+  }
+
+  private void onSuccess(PendingAction action) {
+    appliedActions.incrementAndGet();
+    complete(action);
+  }
+
+  private void onFailure(PendingAction action, Exception failure) {
+    if (isMissingFile(failure)) {
+      if (action.attempts > 1) {
+        // the attempt which failed may have applied the action before the failure was noticed
+        LOGGER.debug("File '{}' no longer exists, assuming its post processing action was already applied", action.path);
+        appliedActions.incrementAndGet();
+      } else {
+        LOGGER.warn("File '{}' no longer exists, its post processing action was not applied.", action.path);
+        failedActions.incrementAndGet();
+      }
+      complete(action);
+    } else if (action.attempts < maxAttempts) {
+      long delayNanos = retryDelayNanos << Math.min(action.attempts - 1, MAX_BACKOFF_SHIFT);
+      action.attempts++;
+      action.retryAt = System.nanoTime() + delayNanos;
+      retriedActions.incrementAndGet();
+      LOGGER.debug("Failed to apply the post processing action of file '{}', it will be retried in {} ms. {}", action.path,
+                   NANOSECONDS.toMillis(delayNanos), failure.getMessage());
+      retries.add(action);
+    } else {
+      failedActions.incrementAndGet();
+      LOGGER.error(format("Could not apply the post processing action of file '%s' after %d attempts, it was neither moved nor deleted.",
+                          action.path, action.attempts),
+                   failure);
+      complete(action);
+    }
+  }
+
+  private void complete(PendingAction action) {
+    pendingPaths.remove(action.path);
+    try {
+      action.onCompletion.run();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to notify the completion of the post processing action of file '{}'. {}", action.path,
+                  e.getMessage());
+    }
+  }
+
+  private boolean isMissingFile(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SftpException && ((SftpException) cause).getStatus() == SSH_FX_NO_SUCH_FILE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private SftpFileSystemConnection getConnection() throws ConnectionException {
+    if (connection != null) {
+      if (connection.getClient().isConnected()) {
+        return connection;
+      }
+      releaseConnection();
+    }
+    SftpFileSystemConnection fileSystem = connectionProvider.connect();
+    try {
+      fileSystem.changeToBaseDir();
+    } catch (RuntimeException e) {
+      connectionProvider.disconnect(fileSystem);
+      throw e;
+    }
+    connection = fileSystem;
+    return fileSystem;
+  }
+
+  private void releaseConnection() {
+    if (connection != null) {
+      connectionProvider.disconnect(connection);
+      connection = null;
+    }
+  }
+
+  /**
+   * @return the amount of actions which are queued or being applied
+   */
+  int getPendingActions() {
+    return pendingPaths.size();
+  }
+
+  /**
+   * @return the amount of actions applied since this executor was created
+   */
+  long getAppliedActions() {
+    return appliedActions.get();
+  }
+
+  /**
+   * @return the amount of actions which could not be applied since this executor was created
+   */
+  long getFailedActions() {
+    return failedActions.get();
+  }
+
+  /**
+   * @return the amount of times an action was retried since this executor was created
+   */
+  long getRetriedActions() {
+    return retriedActions.get();
+  }
+
+  @Override
+  public String toString() {
+    return format("%d post processing actions pending, %d applied, %d failed and %d retries", getPendingActions(),
+                  getAppliedActions(), getFailedActions(), getRetriedActions());
+  }
+
+  private static final class PendingAction {
+
+    private final AbstractPostActionGroup postAction;
+    private final FileAttributes attributes;
+    private final String path;
+    private final Runnable onCompletion;
+    private int attempts = 1;
+    // the System#nanoTime at which the action is due to be retried
+    private long retryAt;
+
+    private PendingAction(AbstractPostActionGroup postAction, FileAttributes attributes, Runnable onCompletion) {
+      this.postAction = postAction;
+      this.attributes = attributes;
+      this.path = attributes.getPath();
+      this.onCompletion = onCompletion;
+    }
+
+    /**
+     * @return the path the file is to be moved or renamed to, or {@code null} if it's to be deleted
+     */
+    private String resolveTarget(OnNewFileCommand command, SftpClient client, Set<String> targetDirectories) {
+      String renameTo = postAction.getRenameTo();
+      if (postAction.getMoveToDirectory() != null) {
+        String directory = command.resolveTargetDirectory(postAction.getMoveToDirectory()).getPath();
+        if (!targetDirectories.contains(directory)) {
+          client.mkdirs(directory);
+          targetDirectories.add(directory);
+        }
+        return createUri(directory, renameTo != null ? renameTo : attributes.getName()).getPath();
+      }
+      if (renameTo != null) {
+        return createUri(trimLastFragment(createUri(path)).getPath(), renameTo).getPath();
+      }
+      return null;
+    }
+  }
+}
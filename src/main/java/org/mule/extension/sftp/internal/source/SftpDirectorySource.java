@@ -6,27 +6,44 @@
  */
 package org.mule.extension.sftp.internal.source;
 
+import static org.mule.extension.sftp.internal.util.UriUtils.createUri;
 import static org.mule.runtime.api.i18n.I18nMessageFactory.createStaticMessage;
+import static org.mule.runtime.api.scheduler.SchedulerConfig.config;
 import static org.mule.runtime.core.api.util.ExceptionUtils.extractConnectionException;
 import static org.mule.runtime.core.api.util.IOUtils.closeQuietly;
 import static org.mule.runtime.extension.api.annotation.param.MediaType.ANY;
 import static org.mule.runtime.extension.api.runtime.source.PollContext.PollItemStatus.SOURCE_STOPPING;
 import static org.mule.sdk.api.annotation.source.SourceClusterSupport.DEFAULT_PRIMARY_NODE_ONLY;
 
+import static java.lang.Math.min;
 import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+import static java.util.Comparator.nullsFirst;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.joining;
 
 import org.apache.sshd.common.SshException;
-import org.mule.extension.sftp.api.FileAttributes;
+import org.mule.extension.sftp.api.FileProcessingOrder;
 import org.mule.extension.sftp.api.SftpFileAttributes;
 import org.mule.extension.sftp.api.SftpFileMatcher;
+import org.mule.extension.sftp.api.WatchedDirectory;
 import org.mule.extension.sftp.api.matcher.NullFilePayloadPredicate;
 import org.mule.extension.sftp.internal.exception.IllegalPathException;
 import org.mule.extension.sftp.internal.extension.SftpConnector;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.source.ConnectionLeaseRegistry.Lease;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionProvider;
 import org.mule.runtime.api.exception.MuleRuntimeException;
 import org.mule.runtime.api.i18n.I18nMessage;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.api.scheduler.SchedulerService;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.api.store.ObjectStoreSettings;
 import org.mule.runtime.extension.api.annotation.Alias;
 import org.mule.runtime.extension.api.annotation.execution.OnError;
 import org.mule.runtime.extension.api.annotation.execution.OnSuccess;
@@ -47,14 +64,20 @@ import org.mule.runtime.extension.api.runtime.source.PollingSource;
 import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
 import org.mule.sdk.api.annotation.source.ClusterSupport;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.util.HashMap;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
+import javax.inject.Inject;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,7 +109,11 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SftpDirectorySource.class);
   private static final String ATTRIBUTES_CONTEXT_VAR = "attributes";
+  private static final String LEASE_CONTEXT_VAR = "connectionLease";
+  private static final String DIRECTORY_CONTEXT_VAR = "polledDirectory";
+  private static final long LEAK_THRESHOLD_MILLIS = MINUTES.toMillis(30);
   private static final String POST_PROCESSING_GROUP_NAME = "Post processing action";
+  private static final String CLAIMS_STORE_PREFIX = "_sftpListenerClaims_";
   public static final String MATCHER = "Matcher";
 
   @Config
@@ -95,6 +122,9 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
   @Connection
   private ConnectionProvider<SftpFileSystemConnection> fileSystemProvider;
 
+  @Inject
+  private ObjectStoreManager objectStoreManager;
+
   /**
    * The directory on which polled files are contained
    */
@@ -102,6 +132,18 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
   @Optional
   private String directory;
 
+  /**
+   * Other directories to watch besides {@link #directory}, all of them polled through the same connection on each poll. When
+   * {@link #maxFilesPerPoll} is set, it's shared among the directories according to their weights, directories which dispatched
+   * less than their share in previous polls going first, and each directory can limit how many of its files are processed at
+   * the same time, so a directory which gets a burst of files doesn't starve the others. When {@link #directory} isn't set, only
+   * these directories are watched. Directories must not overlap, the source fails to start otherwise.
+   */
+  @Parameter
+  @Optional
+  @Summary("Other directories to watch besides the main one, sharing the same connections and polls")
+  private List<WatchedDirectory> directories;
+
   /**
    * Whether or not to also files contained in sub directories.
    */
@@ -145,31 +187,225 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
   @Summary("Time unit to be used in the wait time between size checks")
   private TimeUnit timeBetweenSizeCheckUnit;
 
-  private URI directoryUri;
+  /**
+   * The maximum amount of files whose content is read at the same time, each one over its own connection borrowed from the
+   * config's pool when the file starts being read and given back when its content is closed. When not set, the content of every
+   * file is read through the connection the directory is polled with.
+   */
+  @Parameter
+  @Optional
+  @Summary("Maximum amount of files read at the same time, each one over its own connection. "
+      + "When not set, every file is read through the connection used to poll the directory.")
+  private Integer maxConcurrentFiles;
+
+  /**
+   * The maximum time between listings of the directory while it doesn't get new files. When set, each poll which finds no new
+   * files doubles the time until the directory is listed again, starting from the polling frequency and up to this value, and
+   * the first poll which finds new files brings it back to the polling frequency. When not set, the directory is listed on every
+   * poll.
+   */
+  @Parameter
+  @Optional
+  @Summary("Maximum time between listings while the directory doesn't get new files. "
+      + "When not set, the directory is listed on every poll.")
+  private Long maxPollInterval;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #maxPollInterval} attribute.
+   */
+  @Parameter
+  @Optional(defaultValue = "MILLISECONDS")
+  @Summary("Time unit to be used in the maximum time between listings")
+  private TimeUnit maxPollIntervalUnit = MILLISECONDS;
+
+  /**
+   * Whether to check the modification time of the directory before listing it, skipping the listing if the directory had no
+   * files the last time it was listed and it wasn't modified since then. It only applies when {@link #maxPollInterval} is set,
+   * which bounds the time the directory can go without being listed, and to non recursive listeners, since creating files in a
+   * sub directory doesn't change the directory's modification time.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Summary("Whether to skip listing the directory while it stays empty and unmodified")
+  private boolean checkDirectoryModification = false;
+
+  /**
+   * Whether recursive listeners skip listing the sub directories which didn't change since the previous poll. Each directory's
+   * modification time is checked with the listing of its parent directory, or with a stat when the parent wasn't listed, and the
+   * entries of the directories which didn't change are taken from the previous poll. Since modifying the content of a file
+   * doesn't change its directory, files updated in place might not be picked up until the next full scan.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Summary("Whether recursive listeners skip listing the sub directories which didn't change since the previous poll")
+  private boolean skipUnchangedDirectories = false;
+
+  /**
+   * The amount of polls after which a recursive listener which skips unchanged directories lists every directory again, in case
+   * the server doesn't update the modification time of directories reliably.
+   */
+  @Parameter
+  @Optional(defaultValue = "10")
+  @Summary("Amount of polls after which every directory is listed again when skipping unchanged directories")
+  private int pollsBetweenFullScans = 10;
+
+  /**
+   * The maximum amount of files dispatched by each poll. Once reached, the poll stops walking the directory and the remaining
+   * files are picked up by the next polls. When not set, every file found is dispatched.
+   */
+  @Parameter
+  @Optional
+  @Summary("Maximum amount of files dispatched by each poll. When not set, every file found is dispatched.")
+  private Integer maxFilesPerPoll;
+
+  /**
+   * The order in which each poll dispatches the files it finds. With {@code LISTING}, each file is dispatched as soon as it's
+   * listed, without waiting for the rest of the directory to be listed. Any other order requires walking the whole directory
+   * before dispatching the first file. When watermarking is enabled along with {@link #maxFilesPerPoll}, {@code OLDEST_FIRST}
+   * is the order which guarantees that no file is left behind the watermark.
+   */
+  @Parameter
+  @Optional(defaultValue = "LISTING")
+  @Summary("Order in which each poll dispatches the files it finds")
+  private FileProcessingOrder processingOrder = FileProcessingOrder.LISTING;
+
+  /**
+   * Whether each file is claimed by the node which dispatches it, so the listener can poll on every node of a cluster, by
+   * setting {@code primaryNodeOnly} to {@code false}, without two nodes processing the same file. Claims are kept in an object
+   * store shared by the cluster and released once the post processing action of the file was applied. The claim of a file
+   * which is left in the directory is kept until it expires.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Summary("Whether each file is claimed by the node which dispatches it, so the listener can poll on every node of a cluster")
+  private boolean claimFilesAcrossNodes = false;
+
+  /**
+   * The time after which the claim of a file expires, letting other nodes dispatch it. It has to be longer than the time it
+   * takes to process a file and apply its post processing action, and it's the time it takes for the files claimed by a node
+   * which left the cluster to be picked up by the others.
+   */
+  @Parameter
+  @Optional(defaultValue = "10")
+  @Summary("Time after which the claim of a file expires, letting other nodes dispatch it")
+  private long claimTimeout = 10;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #claimTimeout} attribute.
+   */
+  @Parameter
+  @Optional(defaultValue = "MINUTES")
+  @Summary("Time unit to be used in the time after which the claim of a file expires")
+  private TimeUnit claimTimeoutUnit = MINUTES;
+
+  /**
+   * The directories this source polls, with {@link #directory} first when it's set
+   */
+  private List<PolledDirectory> polledDirectories;
+  private FairDirectoryScheduler directoryScheduler;
   private Predicate<SftpFileAttributes> fileAttributePredicate;
 
-  private static final Map<String, SftpFileSystemConnection> OPEN_CONNECTIONS = new HashMap<>();
-  private static final Map<SftpFileSystemConnection, Integer> FREQUENCY_OF_OPEN_CONNECTION = new HashMap<>();
+  /**
+   * Bounds how many files are read at the same time when {@link #maxConcurrentFiles} is set, {@code null} otherwise
+   */
+  private Semaphore contentPermits;
+
+  /**
+   * Decides which polls list the directory when {@link #maxPollInterval} is set, {@code null} otherwise
+   */
+  private AdaptivePolling adaptivePolling;
+
+  private int pollsSinceFullScan;
+
+  /**
+   * The claims of the files dispatched by this node when {@link #claimFilesAcrossNodes} is set, {@code null} otherwise
+   */
+  private FileClaims fileClaims;
+
+  /**
+   * Keeps each connection of this source open until the source stopped polling through it and every file read from it was
+   * processed
+   */
+  private final ConnectionLeaseRegistry connectionLeases =
+      new ConnectionLeaseRegistry(connection -> fileSystemProvider.disconnect(connection), LEAK_THRESHOLD_MILLIS);
+
+  /**
+   * The connection every poll lists the directory through. It's kept open across polls and only replaced when it's found to be
+   * disconnected or a poll fails, so polling doesn't pay for an SSH handshake each time.
+   */
+  private volatile SftpFileSystemConnection listenerConnection;
+
+  /**
+   * Applies the post processing actions in batches, so the flows don't wait for them and a connection isn't opened per file
+   */
+  private PostActionExecutor postActions;
+  private Scheduler postActionScheduler;
 
   @Override
   protected void doStart() {
+    if (maxConcurrentFiles != null && maxConcurrentFiles < 1) {
+      throw new IllegalArgumentException(format("maxConcurrentFiles must be greater than zero but was %d", maxConcurrentFiles));
+    }
+    if (maxPollInterval != null && maxPollInterval < 1) {
+      throw new IllegalArgumentException(format("maxPollInterval must be greater than zero but was %d", maxPollInterval));
+    }
+    adaptivePolling = maxPollInterval != null ? new AdaptivePolling(maxPollIntervalUnit.toNanos(maxPollInterval)) : null;
+    if (pollsBetweenFullScans < 1) {
+      throw new IllegalArgumentException(format("pollsBetweenFullScans must be greater than zero but was %d",
+                                                pollsBetweenFullScans));
+    }
+    if (maxFilesPerPoll != null && maxFilesPerPoll < 1) {
+      throw new IllegalArgumentException(format("maxFilesPerPoll must be greater than zero but was %d", maxFilesPerPoll));
+    }
+    fileClaims = claimFilesAcrossNodes ? createFileClaims() : null;
     refreshMatcher();
-    directoryUri = resolveRootPath();
+    contentPermits = maxConcurrentFiles != null ? new Semaphore(maxConcurrentFiles) : null;
+    polledDirectories = resolveDirectories();
+    directoryScheduler = new FairDirectoryScheduler(polledDirectories);
+    if (watermarkEnabled && maxFilesPerPoll != null && processingOrder != FileProcessingOrder.OLDEST_FIRST) {
+      LOGGER.warn("The listener of directory '{}' has watermarking enabled and dispatches at most {} files per poll in {} order. "
+          + "Files left for the next polls which are older than the dispatched ones will be filtered out by the watermark, "
+          + "use the OLDEST_FIRST processing order to avoid it.", describeDirectories(), maxFilesPerPoll, processingOrder);
+    }
+    SchedulerService schedulerService = listenerConnection.getClient().getSchedulerService();
+    postActionScheduler = schedulerService != null
+        ? schedulerService.ioScheduler(config().withMaxConcurrentTasks(1).withName("sftp-post-actions"))
+        : null;
+    postActions = new PostActionExecutor(fileSystemProvider, postActionScheduler != null ? postActionScheduler : Runnable::run);
+  }
+
+  private FileClaims createFileClaims() {
+    if (claimTimeout < 1) {
+      throw new IllegalArgumentException(format("claimTimeout must be greater than zero but was %d", claimTimeout));
+    }
+    long claimTimeoutMillis = claimTimeoutUnit.toMillis(claimTimeout);
+    ObjectStore<String> store = objectStoreManager.getOrCreateObjectStore(CLAIMS_STORE_PREFIX + config.getConfigName(),
+                                                                          ObjectStoreSettings.builder()
+                                                                              .persistent(false)
+                                                                              .entryTtl(claimTimeoutMillis)
+                                                                              .expirationInterval(min(claimTimeoutMillis,
+                                                                                                      MINUTES.toMillis(1)))
+                                                                              .build());
+    return new FileClaims(store, UUID.randomUUID().toString());
   }
 
   @OnSuccess
   public void onSuccess(@ParameterGroup(name = POST_PROCESSING_GROUP_NAME) PostActionGroup postAction,
                         SourceCallbackContext ctx) {
-    ctx.<SftpFileAttributes>getVariable(ATTRIBUTES_CONTEXT_VAR).ifPresent(this::closeConnectionPostAction);
+    ctx.<Lease>getVariable(LEASE_CONTEXT_VAR).ifPresent(Lease::release);
+    ctx.<PolledDirectory>getVariable(DIRECTORY_CONTEXT_VAR).ifPresent(PolledDirectory::fileProcessed);
     postAction(postAction, ctx);
   }
 
   @OnError
   public void onError(@ParameterGroup(name = POST_PROCESSING_GROUP_NAME) PostActionGroup postAction,
                       SourceCallbackContext ctx) {
-    ctx.<SftpFileAttributes>getVariable(ATTRIBUTES_CONTEXT_VAR).ifPresent(this::closeConnectionPostAction);
-    if (postAction.isApplyPostActionWhenFailed()) {
-      postAction(postAction, ctx);
+    ctx.<Lease>getVariable(LEASE_CONTEXT_VAR).ifPresent(Lease::release);
+    ctx.<PolledDirectory>getVariable(DIRECTORY_CONTEXT_VAR).ifPresent(PolledDirectory::fileProcessed);
+    boolean queued = postAction.isApplyPostActionWhenFailed() && postAction(postAction, ctx);
+    if (!queued && fileClaims != null) {
+      // the file is left as it is to be processed again, just like a listener which polls on a single node would
+      ctx.<SftpFileAttributes>getVariable(ATTRIBUTES_CONTEXT_VAR).ifPresent(attrs -> fileClaims.release(attrs.getPath()));
     }
   }
 
@@ -184,130 +420,248 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
     if (pollContext.isSourceStopping()) {
       return;
     }
+    long pollTime = System.nanoTime();
+    if (adaptivePolling != null && !adaptivePolling.isDue(pollTime)) {
+      LOGGER.debug("Skipping poll of directory '{}' since it had no new files recently, it's listed every {} ms",
+                   describeDirectories(), NANOSECONDS.toMillis(adaptivePolling.getInterval()));
+      return;
+    }
     SftpFileSystemConnection fileSystem;
     try {
-      fileSystem = openConnection();
+      fileSystem = getListenerConnection();
     } catch (Exception e) {
-      LOGGER.error(format("Could not obtain connection while trying to poll directory '%s'. %s", directoryUri.getPath(),
+      LOGGER.error(format("Could not obtain connection while trying to poll directory '%s'. %s", describeDirectories(),
                           e.getMessage()),
                    e);
       return;
     }
     SftpFileAttributes attributes = null;
-    boolean canDisconnect = true;
+    boolean failed = false;
     try {
-      Long timeBetweenSizeCheckInMillis =
-          config.getTimeBetweenSizeCheckInMillis(timeBetweenSizeCheck, timeBetweenSizeCheckUnit).orElse(null);
-      List<Result<String, SftpFileAttributes>> files =
-          fileSystem.list(config, directoryUri.getPath(), recursive, fileAttributePredicate, timeBetweenSizeCheckInMillis);
-      if (files.isEmpty()) {
-        return;
-      }
-      canDisconnect = processFiles(files, pollContext, fileSystem, timeBetweenSizeCheckInMillis);
+      pollDirectories(pollContext, fileSystem, pollTime);
     } catch (IllegalPathException ex) {
       LOGGER.debug("The File with attributes {} was polled but not exist anymore", attributes);
     } catch (Exception e) {
       if (isChannelBeingClosed(e)) {
         try {
           fileSystem = cleanUpAndReconnectFilesystem(pollContext, fileSystem);
-          // If reconnection succeeds and files are processed, canDisconnect may change
-          Long timeBetweenSizeCheckInMillis =
-              config.getTimeBetweenSizeCheckInMillis(timeBetweenSizeCheck, timeBetweenSizeCheckUnit).orElse(null);
-          List<Result<String, SftpFileAttributes>> files =
-              fileSystem.list(config, directoryUri.getPath(), recursive, fileAttributePredicate, timeBetweenSizeCheckInMillis);
-          if (!files.isEmpty()) {
-            canDisconnect = processFiles(files, pollContext, fileSystem, timeBetweenSizeCheckInMillis);
-          }
+          pollDirectories(pollContext, fileSystem, pollTime);
         } catch (Exception reconnectError) {
+          failed = true;
           LOGGER.error(format("Failed to reconnect while polling directory '%s'. Will try again on the next poll.",
-                              directoryUri.getPath()),
+                              describeDirectories()),
                        reconnectError.getMessage(), reconnectError);
           extractConnectionException(reconnectError).ifPresent(pollContext::onConnectionException);
         }
       } else {
+        failed = true;
         LOGGER.error(format("Found exception trying to poll directory '%s'. Will try again on the next poll. ",
-                            directoryUri.getPath()),
+                            describeDirectories()),
                      e.getMessage(), e);
         extractConnectionException(e).ifPresent(pollContext::onConnectionException);
       }
     } finally {
-      if (canDisconnect) {
-        LOGGER.debug("Closing the connection since no file is in ACCEPTED state.");
-        fileSystemProvider.disconnect(fileSystem);
+      if (failed) {
+        LOGGER.debug("Discarding the listener connection since the poll failed, a new one is opened on the next poll.");
+        discardListenerConnection(fileSystem);
+      }
+      connectionLeases.detectLeaks();
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Listener of directory '{}' has {}", describeDirectories(), connectionLeases);
       }
     }
   }
 
+  private void pollDirectories(PollContext<InputStream, SftpFileAttributes> pollContext, SftpFileSystemConnection fileSystem,
+                               long pollTime)
+      throws IOException {
+    ZonedDateTime directoryTimestamp = null;
+    if (adaptivePolling != null && checkDirectoryModification && !recursive && polledDirectories.size() == 1) {
+      SftpFileAttributes directoryAttributes = fileSystem.getClient().getAttributes(polledDirectories.get(0).getUri());
+      directoryTimestamp = directoryAttributes != null ? directoryAttributes.getTimestamp() : null;
+      if (adaptivePolling.isUnchanged(directoryTimestamp, pollTime)) {
+        LOGGER.debug("Skipping listing of directory '{}' since it's still empty and it wasn't modified", describeDirectories());
+        adaptivePolling.polled(false);
+        return;
+      }
+    }
+    Long timeBetweenSizeCheckInMillis =
+        config.getTimeBetweenSizeCheckInMillis(timeBetweenSizeCheck, timeBetweenSizeCheckUnit).orElse(null);
+    boolean fullScan = pollsSinceFullScan == 0;
+    int listed = 0;
+    int dispatched = 0;
+    try {
+      for (PolledDirectory polledDirectory : directoryScheduler.startPoll(maxFilesPerPoll)) {
+        if (pollContext.isSourceStopping()) {
+          break;
+        }
+        Integer limit = directoryScheduler.getLimit(polledDirectory);
+        if (limit != null && limit == 0) {
+          LOGGER.debug("Skipping directory {} since it can't dispatch more files on this poll", polledDirectory);
+          directoryScheduler.polled(polledDirectory, 0);
+          continue;
+        }
+        FileDispatcher dispatcher =
+            new FileDispatcher(pollContext, fileSystem, timeBetweenSizeCheckInMillis, polledDirectory, limit);
+        new OnNewFileCommand(fileSystem).walk(polledDirectory.getPath(), recursive, fileAttributePredicate,
+                                              polledDirectory.getSnapshots(), fullScan, dispatcher);
+        dispatcher.dispatchPending();
+        directoryScheduler.polled(polledDirectory, dispatcher.dispatched);
+        listed += dispatcher.listed;
+        dispatched += dispatcher.dispatched;
+      }
+    } finally {
+      directoryScheduler.finishPoll();
+    }
+    if (recursive && skipUnchangedDirectories) {
+      // a walk which fails doesn't count, so the full scan is attempted again
+      pollsSinceFullScan = (pollsSinceFullScan + 1) % pollsBetweenFullScans;
+    }
+    if (adaptivePolling != null) {
+      adaptivePolling.listed(directoryTimestamp, listed == 0, pollTime);
+      adaptivePolling.polled(dispatched > 0);
+    }
+  }
+
   private boolean isChannelBeingClosed(Exception e) {
     return e.getCause() instanceof SshException && e.getCause().getMessage().contains("Channel is being closed");
   }
 
-  @SuppressWarnings("java:S3655")
-  private boolean processFiles(List<Result<String, SftpFileAttributes>> files,
-                               PollContext<InputStream, SftpFileAttributes> pollContext,
-                               SftpFileSystemConnection fileSystem,
-                               Long timeBetweenSizeCheckInMillis) {
-    SftpFileAttributes attributes = null;
-    boolean canDisconnect = true;
+  private Comparator<SftpFileAttributes> getProcessingOrder() {
+    switch (processingOrder) {
+      case OLDEST_FIRST:
+        return comparing(SftpFileAttributes::getTimestamp, nullsFirst(Comparator.<ZonedDateTime>naturalOrder()));
+      case SMALLEST_FIRST:
+        return comparingLong(SftpFileAttributes::getSize);
+      default:
+        return null;
+    }
+  }
 
-    for (Result<String, SftpFileAttributes> file : files) {
-      if (pollContext.isSourceStopping()) {
-        return canDisconnect;
-      }
+  /**
+   * Receives the matching files and directories found by a poll's walk. In {@link FileProcessingOrder#LISTING} order each file
+   * is dispatched as soon as it's listed, otherwise the files are kept until the walk finished and then dispatched in order. The
+   * walk is stopped once the directory dispatched as many files as it could on this poll or the source is stopping.
+   */
+  private final class FileDispatcher implements Predicate<SftpFileAttributes> {
+
+    private final PollContext<InputStream, SftpFileAttributes> pollContext;
+    private final SftpFileSystemConnection fileSystem;
+    private final Long timeBetweenSizeCheckInMillis;
+    private final PolledDirectory polledDirectory;
+    private final Integer limit;
+    private final Comparator<SftpFileAttributes> order = getProcessingOrder();
+    private final List<SftpFileAttributes> pending = new ArrayList<>();
+    private int listed;
+    private int dispatched;
+
+    private FileDispatcher(PollContext<InputStream, SftpFileAttributes> pollContext, SftpFileSystemConnection fileSystem,
+                           Long timeBetweenSizeCheckInMillis, PolledDirectory polledDirectory, Integer limit) {
+      this.pollContext = pollContext;
+      this.fileSystem = fileSystem;
+      this.timeBetweenSizeCheckInMillis = timeBetweenSizeCheckInMillis;
+      this.polledDirectory = polledDirectory;
+      this.limit = limit;
+    }
 
-      if (!hasAttributes(file)) {
-        continue;
+    /**
+     * @return whether the file was claimed by this node and it still exists, since another node might have processed it since
+     *         it was listed
+     */
+    private boolean claim(SftpFileAttributes attributes) {
+      String path = attributes.getPath();
+      if (!fileClaims.claim(path)) {
+        LOGGER.debug("Skipping file '{}' because it was claimed by another node", path);
+        return false;
       }
-
-      attributes = file.getAttributes().get();
-
-      if (shouldSkipFile(attributes)) {
-        continue;
+      SftpFileAttributes currentAttributes;
+      try {
+        currentAttributes = fileSystem.getClient().getAttributes(createUri(path));
+      } catch (IOException | RuntimeException e) {
+        fileClaims.release(path);
+        throw new MuleRuntimeException(createStaticMessage(format("Could not check whether file '%s' still exists", path)), e);
       }
-
-      Result<InputStream, SftpFileAttributes> result =
-          fileSystem.read(config, attributes.getPath(), true, timeBetweenSizeCheckInMillis);
-      PollItemStatus pollItemStatus = processFile(result, pollContext);
-
-      if (canDisconnect && pollItemStatus == PollItemStatus.ACCEPTED) {
-        LOGGER.debug("The file {} is in ACCEPTED state", attributes.getFileName());
-        canDisconnect = false;
+      if (currentAttributes == null) {
+        LOGGER.debug("Skipping file '{}' because it was processed by another node since it was listed", path);
+        fileClaims.release(path);
+        return false;
       }
+      return true;
+    }
 
-      if (pollItemStatus == SOURCE_STOPPING) {
-        break;
+    @Override
+    public boolean test(SftpFileAttributes attributes) {
+      listed++;
+      if (attributes.isDirectory()) {
+        return true;
       }
-
-      updateConnectionMaps(attributes.getPath(), fileSystem, pollItemStatus);
+      if (postActions.isPending(attributes.getPath())) {
+        LOGGER.debug("Skipping file '{}' because its post processing action is yet to be applied", attributes.getPath());
+        return true;
+      }
+      if (order != null) {
+        pending.add(attributes);
+        return true;
+      }
+      return dispatch(attributes);
     }
 
-    return canDisconnect;
-  }
-
-  private boolean hasAttributes(Result<String, SftpFileAttributes> file) {
-    if (!file.getAttributes().isPresent()) {
-      if (LOGGER.isWarnEnabled()) {
-        LOGGER.warn("Skipping file because attributes are not present. " +
-            "Please check your server for errors or try enabling MDTM.");
+    /**
+     * Dispatches the files kept by the walk, in order, when the processing order isn't the listing one
+     */
+    private void dispatchPending() {
+      if (pending.isEmpty()) {
+        return;
+      }
+      pending.sort(order);
+      for (SftpFileAttributes attributes : pending) {
+        if (!dispatch(attributes)) {
+          break;
+        }
       }
-      return false;
+      pending.clear();
     }
-    return true;
-  }
 
-  private boolean shouldSkipFile(SftpFileAttributes attributes) {
-    if (attributes.isDirectory()) {
-      return true;
-    }
+    /**
+     * @return whether more files can be dispatched by this poll
+     */
+    private boolean dispatch(SftpFileAttributes attributes) {
+      if (pollContext.isSourceStopping()) {
+        return false;
+      }
+      if (fileClaims != null && !claim(attributes)) {
+        return true;
+      }
+      PollItemStatus pollItemStatus;
+      try {
+        // the attributes obtained by the listing are used as they are, instead of fetching them again for each file
+        Result<InputStream, SftpFileAttributes> result = contentPermits != null
+            ? fileSystem.getReadCommand().read(config, attributes, true, timeBetweenSizeCheckInMillis, contentPermits)
+            : fileSystem.getReadCommand().read(config, attributes, true, timeBetweenSizeCheckInMillis, true);
+        pollItemStatus = processFile(result, pollContext, fileSystem, polledDirectory);
+      } catch (RuntimeException e) {
+        if (fileClaims != null) {
+          fileClaims.release(attributes.getPath());
+        }
+        throw e;
+      }
+      // only accepted files get their onSuccess or onError callback invoked
+      if (fileClaims != null && pollItemStatus != PollItemStatus.ACCEPTED) {
+        fileClaims.release(attributes.getPath());
+      }
 
-    if (!fileAttributePredicate.test(attributes)) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Skipping file '{}' because the matcher rejected it", attributes.getPath());
+      if (pollItemStatus == PollItemStatus.ACCEPTED) {
+        polledDirectory.fileDispatched();
+        dispatched++;
+      } else if (pollItemStatus == SOURCE_STOPPING) {
+        return false;
+      }
+      if (limit != null && dispatched >= limit) {
+        LOGGER.debug("Poll of directory {} reached its limit of {} files", polledDirectory, limit);
+        return false;
       }
       return true;
     }
-
-    return false;
   }
 
   private void refreshMatcher() {
@@ -317,33 +671,91 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
   private SftpFileSystemConnection openConnection()
       throws ConnectionException {
     SftpFileSystemConnection fileSystem = fileSystemProvider.connect();
-    fileSystem.changeToBaseDir();
+    connectionLeases.register(fileSystem);
+    try {
+      fileSystem.changeToBaseDir();
+    } catch (RuntimeException e) {
+      connectionLeases.retire(fileSystem);
+      throw e;
+    }
     return fileSystem;
   }
 
+  /**
+   * Returns the {@link #listenerConnection}, opening a new one if there's none or if its session was closed. The check doesn't
+   * reach the server, a connection which is broken in a way the client didn't notice makes the poll fail and gets replaced on the
+   * next one.
+   */
+  private SftpFileSystemConnection getListenerConnection() throws ConnectionException {
+    SftpFileSystemConnection fileSystem = listenerConnection;
+    if (fileSystem != null) {
+      if (fileSystem.getClient().isConnected()) {
+        return fileSystem;
+      }
+      // the directories are still being resolved when the source starts
+      LOGGER.debug("The listener connection for directory '{}' was closed, opening a new one.",
+                   polledDirectories != null ? describeDirectories() : directory);
+      discardListenerConnection(fileSystem);
+    }
+    fileSystem = openConnection();
+    listenerConnection = fileSystem;
+    return fileSystem;
+  }
+
+  /**
+   * Stops using the given connection for polling. It's disconnected right away unless there are files read from it which haven't
+   * finished being processed, in which case the post action of the last one disconnects it.
+   */
+  private void discardListenerConnection(SftpFileSystemConnection fileSystem) {
+    if (listenerConnection == fileSystem) {
+      listenerConnection = null;
+    }
+    connectionLeases.retire(fileSystem);
+  }
+
 
   private PollItemStatus processFile(Result<InputStream, SftpFileAttributes> file,
-                                     PollContext<InputStream, SftpFileAttributes> pollContext) {
+                                     PollContext<InputStream, SftpFileAttributes> pollContext,
+                                     SftpFileSystemConnection fileSystem, PolledDirectory polledDirectory) {
     SftpFileAttributes attributes = file.getAttributes().get();
     String fullPath = attributes.getPath();
     if (LOGGER.isTraceEnabled()) {
       LOGGER.trace("Processing file {}", attributes);
     }
-    PollItemStatus status = pollContext.accept(item -> {
-      final SourceCallbackContext ctx = item.getSourceCallbackContext();
-      try {
-        ctx.addVariable(ATTRIBUTES_CONTEXT_VAR, attributes);
-        item.setResult(file).setId(attributes.getPath());
+    // unless files are read over their own connections, the file's content is streamed from the poll connection, so it has to
+    // stay open until the file is processed
+    Lease lease = contentPermits == null ? connectionLeases.acquire(fileSystem, fullPath) : null;
+    PollItemStatus status;
+    try {
+      status = pollContext.accept(item -> {
+        final SourceCallbackContext ctx = item.getSourceCallbackContext();
+        try {
+          ctx.addVariable(ATTRIBUTES_CONTEXT_VAR, attributes);
+          ctx.addVariable(DIRECTORY_CONTEXT_VAR, polledDirectory);
+          if (lease != null) {
+            ctx.addVariable(LEASE_CONTEXT_VAR, lease);
+          }
+          item.setResult(file).setId(attributes.getPath());
 
-        if (watermarkEnabled) {
-          item.setWatermark(attributes.getTimestamp());
+          if (watermarkEnabled) {
+            item.setWatermark(attributes.getTimestamp());
+          }
+        } catch (Exception e) {
+          I18nMessage message =
+              createStaticMessage(format("Found file '%s' but found exception trying to dispatch it for processing", fullPath));
+          throw new MuleRuntimeException(message, e);
         }
-      } catch (Exception e) {
-        I18nMessage message =
-            createStaticMessage(format("Found file '%s' but found exception trying to dispatch it for processing", fullPath));
-        throw new MuleRuntimeException(message, e);
+      });
+    } catch (RuntimeException e) {
+      if (lease != null) {
+        lease.release();
       }
-    });
+      throw e;
+    }
+    // only accepted files get their onSuccess or onError callback invoked
+    if (lease != null && status != PollItemStatus.ACCEPTED) {
+      lease.release();
+    }
 
     LOGGER.debug("The status of file {} is {}", file.getAttributes().get().getFileName(), status);
     return status;
@@ -354,68 +766,106 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
     closeQuietly(result.getOutput());
   }
 
-  private void postAction(PostActionGroup postAction, SourceCallbackContext ctx) {
-    ctx.<SftpFileAttributes>getVariable(ATTRIBUTES_CONTEXT_VAR).ifPresent(attrs -> {
-      LOGGER.debug("PostAction getting called for file {}", attrs.getPath());
-      SftpFileSystemConnection fileSystem = null;
-      try {
-        fileSystem = fileSystemProvider.connect();
-        fileSystem.changeToBaseDir();
-        postAction.apply(fileSystem, attrs, config);
-      } catch (ConnectionException e) {
-        LOGGER
-            .error(String
-                .format("An error occurred while retrieving a connection to apply the post processing action to the file %s , it was neither moved nor deleted.",
-                        attrs.getPath()));
-      } finally {
-        if (fileSystem != null) {
-          LOGGER.debug("Post action is invoked and closing the connection for file {}", attrs.getFileName());
-          fileSystemProvider.disconnect(fileSystem);
-        }
-      }
-    });
+  /**
+   * @return whether the post processing action was queued, {@code false} if it leaves the file as it is
+   */
+  private boolean postAction(PostActionGroup postAction, SourceCallbackContext ctx) {
+    return ctx.<SftpFileAttributes>getVariable(ATTRIBUTES_CONTEXT_VAR).map(attrs -> {
+      LOGGER.debug("Queueing the post processing action of file {}", attrs.getPath());
+      return fileClaims != null
+          ? postActions.submit(postAction, attrs, () -> fileClaims.release(attrs.getPath()))
+          : postActions.submit(postAction, attrs, () -> {
+          });
+    }).orElse(false);
   }
 
   @Override
   protected void doStop() {
-    // Does Nothing
+    postActions.close();
+    if (postActionScheduler != null) {
+      postActionScheduler.stop();
+    }
+    SftpFileSystemConnection fileSystem = listenerConnection;
+    if (fileSystem != null) {
+      discardListenerConnection(fileSystem);
+    }
   }
 
-  private URI resolveRootPath() {
-    SftpFileSystemConnection fileSystem = null;
-    try {
-      fileSystem = fileSystemProvider.connect();
-      fileSystem.changeToBaseDir();
-      URI rootPath = new OnNewFileCommand(fileSystem).resolveRootPath(directory);
-      fileSystemProvider.disconnect(fileSystem);
-      return rootPath;
-    } catch (Exception e) {
-      I18nMessage message = createStaticMessage(
-                                                format("Could not resolve path to directory '%s'. %s",
-                                                       directory, e.getMessage()));
-      throw new MuleRuntimeException(message, e);
+  private List<PolledDirectory> resolveDirectories() {
+    List<PolledDirectory> resolved = new ArrayList<>();
+    // the working directory is only polled by default when no directory was set at all
+    if (directory != null || directories == null || directories.isEmpty()) {
+      resolved.add(resolveDirectory(directory, 1, null));
+    }
+    if (directories != null) {
+      for (WatchedDirectory watchedDirectory : directories) {
+        if (watchedDirectory.getWeight() < 1) {
+          throw new IllegalArgumentException(format("The weight of directory '%s' must be greater than zero but was %d",
+                                                    watchedDirectory.getPath(), watchedDirectory.getWeight()));
+        }
+        Integer maxFilesInFlight = watchedDirectory.getMaxFilesInFlight();
+        if (maxFilesInFlight != null && maxFilesInFlight < 1) {
+          throw new IllegalArgumentException(format("The maxFilesInFlight of directory '%s' must be greater than zero but was %d",
+                                                    watchedDirectory.getPath(), maxFilesInFlight));
+        }
+        resolved.add(resolveDirectory(watchedDirectory.getPath(), watchedDirectory.getWeight(), maxFilesInFlight));
+      }
     }
+    checkNoOverlap(resolved, recursive);
+    return resolved;
   }
 
-  private void closeConnectionPostAction(FileAttributes attributes) {
-    SftpFileSystemConnection connection = OPEN_CONNECTIONS.get(attributes.getPath());
-    if (connection != null) {
-      int frequency = FREQUENCY_OF_OPEN_CONNECTION.getOrDefault(connection, 0);
-      LOGGER.debug("The frequency of the connection {} is {}", connection, frequency);
-      if (frequency > 1) {
-        FREQUENCY_OF_OPEN_CONNECTION.put(connection, frequency - 1);
-      } else {
-        fileSystemProvider.disconnect(connection);
-        FREQUENCY_OF_OPEN_CONNECTION.remove(connection);
+  /**
+   * Checks that no file can be found in two of the given {@code directories}, which would then dispatch it twice
+   *
+   * @param directories the directories to poll
+   * @param recursive   whether the sub directories are polled too, so no directory may be nested in another one
+   * @throws IllegalArgumentException if a directory is repeated, or nested in another one when {@code recursive}
+   */
+  static void checkNoOverlap(List<PolledDirectory> directories, boolean recursive) {
+    for (int i = 0; i < directories.size(); i++) {
+      String path = directories.get(i).getPath();
+      for (int j = i + 1; j < directories.size(); j++) {
+        String other = directories.get(j).getPath();
+        if (path.equals(other)) {
+          throw new IllegalArgumentException(format("Directory '%s' is watched more than once", path));
+        }
+        if (recursive && (isNested(path, other) || isNested(other, path))) {
+          throw new IllegalArgumentException(format("Directories '%s' and '%s' overlap, a recursive listener can't watch a "
+              + "directory nested in another one", path, other));
+        }
       }
-      OPEN_CONNECTIONS.remove(attributes.getPath());
     }
   }
 
-  private void updateConnectionMaps(String filepath, SftpFileSystemConnection fileSystem, PollItemStatus pollItemStatus) {
-    if (pollItemStatus == PollItemStatus.ACCEPTED) {
-      FREQUENCY_OF_OPEN_CONNECTION.put(fileSystem, FREQUENCY_OF_OPEN_CONNECTION.getOrDefault(fileSystem, 0) + 1);
-      OPEN_CONNECTIONS.put(filepath, fileSystem);
+  private static boolean isNested(String parent, String child) {
+    return child.startsWith(parent.endsWith("/") ? parent : parent + "/");
+  }
+
+  private PolledDirectory resolveDirectory(String path, int weight, Integer maxFilesInFlight) {
+    URI uri = resolveRootPath(path);
+    return new PolledDirectory(uri, weight, maxFilesInFlight,
+                               recursive && skipUnchangedDirectories ? new DirectorySnapshots() : null);
+  }
+
+  private String describeDirectories() {
+    return polledDirectories.size() == 1 ? polledDirectories.get(0).getPath()
+        : polledDirectories.stream().map(PolledDirectory::getPath).collect(joining("', '"));
+  }
+
+  private URI resolveRootPath(String path) {
+    SftpFileSystemConnection fileSystem = null;
+    try {
+      fileSystem = getListenerConnection();
+      return new OnNewFileCommand(fileSystem).resolveRootPath(path);
+    } catch (Exception e) {
+      if (fileSystem != null) {
+        discardListenerConnection(fileSystem);
+      }
+      I18nMessage message = createStaticMessage(
+                                                format("Could not resolve path to directory '%s'. %s",
+                                                       path, e.getMessage()));
+      throw new MuleRuntimeException(message, e);
     }
   }
 
@@ -424,9 +874,11 @@ public class SftpDirectorySource extends PollingSource<InputStream, SftpFileAttr
                                                                  SftpFileSystemConnection fileSystem)
       throws ConnectionException {
     LOGGER.warn("SFTP channel is closed. Attempting to reconnect and retry...");
-    // Disconnect and cleanup
-    fileSystem.disconnect();
-    // Get a new connection and return it
-    return openConnection();
+    // the lease registry disconnects it once the files still being processed from it are done
+    discardListenerConnection(fileSystem);
+    // Get a new connection and keep polling through it
+    SftpFileSystemConnection newFileSystem = openConnection();
+    listenerConnection = newFileSystem;
+    return newFileSystem;
   }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An {@link InputStream} which reads its delegate ahead on another thread, into a bounded ring of reusable buffers. Reading
+ * the delegate then overlaps with whatever the consumer does with the content already read, instead of both waiting for each
+ * other.
+ * <p>
+ * At most {@code bufferCount} buffers of {@code bufferSize} bytes are allocated. A buffer goes back to the reader as soon as
+ * the consumer is done with it, so the reader stalls when the consumer is slower.
+ *
+ * @since 2.5
+ */
+public class ReadAheadInputStream extends InputStream {
+
+  private final InputStream delegate;
+  private final BlockingQueue<byte[]> freeBuffers;
+  private final BlockingQueue<Chunk> filledChunks;
+  private final Future<?> reader;
+
+  private Chunk current;
+  private int position;
+  private boolean endOfStream;
+  private IOException failure;
+  private volatile boolean closed;
+
+  /**
+   * Creates a new instance and starts reading ahead right away
+   *
+   * @param delegate    the stream to read ahead
+   * @param executor    the executor on which {@code delegate} is read
+   * @param bufferCount the amount of buffers which can be filled ahead of the consumer
+   * @param bufferSize  the size of each buffer
+   */
+  public ReadAheadInputStream(InputStream delegate, ExecutorService executor, int bufferCount, int bufferSize) {
+    this.delegate = delegate;
+    this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+    for (int i = 0; i < bufferCount; i++) {
+      freeBuffers.add(new byte[bufferSize]);
+    }
+    // one extra slot so the end of the stream, or a failure, always fits
+    this.filledChunks = new ArrayBlockingQueue<>(bufferCount + 1);
+    this.reader = executor.submit(this::readAhead);
+  }
+
+  private void readAhead() {
+    // unless the reader gets to the end, or knows why it stops, the consumer is told it stopped unexpectedly
+    Chunk last = new Chunk(null, -1, new IOException("Reading ahead the content stopped unexpectedly"));
+    try {
+      while (!closed) {
+        byte[] buffer = freeBuffers.take();
+        if (closed) {
+          break;
+        }
+        int read = delegate.read(buffer);
+        if (read == -1) {
+          break;
+        }
+        filledChunks.put(new Chunk(buffer, read, null));
+      }
+      last = Chunk.END;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      last = new Chunk(null, -1, new InterruptedIOException("Interrupted while reading ahead the content"));
+    } catch (IOException | RuntimeException e) {
+      last = new Chunk(null, -1, e);
+    } finally {
+      // the extra slot of the queue always has room for it, so the consumer never waits for a chunk which won't come
+      filledChunks.offer(last);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    int read = read(b, 0, 1);
+    return read == -1 ? -1 : b[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    if (len == 0) {
+      return 0;
+    }
+    while (current == null || position == current.length) {
+      if (endOfStream) {
+        return -1;
+      }
+      if (current != null) {
+        freeBuffers.offer(current.buffer);
+        current = null;
+      }
+      Chunk next = nextChunk();
+      if (next.failure != null) {
+        failure = next.failure instanceof IOException ? (IOException) next.failure
+            : new IOException("Could not read ahead the content", next.failure);
+        throw failure;
+      }
+      if (next == Chunk.END) {
+        endOfStream = true;
+        return -1;
+      }
+      current = next;
+      position = 0;
+    }
+
+    int read = Math.min(len, current.length - position);
+    System.arraycopy(current.buffer, position, b, off, read);
+    position += read;
+    return read;
+  }
+
+  private Chunk nextChunk() throws InterruptedIOException {
+    try {
+      return filledChunks.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the content to be read");
+    }
+  }
+
+  @Override
+  public int available() throws IOException {
+    return current == null ? 0 : current.length - position;
+  }
+
+  /**
+   * Stops reading ahead and closes the delegate stream. The reader is told to stop rather than interrupted, and the delegate is
+   * closed only once the read in progress, if any, is over, so that it's never closed under a read.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    // wakes the reader up if it's waiting for a free buffer, the queue has room then
+    freeBuffers.offer(new byte[0]);
+    try {
+      reader.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | CancellationException e) {
+      // the reader already stopped, the delegate can be closed all the same
+    } finally {
+      delegate.close();
+    }
+  }
+
+  private static final class Chunk {
+
+    private static final Chunk END = new Chunk(null, -1, null);
+
+    private final byte[] buffer;
+    private final int length;
+    private final Exception failure;
+
+    private Chunk(byte[] buffer, int length, Exception failure) {
+      this.buffer = buffer;
+      this.length = length;
+      this.failure = failure;
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The tasks an operation runs on an executor to do its work concurrently. Since those tasks use connections and state owned by
+ * the operation, none of them may still be running once the operation completes, whether it succeeds or fails.
+ * <p>
+ * Tasks are stopped cooperatively: the ones which didn't start yet are dropped, and the running ones are expected to notice the
+ * abort signal of the operation and return after their current item, so they are never interrupted in the middle of a request
+ * over a connection that is going back to its pool. Only when the waiting thread is interrupted are the running tasks
+ * interrupted too.
+ *
+ * @since 2.5
+ */
+public final class ConcurrentTasks {
+
+  private final Executor executor;
+  private final List<Task> tasks = new ArrayList<>();
+
+  public ConcurrentTasks(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Submits a task to the executor.
+   *
+   * @param task the task to run
+   */
+  public void submit(Runnable task) {
+    Task submitted = new Task(task);
+    tasks.add(submitted);
+    executor.execute(submitted);
+  }
+
+  /**
+   * @return whether the tasks won't make any more progress, because every one of them is over or one of them failed
+   */
+  public boolean isDone() {
+    boolean allOver = true;
+    for (Task task : tasks) {
+      if (task.failure != null) {
+        return true;
+      }
+      allOver &= task.finished.getCount() == 0;
+    }
+    return allOver;
+  }
+
+  /**
+   * Waits for every submitted task to be over. When a task fails, or the waiting thread is interrupted, {@code onFailure} is run
+   * so the running tasks stop at their next check, the tasks which didn't start yet are dropped and the running ones are still
+   * waited for.
+   *
+   * @param onFailure signals the running tasks to stop
+   * @return the first failure, with the later ones attached as suppressed, or {@code null} if every task completed. If the
+   *         waiting thread was interrupted, it is an {@link InterruptedException} and the interrupt flag is set again.
+   */
+  public Throwable awaitAll(Runnable onFailure) {
+    for (Task task : tasks) {
+      try {
+        task.await();
+      } catch (InterruptedException e) {
+        onFailure.run();
+        tasks.forEach(Task::interrupt);
+        return merge(e, cancelAll());
+      }
+      if (task.failure != null) {
+        onFailure.run();
+        return cancelAll();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drops the tasks which didn't start yet and waits for the running ones, which are expected to have been signaled to stop.
+   *
+   * @return the first failure of the tasks, with the later ones attached as suppressed, or {@code null} if none failed
+   */
+  public Throwable cancelAll() {
+    boolean interrupted = false;
+    Throwable failure = null;
+    for (Task task : tasks) {
+      if (task.drop()) {
+        continue;
+      }
+      while (true) {
+        try {
+          task.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+          tasks.forEach(Task::interrupt);
+        }
+      }
+      failure = merge(failure, task.failure);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    return failure;
+  }
+
+  private static Throwable merge(Throwable first, Throwable next) {
+    if (first == null) {
+      return next;
+    }
+    if (next != null && next != first) {
+      first.addSuppressed(next);
+    }
+    return first;
+  }
+
+  private static final class Task implements Runnable {
+
+    private final Runnable delegate;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Thread thread;
+    private volatile Throwable failure;
+
+    private Task(Runnable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void run() {
+      if (!started.compareAndSet(false, true)) {
+        return;
+      }
+      thread = Thread.currentThread();
+      try {
+        delegate.run();
+      } catch (Throwable t) {
+        failure = t;
+      } finally {
+        thread = null;
+        finished.countDown();
+      }
+    }
+
+    private boolean drop() {
+      if (started.compareAndSet(false, true)) {
+        finished.countDown();
+        return true;
+      }
+      return false;
+    }
+
+    private void await() throws InterruptedException {
+      finished.await();
+    }
+
+    private void interrupt() {
+      Thread running = thread;
+      if (running != null) {
+        running.interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.util;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Matches names against a glob pattern directly on their characters, without translating the pattern to a regex nor allocating
+ * anything per name.
+ * <p>
+ * It supports the same syntax as {@link UriUtils#toRegexPattern(String)}: {@code *} and {@code ?} which don't match the
+ * {@code /} separator, {@code **} which does, character classes such as {@code [a-z]} or {@code [!0-9]}, {@code {a,b}} groups
+ * and escaping with {@code \}. Names are matched with the same results as the regex made by that method, including ASCII only
+ * case insensitivity. Patterns which that method rejects, or whose translation has corner cases this matcher doesn't reproduce,
+ * such as empty or malformed character classes, are not compiled so the caller can fall back to the regex.
+ *
+ * @since 2.5
+ */
+public final class GlobMatcher implements Predicate<String> {
+
+  private static final int LITERAL = 0;
+  private static final int ANY_CHAR = 1;
+  private static final int CHAR_CLASS = 2;
+  private static final int STAR = 3;
+  private static final int DOUBLE_STAR = 4;
+
+  private static final int MAX_ALTERNATIVES = 64;
+
+  private final Sequence[] alternatives;
+  private final boolean caseSensitive;
+  private final boolean matchBeforeFinalLineTerminator;
+
+  private GlobMatcher(List<Sequence> alternatives, boolean caseSensitive, boolean matchBeforeFinalLineTerminator) {
+    this.alternatives = alternatives.toArray(new Sequence[0]);
+    this.caseSensitive = caseSensitive;
+    this.matchBeforeFinalLineTerminator = matchBeforeFinalLineTerminator;
+  }
+
+  /**
+   * @param glob                           a glob pattern, without the {@code glob:} prefix
+   * @param caseSensitive                  whether ASCII letters are matched case sensitively
+   * @param matchBeforeFinalLineTerminator whether a name which ends with a line terminator also matches when the rest of it does,
+   *                                       like the {@code $} anchor of a regex does
+   * @return the compiled matcher, or {@link Optional#empty()} if the pattern isn't supported
+   */
+  public static Optional<GlobMatcher> compile(String glob, boolean caseSensitive, boolean matchBeforeFinalLineTerminator) {
+    List<Sequence> alternatives = new Parser(glob).parse();
+    return alternatives != null ? of(new GlobMatcher(alternatives, caseSensitive, matchBeforeFinalLineTerminator)) : empty();
+  }
+
+  @Override
+  public boolean test(String name) {
+    int length = name.length();
+    if (matches(name, length)) {
+      return true;
+    }
+    if (!matchBeforeFinalLineTerminator || length == 0) {
+      return false;
+    }
+    char last = name.charAt(length - 1);
+    if (last == '\n') {
+      // no match is possible between \r and \n
+      if (length > 1 && name.charAt(length - 2) == '\r') {
+        return matches(name, length - 2);
+      }
+      return matches(name, length - 1);
+    }
+    return isLineTerminator(last) && matches(name, length - 1);
+  }
+
+  private boolean matches(String name, int end) {
+    for (Sequence alternative : alternatives) {
+      if (endsWithSuffix(alternative, name, end) && matches(alternative, 0, name, 0, end)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // most names of a listing are told apart by their extension, so it's checked before anything else
+  private boolean endsWithSuffix(Sequence sequence, String name, int end) {
+    int start = sequence.types.length - sequence.suffixLength;
+    int offset = end - sequence.suffixLength;
+    if (offset < 0) {
+      return false;
+    }
+    for (int i = 0; i < sequence.suffixLength; i++) {
+      if (!sameChar(sequence.literals[start + i], name.charAt(offset + i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matches(Sequence sequence, int token, String name, int index, int end) {
+    while (token < sequence.types.length) {
+      switch (sequence.types[token]) {
+        case LITERAL:
+          if (index == end || !sameChar(sequence.literals[token], name.charAt(index))) {
+            return false;
+          }
+          index++;
+          break;
+        case ANY_CHAR:
+        case CHAR_CLASS:
+          if (index == end) {
+            return false;
+          }
+          int codePoint = name.codePointAt(index);
+          if (codePoint == '/'
+              || sequence.types[token] == CHAR_CLASS && !sequence.classes[token].matches(codePoint, caseSensitive)) {
+            return false;
+          }
+          index += Character.charCount(codePoint);
+          break;
+        default:
+          return matchesStar(sequence, token, name, index, end);
+      }
+      token++;
+    }
+    return index == end;
+  }
+
+  private boolean matchesStar(Sequence sequence, int token, String name, int index, int end) {
+    boolean crossesSeparators = sequence.types[token] == DOUBLE_STAR;
+    int tail = sequence.literalTails[token + 1];
+    if (tail >= 0) {
+      // only literals follow, so the star has to take everything up to them
+      int tailStart = end - tail;
+      if (tailStart < index) {
+        return false;
+      }
+      for (int i = index; i < tailStart; i++) {
+        if (!starMatches(name.charAt(i), crossesSeparators)) {
+          return false;
+        }
+      }
+      return matches(sequence, token + 1, name, tailStart, end);
+    }
+    // when a literal follows, the rest of the sequence is only tried where it's found
+    boolean literalFollows = sequence.types[token + 1] == LITERAL;
+    char literal = sequence.literals[token + 1];
+    for (int i = index;;) {
+      if ((!literalFollows || i < end && sameChar(literal, name.charAt(i))) && matches(sequence, token + 1, name, i, end)) {
+        return true;
+      }
+      if (i == end) {
+        return false;
+      }
+      char c = name.charAt(i++);
+      if (!starMatches(c, crossesSeparators)) {
+        return false;
+      }
+      // the star takes whole code points, like the regex does
+      if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(name.charAt(i))) {
+        i++;
+      }
+    }
+  }
+
+  private static boolean starMatches(char c, boolean crossesSeparators) {
+    return crossesSeparators ? !isLineTerminator(c) : c != '/';
+  }
+
+  private boolean sameChar(char expected, char actual) {
+    return expected == actual || !caseSensitive && toLowerCase(expected) == toLowerCase(actual);
+  }
+
+  static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static int toLowerCase(int c) {
+    return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+  }
+
+  private static int toUpperCase(int c) {
+    return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+  }
+
+  /**
+   * The tokens of one of the alternatives the {@code {a,b}} groups of a pattern expand to
+   */
+  private static final class Sequence {
+
+    private final int[] types;
+    private final char[] literals;
+    private final CharClass[] classes;
+    /**
+     * For each token, how many characters the rest of the sequence matches if it's made of literals only, or -1
+     */
+    private final int[] literalTails;
+    /**
+     * How many literals the sequence ends with
+     */
+    private final int suffixLength;
+
+    private Sequence(List<Token> tokens) {
+      int size = tokens.size();
+      types = new int[size];
+      literals = new char[size];
+      classes = new CharClass[size];
+      literalTails = new int[size + 1];
+      for (int i = size - 1; i >= 0; i--) {
+        Token token = tokens.get(i);
+        types[i] = token.type;
+        literals[i] = token.literal;
+        classes[i] = token.charClass;
+        literalTails[i] = token.type == LITERAL && literalTails[i + 1] >= 0 ? literalTails[i + 1] + 1 : -1;
+      }
+      int suffix = 0;
+      while (suffix < size && types[size - 1 - suffix] == LITERAL) {
+        suffix++;
+      }
+      suffixLength = suffix;
+    }
+  }
+
+  private static final class Token {
+
+    private final int type;
+    private final char literal;
+    private final CharClass charClass;
+
+    private Token(int type, char literal, CharClass charClass) {
+      this.type = type;
+      this.literal = literal;
+      this.charClass = charClass;
+    }
+  }
+
+  private static final class CharClass {
+
+    private final boolean negated;
+    private final char[] from;
+    private final char[] to;
+
+    private CharClass(boolean negated, List<Character> from, List<Character> to) {
+      this.negated = negated;
+      this.from = new char[from.size()];
+      this.to = new char[to.size()];
+      for (int i = 0; i < from.size(); i++) {
+        this.from[i] = from.get(i);
+        this.to[i] = to.get(i);
+      }
+    }
+
+    private boolean matches(int codePoint, boolean caseSensitive) {
+      boolean contained = contains(codePoint)
+          || !caseSensitive && (contains(toUpperCase(codePoint)) || contains(toLowerCase(codePoint)));
+      return contained != negated;
+    }
+
+    private boolean contains(int codePoint) {
+      for (int i = 0; i < from.length; i++) {
+        if (codePoint >= from[i] && codePoint <= to[i]) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Parses a pattern the same way {@link UriUtils#toRegexPattern(String)} does, returning {@code null} as soon as it finds
+   * something which isn't supported
+   */
+  private static final class Parser {
+
+    private final String glob;
+    private int index;
+
+    private Parser(String glob) {
+      this.glob = glob;
+    }
+
+    private List<Sequence> parse() {
+      List<List<Token>> expanded = new ArrayList<>();
+      expanded.add(new ArrayList<>());
+      while (index < glob.length()) {
+        char c = glob.charAt(index);
+        List<List<Token>> group;
+        if (c == '{') {
+          index++;
+          group = parseGroup();
+        } else {
+          Token token = parseToken();
+          group = token != null ? singleton(token) : null;
+        }
+        if (group == null) {
+          return null;
+        }
+        expanded = combine(expanded, group);
+        if (expanded == null) {
+          return null;
+        }
+      }
+      List<Sequence> sequences = new ArrayList<>(expanded.size());
+      for (List<Token> tokens : expanded) {
+        sequences.add(new Sequence(tokens));
+      }
+      return sequences;
+    }
+
+    private List<List<Token>> parseGroup() {
+      List<List<Token>> alternatives = new ArrayList<>();
+      List<Token> alternative = new ArrayList<>();
+      while (index < glob.length()) {
+        char c = glob.charAt(index);
+        if (c == '{') {
+          // nested groups are rejected
+          return null;
+        } else if (c == '}' || c == ',') {
+          index++;
+          alternatives.add(alternative);
+          if (c == '}') {
+            return alternatives;
+          }
+          alternative = new ArrayList<>();
+        } else {
+          Token token = parseToken();
+          if (token == null) {
+            return null;
+          }
+          alternative.add(token);
+        }
+      }
+      // the group isn't closed
+      return null;
+    }
+
+    private Token parseToken() {
+      char c = glob.charAt(index++);
+      if (Character.isSurrogate(c)) {
+        // the regex would match code points rather than chars
+        return null;
+      }
+      switch (c) {
+        case '\\':
+          if (index == glob.length()) {
+            return null;
+          }
+          char escaped = glob.charAt(index++);
+          return Character.isSurrogate(escaped) ? null : literal(escaped);
+        case '[':
+          CharClass charClass = parseCharClass();
+          return charClass != null ? new Token(CHAR_CLASS, (char) 0, charClass) : null;
+        case '*':
+          if (index < glob.length() && glob.charAt(index) == '*') {
+            index++;
+            return new Token(DOUBLE_STAR, (char) 0, null);
+          }
+          return new Token(STAR, (char) 0, null);
+        case '?':
+          return new Token(ANY_CHAR, (char) 0, null);
+        default:
+          return literal(c);
+      }
+    }
+
+    private CharClass parseCharClass() {
+      boolean negated = false;
+      List<Character> from = new ArrayList<>();
+      List<Character> to = new ArrayList<>();
+      if (peek() == '^') {
+        addRange(from, to, '^', '^');
+        index++;
+      } else {
+        if (peek() == '!') {
+          negated = true;
+          index++;
+        }
+        if (peek() == '-') {
+          addRange(from, to, '-', '-');
+          index++;
+        }
+      }
+      while (index < glob.length()) {
+        char c = glob.charAt(index++);
+        if (c == ']') {
+          return from.isEmpty() ? null : new CharClass(negated, from, to);
+        }
+        if (!isClassLiteral(c)) {
+          return null;
+        }
+        if (peek() != '-') {
+          addRange(from, to, c, c);
+          continue;
+        }
+        char end = index + 1 < glob.length() ? glob.charAt(index + 1) : ']';
+        if (c == '\\' || c == '[' || !isClassLiteral(end) || end == '\\' || end == '[' || end == '^' || end < c) {
+          return null;
+        }
+        addRange(from, to, c, end);
+        index += 2;
+      }
+      return null;
+    }
+
+    private static boolean isClassLiteral(char c) {
+      return c != '/' && c != ']' && c != '-' && c != '&' && !Character.isSurrogate(c);
+    }
+
+    private static void addRange(List<Character> from, List<Character> to, char start, char end) {
+      from.add(start);
+      to.add(end);
+    }
+
+    private char peek() {
+      return index < glob.length() ? glob.charAt(index) : 0;
+    }
+
+    private static Token literal(char c) {
+      return new Token(LITERAL, c, null);
+    }
+
+    private static List<List<Token>> singleton(Token token) {
+      List<Token> tokens = new ArrayList<>(1);
+      tokens.add(token);
+      List<List<Token>> alternatives = new ArrayList<>(1);
+      alternatives.add(tokens);
+      return alternatives;
+    }
+
+    private static List<List<Token>> combine(List<List<Token>> prefixes, List<List<Token>> suffixes) {
+      if ((long) prefixes.size() * suffixes.size() > MAX_ALTERNATIVES) {
+        return null;
+      }
+      List<List<Token>> combined = new ArrayList<>(prefixes.size() * suffixes.size());
+      for (List<Token> prefix : prefixes) {
+        for (List<Token> suffix : suffixes) {
+          List<Token> tokens = new ArrayList<>(prefix.size() + suffix.size());
+          tokens.addAll(prefix);
+          tokens.addAll(suffix);
+          combined.add(tokens);
+        }
+      }
+      return combined;
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.util;
+
+import static org.mule.extension.sftp.api.PredicateType.EXTERNAL_FILE_SYSTEM;
+import static org.mule.extension.sftp.internal.util.GlobMatcher.isLineTerminator;
+import static org.mule.runtime.api.util.Preconditions.checkArgument;
+import static org.mule.runtime.core.api.util.StringUtils.isBlank;
+
+import static java.util.Arrays.asList;
+
+import org.mule.extension.sftp.api.PredicateType;
+import org.mule.extension.sftp.api.matcher.PathMatcherPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Matches names against a list of patterns, accepting the ones which match any of them.
+ * <p>
+ * The glob patterns of an external file system which are an exact name, a literal prefix followed by {@code *} or {@code *}
+ * followed by a literal suffix, including the ones a {@code {a,b}} group expands to such as {@code *.{csv,txt}}, are compiled
+ * together into tries. Each name is checked against all of them in a single pass over its characters, however many patterns
+ * there are. Any other pattern is compiled on its own by {@link PathMatcherPredicate} and tested after the tries.
+ *
+ * @since 2.5
+ */
+public final class MultiPatternMatcher implements Predicate<String> {
+
+  private static final String GLOB_PREFIX = "glob:";
+  private static final String REGEX_PREFIX = "regex:";
+  private static final int MAX_ALTERNATIVES = 64;
+  private static final int MAX_CACHED_MATCHERS = 128;
+  private static final Map<List<Object>, MultiPatternMatcher> COMPILED_MATCHERS = new ConcurrentHashMap<>();
+
+  private final boolean caseSensitive;
+  private final Node prefixes;
+  private final Node suffixes;
+  private final boolean hasAffixes;
+  private final Predicate<String>[] affixPatterns;
+  private final Predicate<String>[] otherPatterns;
+
+  private MultiPatternMatcher(Builder builder) {
+    this.caseSensitive = builder.caseSensitive;
+    this.prefixes = builder.prefixes.freeze();
+    this.suffixes = builder.suffixes.freeze();
+    this.hasAffixes = !builder.affixPatterns.isEmpty();
+    this.affixPatterns = builder.affixPatterns.toArray(new Predicate[0]);
+    this.otherPatterns = builder.otherPatterns.toArray(new Predicate[0]);
+  }
+
+  /**
+   * @param patterns      the patterns, following the rules of {@link PathMatcherPredicate}
+   * @param predicateType the type of the predicates the patterns are compiled to
+   * @param caseSensitive whether the patterns of an external file system are case sensitive
+   * @return a {@link Predicate} which accepts the names which match any of the patterns
+   */
+  public static MultiPatternMatcher compile(List<String> patterns, PredicateType predicateType, boolean caseSensitive) {
+    List<Object> key = asList(predicateType, caseSensitive, new ArrayList<>(patterns));
+    MultiPatternMatcher matcher = COMPILED_MATCHERS.get(key);
+    if (matcher == null) {
+      Builder builder = new Builder(caseSensitive);
+      for (String pattern : patterns) {
+        builder.add(pattern, predicateType);
+      }
+      matcher = new MultiPatternMatcher(builder);
+      if (COMPILED_MATCHERS.size() >= MAX_CACHED_MATCHERS) {
+        COMPILED_MATCHERS.clear();
+      }
+      COMPILED_MATCHERS.put(key, matcher);
+    }
+    return matcher;
+  }
+
+  @Override
+  public boolean test(String name) {
+    checkArgument(!isBlank(name), "Cannot match a blank filename");
+    if (hasAffixes) {
+      int length = name.length();
+      if (length > 0 && isLineTerminator(name.charAt(length - 1))) {
+        // the regex of a pattern also matches before a final line terminator, which the tries don't reproduce
+        if (anyMatches(affixPatterns, name)) {
+          return true;
+        }
+      } else if (matchesPrefix(name) || matchesSuffix(name)) {
+        return true;
+      }
+    }
+    return anyMatches(otherPatterns, name);
+  }
+
+  private boolean matchesPrefix(String name) {
+    int length = name.length();
+    int lastSlash = name.lastIndexOf('/');
+    Node node = prefixes;
+    for (int i = 0;; i++) {
+      // the star after the prefix doesn't match a separator
+      if (node.prefix && lastSlash < i || node.exact && i == length) {
+        return true;
+      }
+      if (i == length || (node = node.child(fold(name.charAt(i)))) == null) {
+        return false;
+      }
+    }
+  }
+
+  private boolean matchesSuffix(String name) {
+    int firstSlash = name.indexOf('/');
+    if (firstSlash < 0) {
+      firstSlash = name.length();
+    }
+    Node node = suffixes;
+    for (int i = name.length();; i--) {
+      // the star before the suffix doesn't match a separator
+      if (node.suffix && firstSlash >= i) {
+        return true;
+      }
+      if (i == 0 || (node = node.child(fold(name.charAt(i - 1)))) == null) {
+        return false;
+      }
+    }
+  }
+
+  private char fold(char c) {
+    return caseSensitive ? c : toLowerCase(c);
+  }
+
+  private static char toLowerCase(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static boolean anyMatches(Predicate<String>[] patterns, String name) {
+    for (Predicate<String> pattern : patterns) {
+      if (pattern.test(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A node of a trie, whose flags tell which kind of pattern ends at it
+   */
+  private static final class Node {
+
+    private Map<Character, Node> building = new TreeMap<>();
+    private char[] labels;
+    private Node[] children;
+    private boolean exact;
+    private boolean prefix;
+    private boolean suffix;
+
+    private Node add(char label) {
+      return building.computeIfAbsent(label, c -> new Node());
+    }
+
+    private Node freeze() {
+      labels = new char[building.size()];
+      children = new Node[building.size()];
+      int i = 0;
+      for (Map.Entry<Character, Node> entry : building.entrySet()) {
+        labels[i] = entry.getKey();
+        children[i++] = entry.getValue().freeze();
+      }
+      building = null;
+      return this;
+    }
+
+    private Node child(char label) {
+      int low = 0;
+      int high = labels.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (labels[middle] < label) {
+          low = middle + 1;
+        } else if (labels[middle] > label) {
+          high = middle - 1;
+        } else {
+          return children[middle];
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final class Builder {
+
+    private final boolean caseSensitive;
+    private final Node prefixes = new Node();
+    private final Node suffixes = new Node();
+    private final List<Predicate<String>> affixPatterns = new ArrayList<>();
+    private final List<Predicate<String>> otherPatterns = new ArrayList<>();
+
+    private Builder(boolean caseSensitive) {
+      this.caseSensitive = caseSensitive;
+    }
+
+    private void add(String pattern, PredicateType predicateType) {
+      // the pattern is compiled anyway, so invalid ones fail the same way they do on their own
+      Predicate<String> predicate = new PathMatcherPredicate(pattern, predicateType, caseSensitive);
+      List<String> alternatives = predicateType == EXTERNAL_FILE_SYSTEM ? expand(pattern) : null;
+      if (alternatives == null || !alternatives.stream().allMatch(this::isAffix)) {
+        otherPatterns.add(predicate);
+        return;
+      }
+      for (String alternative : alternatives) {
+        if (alternative.startsWith("*")) {
+          insert(suffixes, new StringBuilder(alternative.substring(1)).reverse().toString()).suffix = true;
+        } else if (alternative.endsWith("*")) {
+          insert(prefixes, alternative.substring(0, alternative.length() - 1)).prefix = true;
+        } else {
+          insert(prefixes, alternative).exact = true;
+        }
+      }
+      affixPatterns.add(predicate);
+    }
+
+    private boolean isAffix(String alternative) {
+      int star = alternative.indexOf('*');
+      return star < 0 || alternative.indexOf('*', star + 1) < 0 && (star == 0 || star == alternative.length() - 1);
+    }
+
+    private Node insert(Node root, String literal) {
+      Node node = root;
+      for (int i = 0; i < literal.length(); i++) {
+        char c = literal.charAt(i);
+        node = node.add(caseSensitive ? c : toLowerCase(c));
+      }
+      return node;
+    }
+
+    /**
+     * @return the names the {@code {a,b}} group of a glob expands to, or {@code null} if it isn't made of literals and stars
+     */
+    private static List<String> expand(String pattern) {
+      if (pattern.startsWith(REGEX_PREFIX)) {
+        return null;
+      }
+      String glob = pattern.startsWith(GLOB_PREFIX) ? pattern.substring(GLOB_PREFIX.length()) : pattern;
+      if (glob.chars().anyMatch(c -> c == '\\' || c == '?' || c == '[' || Character.isSurrogate((char) c))) {
+        return null;
+      }
+      List<String> alternatives = new ArrayList<>();
+      alternatives.add("");
+      int i = 0;
+      while (i < glob.length()) {
+        char c = glob.charAt(i++);
+        List<String> group = new ArrayList<>();
+        if (c != '{') {
+          group.add(String.valueOf(c));
+        } else {
+          int end = glob.indexOf('}', i);
+          if (end < 0 || glob.substring(i, end).indexOf('{') >= 0) {
+            return null;
+          }
+          group.addAll(asList(glob.substring(i, end).split(",", -1)));
+          i = end + 1;
+        }
+        if (alternatives.size() * group.size() > MAX_ALTERNATIVES) {
+          return null;
+        }
+        List<String> combined = new ArrayList<>();
+        for (String alternative : alternatives) {
+          for (String suffix : group) {
+            combined.add(alternative + suffix);
+          }
+        }
+        alternatives = combined;
+      }
+      return alternatives;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.mule.extension.sftp.internal.operation.ListCommand;
 import org.mule.extension.sftp.internal.operation.MoveCommand;
 import org.mule.extension.sftp.internal.operation.ReadCommand;
 import org.mule.extension.sftp.internal.operation.RenameCommand;
+import org.mule.extension.sftp.internal.operation.TransferCommand;
 import org.mule.extension.sftp.internal.operation.WriteCommand;
 import org.mule.extension.sftp.internal.connection.AbstractFileSystem;
 import org.mule.extension.sftp.internal.lock.PathLock;
@@ -28,7 +29,9 @@ import org.mule.extension.sftp.internal.source.AbstractPostActionGroup;
 
 import java.nio.file.Path;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.function.Predicate;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -279,6 +282,11 @@ public class AbstractPostActionGroupTestCase {
       return null;
     }
 
+    @Override
+    protected TransferCommand getTransferCommand() {
+      return null;
+    }
+
     @Override
     protected PathLock createLock(Path path) {
       return null;
@@ -334,6 +342,17 @@ public class AbstractPostActionGroupTestCase {
           throw new IllegalArgumentException(DELETE);
         this.successCallback.execute(DELETE);
       }
+
+      @Override
+      public List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher) {
+        return null;
+      }
+
+      @Override
+      public List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher,
+                                       boolean overwrite, boolean createParentDirectories) {
+        return null;
+      }
     }
   }
 
@@ -22,6 +22,7 @@ import org.mule.extension.sftp.internal.operation.ListCommand;
 import org.mule.extension.sftp.internal.operation.MoveCommand;
 import org.mule.extension.sftp.internal.operation.ReadCommand;
 import org.mule.extension.sftp.internal.operation.RenameCommand;
+import org.mule.extension.sftp.internal.operation.TransferCommand;
 import org.mule.extension.sftp.internal.operation.WriteCommand;
 import org.mule.extension.sftp.internal.connection.AbstractFileSystem;
 import org.mule.extension.sftp.internal.lock.PathLock;
@@ -32,7 +33,9 @@ import org.mule.tck.size.SmallTest;
 
 import java.nio.file.Path;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.function.Predicate;
 
 import io.qameta.allure.Description;
 import io.qameta.allure.Feature;
@@ -214,6 +217,11 @@ public class PostActionGroupTestCase extends AbstractMuleTestCase {
       return null;
     }
 
+    @Override
+    protected TransferCommand getTransferCommand() {
+      return null;
+    }
+
     @Override
     protected PathLock createLock(Path path) {
       return null;
@@ -249,6 +257,17 @@ public class PostActionGroupTestCase extends AbstractMuleTestCase {
       public void delete(String filePath) {
 
       }
+
+      @Override
+      public List<String> deleteMatching(String directoryPath, Predicate<FileAttributes> matcher) {
+        return null;
+      }
+
+      @Override
+      public List<String> moveMatching(String directoryPath, String targetPath, Predicate<FileAttributes> matcher,
+                                       boolean overwrite, boolean createParentDirectories) {
+        return null;
+      }
     }
   }
 
@@ -24,6 +24,7 @@ import org.mule.extension.sftp.internal.operation.ListCommand;
 import org.mule.extension.sftp.internal.operation.MoveCommand;
 import org.mule.extension.sftp.internal.operation.ReadCommand;
 import org.mule.extension.sftp.internal.operation.RenameCommand;
+import org.mule.extension.sftp.internal.operation.TransferCommand;
 import org.mule.extension.sftp.internal.operation.WriteCommand;
 import org.mule.extension.sftp.internal.connection.AbstractFileSystem;
 import org.mule.extension.sftp.internal.connection.ExternalFileSystem;
@@ -169,6 +170,11 @@ public class ConcurrentLockTestCase {
       return null;
     }
 
+    @Override
+    protected TransferCommand getTransferCommand() {
+      return null;
+    }
+
     @Override
     protected PathLock createLock(Path path) {
       if (locked) {
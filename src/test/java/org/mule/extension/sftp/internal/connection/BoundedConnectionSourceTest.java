@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.tck.size.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class BoundedConnectionSourceTest {
+
+  private final Semaphore permits = new Semaphore(1);
+  private final SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+
+  @Test
+  void connectionIsObtainedOnceAPermitIsAvailable() throws Exception {
+    BoundedConnectionSource<SftpFileSystemConnection> first = new BoundedConnectionSource<>(delegate(), permits);
+    BoundedConnectionSource<SftpFileSystemConnection> second = new BoundedConnectionSource<>(delegate(), permits);
+
+    assertSame(connection, first.getConnection());
+    assertSame(connection, first.getConnection());
+    assertEquals(0, permits.availablePermits());
+
+    CountDownLatch obtained = new CountDownLatch(1);
+    Thread waiting = new Thread(() -> {
+      try {
+        second.getConnection();
+        obtained.countDown();
+      } catch (ConnectionException e) {
+        // the assertion below fails
+      }
+    });
+    waiting.start();
+    assertEquals(1, obtained.getCount());
+
+    first.releaseConnection();
+    assertTrue(obtained.await(5, TimeUnit.SECONDS));
+    second.releaseConnection();
+    second.releaseConnection();
+    assertEquals(1, permits.availablePermits());
+  }
+
+  @Test
+  void permitIsGivenBackWhenTheConnectionCantBeObtained() throws Exception {
+    @SuppressWarnings("unchecked")
+    ConnectionSource<SftpFileSystemConnection> delegate = mock(ConnectionSource.class);
+    when(delegate.getConnection()).thenThrow(new ConnectionException("unreachable"));
+
+    assertThrows(ConnectionException.class, () -> new BoundedConnectionSource<>(delegate, permits).getConnection());
+
+    assertEquals(1, permits.availablePermits());
+    verify(delegate, times(1)).releaseConnection();
+  }
+
+  private ConnectionSource<SftpFileSystemConnection> delegate() {
+    return new StaticConnectionSource<>(connection);
+  }
+}
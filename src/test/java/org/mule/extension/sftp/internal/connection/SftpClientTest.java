@@ -9,9 +9,11 @@ package org.mule.extension.sftp.internal.connection;
 import org.apache.sshd.common.SshException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mule.extension.sftp.api.FileWriteMode;
 import org.mule.extension.sftp.api.SftpFileAttributes;
 import org.mule.extension.sftp.api.SftpProxyConfig;
 import org.mule.extension.sftp.api.random.alg.PRNGAlgorithm;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
 import org.mule.extension.sftp.internal.exception.IllegalPathException;
 import org.mule.extension.sftp.internal.exception.SftpConnectionException;
 import org.mule.runtime.api.connection.ConnectionException;
@@ -22,6 +24,7 @@ import org.mule.runtime.api.scheduler.SchedulerConfig;
 import org.mule.tck.size.SmallTest;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.GeneralSecurityException;
@@ -31,13 +34,19 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
 
 import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.sftp.client.extensions.CopyDataExtension;
+import org.apache.sshd.sftp.client.extensions.CopyFileExtension;
+import org.apache.sshd.sftp.client.extensions.openssh.OpenSSHPosixRenameExtension;
 import org.apache.sshd.sftp.common.SftpException;
 
 import static java.lang.String.format;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_FAILURE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_NO_SUCH_FILE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SmallTest
@@ -213,4 +222,147 @@ public class SftpClientTest {
     assertTrue(exception.getMessage().contains("Could not delete directory /test/directory"));
     assertEquals(ioException, exception.getCause());
   }
+
+  @Test
+  void testOpenCreatesMissingParentDirectoriesFromTheDeepestOne() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    org.apache.sshd.sftp.client.SftpClient.CloseableHandle handle =
+        mock(org.apache.sshd.sftp.client.SftpClient.CloseableHandle.class);
+    when(sftp.open(eq("/a/b/c/file.txt"), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class)))
+        .thenThrow(new SftpException(SSH_FX_NO_SUCH_FILE, "No such file"))
+        .thenReturn(handle);
+    doThrow(new SftpException(SSH_FX_NO_SUCH_FILE, "No such file")).doNothing().when(sftp).mkdir("/a/b/c");
+
+    assertSame(handle, testClient.open("/a/b/c/file.txt", FileWriteMode.OVERWRITE, true));
+
+    verify(sftp, times(2)).mkdir("/a/b/c");
+    verify(sftp).mkdir("/a/b");
+    verify(sftp, never()).mkdir("/a");
+    verify(sftp, never()).stat(anyString());
+
+    // known parents are not created again
+    testClient.mkdirs("/a/b/c/d");
+    verify(sftp).mkdir("/a/b/c/d");
+    verify(sftp).mkdir("/a/b");
+  }
+
+  @Test
+  void testOpenWithoutCreatingParentDirectories() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    when(sftp.open(eq("/a/file.txt"), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class)))
+        .thenThrow(new SftpException(SSH_FX_NO_SUCH_FILE, "No such file"));
+
+    assertThrows(IllegalPathException.class, () -> testClient.open("/a/file.txt", FileWriteMode.OVERWRITE, false));
+    verify(sftp, never()).mkdir(anyString());
+  }
+
+  @Test
+  void testOpenCreateNewOnExistingFile() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    when(sftp.open(eq("/a/file.txt"), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class)))
+        .thenThrow(new SftpException(SSH_FX_FAILURE, "Failure"));
+    when(sftp.stat("/a/file.txt")).thenReturn(new org.apache.sshd.sftp.client.SftpClient.Attributes());
+
+    assertThrows(FileAlreadyExistsException.class, () -> testClient.open("/a/file.txt", FileWriteMode.CREATE_NEW, true));
+  }
+
+  @Test
+  void testCopyOnServerPrefersCopyFileExtension() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    CopyFileExtension copyFile = mock(CopyFileExtension.class);
+    when(copyFile.isSupported()).thenReturn(true);
+    when(sftp.getExtension(CopyFileExtension.class)).thenReturn(copyFile);
+
+    assertTrue(testClient.copyOnServer("/a/source.txt", "/b/target.txt", true));
+    verify(copyFile).copyFile("/a/source.txt", "/b/target.txt", true);
+    verify(sftp, never()).open(anyString(), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class));
+  }
+
+  @Test
+  void testCopyOnServerWithCopyDataExtension() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    CopyDataExtension copyData = mock(CopyDataExtension.class);
+    when(copyData.isSupported()).thenReturn(true);
+    when(sftp.getExtension(CopyDataExtension.class)).thenReturn(copyData);
+    org.apache.sshd.sftp.client.SftpClient.CloseableHandle source =
+        mock(org.apache.sshd.sftp.client.SftpClient.CloseableHandle.class);
+    org.apache.sshd.sftp.client.SftpClient.CloseableHandle target =
+        mock(org.apache.sshd.sftp.client.SftpClient.CloseableHandle.class);
+    when(sftp.open(eq("/a/source.txt"), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class))).thenReturn(source);
+    when(sftp.open(eq("/b/target.txt"), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class))).thenReturn(target);
+
+    assertTrue(testClient.copyOnServer("/a/source.txt", "/b/target.txt", false));
+    verify(copyData).copyData(source, 0, 0, target, 0);
+    verify(source).close();
+    verify(target).close();
+  }
+
+  @Test
+  void testCopyOnServerWithoutExtensions() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+
+    assertFalse(testClient.copyOnServer("/a/source.txt", "/b/target.txt", false));
+    verify(sftp, never()).open(anyString(), any(org.apache.sshd.sftp.client.SftpClient.OpenMode[].class));
+  }
+
+  @Test
+  void testPosixRenameWithExtension() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    OpenSSHPosixRenameExtension posixRename = mock(OpenSSHPosixRenameExtension.class);
+    when(posixRename.isSupported()).thenReturn(true);
+    when(sftp.getExtension(OpenSSHPosixRenameExtension.class)).thenReturn(posixRename);
+
+    assertTrue(testClient.posixRename("/a/source.txt", "/b/target.txt"));
+    verify(posixRename).posixRename("/a/source.txt", "/b/target.txt");
+    verify(sftp, never()).rename(anyString(), anyString(), any(org.apache.sshd.sftp.client.SftpClient.CopyMode[].class));
+  }
+
+  @Test
+  void testPosixRenameWithoutExtension() throws Exception {
+    org.apache.sshd.sftp.client.SftpClient sftp = mock(org.apache.sshd.sftp.client.SftpClient.class);
+    SftpClient testClient = clientWith(sftp);
+    OpenSSHPosixRenameExtension posixRename = mock(OpenSSHPosixRenameExtension.class);
+    when(sftp.getExtension(OpenSSHPosixRenameExtension.class)).thenReturn(posixRename);
+
+    assertFalse(testClient.posixRename("/a/source.txt", "/b/target.txt"));
+    verify(posixRename, never()).posixRename(anyString(), anyString());
+  }
+
+  @Test
+  void testIoSchedulerIsSharedUntilDisconnected() {
+    SchedulerService schedulerService = mock(SchedulerService.class);
+    Scheduler first = mock(Scheduler.class);
+    Scheduler second = mock(Scheduler.class);
+    when(schedulerService.ioScheduler(any(SchedulerConfig.class))).thenReturn(first, second);
+    SftpClient testClient = new SftpClient("test-host", 22, PRNGAlgorithm.AUTOSELECT, schedulerService);
+
+    assertSame(first, testClient.getIoScheduler());
+    assertSame(first, testClient.getIoScheduler());
+    verify(first, never()).stop();
+
+    testClient.disconnect();
+    verify(first).stop();
+    assertSame(second, testClient.getIoScheduler());
+    verify(schedulerService, times(2)).ioScheduler(any(SchedulerConfig.class));
+  }
+
+  @Test
+  void testNoIoSchedulerWithoutSchedulerService() {
+    assertNull(new SftpClient("test-host", 22, PRNGAlgorithm.AUTOSELECT, null).getIoScheduler());
+  }
+
+  private static SftpClient clientWith(org.apache.sshd.sftp.client.SftpClient sftp) throws Exception {
+    SftpClient testClient = new SftpClient("test-host", 22, PRNGAlgorithm.AUTOSELECT, null);
+    Field sftpField = SftpClient.class.getDeclaredField("sftp");
+    sftpField.setAccessible(true);
+    sftpField.set(testClient, sftp);
+    return testClient;
+  }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_REMOVE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_PERMISSION_DENIED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.sshd.sftp.common.SftpException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class SftpFileBatchTest {
+
+  private static final Predicate<SftpFileAttributes> TXT_FILES = file -> file.getName().endsWith(".txt");
+
+  private final List<String> sent = new ArrayList<>();
+
+  private SftpClient client;
+  private SftpConcurrentClient sftp;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    client = mock(SftpClient.class);
+    doAnswer(invocation -> {
+      Consumer<List<SftpFileAttributes>> consumer = invocation.getArgument(1);
+      consumer.accept(asList(file("/src/.", true), file("/src/a.txt", false), file("/src/b.log", false),
+                             file("/src/sub.txt", true)));
+      consumer.accept(singletonList(file("/src/c.txt", false)));
+      return null;
+    }).when(client).list(eq("/src"), any());
+    List<SftpFileAttributes> existing = asList(file("/dst/a.txt", false));
+    when(client.list("/dst")).thenReturn(existing);
+    when(client.handleException(anyString(), any()))
+        .thenAnswer(invocation -> new RuntimeException((String) invocation.getArgument(0)));
+
+    sftp = mock(SftpConcurrentClient.class);
+    AtomicInteger ids = new AtomicInteger();
+    when(sftp.sendRemove(anyString())).thenAnswer(invocation -> {
+      sent.add("rm " + invocation.getArgument(0));
+      return ids.incrementAndGet();
+    });
+    when(sftp.sendRename(anyString(), anyString(), anyBoolean())).thenAnswer(invocation -> {
+      sent.add("mv " + invocation.getArgument(0) + " " + invocation.getArgument(1));
+      return ids.incrementAndGet();
+    });
+  }
+
+  @Test
+  void matchingFilesAreDeletedAsTheyAreListed() {
+    List<String> deleted = new SftpFileBatch(client, sftp, 1).delete("/src", TXT_FILES, path -> {
+    });
+
+    assertEquals(asList("/src/a.txt", "/src/c.txt"), deleted);
+    assertEquals(asList("rm /src/a.txt", "rm /src/c.txt"), sent);
+  }
+
+  @Test
+  void collidingTargetIsRemovedBeforeRenamingWhenTheServerCantReplaceIt() throws Exception {
+    List<String> moved = new SftpFileBatch(client, sftp, 4).move("/src", "/dst", TXT_FILES, true, path -> {
+    });
+
+    assertTrue(moved.containsAll(asList("/dst/a.txt", "/dst/c.txt")), moved.toString());
+    assertTrue(sent.indexOf("mv /src/a.txt /dst/a.txt") > sent.indexOf("rm /dst/a.txt"), sent.toString());
+    verify(sftp).sendRename("/src/c.txt", "/dst/c.txt", true);
+  }
+
+  @Test
+  void collidingTargetIsReplacedInOneRequestWhenSupported() throws Exception {
+    when(sftp.canRenameOverwriting()).thenReturn(true);
+
+    new SftpFileBatch(client, sftp, 4).move("/src", "/dst", TXT_FILES, true, path -> {
+    });
+
+    assertEquals(asList("mv /src/a.txt /dst/a.txt", "mv /src/c.txt /dst/c.txt"), sent);
+  }
+
+  @Test
+  void existingTargetIsReportedWithoutOverwrite() throws Exception {
+    assertThrows(FileAlreadyExistsException.class, () -> new SftpFileBatch(client, sftp, 4)
+        .move("/src", "/dst", TXT_FILES, false, path -> {
+        }));
+
+    verify(sftp, never()).sendRename(eq("/src/a.txt"), anyString(), anyBoolean());
+    verify(sftp).sendRename("/src/c.txt", "/dst/c.txt", false);
+  }
+
+  @Test
+  void everyFailedRemovalIsReported() throws Exception {
+    doThrow(new SftpException(SSH_FX_PERMISSION_DENIED, "denied")).when(sftp).checkStatusResponse(eq(SSH_FXP_REMOVE), anyInt());
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> new SftpFileBatch(client, sftp, 4)
+        .delete("/src", file -> true, path -> {
+        }));
+
+    assertEquals("Deleted 0 files from '/src' but 3 could not be deleted: /src/a.txt, /src/b.log, /src/c.txt", e.getMessage());
+  }
+
+  @Test
+  void renamesListTheDirectoryOfTheTargetsOnceAndReportFailuresPerFile() throws Exception {
+    Map<String, String> targets = new LinkedHashMap<>();
+    targets.put("/src/a.txt", "/dst/a.txt");
+    targets.put("/src/c.txt", "/dst/c.txt");
+    doThrow(new SftpException(SSH_FX_PERMISSION_DENIED, "denied")).when(sftp).checkStatusResponse(anyInt(), eq(1));
+
+    Map<String, Exception> failures = new SftpFileBatch(client, sftp, 4).rename(targets, false);
+
+    assertEquals(2, failures.size());
+    assertTrue(failures.get("/src/a.txt") instanceof FileAlreadyExistsException);
+    assertTrue(failures.get("/src/c.txt") instanceof SftpException);
+    assertEquals(singletonList("mv /src/c.txt /dst/c.txt"), sent);
+    verify(client, times(1)).list("/dst");
+  }
+
+  @Test
+  void removalsArePipelined() throws Exception {
+    Map<String, Exception> failures = new SftpFileBatch(client, sftp, 1).remove(asList("/src/a.txt", "/src/c.txt"));
+
+    assertTrue(failures.isEmpty());
+    assertEquals(asList("rm /src/a.txt", "rm /src/c.txt"), sent);
+  }
+
+  private static SftpFileAttributes file(String path, boolean directory) {
+    SftpFileAttributes attributes = mock(SftpFileAttributes.class);
+    when(attributes.getPath()).thenReturn(path);
+    when(attributes.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    when(attributes.isDirectory()).thenReturn(directory);
+    return attributes;
+  }
+}
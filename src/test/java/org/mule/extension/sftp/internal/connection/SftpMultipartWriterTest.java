@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.mule.extension.sftp.api.CustomWriteBufferSize.BUFFER_SIZE_16KB;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.internal.connection.write.SftpMultipartWriter;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.sftp.client.SftpClient.Attributes;
+import org.apache.sshd.sftp.client.SftpClient.CloseableHandle;
+import org.apache.sshd.sftp.client.SftpClient.OpenMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+@SmallTest
+public class SftpMultipartWriterTest {
+
+  private static final String PATH = "/files/big.bin";
+  private static final int SIZE = 5 * 1024 * 1024 / 2;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final Map<Long, Integer> writtenRanges = new ConcurrentHashMap<>();
+  private final AtomicInteger requestIds = new AtomicInteger();
+
+  private SftpClient muleClient;
+  private SftpConcurrentClient apacheClient;
+  private URI uri;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    muleClient = mock(SftpClient.class);
+    apacheClient = mock(SftpConcurrentClient.class);
+    uri = new URI(PATH);
+    when(muleClient.normalizeRemotePath(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(muleClient.open(anyString(), any(), anyBoolean())).thenAnswer(invocation -> mock(CloseableHandle.class));
+    when(muleClient.openChannel()).thenAnswer(invocation -> channel());
+
+    Scheduler scheduler = mock(Scheduler.class);
+    doAnswer(invocation -> {
+      executor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any(Runnable.class));
+    when(muleClient.getIoScheduler()).thenReturn(scheduler);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void partsAreUploadedConcurrentlyIntoTemporaryFileAndRenamed() throws Exception {
+    uploadedSize(SIZE);
+
+    new SftpMultipartWriter(muleClient, apacheClient, BUFFER_SIZE_16KB, 4, 4, true)
+        .write(PATH, new ByteArrayInputStream(new byte[SIZE]), FileWriteMode.OVERWRITE, uri, false);
+
+    verify(muleClient, times(3)).openChannel();
+    assertEquals(SIZE, writtenRanges.values().stream().mapToInt(Integer::intValue).sum());
+    assertTrue(writtenRanges.containsKey(0L));
+
+    ArgumentCaptor<String> temporaryPath = ArgumentCaptor.forClass(String.class);
+    verify(muleClient).open(temporaryPath.capture(), eq(FileWriteMode.OVERWRITE), eq(false));
+    assertTrue(temporaryPath.getValue().startsWith(PATH + "."));
+    verify(muleClient).rename(temporaryPath.getValue(), PATH);
+  }
+
+  @Test
+  void failedPartRemovesTemporaryFile() throws Exception {
+    SftpConcurrentClient failingChannel = channel();
+    doThrow(new IOException("write failed")).when(failingChannel).checkWriteResponse(anyInt());
+    when(muleClient.openChannel()).thenAnswer(invocation -> channel()).thenReturn(failingChannel);
+
+    assertThrows(IOException.class, () -> new SftpMultipartWriter(muleClient, apacheClient, BUFFER_SIZE_16KB, 4, 4, true)
+        .write(PATH, new ByteArrayInputStream(new byte[SIZE]), FileWriteMode.OVERWRITE, uri, false));
+
+    verify(muleClient).deleteFile(startsWith(PATH + "."));
+    verify(muleClient, never()).rename(anyString(), anyString());
+  }
+
+  @Test
+  void temporaryFileIsRemovedOnceNoPartIsWritingIntoIt() throws Exception {
+    AtomicBoolean slowPartClosed = new AtomicBoolean();
+    AtomicBoolean removedWhileWriting = new AtomicBoolean();
+    SftpConcurrentClient slowChannel = channel();
+    doAnswer(invocation -> {
+      Thread.sleep(200);
+      slowPartClosed.set(true);
+      return null;
+    }).when(slowChannel).close();
+    SftpConcurrentClient failingChannel = channel();
+    doThrow(new IOException("write failed")).when(failingChannel).checkWriteResponse(anyInt());
+    SftpConcurrentClient lastChannel = channel();
+    when(muleClient.openChannel()).thenReturn(slowChannel, failingChannel, lastChannel);
+    doAnswer(invocation -> {
+      removedWhileWriting.set(!slowPartClosed.get());
+      return null;
+    }).when(muleClient).deleteFile(anyString());
+
+    assertThrows(IOException.class, () -> new SftpMultipartWriter(muleClient, apacheClient, BUFFER_SIZE_16KB, 4, 4, true)
+        .write(PATH, new ByteArrayInputStream(new byte[SIZE]), FileWriteMode.OVERWRITE, uri, false));
+
+    verify(muleClient).deleteFile(startsWith(PATH + "."));
+    assertFalse(removedWhileWriting.get());
+  }
+
+  @Test
+  void sizeMismatchRemovesTemporaryFile() throws Exception {
+    uploadedSize(SIZE - 1);
+
+    assertThrows(IOException.class, () -> new SftpMultipartWriter(muleClient, apacheClient, BUFFER_SIZE_16KB, 4, 4, true)
+        .write(PATH, new ByteArrayInputStream(new byte[SIZE]), FileWriteMode.OVERWRITE, uri, false));
+
+    verify(muleClient).deleteFile(startsWith(PATH + "."));
+    verify(muleClient, never()).rename(anyString(), anyString());
+  }
+
+  @Test
+  void smallContentIsWrittenInOnePartOverTheCurrentChannel() throws Exception {
+    uploadedSize(10);
+
+    new SftpMultipartWriter(muleClient, apacheClient, BUFFER_SIZE_16KB, 4, 4, true)
+        .write(PATH, new ByteArrayInputStream(new byte[10]), FileWriteMode.OVERWRITE, uri, false);
+
+    verify(muleClient, never()).openChannel();
+    verify(apacheClient).sendWrite(any(), eq(0L), any(), eq(0), eq(10));
+    ArgumentCaptor<String> temporaryPath = ArgumentCaptor.forClass(String.class);
+    verify(muleClient).open(temporaryPath.capture(), eq(FileWriteMode.OVERWRITE), eq(false));
+    assertTrue(temporaryPath.getValue().startsWith(PATH + "."));
+    verify(muleClient).rename(temporaryPath.getValue(), PATH);
+  }
+
+  private void uploadedSize(long size) throws IOException {
+    Attributes attributes = new Attributes();
+    attributes.setSize(size);
+    when(apacheClient.stat(anyString())).thenReturn(attributes);
+  }
+
+  private SftpConcurrentClient channel() throws IOException {
+    SftpConcurrentClient channel = mock(SftpConcurrentClient.class);
+    when(channel.open(anyString(), any(OpenMode[].class))).thenAnswer(invocation -> mock(CloseableHandle.class));
+    when(channel.sendWrite(any(), anyLong(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+      writtenRanges.put(invocation.getArgument(1), invocation.getArgument(4));
+      return requestIds.getAndIncrement();
+    });
+    return channel;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.mule.extension.sftp.api.CustomWriteBufferSize.BUFFER_SIZE_1KB;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.FileWriteMode;
+import org.mule.extension.sftp.internal.connection.write.SftpPipelinedWriter;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.sftp.client.SftpClient.Attributes;
+import org.apache.sshd.sftp.client.SftpClient.CloseableHandle;
+import org.apache.sshd.sftp.client.SftpClient.Handle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+@SmallTest
+public class SftpPipelinedWriterTest {
+
+  private static final String PATH = "/files/file.txt";
+  private static final int CHUNK_SIZE = BUFFER_SIZE_1KB.getCustomWriteBufferSize();
+
+  private SftpClient muleClient;
+  private SftpConcurrentClient apacheClient;
+  private CloseableHandle handle;
+  private URI uri;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    muleClient = mock(SftpClient.class);
+    apacheClient = mock(SftpConcurrentClient.class);
+    handle = mock(CloseableHandle.class);
+    uri = new URI(PATH);
+    when(muleClient.open(PATH, FileWriteMode.OVERWRITE, false)).thenReturn(handle);
+    AtomicInteger requestIds = new AtomicInteger();
+    when(apacheClient.sendWrite(any(), anyLong(), any(), anyInt(), anyInt()))
+        .thenAnswer(invocation -> requestIds.getAndIncrement());
+  }
+
+  @Test
+  void requestsAreSentBeforePreviousAcknowledgements() throws Exception {
+    new SftpPipelinedWriter(muleClient, apacheClient, BUFFER_SIZE_1KB, 2)
+        .write(PATH, content(5), FileWriteMode.OVERWRITE, uri, false);
+
+    InOrder order = inOrder(apacheClient);
+    order.verify(apacheClient).sendWrite(eq(handle), eq(0L), any(), eq(0), eq(CHUNK_SIZE));
+    order.verify(apacheClient).sendWrite(eq(handle), eq((long) CHUNK_SIZE), any(), eq(0), eq(CHUNK_SIZE));
+    order.verify(apacheClient).checkWriteResponse(0);
+    order.verify(apacheClient).sendWrite(eq(handle), eq(2L * CHUNK_SIZE), any(), eq(0), eq(CHUNK_SIZE));
+    order.verify(apacheClient).checkWriteResponse(1);
+    order.verify(apacheClient).sendWrite(eq(handle), eq(3L * CHUNK_SIZE), any(), eq(0), eq(CHUNK_SIZE));
+    order.verify(apacheClient).checkWriteResponse(2);
+    order.verify(apacheClient).sendWrite(eq(handle), eq(4L * CHUNK_SIZE), any(), eq(0), eq(CHUNK_SIZE));
+    order.verify(apacheClient).checkWriteResponse(3);
+    order.verify(apacheClient).checkWriteResponse(4);
+    verify(handle).close();
+  }
+
+  @Test
+  void appendStartsAtTheEndOfTheOpenFile() throws Exception {
+    Attributes attributes = new Attributes();
+    attributes.setSize(100L);
+    when(apacheClient.stat(handle)).thenReturn(attributes);
+    when(muleClient.open(PATH, FileWriteMode.APPEND, true)).thenReturn(handle);
+
+    new SftpPipelinedWriter(muleClient, apacheClient, BUFFER_SIZE_1KB, 4)
+        .write(PATH, content(1), FileWriteMode.APPEND, uri, true);
+
+    verify(apacheClient).sendWrite(eq(handle), eq(100L), any(), eq(0), eq(CHUNK_SIZE));
+    verify(apacheClient).checkWriteResponse(0);
+    verify(muleClient, never()).getFile(any());
+  }
+
+  @Test
+  void overwriteDoesNotStatTheFile() throws Exception {
+    new SftpPipelinedWriter(muleClient, apacheClient, BUFFER_SIZE_1KB, 4)
+        .write(PATH, content(1), FileWriteMode.OVERWRITE, uri, false);
+
+    verify(apacheClient, never()).stat(any(Handle.class));
+    verify(muleClient, never()).getFile(any());
+    verify(apacheClient).sendWrite(eq(handle), eq(0L), any(), eq(0), eq(CHUNK_SIZE));
+  }
+
+  @Test
+  void failsOnFirstErrorAndDiscardsPendingResponses() throws Exception {
+    IOException failure = new IOException("write failed");
+    doThrow(failure).when(apacheClient).checkWriteResponse(0);
+
+    IOException thrown = assertThrows(IOException.class,
+                                      () -> new SftpPipelinedWriter(muleClient, apacheClient, BUFFER_SIZE_1KB, 2)
+                                          .write(PATH, content(5), FileWriteMode.OVERWRITE, uri, false));
+
+    assertSame(failure, thrown);
+    verify(apacheClient, times(2)).sendWrite(any(), anyLong(), any(), anyInt(), anyInt());
+    verify(apacheClient).checkWriteResponse(1);
+    verify(apacheClient, never()).checkWriteResponse(2);
+    verify(handle).close();
+  }
+
+  private static ByteArrayInputStream content(int chunks) {
+    return new ByteArrayInputStream(new byte[chunks * CHUNK_SIZE]);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.connection;
+
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FXP_REMOVE;
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_PERMISSION_DENIED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.exception.FileLockedException;
+import org.mule.runtime.api.exception.MuleRuntimeException;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.tck.size.SmallTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sshd.sftp.common.SftpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+@SmallTest
+public class SftpTreeDeleterTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+  private SftpClient client;
+  private SftpConcurrentClient sftp;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    client = mock(SftpClient.class);
+    List<SftpFileAttributes> root = asList(file("/t/a.txt", false), file("/t/sub", true), file("/t/empty", true));
+    List<SftpFileAttributes> sub = asList(file("/t/sub/b.txt", false));
+    List<SftpFileAttributes> empty = emptyList();
+    when(client.list("/t")).thenReturn(root);
+    when(client.list("/t/sub")).thenReturn(sub);
+    when(client.list("/t/empty")).thenReturn(empty);
+    when(client.handleException(anyString(), any()))
+        .thenAnswer(invocation -> new RuntimeException((String) invocation.getArgument(0)));
+
+    sftp = mock(SftpConcurrentClient.class);
+    AtomicInteger ids = new AtomicInteger();
+    when(sftp.sendRemove(anyString())).thenAnswer(invocation -> {
+      sent.add("rm " + invocation.getArgument(0));
+      return ids.incrementAndGet();
+    });
+    when(sftp.sendRmdir(anyString())).thenAnswer(invocation -> {
+      sent.add("rmdir " + invocation.getArgument(0));
+      return ids.incrementAndGet();
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void treeIsRemovedBottomUp() throws Exception {
+    Scheduler scheduler = scheduler();
+
+    new SftpTreeDeleter(client, sftp, path -> {
+    }, 2).delete("/t");
+
+    assertEquals(5, sent.size());
+    assertTrue(sent.indexOf("rmdir /t/sub") > sent.indexOf("rm /t/sub/b.txt"), sent.toString());
+    assertEquals("rmdir /t", sent.get(sent.size() - 1));
+    verify(scheduler, never()).stop();
+  }
+
+  @Test
+  void errorOfAListingWorkerFailsTheDeletionOnceEveryWorkerIsOver() throws Exception {
+    scheduler();
+    when(client.list("/t/sub")).thenThrow(new LinkageError("broken"));
+
+    SftpTreeDeleter deleter = new SftpTreeDeleter(client, sftp, path -> {
+    }, 2);
+
+    MuleRuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                                                       () -> assertThrows(MuleRuntimeException.class, () -> deleter.delete("/t")));
+
+    assertTrue(e.getCause() instanceof LinkageError, String.valueOf(e.getCause()));
+  }
+
+  @Test
+  void filesAreRemovedWhileTheTreeIsStillBeingListed() throws Exception {
+    scheduler();
+    CountDownLatch firstRemovalSent = new CountDownLatch(1);
+    when(sftp.sendRemove("/t/a.txt")).thenAnswer(invocation -> {
+      sent.add("rm /t/a.txt");
+      firstRemovalSent.countDown();
+      return 200;
+    });
+    AtomicBoolean listedAfterFirstRemoval = new AtomicBoolean();
+    when(client.list("/t/sub")).thenAnswer(invocation -> {
+      listedAfterFirstRemoval.set(firstRemovalSent.await(5, SECONDS));
+      return asList(file("/t/sub/b.txt", false));
+    });
+
+    new SftpTreeDeleter(client, sftp, path -> {
+    }, 4).delete("/t");
+
+    assertTrue(listedAfterFirstRemoval.get());
+    assertEquals("rmdir /t", sent.get(sent.size() - 1));
+  }
+
+  @Test
+  void filesAreRemovedBeforeListingTheNextDirectoryWithoutScheduler() throws Exception {
+    new SftpTreeDeleter(client, sftp, path -> {
+    }, 4).delete("/t");
+
+    InOrder inOrder = inOrder(sftp, client);
+    inOrder.verify(sftp).sendRemove("/t/a.txt");
+    inOrder.verify(client).list("/t/sub");
+    assertEquals(5, sent.size());
+    assertEquals("rmdir /t", sent.get(sent.size() - 1));
+  }
+
+  @Test
+  void failedRemovalKeepsItsAncestors() throws Exception {
+    when(sftp.sendRemove("/t/sub/b.txt")).thenReturn(100);
+    doThrow(new SftpException(SSH_FX_PERMISSION_DENIED, "denied")).when(sftp).checkStatusResponse(SSH_FXP_REMOVE, 100);
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> new SftpTreeDeleter(client, sftp, path -> {
+    }, 4).delete("/t"));
+
+    assertEquals("Could not delete /t/sub/b.txt", e.getMessage());
+    verify(sftp).sendRemove("/t/a.txt");
+    verify(sftp).sendRmdir("/t/empty");
+    verify(sftp, never()).sendRmdir("/t/sub");
+    verify(sftp, never()).sendRmdir("/t");
+  }
+
+  @Test
+  void lockedFilesAreKeptAndReported() throws Exception {
+    FileLockedException locked = new FileLockedException("locked");
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> new SftpTreeDeleter(client, sftp, path -> {
+      if (path.equals("/t/a.txt")) {
+        throw locked;
+      }
+    }, 4).delete("/t"));
+
+    assertSame(locked, e);
+    verify(sftp, never()).sendRemove("/t/a.txt");
+    verify(sftp).sendRmdir("/t/sub");
+    verify(sftp, never()).sendRmdir("/t");
+  }
+
+  private Scheduler scheduler() {
+    Scheduler scheduler = mock(Scheduler.class);
+    doAnswer(invocation -> {
+      executor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any(Runnable.class));
+    when(client.getIoScheduler()).thenReturn(scheduler);
+    return scheduler;
+  }
+
+  private static SftpFileAttributes file(String path, boolean directory) {
+    SftpFileAttributes attributes = mock(SftpFileAttributes.class);
+    when(attributes.getPath()).thenReturn(path);
+    when(attributes.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    when(attributes.isDirectory()).thenReturn(directory);
+    return attributes;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.tck.size.SmallTest;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class MoveSftpDelegateTest {
+
+  private static final URI TARGET = URI.create("/target/file.txt");
+
+  private SftpCommand command;
+  private SftpFileSystemConnection fileSystem;
+  private SftpFileAttributes source;
+  private MoveSftpDelegate delegate;
+
+  @BeforeEach
+  void setUp() {
+    command = mock(SftpCommand.class);
+    fileSystem = mock(SftpFileSystemConnection.class);
+    source = mock(SftpFileAttributes.class);
+    when(source.getPath()).thenReturn("/source/file.txt");
+    delegate = new MoveSftpDelegate(command, fileSystem);
+  }
+
+  @Test
+  void overwritingMoveIsASingleAtomicRename() {
+    when(command.replaceAtomically("/source/file.txt", TARGET.getPath())).thenReturn(true);
+
+    delegate.doCopy(null, source, TARGET, true);
+
+    verify(command, never()).exists(any());
+    verify(fileSystem, never()).delete(anyString());
+    verify(command, never()).rename(anyString(), anyString(), anyBoolean());
+  }
+
+  @Test
+  void overwritingMoveFallsBackToDeletingTheTarget() {
+    when(command.exists(TARGET)).thenReturn(true);
+
+    delegate.doCopy(null, source, TARGET, true);
+
+    verify(fileSystem).delete(TARGET.getPath());
+    verify(command).rename("/source/file.txt", TARGET.getPath(), true);
+  }
+
+  @Test
+  void movingWithoutOverwriteDoesNotReplace() {
+    delegate.doCopy(null, source, TARGET, false);
+
+    verify(command, never()).replaceAtomically(anyString(), anyString());
+    verify(command).rename("/source/file.txt", TARGET.getPath(), false);
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import static org.apache.sshd.sftp.common.SftpConstants.SSH_FX_OP_UNSUPPORTED;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.extension.SftpConnector;
+import org.mule.runtime.api.connection.ConnectionHandler;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.core.api.connector.ConnectionManager;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sshd.sftp.common.SftpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class SftpCopyCommandTest {
+
+  private static final byte[] CONTENT = "copied content".getBytes();
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final List<ConnectionHandler<SftpFileSystemConnection>> borrowedConnections =
+      Collections.synchronizedList(new ArrayList<>());
+
+  private final Map<String, byte[]> streamedFiles = new ConcurrentHashMap<>();
+
+  private SftpConnector config;
+  private SftpFileSystemConnection fileSystem;
+  private SftpClient client;
+  private SftpClient pooledClient;
+  private Scheduler scheduler;
+  private SftpCopyCommand command;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    fileSystem = connection();
+    client = fileSystem.getClient();
+    command = new SftpCopyCommand(fileSystem, client);
+
+    SftpFileAttributes source = file("/src", true);
+    when(client.getAttributes(any(URI.class)))
+        .thenAnswer(invocation -> "/src".equals(((URI) invocation.getArgument(0)).getPath()) ? source : null);
+    when(client.getWorkingDirectory()).thenReturn("/");
+    List<SftpFileAttributes> sourceFiles = asList(file("/src/sub", true), file("/src/a.txt", false));
+    List<SftpFileAttributes> subdirectoryFiles = asList(file("/src/sub/b.txt", false));
+    when(client.list("/src")).thenReturn(sourceFiles);
+    when(client.list("/src/sub")).thenReturn(subdirectoryFiles);
+
+    scheduler = mock(Scheduler.class);
+    when(scheduler.submit(any(Runnable.class)))
+        .thenAnswer(invocation -> executor.submit((Runnable) invocation.getArgument(0)));
+    doAnswer(invocation -> {
+      executor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any(Runnable.class));
+    when(client.getIoScheduler()).thenReturn(scheduler);
+    when(client.copyOnServer(anyString(), anyString(), anyBoolean())).thenReturn(true);
+
+    pooledClient = mock(SftpClient.class);
+    config = mock(SftpConnector.class);
+    ConnectionManager connectionManager = mock(ConnectionManager.class);
+    when(config.getConnectionManager()).thenReturn(connectionManager);
+    when(connectionManager.getConnection(config)).thenAnswer(invocation -> {
+      SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+      when(connection.getBasePath()).thenReturn("/");
+      when(connection.getClient()).thenReturn(pooledClient);
+      doAnswer(write -> {
+        streamedFiles.put(write.getArgument(0), IOUtils.toByteArray((InputStream) write.getArgument(1)));
+        return null;
+      }).when(connection).write(anyString(), any(InputStream.class), any(), anyBoolean(), anyBoolean(), any(), any(), anyInt(),
+                                anyInt(), anyBoolean());
+      ConnectionHandler<SftpFileSystemConnection> handler = mock(ConnectionHandler.class);
+      when(handler.getConnection()).thenReturn(connection);
+      borrowedConnections.add(handler);
+      return handler;
+    });
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void directoryFilesAreReadOverTheOperationConnectionAndWrittenOverPooledOnes() throws Exception {
+    command.copy(config, "/src", "/dst", false, true, null, 2, false);
+
+    verify(client).mkdirs("/dst/src");
+    verify(client).mkdirs("/dst/src/sub");
+    verify(client).copyOnServer("/src/a.txt", "/dst/src/a.txt", false);
+    verify(client).copyOnServer("/src/sub/b.txt", "/dst/src/sub/b.txt", false);
+    verify(pooledClient, never()).copyOnServer(anyString(), anyString(), anyBoolean());
+    // only the writer connection of every worker
+    assertEquals(2, borrowedConnections.size());
+    for (ConnectionHandler<SftpFileSystemConnection> handler : borrowedConnections) {
+      verify(handler).release();
+    }
+  }
+
+  @Test
+  void filesAreStreamedOverPooledConnectionsWhenTheServerCannotCopyThem() throws Exception {
+    when(client.copyOnServer(eq("/src/a.txt"), anyString(), anyBoolean())).thenReturn(false);
+    when(client.copyOnServer(eq("/src/sub/b.txt"), anyString(), anyBoolean()))
+        .thenThrow(new SftpException(SSH_FX_OP_UNSUPPORTED, "copy-data is not supported"));
+    when(fileSystem.retrieveFileContent(any())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+
+    command.copy(config, "/src", "/dst", false, true, null, 2, false);
+
+    assertEquals(2, streamedFiles.size());
+    assertArrayEquals(CONTENT, streamedFiles.get("/dst/src/a.txt"));
+    assertArrayEquals(CONTENT, streamedFiles.get("/dst/src/sub/b.txt"));
+    verify(fileSystem, never()).write(anyString(), any(InputStream.class), any(), anyBoolean(), anyBoolean(), any(), any(),
+                                      anyInt(), anyInt(), anyBoolean());
+    for (ConnectionHandler<SftpFileSystemConnection> handler : borrowedConnections) {
+      verify(handler).release();
+    }
+  }
+
+  @Test
+  void continueOnErrorCopiesTheRestAndReportsEveryFailure() throws Exception {
+    when(client.copyOnServer(eq("/src/a.txt"), anyString(), anyBoolean())).thenThrow(new IOException("denied"));
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.copy(config, "/src", "/dst", false, true, null, 2,
+                                                                                 true));
+
+    String message = e.getCause().getMessage();
+    assertTrue(message.contains("1 of 2"), message);
+    assertTrue(message.contains("/src/a.txt"), message);
+    verify(client).copyOnServer("/src/sub/b.txt", "/dst/src/sub/b.txt", false);
+  }
+
+  @Test
+  void failFastReportsTheFirstFailure() throws Exception {
+    when(client.copyOnServer(anyString(), anyString(), anyBoolean())).thenThrow(new IOException("denied"));
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.copy(config, "/src", "/dst", false, true, null, 2,
+                                                                                 false));
+
+    String message = e.getCause().getMessage();
+    assertTrue(message.contains("Found exception while trying to copy file"), message);
+    verify(client, atLeastOnce()).copyOnServer(anyString(), anyString(), anyBoolean());
+    verify(scheduler, times(2)).execute(any(Runnable.class));
+    verify(scheduler, never()).stop();
+  }
+
+  @Test
+  void errorsOfTheWorkersAreWrapped() throws Exception {
+    when(client.copyOnServer(anyString(), anyString(), anyBoolean())).thenThrow(new LinkageError("broken"));
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.copy(config, "/src", "/dst", false, true, null, 2,
+                                                                                 false));
+
+    assertTrue(e.getCause().getCause() instanceof LinkageError, e.getCause().toString());
+  }
+
+  @Test
+  void workerFailureWaitsForTheOtherWorkers() throws Exception {
+    AtomicBoolean slowCopyFinished = new AtomicBoolean();
+    when(client.copyOnServer(eq("/src/sub/b.txt"), anyString(), anyBoolean())).thenAnswer(invocation -> {
+      Thread.sleep(200);
+      slowCopyFinished.set(true);
+      return true;
+    });
+    when(client.copyOnServer(eq("/src/a.txt"), anyString(), anyBoolean())).thenThrow(new LinkageError("broken"));
+
+    assertThrows(RuntimeException.class, () -> command.copy(config, "/src", "/dst", false, true, null, 2, false));
+
+    assertTrue(slowCopyFinished.get());
+    for (ConnectionHandler<SftpFileSystemConnection> handler : borrowedConnections) {
+      verify(handler).release();
+    }
+  }
+
+  @Test
+  void walkFailureWaitsForTheWorkers() throws Exception {
+    AtomicBoolean copyFinished = new AtomicBoolean();
+    List<SftpFileAttributes> sourceFiles = asList(file("/src/a.txt", false), file("/src/sub", true));
+    when(client.list("/src")).thenReturn(sourceFiles);
+    when(client.list("/src/sub")).thenAnswer(invocation -> {
+      Thread.sleep(50);
+      throw new IllegalStateException("listing failed");
+    });
+    when(client.copyOnServer(eq("/src/a.txt"), anyString(), anyBoolean())).thenAnswer(invocation -> {
+      Thread.sleep(200);
+      copyFinished.set(true);
+      return true;
+    });
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.copy(config, "/src", "/dst", false, true, null, 2,
+                                                                                 false));
+
+    Throwable cause = e;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertEquals("listing failed", cause.getMessage());
+    assertTrue(copyFinished.get());
+    for (ConnectionHandler<SftpFileSystemConnection> handler : borrowedConnections) {
+      verify(handler).release();
+    }
+  }
+
+  private static SftpFileSystemConnection connection() {
+    SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+    SftpClient client = mock(SftpClient.class);
+    when(connection.getBasePath()).thenReturn("/");
+    when(connection.getClient()).thenReturn(client);
+    when(connection.createMuleLock(anyString())).thenAnswer(invocation -> new ReentrantLock());
+    return connection;
+  }
+
+  private static SftpFileAttributes file(String path, boolean directory) {
+    SftpFileAttributes attributes = mock(SftpFileAttributes.class);
+    when(attributes.getPath()).thenReturn(path);
+    when(attributes.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    when(attributes.isDirectory()).thenReturn(directory);
+    return attributes;
+  }
+}
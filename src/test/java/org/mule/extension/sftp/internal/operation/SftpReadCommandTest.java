@@ -11,9 +11,12 @@ import org.junit.jupiter.api.Test;
 import org.mule.extension.sftp.api.SftpFileAttributes;
 import org.mule.extension.sftp.internal.config.FileConnectorConfig;
 import org.mule.extension.sftp.internal.exception.FileAccessDeniedException;
+import org.mule.extension.sftp.internal.exception.IllegalPathException;
 
 import java.net.URI;
+import java.util.concurrent.Semaphore;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -33,4 +36,50 @@ public class SftpReadCommandTest {
     assertThrows(FileAccessDeniedException.class, () -> mockCommand.read(mock(FileConnectorConfig.class), "path", false, 0L));
   }
 
+  @Test
+  void testReadListedFileDoesNotFetchItsAttributes() {
+    SftpReadCommand mockCommand = mock(SftpReadCommand.class);
+    SftpFileAttributes mockAttributes = mock(SftpFileAttributes.class);
+
+    when(mockAttributes.getPath()).thenReturn("path");
+    when(mockCommand.cannotReadFileException(any(URI.class))).thenCallRealMethod();
+    doCallRealMethod().when(mockCommand).read(any(FileConnectorConfig.class), any(SftpFileAttributes.class), eq(false),
+                                              anyLong(), eq(true));
+
+    assertThrows(FileAccessDeniedException.class,
+                 () -> mockCommand.read(mock(FileConnectorConfig.class), mockAttributes, false, 0L, true));
+    verify(mockCommand, never()).getExistingFile(anyString());
+  }
+
+  @Test
+  void testReadWithConnectionPermitsChecksTheFileCanBeRead() {
+    SftpReadCommand mockCommand = mock(SftpReadCommand.class);
+    SftpFileAttributes mockAttributes = mock(SftpFileAttributes.class);
+    Semaphore permits = new Semaphore(1);
+
+    when(mockAttributes.getPath()).thenReturn("path");
+    when(mockCommand.cannotReadFileException(any(URI.class))).thenCallRealMethod();
+    doCallRealMethod().when(mockCommand).read(any(FileConnectorConfig.class), any(SftpFileAttributes.class), eq(false),
+                                              anyLong(), any(Semaphore.class));
+
+    assertThrows(FileAccessDeniedException.class,
+                 () -> mockCommand.read(mock(FileConnectorConfig.class), mockAttributes, false, 0L, permits));
+    assertEquals(1, permits.availablePermits());
+  }
+
+  @Test
+  void testReadWithConnectionPermitsRejectsDirectories() {
+    SftpReadCommand mockCommand = mock(SftpReadCommand.class);
+    SftpFileAttributes mockAttributes = mock(SftpFileAttributes.class);
+
+    when(mockAttributes.getPath()).thenReturn("path");
+    when(mockAttributes.isDirectory()).thenReturn(true);
+    when(mockCommand.cannotReadDirectoryException(any(URI.class))).thenCallRealMethod();
+    doCallRealMethod().when(mockCommand).read(any(FileConnectorConfig.class), any(SftpFileAttributes.class), eq(false),
+                                              anyLong(), any(Semaphore.class));
+
+    assertThrows(IllegalPathException.class,
+                 () -> mockCommand.read(mock(FileConnectorConfig.class), mockAttributes, false, 0L, new Semaphore(1)));
+  }
+
 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import static org.mule.extension.sftp.api.FileWriteMode.CREATE_NEW;
+import static org.mule.extension.sftp.api.WriteStrategy.PIPELINED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.api.SyncResult;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.extension.sftp.internal.exception.IllegalPathException;
+import org.mule.extension.sftp.internal.extension.SftpConnector;
+import org.mule.runtime.api.connection.ConnectionHandler;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.core.api.connector.ConnectionManager;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class SftpTransferCommandTest {
+
+  private static final byte[] CONTENT = "transferred content".getBytes();
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(6);
+  private final Map<String, byte[]> written = new ConcurrentHashMap<>();
+
+  private SftpConnector sourceConfig;
+  private SftpConnector targetConfig;
+  private SftpClient sourceClient;
+  private SftpClient targetClient;
+  private Scheduler scheduler;
+  private SftpTransferCommand command;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    scheduler = mock(Scheduler.class);
+    when(scheduler.submit(any(Runnable.class)))
+        .thenAnswer(invocation -> executor.submit((Runnable) invocation.getArgument(0)));
+    doAnswer(invocation -> {
+      executor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any(Runnable.class));
+
+    sourceClient = mock(SftpClient.class);
+    when(sourceClient.getIoScheduler()).thenReturn(scheduler);
+    when(sourceClient.getWorkingDirectory()).thenReturn("/");
+    SftpFileAttributes directory = file("/src", true);
+    SftpFileAttributes single = file("/single.txt", false);
+    when(sourceClient.getAttributes(any(URI.class))).thenAnswer(invocation -> {
+      String path = ((URI) invocation.getArgument(0)).getPath();
+      return "/src".equals(path) ? directory : "/single.txt".equals(path) ? single : null;
+    });
+    List<SftpFileAttributes> sourceFiles = asList(file("/src/sub", true), file("/src/a.txt", false));
+    List<SftpFileAttributes> subdirectoryFiles = asList(file("/src/sub/b.txt", false));
+    when(sourceClient.list("/src")).thenReturn(sourceFiles);
+    when(sourceClient.list("/src/sub")).thenReturn(subdirectoryFiles);
+    SftpFileSystemConnection source = connection(sourceClient);
+    command = new SftpTransferCommand(source, sourceClient);
+    sourceConfig = config(source);
+
+    targetClient = mock(SftpClient.class);
+    when(targetClient.getWorkingDirectory()).thenReturn("/");
+    SftpFileAttributes targetDirectory = file("/dst", true);
+    SftpFileAttributes extraneous = file("/dst/old.txt", false);
+    when(targetClient.getAttributes(any(URI.class))).thenAnswer(invocation -> {
+      String path = ((URI) invocation.getArgument(0)).getPath();
+      return "/dst".equals(path) ? targetDirectory : "/dst/old.txt".equals(path) ? extraneous : null;
+    });
+    doAnswerWrite();
+    when(targetClient.md5(anyString())).thenReturn(MessageDigest.getInstance("MD5").digest(CONTENT));
+    targetConfig = config(connection(targetClient));
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void fileIsStreamedToTheTargetServer() throws Exception {
+    command.transfer(sourceConfig, "/single.txt", targetConfig, "/dst", false, true, true, 1, false);
+
+    assertArrayEquals(CONTENT, written.get("/dst/single.txt"));
+    verify(targetClient).write(eq("/dst/single.txt"), any(InputStream.class), eq(CREATE_NEW), any(), anyBoolean(),
+                               eq(PIPELINED), any(), anyInt(), anyInt(), anyBoolean());
+    verify(targetClient).md5("/dst/single.txt");
+  }
+
+  @Test
+  void checksumMismatchDeletesTheTarget() throws Exception {
+    when(targetClient.md5(anyString())).thenReturn(new byte[16]);
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.transfer(sourceConfig, "/single.txt", targetConfig,
+                                                                                     "/dst", false, true, true, 1, false));
+
+    assertTrue(e.getMessage().contains("Checksum"), e.getMessage());
+    verify(targetClient).deleteFile("/dst/single.txt");
+  }
+
+  @Test
+  void directoryIsTransferredConcurrentlyReportingEveryFailure() throws Exception {
+    doThrow(new FileAlreadyExistsException("already exists")).when(targetClient)
+        .write(eq("/dst/src/a.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(), anyInt(),
+               anyBoolean());
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.transfer(sourceConfig, "/src", targetConfig, "/dst",
+                                                                                     false, true, false, 2, true));
+
+    assertTrue(e.getMessage().contains("1 of 2"), e.getMessage());
+    assertTrue(e.getMessage().contains("/src/a.txt"), e.getMessage());
+    verify(targetClient).mkdirs("/dst/src");
+    verify(targetClient).mkdirs("/dst/src/sub");
+    assertArrayEquals(CONTENT, written.get("/dst/src/sub/b.txt"));
+    assertEquals(1, written.size());
+    // the connections of the operation serve one of both workers, the other one borrows a connection from each pool
+    verify(sourceConfig.getConnectionManager(), times(1)).getConnection(sourceConfig);
+    verify(targetConfig.getConnectionManager(), times(2)).getConnection(targetConfig);
+    verify(scheduler, never()).stop();
+  }
+
+  @Test
+  void errorsOfTheWorkersAreWrappedOnceEveryWorkerIsOver() throws Exception {
+    doThrow(new LinkageError("broken")).when(targetClient)
+        .write(eq("/dst/src/a.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(), anyInt(),
+               anyBoolean());
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.transfer(sourceConfig, "/src", targetConfig, "/dst",
+                                                                                     false, true, false, 2, true));
+
+    assertTrue(e.getCause() instanceof LinkageError, String.valueOf(e.getCause()));
+  }
+
+  @Test
+  void syncOnlyTransfersNewAndChangedFiles() throws Exception {
+    ZonedDateTime now = ZonedDateTime.now();
+    List<SftpFileAttributes> sourceFiles = asList(file("/src/sub", true), file("/src/a.txt", 10, now));
+    List<SftpFileAttributes> targetFiles =
+        asList(file("/dst/a.txt", 10, now.plusMinutes(1)), file("/dst/old.txt", false));
+    when(sourceClient.list("/src")).thenReturn(sourceFiles);
+    when(targetClient.list("/dst")).thenReturn(targetFiles);
+
+    SyncResult result = command.sync(sourceConfig, "/src", targetConfig, "/dst", false, true, 2, false);
+
+    assertEquals(singletonList("/dst/sub/b.txt"), result.getTransferredFiles());
+    assertEquals(singletonList("/dst/old.txt"), result.getDeletedFiles());
+    assertEquals(1, result.getUnchangedFiles());
+    verify(targetClient).mkdirs("/dst/sub");
+    verify(targetClient, never()).list("/dst/sub");
+    verify(targetClient).deleteFile("/dst/old.txt");
+    assertArrayEquals(CONTENT, written.get("/dst/sub/b.txt"));
+    assertEquals(1, written.size());
+    verify(scheduler, never()).stop();
+  }
+
+  @Test
+  void syncComparesChecksumsOfFilesOfTheSameSize() throws Exception {
+    ZonedDateTime now = ZonedDateTime.now();
+    List<SftpFileAttributes> sourceFiles = asList(file("/src/a.txt", 10, now), file("/src/c.txt", 10, now));
+    List<SftpFileAttributes> targetFiles =
+        asList(file("/dst/a.txt", 10, now.minusMinutes(1)), file("/dst/c.txt", 10, now.minusMinutes(1)),
+               file("/dst/old.txt", false));
+    when(sourceClient.list("/src")).thenReturn(sourceFiles);
+    when(targetClient.list("/dst")).thenReturn(targetFiles);
+    byte[] checksum = MessageDigest.getInstance("MD5").digest(CONTENT);
+    when(sourceClient.md5(anyString())).thenReturn(checksum);
+    // the first checksum is the one compared before the transfer, the second one verifies it
+    when(targetClient.md5("/dst/c.txt")).thenReturn(new byte[16], checksum);
+
+    SyncResult result = command.sync(sourceConfig, "/src", targetConfig, "/dst", true, false, 1, false);
+
+    assertEquals(singletonList("/dst/c.txt"), result.getTransferredFiles());
+    assertEquals(1, result.getUnchangedFiles());
+    assertTrue(result.getDeletedFiles().isEmpty());
+    verify(targetClient, never()).deleteFile("/dst/old.txt");
+  }
+
+  @Test
+  void errorsListingTheTargetAreWrapped() throws Exception {
+    when(targetClient.list("/dst")).thenThrow(new LinkageError("broken"));
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.sync(sourceConfig, "/src", targetConfig, "/dst",
+                                                                                 false, false, 1, false));
+
+    assertTrue(e.getMessage().contains("/dst"), e.getMessage());
+    assertTrue(e.getCause() instanceof LinkageError, String.valueOf(e.getCause()));
+  }
+
+  @Test
+  void syncIntoItselfIsRejected() {
+    assertThrows(IllegalPathException.class,
+                 () -> command.sync(sourceConfig, "/src", sourceConfig, "/src/sub", false, false, 1, false));
+  }
+
+  private void doAnswerWrite() throws Exception {
+    doAnswer(invocation -> {
+      InputStream content = invocation.getArgument(1);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4];
+      int read;
+      while ((read = content.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      written.put(invocation.getArgument(0), out.toByteArray());
+      return null;
+    }).when(targetClient).write(anyString(), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(),
+                                anyInt(), anyBoolean());
+  }
+
+  private static SftpFileSystemConnection connection(SftpClient client) {
+    SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+    when(connection.getBasePath()).thenReturn("/");
+    when(connection.getClient()).thenReturn(client);
+    when(connection.retrieveFileContent(any())).thenAnswer(invocation -> new ByteArrayInputStream(CONTENT));
+    return connection;
+  }
+
+  private static SftpConnector config(SftpFileSystemConnection connection) throws Exception {
+    SftpConnector config = mock(SftpConnector.class);
+    ConnectionManager connectionManager = mock(ConnectionManager.class);
+    when(config.getConnectionManager()).thenReturn(connectionManager);
+    when(connectionManager.getConnection(config)).thenAnswer(invocation -> {
+      ConnectionHandler<SftpFileSystemConnection> handler = mock(ConnectionHandler.class);
+      when(handler.getConnection()).thenReturn(connection);
+      return handler;
+    });
+    return config;
+  }
+
+  private static SftpFileAttributes file(String path, long size, ZonedDateTime timestamp) {
+    SftpFileAttributes attributes = file(path, false);
+    when(attributes.getSize()).thenReturn(size);
+    when(attributes.getTimestamp()).thenReturn(timestamp);
+    return attributes;
+  }
+
+  private static SftpFileAttributes file(String path, boolean directory) {
+    SftpFileAttributes attributes = mock(SftpFileAttributes.class);
+    when(attributes.getPath()).thenReturn(path);
+    when(attributes.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    when(attributes.isDirectory()).thenReturn(directory);
+    return attributes;
+  }
+}
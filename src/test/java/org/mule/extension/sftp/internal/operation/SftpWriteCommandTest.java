@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.operation;
+
+import static org.mule.extension.sftp.api.CustomWriteBufferSize.BUFFER_SIZE_8KB;
+import static org.mule.extension.sftp.api.FileWriteMode.CREATE_NEW;
+import static org.mule.extension.sftp.api.WriteStrategy.PIPELINED;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.WriteBatchItem;
+import org.mule.extension.sftp.api.WriteBatchResult;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class SftpWriteCommandTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private SftpClient client;
+  private Scheduler scheduler;
+  private SftpWriteCommand command;
+
+  @BeforeEach
+  void setUp() {
+    SftpFileSystemConnection fileSystem = mock(SftpFileSystemConnection.class);
+    when(fileSystem.getBasePath()).thenReturn("/base");
+    client = mock(SftpClient.class);
+    command = new SftpWriteCommand(fileSystem, client);
+
+    scheduler = mock(Scheduler.class);
+    doAnswer(invocation -> {
+      executor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any(Runnable.class));
+    when(client.getIoScheduler()).thenReturn(scheduler);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void everyItemIsWrittenAndReportedInOrder() throws Exception {
+    List<WriteBatchResult> results = command.writeBatch(asList(item("a.txt"), item("b.txt"), item("c.txt")), CREATE_NEW, true,
+                                                        2, BUFFER_SIZE_8KB, 16);
+
+    assertEquals(3, results.size());
+    assertEquals("a.txt", results.get(0).getPath());
+    assertEquals("b.txt", results.get(1).getPath());
+    assertEquals("c.txt", results.get(2).getPath());
+    results.forEach(result -> assertTrue(result.isSuccessful()));
+    verify(client, times(3)).write(any(), any(InputStream.class), eq(CREATE_NEW), any(), eq(true), eq(PIPELINED),
+                                   eq(BUFFER_SIZE_8KB), eq(16), anyInt(), anyBoolean());
+    verify(client).write(eq("/base/b.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(),
+                         anyInt(), anyBoolean());
+    verify(scheduler, never()).stop();
+  }
+
+  @Test
+  void failedItemDoesNotStopTheBatch() throws Exception {
+    doThrow(new FileAlreadyExistsException("already exists")).when(client)
+        .write(eq("/base/a.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(), anyInt(),
+               anyBoolean());
+
+    List<WriteBatchResult> results = command.writeBatch(asList(item("a.txt"), item("b.txt")), CREATE_NEW, true, 4,
+                                                        BUFFER_SIZE_8KB, 16);
+
+    assertFalse(results.get(0).isSuccessful());
+    assertEquals("already exists", results.get(0).getErrorMessage());
+    assertTrue(results.get(1).isSuccessful());
+    assertNull(results.get(1).getErrorMessage());
+  }
+
+  @Test
+  void errorOfAWorkerIsThrownOnceTheOtherWorkersAreOver() throws Exception {
+    AtomicBoolean slowWriteFinished = new AtomicBoolean();
+    doAnswer(invocation -> {
+      Thread.sleep(200);
+      slowWriteFinished.set(true);
+      return null;
+    }).when(client).write(eq("/base/a.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(),
+                          anyInt(), anyBoolean());
+    doThrow(new LinkageError("broken")).when(client)
+        .write(eq("/base/b.txt"), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(), anyInt(),
+               anyBoolean());
+
+    RuntimeException e = assertThrows(RuntimeException.class, () -> command.writeBatch(asList(item("a.txt"), item("b.txt")),
+                                                                                       CREATE_NEW, true, 2, BUFFER_SIZE_8KB,
+                                                                                       16));
+
+    assertTrue(e.getCause() instanceof LinkageError, String.valueOf(e.getCause()));
+    assertTrue(slowWriteFinished.get());
+  }
+
+  @Test
+  void invalidItemsAreReportedWithoutWriting() throws Exception {
+    List<WriteBatchResult> results = command.writeBatch(asList(new WriteBatchItem(" ", content()),
+                                                               new WriteBatchItem("a.txt", null)),
+                                                        CREATE_NEW, true, 1, BUFFER_SIZE_8KB, 16);
+
+    assertFalse(results.get(0).isSuccessful());
+    assertFalse(results.get(1).isSuccessful());
+    verify(client, never()).write(any(), any(InputStream.class), any(), any(), anyBoolean(), any(), any(), anyInt(), anyInt(),
+                                  anyBoolean());
+  }
+
+  private static WriteBatchItem item(String path) {
+    return new WriteBatchItem(path, content());
+  }
+
+  private static InputStream content() {
+    return new ByteArrayInputStream("content".getBytes());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.mule.tck.size.SmallTest;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class AdaptivePollingTest {
+
+  private static final long PERIOD = SECONDS.toNanos(1);
+
+  private final AdaptivePolling polling = new AdaptivePolling(SECONDS.toNanos(8));
+
+  @Test
+  void emptyPollsBackOffExponentiallyUpToTheMaximumInterval() {
+    List<Integer> listedTicks = new ArrayList<>();
+    for (int tick = 0; tick < 40; tick++) {
+      if (polling.isDue(tick * PERIOD)) {
+        listedTicks.add(tick);
+        polling.polled(false);
+      }
+    }
+
+    // every empty poll doubles the interval: 1, 2, 4 and then capped at 8 seconds
+    assertEquals(asList(0, 1, 3, 7, 15, 23, 31, 39), listedTicks);
+    assertEquals(SECONDS.toNanos(8), polling.getInterval());
+  }
+
+  @Test
+  void pollWithNewFilesResetsTheInterval() {
+    long now = 0;
+    for (int i = 0; i < 10; i++, now += PERIOD) {
+      if (polling.isDue(now)) {
+        polling.polled(false);
+      }
+    }
+    assertEquals(SECONDS.toNanos(8), polling.getInterval());
+
+    while (!polling.isDue(now)) {
+      now += PERIOD;
+    }
+    polling.polled(true);
+
+    assertEquals(PERIOD, polling.getInterval());
+    assertTrue(polling.isDue(now + PERIOD));
+  }
+
+  @Test
+  void emptyDirectoryIsUnchangedUntilItsModificationTimeChanges() {
+    ZonedDateTime modified = ZonedDateTime.now();
+    polling.listed(modified, true, 0);
+
+    assertTrue(polling.isUnchanged(modified, PERIOD));
+    assertFalse(polling.isUnchanged(modified.plusSeconds(1), PERIOD));
+    // the directory is listed anyway once the maximum interval elapsed
+    assertFalse(polling.isUnchanged(modified, SECONDS.toNanos(8)));
+  }
+
+  @Test
+  void directoryWithFilesIsAlwaysListed() {
+    ZonedDateTime modified = ZonedDateTime.now();
+    polling.listed(modified, false, 0);
+
+    assertFalse(polling.isUnchanged(modified, PERIOD));
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.util.Collections.synchronizedList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.source.ConnectionLeaseRegistry.Lease;
+import org.mule.tck.size.SmallTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class ConnectionLeaseRegistryTest {
+
+  private final List<SftpFileSystemConnection> disconnected = synchronizedList(new ArrayList<>());
+  private final SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+
+  @Test
+  void connectionWithoutLeasesIsDisconnectedWhenRetired() {
+    ConnectionLeaseRegistry registry = new ConnectionLeaseRegistry(disconnected::add, 60000);
+    registry.register(connection);
+
+    registry.retire(connection);
+    registry.retire(connection);
+
+    assertEquals(1, disconnected.size());
+    assertEquals(0, registry.getOpenConnections());
+  }
+
+  @Test
+  void retiredConnectionIsDisconnectedWhenTheLastLeaseIsReleased() {
+    ConnectionLeaseRegistry registry = new ConnectionLeaseRegistry(disconnected::add, 60000);
+    registry.register(connection);
+    Lease first = registry.acquire(connection, "/a.txt");
+    Lease second = registry.acquire(connection, "/b.txt");
+
+    registry.retire(connection);
+    first.release();
+    first.release();
+
+    assertTrue(disconnected.isEmpty());
+    assertEquals(1, registry.getActiveLeases());
+
+    second.release();
+
+    assertEquals(1, disconnected.size());
+    assertEquals(0, registry.getActiveLeases());
+    assertThrows(IllegalStateException.class, () -> registry.acquire(connection, "/c.txt"));
+  }
+
+  @Test
+  void concurrentReleasesDisconnectOnce() throws Exception {
+    ConnectionLeaseRegistry registry = new ConnectionLeaseRegistry(disconnected::add, 60000);
+    registry.register(connection);
+    List<Lease> leases = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      leases.add(registry.acquire(connection, "/file" + i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> releases = new ArrayList<>();
+      for (Lease lease : leases) {
+        releases.add(executor.submit(lease::release));
+      }
+      registry.retire(connection);
+      for (Future<?> release : releases) {
+        release.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(1, disconnected.size());
+    assertEquals(0, registry.getActiveLeases());
+    assertEquals(1000, registry.getTotalLeases());
+  }
+
+  @Test
+  void leaseHeldForLongerThanTheThresholdIsReportedOnce() throws Exception {
+    ConnectionLeaseRegistry registry = new ConnectionLeaseRegistry(disconnected::add, 0);
+    registry.register(connection);
+    registry.acquire(connection, "/a.txt");
+    Thread.sleep(1);
+
+    assertEquals(1, registry.detectLeaks());
+    assertEquals(0, registry.detectLeaks());
+    assertEquals(1, registry.getLeakedLeases());
+  }
+}
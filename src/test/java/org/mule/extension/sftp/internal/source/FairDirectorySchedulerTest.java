@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.mule.tck.size.SmallTest;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class FairDirectorySchedulerTest {
+
+  private final PolledDirectory light = new PolledDirectory(URI.create("/light"), 1, null, null);
+  private final PolledDirectory heavy = new PolledDirectory(URI.create("/heavy"), 3, null, null);
+  private final PolledDirectory capped = new PolledDirectory(URI.create("/capped"), 1, 2, null);
+  private final FairDirectoryScheduler scheduler = new FairDirectoryScheduler(asList(light, heavy, capped));
+
+  @Test
+  void pollIsSharedByWeightAndUnusedFilesAreLeftToTheNextDirectories() {
+    assertEquals(asList(light, heavy, capped), scheduler.startPoll(10));
+
+    assertEquals(2, scheduler.getLimit(light));
+    scheduler.polled(light, 0);
+    // the light directory had nothing, so its share is split among the others
+    assertEquals(8, scheduler.getLimit(heavy));
+    scheduler.polled(heavy, 8);
+    assertEquals(2, scheduler.getLimit(capped));
+  }
+
+  @Test
+  void directoriesWhichDispatchedLessArePolledFirst() {
+    scheduler.startPoll(null);
+    assertNull(scheduler.getLimit(light));
+    scheduler.polled(light, 6);
+    scheduler.polled(heavy, 6);
+    scheduler.polled(capped, 1);
+    scheduler.finishPoll();
+
+    assertEquals(asList(capped, heavy, light), scheduler.startPoll(null));
+  }
+
+  @Test
+  void idleDirectoriesDontBankAnAdvantage() {
+    for (int i = 0; i < 10; i++) {
+      scheduler.startPoll(null);
+      scheduler.polled(light, 0);
+      scheduler.polled(heavy, 3);
+      scheduler.polled(capped, 0);
+      scheduler.finishPoll();
+    }
+
+    assertEquals(0, scheduler.getVirtualTime(light));
+    assertEquals(0, scheduler.getVirtualTime(heavy));
+  }
+
+  @Test
+  void filesInFlightLimitTheDirectory() {
+    capped.fileDispatched();
+    capped.fileDispatched();
+    scheduler.startPoll(10);
+
+    assertEquals(0, scheduler.getLimit(capped));
+
+    capped.fileProcessed();
+    assertEquals(1, scheduler.getLimit(capped));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mule.runtime.api.store.ObjectAlreadyExistsException;
+import org.mule.runtime.api.store.ObjectDoesNotExistException;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.tck.size.SmallTest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class FileClaimsTest {
+
+  private final Map<String, String> entries = new HashMap<>();
+
+  private FileClaims node;
+  private FileClaims otherNode;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws Exception {
+    ObjectStore<String> store = mock(ObjectStore.class);
+    doAnswer(invocation -> {
+      if (entries.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) != null) {
+        throw new ObjectAlreadyExistsException();
+      }
+      return null;
+    }).when(store).store(anyString(), any());
+    when(store.retrieve(anyString())).thenAnswer(invocation -> {
+      String claimant = entries.get(invocation.<String>getArgument(0));
+      if (claimant == null) {
+        throw new ObjectDoesNotExistException();
+      }
+      return claimant;
+    });
+    when(store.remove(anyString())).thenAnswer(invocation -> entries.remove(invocation.<String>getArgument(0)));
+    node = new FileClaims(store, "node");
+    otherNode = new FileClaims(store, "other-node");
+  }
+
+  @Test
+  void fileIsClaimedByASingleNodeUntilReleased() {
+    assertTrue(node.claim("/in/a.txt"));
+    assertFalse(otherNode.claim("/in/a.txt"));
+    assertFalse(node.claim("/in/a.txt"));
+
+    node.release("/in/a.txt");
+
+    assertTrue(otherNode.claim("/in/a.txt"));
+  }
+
+  @Test
+  void claimOfAnotherNodeIsNotReleased() {
+    assertTrue(node.claim("/in/a.txt"));
+    // the claim expired and the file was claimed by the other node
+    entries.clear();
+    assertTrue(otherNode.claim("/in/a.txt"));
+
+    node.release("/in/a.txt");
+    node.release("/in/b.txt");
+
+    assertFalse(node.claim("/in/a.txt"));
+  }
+}
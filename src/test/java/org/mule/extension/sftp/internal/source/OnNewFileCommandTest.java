@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.tck.size.SmallTest;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class OnNewFileCommandTest {
+
+  private static final Predicate<SftpFileAttributes> FILES = file -> !file.isDirectory();
+  private static final ZonedDateTime MODIFIED = ZonedDateTime.parse("2024-01-01T10:00:00Z");
+
+  private final Map<String, SftpFileAttributes> attributes = new HashMap<>();
+  private final Map<String, List<SftpFileAttributes>> entries = new HashMap<>();
+  private final DirectorySnapshots snapshots = new DirectorySnapshots();
+
+  private SftpClient client;
+  private OnNewFileCommand command;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    client = mock(SftpClient.class);
+    SftpFileSystemConnection fileSystem = mock(SftpFileSystemConnection.class);
+    when(fileSystem.getClient()).thenReturn(client);
+    when(fileSystem.getBasePath()).thenReturn("/");
+    when(client.getAttributes(any())).thenAnswer(invocation -> attributes.get(((URI) invocation.getArgument(0)).getPath()));
+    when(client.listWhile(anyString(), any())).thenAnswer(invocation -> {
+      Predicate<List<SftpFileAttributes>> consumer = invocation.getArgument(1);
+      // every entry comes in its own chunk
+      for (SftpFileAttributes entry : entries.get((String) invocation.getArgument(0))) {
+        if (!consumer.test(asList(entry))) {
+          return false;
+        }
+      }
+      return true;
+    });
+    command = new OnNewFileCommand(fileSystem);
+
+    directory("/root", MODIFIED, file("/root/a.txt"), directory("/root/sub", MODIFIED, file("/root/sub/b.txt")));
+  }
+
+  @Test
+  void unchangedDirectoriesAreNotListedOnceConfirmed() {
+    assertEquals(asList("/root/a.txt", "/root/sub/b.txt"), list(true));
+    assertEquals(asList("/root/a.txt", "/root/sub/b.txt"), list(false));
+    verify(client, times(2)).listWhile(eq("/root"), any());
+    verify(client, times(2)).listWhile(eq("/root/sub"), any());
+
+    assertEquals(asList("/root/a.txt", "/root/sub/b.txt"), list(false));
+
+    verify(client, times(2)).listWhile(eq("/root"), any());
+    verify(client, times(2)).listWhile(eq("/root/sub"), any());
+    assertEquals(2, snapshots.size());
+  }
+
+  @Test
+  void onlyTheDirectoriesWhichChangedAreListed() {
+    list(true);
+    list(false);
+
+    directory("/root/sub", MODIFIED.plusSeconds(1), file("/root/sub/b.txt"), file("/root/sub/c.txt"));
+
+    assertEquals(asList("/root/a.txt", "/root/sub/b.txt", "/root/sub/c.txt"), list(false));
+    verify(client, times(2)).listWhile(eq("/root"), any());
+    verify(client, times(3)).listWhile(eq("/root/sub"), any());
+  }
+
+  @Test
+  void fullScanListsEveryDirectory() {
+    list(true);
+    list(false);
+
+    list(true);
+
+    verify(client, times(3)).listWhile(eq("/root"), any());
+    verify(client, times(3)).listWhile(eq("/root/sub"), any());
+  }
+
+  @Test
+  void removedDirectoriesAreForgotten() {
+    list(true);
+    directory("/root", MODIFIED.plusSeconds(1), file("/root/a.txt"));
+
+    assertEquals(asList("/root/a.txt"), list(false));
+    assertEquals(1, snapshots.size());
+  }
+
+  @Test
+  void walkStopsAsSoonAsTheVisitorSaysSo() {
+    List<String> visited = new ArrayList<>();
+    boolean complete = command.walk("/root", true, FILES, snapshots, true, file -> visited.add(file.getPath()) && false);
+
+    assertFalse(complete);
+    assertEquals(asList("/root/a.txt"), visited);
+    verify(client, never()).listWhile(eq("/root/sub"), any());
+    // a directory whose listing was interrupted has no snapshot
+    assertEquals(0, snapshots.size());
+  }
+
+  @Test
+  void subDirectoriesAreWalkedOnlyWhenRecursive() {
+    List<String> visited = new ArrayList<>();
+    command.walk("/root", false, file -> true, null, false, file -> visited.add(file.getPath()));
+
+    assertEquals(asList("/root/a.txt", "/root/sub"), visited);
+    verify(client, never()).listWhile(eq("/root/sub"), any());
+  }
+
+  private List<String> list(boolean fullScan) {
+    List<String> files = new ArrayList<>();
+    command.walk("/root", true, FILES, snapshots, fullScan, file -> files.add(file.getPath()));
+    return files;
+  }
+
+  private SftpFileAttributes directory(String path, ZonedDateTime timestamp, SftpFileAttributes... children) {
+    SftpFileAttributes directory = entry(path, true, timestamp);
+    attributes.put(path, directory);
+    entries.put(path, asList(children));
+    return directory;
+  }
+
+  private SftpFileAttributes file(String path) {
+    return entry(path, false, MODIFIED);
+  }
+
+  private SftpFileAttributes entry(String path, boolean isDirectory, ZonedDateTime timestamp) {
+    SftpFileAttributes entry = mock(SftpFileAttributes.class);
+    when(entry.getPath()).thenReturn(path);
+    when(entry.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    when(entry.isDirectory()).thenReturn(isDirectory);
+    when(entry.getTimestamp()).thenReturn(timestamp);
+    return entry;
+  }
+}
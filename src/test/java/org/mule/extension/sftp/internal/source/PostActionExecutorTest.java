@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.source;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.synchronizedList;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.FileAttributes;
+import org.mule.extension.sftp.internal.connection.SftpClient;
+import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.exception.FileAlreadyExistsException;
+import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.tck.size.SmallTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class PostActionExecutorTest {
+
+  private static final long RETRY_DELAY_MILLIS = 20;
+
+  private final List<Runnable> scheduledTasks = synchronizedList(new ArrayList<>());
+  private final Executor deferred = scheduledTasks::add;
+  private final ScheduledExecutorService scheduledExecutor = newSingleThreadScheduledExecutor();
+
+  private ConnectionProvider<SftpFileSystemConnection> connectionProvider;
+  private SftpFileSystemConnection connection;
+  private SftpClient client;
+
+  @AfterEach
+  void tearDown() {
+    scheduledExecutor.shutdownNow();
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws Exception {
+    connectionProvider = mock(ConnectionProvider.class);
+    connection = mock(SftpFileSystemConnection.class);
+    client = mock(SftpClient.class);
+    when(connectionProvider.connect()).thenReturn(connection);
+    when(connection.getClient()).thenReturn(client);
+    when(connection.getBasePath()).thenReturn("/");
+    when(client.isConnected()).thenReturn(true);
+    when(client.renameAll(any(), anyBoolean())).thenReturn(emptyMap());
+    when(client.deleteAll(any())).thenReturn(emptyMap());
+  }
+
+  @Test
+  void queuedActionsAreAppliedInOneBatchOverOneConnection() throws Exception {
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, deferred);
+
+    executor.submit(new PostActionGroup(false, "/archive", null, false), file("/in/a.txt"));
+    executor.submit(new PostActionGroup(false, "/archive", null, false), file("/in/b.txt"));
+    executor.submit(new PostActionGroup(true, null, null, false), file("/in/c.txt"));
+
+    assertTrue(executor.isPending("/in/a.txt"));
+    assertEquals(1, scheduledTasks.size());
+    scheduledTasks.get(0).run();
+
+    Map<String, String> moves = new HashMap<>();
+    moves.put("/in/a.txt", "/archive/a.txt");
+    moves.put("/in/b.txt", "/archive/b.txt");
+    verify(connectionProvider, times(1)).connect();
+    verify(client, times(1)).mkdirs("/archive");
+    verify(client, times(1)).renameAll(moves, false);
+    verify(client, times(1)).deleteAll(singletonList("/in/c.txt"));
+    verify(connectionProvider, never()).disconnect(connection);
+    assertFalse(executor.isPending("/in/a.txt"));
+    assertEquals(3, executor.getAppliedActions());
+  }
+
+  @Test
+  void completionIsNotifiedOnceTheActionIsApplied() {
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, deferred);
+    List<String> completed = new ArrayList<>();
+
+    assertTrue(executor.submit(new PostActionGroup(true, null, null, false), file("/in/a.txt"),
+                               () -> completed.add("/in/a.txt")));
+    assertFalse(executor.submit(new PostActionGroup(false, null, null, false), file("/in/b.txt"),
+                                () -> completed.add("/in/b.txt")));
+
+    assertTrue(completed.isEmpty());
+    scheduledTasks.get(0).run();
+    assertEquals(singletonList("/in/a.txt"), completed);
+  }
+
+  @Test
+  void actionsWithNothingToDoAreNotQueued() {
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, deferred);
+
+    executor.submit(new PostActionGroup(false, null, null, false), file("/in/a.txt"));
+
+    assertFalse(executor.isPending("/in/a.txt"));
+    assertTrue(scheduledTasks.isEmpty());
+  }
+
+  @Test
+  void failedActionIsRetriedWithBackoffUntilItRunsOutOfAttempts() throws Exception {
+    List<Long> attemptTimes = synchronizedList(new ArrayList<>());
+    when(client.renameAll(any(), anyBoolean())).thenAnswer(invocation -> {
+      attemptTimes.add(System.nanoTime());
+      return singletonMap("/in/a.txt", new IOException("failure"));
+    });
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, scheduledExecutor, 16, 64, 3, RETRY_DELAY_MILLIS);
+
+    executor.submit(new PostActionGroup(false, null, "a.done", false), file("/in/a.txt"));
+
+    awaitApplied(executor, "/in/a.txt");
+    verify(client, times(3)).renameAll(singletonMap("/in/a.txt", "/in/a.done"), false);
+    assertTrue(attemptTimes.get(1) - attemptTimes.get(0) >= MILLISECONDS.toNanos(RETRY_DELAY_MILLIS));
+    assertTrue(attemptTimes.get(2) - attemptTimes.get(1) >= MILLISECONDS.toNanos(2 * RETRY_DELAY_MILLIS));
+    assertEquals(2, executor.getRetriedActions());
+    assertEquals(1, executor.getFailedActions());
+  }
+
+  @Test
+  void failedActionIsNotRetriedInTheSameDrain() {
+    when(client.renameAll(any(), anyBoolean())).thenReturn(singletonMap("/in/a.txt", new IOException("failure")))
+        .thenReturn(emptyMap());
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, Runnable::run, 16, 64, 3, 0);
+
+    executor.submit(new PostActionGroup(false, null, "a.done", false), file("/in/a.txt"));
+
+    verify(client, times(1)).renameAll(any(), anyBoolean());
+    assertTrue(executor.isPending("/in/a.txt"));
+
+    // without a scheduled executor, the retries which are due are applied along with the next action
+    executor.submit(new PostActionGroup(true, null, null, false), file("/in/b.txt"));
+
+    verify(client, times(2)).renameAll(singletonMap("/in/a.txt", "/in/a.done"), false);
+    assertFalse(executor.isPending("/in/a.txt"));
+    assertEquals(2, executor.getAppliedActions());
+  }
+
+  @Test
+  void existingTargetIsNotRetried() {
+    when(client.renameAll(any(), anyBoolean()))
+        .thenReturn(singletonMap("/in/a.txt", new FileAlreadyExistsException("'/in/a.done' already exists")));
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, Runnable::run);
+
+    executor.submit(new PostActionGroup(false, null, "a.done", false), file("/in/a.txt"));
+
+    verify(client, times(1)).renameAll(any(), anyBoolean());
+    assertEquals(0, executor.getRetriedActions());
+    assertEquals(1, executor.getFailedActions());
+  }
+
+  @Test
+  void brokenConnectionIsReplacedToRetry() throws Exception {
+    when(client.renameAll(any(), anyBoolean())).thenThrow(new RuntimeException("Channel is being closed"))
+        .thenReturn(emptyMap());
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, scheduledExecutor, 16, 64, 3, RETRY_DELAY_MILLIS);
+
+    executor.submit(new PostActionGroup(false, null, "a.done", true, true), file("/in/a.txt"));
+
+    awaitApplied(executor, "/in/a.txt");
+    verify(client, times(2)).renameAll(singletonMap("/in/a.txt", "/in/a.done"), true);
+    verify(connectionProvider, times(2)).connect();
+    verify(connectionProvider, times(1)).disconnect(connection);
+    assertEquals(1, executor.getRetriedActions());
+    assertEquals(1, executor.getAppliedActions());
+  }
+
+  @Test
+  void submitBlocksWhileTheQueueIsFull() throws Exception {
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, deferred, 1, 64, 1, 0);
+    executor.submit(new PostActionGroup(true, null, null, false), file("/in/a.txt"));
+
+    Thread submitter = new Thread(() -> executor.submit(new PostActionGroup(true, null, null, false), file("/in/b.txt")));
+    submitter.start();
+    submitter.join(200);
+    assertTrue(submitter.isAlive());
+
+    scheduledTasks.get(0).run();
+    submitter.join(5000);
+    assertFalse(submitter.isAlive());
+    new ArrayList<>(scheduledTasks.subList(1, scheduledTasks.size())).forEach(Runnable::run);
+
+    assertEquals(2, executor.getAppliedActions());
+    assertEquals(0, executor.getPendingActions());
+  }
+
+  @Test
+  void closeAppliesTheQueuedActionsAndDisconnects() throws Exception {
+    PostActionExecutor executor = new PostActionExecutor(connectionProvider, deferred);
+    executor.submit(new PostActionGroup(true, null, null, false), file("/in/a.txt"));
+
+    executor.close();
+
+    verify(client, times(1)).deleteAll(singletonList("/in/a.txt"));
+    verify(connectionProvider, times(1)).disconnect(connection);
+
+    executor.submit(new PostActionGroup(true, null, null, false), file("/in/b.txt"));
+
+    verify(client, times(1)).deleteAll(singletonList("/in/b.txt"));
+    verify(connectionProvider, times(2)).disconnect(connection);
+    assertEquals(1, scheduledTasks.size());
+  }
+
+  private void awaitApplied(PostActionExecutor executor, String path) throws InterruptedException {
+    long deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (executor.isPending(path) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertFalse(executor.isPending(path));
+  }
+
+  private FileAttributes file(String path) {
+    FileAttributes attributes = mock(FileAttributes.class);
+    when(attributes.getPath()).thenReturn(path);
+    when(attributes.getName()).thenReturn(path.substring(path.lastIndexOf('/') + 1));
+    return attributes;
+  }
+}
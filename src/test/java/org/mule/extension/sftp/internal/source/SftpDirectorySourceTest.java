@@ -7,18 +7,30 @@
 package org.mule.extension.sftp.internal.source;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.stubbing.Answer;
+import org.mule.extension.sftp.api.FileProcessingOrder;
 import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.api.WatchedDirectory;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.source.PollContext;
 import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.store.ObjectAlreadyExistsException;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.extension.sftp.internal.connection.SftpClient;
 import org.mule.extension.sftp.internal.connection.SftpFileSystemConnection;
+import org.mule.extension.sftp.internal.operation.SftpReadCommand;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -26,11 +38,16 @@ import java.lang.reflect.Field;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.ZonedDateTime;
 
+import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
@@ -45,18 +62,24 @@ public class SftpDirectorySourceTest {
   private PollContext<InputStream, SftpFileAttributes> pollContext;
   private ConnectionProvider<SftpFileSystemConnection> connectionProvider;
   private SftpFileSystemConnection mockSFTPFileSystemConnection;
+  private SftpClient client;
+  private SftpReadCommand readCommand;
   private RejectPollItem pollItem = new RejectPollItem();
   private PollItemWithError pollItemWithError = new PollItemWithError();
+  private List<Runnable> postActionBatches = new ArrayList<>();
 
   @Before
-  public void setup() throws ConnectionException, NoSuchFieldException, IllegalAccessException, URISyntaxException {
+  public void setup()
+      throws ConnectionException, NoSuchFieldException, IllegalAccessException, URISyntaxException, IOException {
     sftpDirectorySource = new SftpDirectorySource();
 
     pollContext = mock(PollContext.class);
     when(pollContext.isSourceStopping()).thenReturn(false);
 
     connectionProvider = mock(ConnectionProvider.class);
-    mockSFTPFileSystemConnection = mock(SftpFileSystemConnection.class);
+    readCommand = mock(SftpReadCommand.class);
+    client = mockClient();
+    mockSFTPFileSystemConnection = mockConnection(client);
     when(connectionProvider.connect()).thenReturn(mockSFTPFileSystemConnection);
 
     // Inject the mock provider into the source
@@ -64,10 +87,8 @@ public class SftpDirectorySourceTest {
     providerField.setAccessible(true);
     providerField.set(sftpDirectorySource, connectionProvider);
 
-    // Set up directoryUri and config
-    Field dirUriField = SftpDirectorySource.class.getDeclaredField("directoryUri");
-    dirUriField.setAccessible(true);
-    dirUriField.set(sftpDirectorySource, new java.net.URI("/some/dir"));
+    // Set up the polled directory and config
+    directories(new PolledDirectory(new java.net.URI("/some/dir"), 1, null, null));
 
     Field configField = SftpDirectorySource.class.getDeclaredField("config");
     configField.setAccessible(true);
@@ -76,6 +97,9 @@ public class SftpDirectorySourceTest {
     Field watermarkEnabledField = SftpDirectorySource.class.getDeclaredField("watermarkEnabled");
     watermarkEnabledField.setAccessible(true);
     watermarkEnabledField.set(sftpDirectorySource, true);
+
+    FieldUtils.writeField(sftpDirectorySource, "postActions",
+                          new PostActionExecutor(connectionProvider, postActionBatches::add), true);
   }
 
   @Test
@@ -87,14 +111,11 @@ public class SftpDirectorySourceTest {
     FieldUtils.writeField(attributes, "fileName", fileName, true);
     FieldUtils.writeField(attributes, "directory", false, true);
     FieldUtils.writeField(attributes, "path", filePath.toString(), true);
-    Result<String, SftpFileAttributes> mockResult =
-        Result.<String, SftpFileAttributes>builder().output("test").attributes(attributes).build();
-    List<Result<String, SftpFileAttributes>> fileList = java.util.Collections.singletonList(mockResult);
-    when(mockSFTPFileSystemConnection.list(any(), anyString(), anyBoolean(), any(), any())).thenReturn(fileList);
+    listing(client, attributes);
 
     Result<InputStream, SftpFileAttributes> mockReadResult =
         Result.<InputStream, SftpFileAttributes>builder().output(mock(InputStream.class)).attributes(attributes).build();
-    when(mockSFTPFileSystemConnection.read(any(), anyString(), anyBoolean(), any())).thenReturn(mockReadResult);
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean())).thenReturn(mockReadResult);
 
     when(pollContext.accept(any())).then((Answer<PollContext.PollItemStatus>) invocationOnMock -> {
       Consumer<PollContext.PollItem<InputStream, SftpFileAttributes>> pollItemConsumer =
@@ -106,7 +127,11 @@ public class SftpDirectorySourceTest {
     sftpDirectorySource.poll(pollContext);
 
     assertEquals(pollItem.getResult(), mockReadResult);
-    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+    // the listed attributes are read as they are, without fetching them again
+    verify(readCommand).read(any(), eq(attributes), eq(true), any(), eq(true));
+    verify(mockSFTPFileSystemConnection, never()).read(any(), anyString(), anyBoolean(), any());
+    // no file was accepted but the connection is kept for the next poll
+    verify(connectionProvider, never()).disconnect(mockSFTPFileSystemConnection);
   }
 
   @Test
@@ -118,14 +143,11 @@ public class SftpDirectorySourceTest {
     FieldUtils.writeField(attributes, "fileName", fileName, true);
     FieldUtils.writeField(attributes, "directory", false, true);
     FieldUtils.writeField(attributes, "path", filePath.toString(), true);
-    Result<String, SftpFileAttributes> mockResult =
-        Result.<String, SftpFileAttributes>builder().output("test").attributes(attributes).build();
-    List<Result<String, SftpFileAttributes>> fileList = java.util.Collections.singletonList(mockResult);
-    when(mockSFTPFileSystemConnection.list(any(), anyString(), anyBoolean(), any(), any())).thenReturn(fileList);
+    listing(client, attributes);
 
     Result<InputStream, SftpFileAttributes> mockReadResult =
         Result.<InputStream, SftpFileAttributes>builder().output(mock(InputStream.class)).attributes(attributes).build();
-    when(mockSFTPFileSystemConnection.read(any(), anyString(), anyBoolean(), any())).thenReturn(mockReadResult);
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean())).thenReturn(mockReadResult);
 
     when(pollContext.accept(any())).then((Answer<PollContext.PollItemStatus>) invocationOnMock -> {
       Consumer<PollContext.PollItem<InputStream, SftpFileAttributes>> pollItemConsumer =
@@ -152,9 +174,9 @@ public class SftpDirectorySourceTest {
     providerField.setAccessible(true);
     providerField.set(sftpDirectorySource, null);
 
-    Field dirUriField = SftpDirectorySource.class.getDeclaredField("directoryUri");
-    dirUriField.setAccessible(true);
-    dirUriField.set(sftpDirectorySource, null);
+    Field directoriesField = SftpDirectorySource.class.getDeclaredField("polledDirectories");
+    directoriesField.setAccessible(true);
+    directoriesField.set(sftpDirectorySource, null);
 
     sftpDirectorySource.poll(pollContext);
   }
@@ -175,18 +197,15 @@ public class SftpDirectorySourceTest {
     // Simulate first list call throws, second returns a file
     org.apache.sshd.common.SshException sshCause = new org.apache.sshd.common.SshException("Channel is being closed");
     RuntimeException listException = new RuntimeException("wrapper", sshCause);
-    Result<String, SftpFileAttributes> mockResult = mock(Result.class);
-    List<Result<String, SftpFileAttributes>> fileList = java.util.Collections.singletonList(mockResult);
-    when(mockSFTPFileSystemConnection.list(any(), anyString(), anyBoolean(), any(), any()))
-        .thenThrow(listException)
-        .thenReturn(fileList);
+    when(client.listWhile(anyString(), any())).thenThrow(listException).thenReturn(true);
 
     // Run poll
     sftpDirectorySource.poll(pollContext);
 
-    // Verify disconnect and list were called
-    verify(mockSFTPFileSystemConnection, times(1)).disconnect();
-    verify(mockSFTPFileSystemConnection, times(2)).list(any(), anyString(), anyBoolean(), any(), any());
+    // Verify the closed connection was retired through the provider and list was called again
+    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+    verify(mockSFTPFileSystemConnection, never()).disconnect();
+    verify(client, times(2)).listWhile(anyString(), any());
   }
 
   @Test
@@ -197,13 +216,14 @@ public class SftpDirectorySourceTest {
     // Simulate channel closed exception
     org.apache.sshd.common.SshException sshCause = new org.apache.sshd.common.SshException("Channel is being closed");
     RuntimeException listException = new RuntimeException("wrapper", sshCause);
-    when(mockSFTPFileSystemConnection.list(any(), anyString(), anyBoolean(), any(), any())).thenThrow(listException);
+    when(client.listWhile(anyString(), any())).thenThrow(listException);
 
     // Run poll
     sftpDirectorySource.poll(pollContext);
 
-    // Verify disconnect was called and onConnectionException was triggered
-    verify(mockSFTPFileSystemConnection, times(1)).disconnect();
+    // Verify the closed connection was retired through the provider and onConnectionException was triggered
+    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+    verify(mockSFTPFileSystemConnection, never()).disconnect();
     verify(pollContext, times(1)).onConnectionException(any(org.mule.runtime.api.connection.ConnectionException.class));
   }
 
@@ -211,7 +231,7 @@ public class SftpDirectorySourceTest {
   public void testPollIgnoresNonChannelClosedExceptions() throws Exception {
     // Simulate a different exception (not channel closed)
     RuntimeException otherException = new RuntimeException("Some other SFTP error");
-    when(mockSFTPFileSystemConnection.list(any(), anyString(), anyBoolean(), any(), any())).thenThrow(otherException);
+    when(client.listWhile(anyString(), any())).thenThrow(otherException);
 
     // Run poll - should NOT throw the exception (it gets caught and logged)
     sftpDirectorySource.poll(pollContext);
@@ -223,6 +243,349 @@ public class SftpDirectorySourceTest {
 
 
 
+  @Test
+  public void testConnectionIsReusedAcrossPolls() throws Exception {
+    when(client.isConnected()).thenReturn(true);
+    listing(client);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.poll(pollContext);
+
+    verify(connectionProvider, times(1)).connect();
+    verify(client, times(2)).listWhile(anyString(), any());
+    verify(connectionProvider, never()).disconnect(any());
+  }
+
+  @Test
+  public void testClosedConnectionIsReplaced() throws Exception {
+    when(client.isConnected()).thenReturn(false);
+    SftpClient newClient = mockClient();
+    SftpFileSystemConnection newConnection = mockConnection(newClient);
+    when(connectionProvider.connect()).thenReturn(mockSFTPFileSystemConnection, newConnection);
+    listing(client);
+    listing(newClient);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.poll(pollContext);
+
+    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+    verify(newClient, times(1)).listWhile(anyString(), any());
+  }
+
+  @Test
+  public void testConnectionIsClosedOnStop() throws Exception {
+    listing(client);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.doStop();
+
+    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+  }
+
+  @Test
+  public void testFilesAreReadOverTheirOwnConnectionsWhenConcurrent() throws Exception {
+    Semaphore contentPermits = new Semaphore(2);
+    FieldUtils.writeField(sftpDirectorySource, "contentPermits", contentPermits, true);
+    SftpFileAttributes attributes = new SftpFileAttributes();
+    FieldUtils.writeField(attributes, "fileName", "test", true);
+    FieldUtils.writeField(attributes, "directory", false, true);
+    FieldUtils.writeField(attributes, "path", "/some/dir/test", true);
+    listing(client, attributes);
+    Result<InputStream, SftpFileAttributes> read =
+        Result.<InputStream, SftpFileAttributes>builder().output(mock(InputStream.class)).attributes(attributes).build();
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), any(Semaphore.class))).thenReturn(read);
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.doStop();
+
+    verify(readCommand).read(any(), eq(attributes), eq(true), any(), eq(contentPermits));
+    // no file leased the poll connection, so it's closed right away
+    verify(connectionProvider, times(1)).disconnect(mockSFTPFileSystemConnection);
+  }
+
+  @Test
+  public void testFileIsNotDispatchedAgainWhilePostActionIsPending() throws Exception {
+    SftpFileAttributes attributes = new SftpFileAttributes();
+    FieldUtils.writeField(attributes, "fileName", "test", true);
+    FieldUtils.writeField(attributes, "directory", false, true);
+    FieldUtils.writeField(attributes, "path", "/some/dir/test", true);
+    listing(client, attributes);
+    Result<InputStream, SftpFileAttributes> read =
+        Result.<InputStream, SftpFileAttributes>builder().output(mock(InputStream.class)).attributes(attributes).build();
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean())).thenReturn(read);
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+    when(client.isConnected()).thenReturn(true);
+    when(client.deleteAll(any())).thenReturn(java.util.Collections.emptyMap());
+    SourceCallbackContext ctx = mock(SourceCallbackContext.class);
+    when(ctx.getVariable("attributes")).thenReturn(java.util.Optional.of(attributes));
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.onSuccess(new PostActionGroup(true, null, null, false), ctx);
+    sftpDirectorySource.poll(pollContext);
+
+    verify(pollContext, times(1)).accept(any());
+
+    postActionBatches.forEach(Runnable::run);
+    sftpDirectorySource.poll(pollContext);
+
+    verify(client, times(1)).deleteAll(java.util.Collections.singletonList("/some/dir/test"));
+    verify(pollContext, times(2)).accept(any());
+  }
+
+  @Test
+  public void testUnmodifiedEmptyDirectoryIsNotListedAgain() throws Exception {
+    FieldUtils.writeField(sftpDirectorySource, "adaptivePolling", new AdaptivePolling(java.util.concurrent.TimeUnit.MINUTES
+        .toNanos(1)), true);
+    FieldUtils.writeField(sftpDirectorySource, "checkDirectoryModification", true, true);
+    FieldUtils.writeField(sftpDirectorySource, "recursive", false, true);
+    when(client.isConnected()).thenReturn(true);
+    listing(client);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.poll(pollContext);
+
+    // the listing stats the directory too, but only the first poll lists it
+    verify(client, times(3)).getAttributes(any());
+    verify(client, times(1)).listWhile(anyString(), any());
+  }
+
+  @Test
+  public void testPollStopsListingOnceMaxFilesPerPollWereDispatched() throws Exception {
+    FieldUtils.writeField(sftpDirectorySource, "maxFilesPerPoll", 2, true);
+    SftpFileAttributes first = file("/some/dir/first", 1, 0);
+    SftpFileAttributes second = file("/some/dir/second", 1, 0);
+    SftpFileAttributes third = file("/some/dir/third", 1, 0);
+    List<Boolean> walkGoesOn = new ArrayList<>();
+    when(client.listWhile(anyString(), any())).thenAnswer(invocation -> {
+      Predicate<List<SftpFileAttributes>> consumer = invocation.getArgument(1);
+      walkGoesOn.add(consumer.test(asList(first, second)));
+      return walkGoesOn.get(0) && consumer.test(asList(third));
+    });
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean()))
+        .thenAnswer(invocation -> Result.builder().output(mock(InputStream.class)).attributes(invocation.getArgument(1))
+            .build());
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+
+    sftpDirectorySource.poll(pollContext);
+
+    assertEquals(asList(false), walkGoesOn);
+    verify(pollContext, times(2)).accept(any());
+    verify(readCommand, never()).read(any(), eq(third), anyBoolean(), any(), anyBoolean());
+  }
+
+  @Test
+  public void testFilesAreDispatchedInProcessingOrder() throws Exception {
+    FieldUtils.writeField(sftpDirectorySource, "maxFilesPerPoll", 2, true);
+    FieldUtils.writeField(sftpDirectorySource, "processingOrder", FileProcessingOrder.OLDEST_FIRST, true);
+    SftpFileAttributes newest = file("/some/dir/newest", 1, 10);
+    SftpFileAttributes oldest = file("/some/dir/oldest", 3, 30);
+    SftpFileAttributes middle = file("/some/dir/middle", 2, 20);
+    listing(client, newest, oldest, middle);
+    List<SftpFileAttributes> dispatched = new ArrayList<>();
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean())).thenAnswer(invocation -> {
+      dispatched.add(invocation.getArgument(1));
+      return Result.builder().output(mock(InputStream.class)).attributes(invocation.getArgument(1)).build();
+    });
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+
+    sftpDirectorySource.poll(pollContext);
+
+    assertEquals(asList(oldest, middle), dispatched);
+
+    dispatched.clear();
+    FieldUtils.writeField(sftpDirectorySource, "processingOrder", FileProcessingOrder.SMALLEST_FIRST, true);
+    sftpDirectorySource.poll(pollContext);
+
+    assertEquals(asList(newest, middle), dispatched);
+  }
+
+  @Test
+  public void testFilesClaimedByAnotherNodeAreNotDispatched() throws Exception {
+    ObjectStore<String> claims = mockClaims("/some/dir/taken");
+    FieldUtils.writeField(sftpDirectorySource, "fileClaims", new FileClaims(claims, "node"), true);
+    SftpFileAttributes taken = file("/some/dir/taken", 1, 0);
+    SftpFileAttributes free = file("/some/dir/free", 1, 0);
+    listing(client, taken, free);
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean()))
+        .thenAnswer(invocation -> Result.builder().output(mock(InputStream.class)).attributes(invocation.getArgument(1))
+            .build());
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+    when(client.isConnected()).thenReturn(true);
+    when(client.deleteAll(any())).thenReturn(java.util.Collections.emptyMap());
+    SourceCallbackContext ctx = mock(SourceCallbackContext.class);
+    when(ctx.getVariable("attributes")).thenReturn(java.util.Optional.of(free));
+
+    sftpDirectorySource.poll(pollContext);
+
+    verify(pollContext, times(1)).accept(any());
+    verify(readCommand, never()).read(any(), eq(taken), anyBoolean(), any(), anyBoolean());
+
+    sftpDirectorySource.onSuccess(new PostActionGroup(true, null, null, false), ctx);
+    verify(claims, never()).remove(anyString());
+    // the claim is released once the file is gone
+    postActionBatches.forEach(Runnable::run);
+    verify(claims).remove("/some/dir/free");
+  }
+
+  @Test
+  public void testClaimIsReleasedWhenTheFileIsNotAccepted() throws Exception {
+    ObjectStore<String> claims = mockClaims();
+    FieldUtils.writeField(sftpDirectorySource, "fileClaims", new FileClaims(claims, "node"), true);
+    SftpFileAttributes attributes = file("/some/dir/test", 1, 0);
+    listing(client, attributes);
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean()))
+        .thenReturn(Result.<InputStream, SftpFileAttributes>builder().output(mock(InputStream.class)).attributes(attributes)
+            .build());
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.FILTERED_BY_WATERMARK);
+
+    sftpDirectorySource.poll(pollContext);
+
+    verify(claims).store("/some/dir/test", "node");
+    verify(claims).remove("/some/dir/test");
+  }
+
+  @Test
+  public void testDirectoriesShareEachPollByWeight() throws Exception {
+    FieldUtils.writeField(sftpDirectorySource, "maxFilesPerPoll", 4, true);
+    PolledDirectory busy = new PolledDirectory(new java.net.URI("/busy"), 1, null, null);
+    PolledDirectory heavy = new PolledDirectory(new java.net.URI("/heavy"), 3, null, null);
+    directories(busy, heavy);
+    Map<String, List<SftpFileAttributes>> listings = new HashMap<>();
+    listings.put("/busy", asList(file("/busy/1", 1, 0), file("/busy/2", 1, 0), file("/busy/3", 1, 0), file("/busy/4", 1, 0)));
+    listings.put("/heavy", asList(file("/heavy/1", 1, 0), file("/heavy/2", 1, 0), file("/heavy/3", 1, 0)));
+    when(client.listWhile(anyString(), any())).thenAnswer(invocation -> {
+      Predicate<List<SftpFileAttributes>> consumer = invocation.getArgument(1);
+      return consumer.test(listings.get(invocation.<String>getArgument(0)));
+    });
+    List<String> dispatched = dispatchedPaths();
+
+    sftpDirectorySource.poll(pollContext);
+
+    // the first directory gets its share, a quarter of the poll, and the second one what's left
+    assertEquals(asList("/busy/1", "/heavy/1", "/heavy/2", "/heavy/3"), dispatched);
+  }
+
+  @Test
+  public void testDirectoryWithAllItsFilesInFlightIsSkipped() throws Exception {
+    PolledDirectory capped = new PolledDirectory(new java.net.URI("/capped"), 1, 1, null);
+    directories(capped);
+    listing(client, file("/capped/1", 1, 0), file("/capped/2", 1, 0));
+    List<String> dispatched = dispatchedPaths();
+    SourceCallbackContext ctx = mock(SourceCallbackContext.class);
+    when(ctx.getVariable("polledDirectory")).thenReturn(java.util.Optional.of(capped));
+    when(client.isConnected()).thenReturn(true);
+
+    sftpDirectorySource.poll(pollContext);
+    sftpDirectorySource.poll(pollContext);
+
+    assertEquals(asList("/capped/1"), dispatched);
+    verify(client, times(1)).listWhile(anyString(), any());
+
+    sftpDirectorySource.onSuccess(new PostActionGroup(false, null, null, false), ctx);
+    sftpDirectorySource.poll(pollContext);
+
+    assertEquals(asList("/capped/1", "/capped/1"), dispatched);
+  }
+
+  @Test
+  public void testOnlyTheWatchedDirectoriesArePolledWhenTheMainOneIsNotSet() throws Exception {
+    FieldUtils.writeField(sftpDirectorySource, "directories",
+                          asList(new WatchedDirectory("/a", 1, null), new WatchedDirectory("/b", 2, null)), true);
+
+    assertEquals(asList("/a", "/b"), resolvedDirectories());
+
+    FieldUtils.writeField(sftpDirectorySource, "directory", "/main", true);
+    assertEquals(asList("/main", "/a", "/b"), resolvedDirectories());
+  }
+
+  @Test
+  public void testOverlappingDirectoriesAreRejected() throws Exception {
+    PolledDirectory parent = new PolledDirectory(new java.net.URI("/in"), 1, null, null);
+    PolledDirectory nested = new PolledDirectory(new java.net.URI("/in/sub"), 1, null, null);
+    PolledDirectory sibling = new PolledDirectory(new java.net.URI("/inbox"), 1, null, null);
+    PolledDirectory root = new PolledDirectory(new java.net.URI("/"), 1, null, null);
+
+    SftpDirectorySource.checkNoOverlap(asList(parent, sibling), true);
+    SftpDirectorySource.checkNoOverlap(asList(parent, nested), false);
+    assertThrows(IllegalArgumentException.class, () -> SftpDirectorySource.checkNoOverlap(asList(parent, nested), true));
+    assertThrows(IllegalArgumentException.class, () -> SftpDirectorySource.checkNoOverlap(asList(nested, parent), true));
+    assertThrows(IllegalArgumentException.class, () -> SftpDirectorySource.checkNoOverlap(asList(root, sibling), true));
+    assertThrows(IllegalArgumentException.class, () -> SftpDirectorySource.checkNoOverlap(asList(parent, sibling, parent),
+                                                                                          false));
+  }
+
+  private List<String> resolvedDirectories() throws Exception {
+    List<PolledDirectory> resolved = (List<PolledDirectory>) MethodUtils.invokeMethod(sftpDirectorySource, true,
+                                                                                      "resolveDirectories");
+    List<String> paths = new ArrayList<>();
+    resolved.forEach(directory -> paths.add(directory.getPath()));
+    return paths;
+  }
+
+  private void directories(PolledDirectory... directories) throws IllegalAccessException {
+    FieldUtils.writeField(sftpDirectorySource, "polledDirectories", asList(directories), true);
+    FieldUtils.writeField(sftpDirectorySource, "directoryScheduler", new FairDirectoryScheduler(asList(directories)), true);
+  }
+
+  private List<String> dispatchedPaths() {
+    List<String> dispatched = new ArrayList<>();
+    when(readCommand.read(any(), any(SftpFileAttributes.class), anyBoolean(), any(), anyBoolean())).thenAnswer(invocation -> {
+      dispatched.add(invocation.<SftpFileAttributes>getArgument(1).getPath());
+      return Result.builder().output(mock(InputStream.class)).attributes(invocation.getArgument(1)).build();
+    });
+    when(pollContext.accept(any())).thenReturn(PollContext.PollItemStatus.ACCEPTED);
+    return dispatched;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ObjectStore<String> mockClaims(String... claimedByOtherNodes) throws Exception {
+    ObjectStore<String> claims = mock(ObjectStore.class);
+    for (String path : claimedByOtherNodes) {
+      doThrow(new ObjectAlreadyExistsException()).when(claims).store(eq(path), anyString());
+    }
+    when(claims.retrieve(anyString())).thenReturn("node");
+    return claims;
+  }
+
+  private SftpClient mockClient() throws IOException {
+    ZonedDateTime timestamp = ZonedDateTime.now();
+    SftpClient client = mock(SftpClient.class);
+    when(client.getAttributes(any())).thenAnswer(invocation -> {
+      SftpFileAttributes directory = mock(SftpFileAttributes.class);
+      when(directory.getPath()).thenReturn(invocation.<java.net.URI>getArgument(0).getPath());
+      when(directory.isDirectory()).thenReturn(true);
+      when(directory.getTimestamp()).thenReturn(timestamp);
+      return directory;
+    });
+    return client;
+  }
+
+  private SftpFileSystemConnection mockConnection(SftpClient client) {
+    SftpFileSystemConnection connection = mock(SftpFileSystemConnection.class);
+    when(connection.getReadCommand()).thenReturn(readCommand);
+    when(connection.getClient()).thenReturn(client);
+    when(connection.getBasePath()).thenReturn("/");
+    return connection;
+  }
+
+  private void listing(SftpClient client, SftpFileAttributes... files) {
+    when(client.listWhile(anyString(), any())).thenAnswer(invocation -> {
+      Predicate<List<SftpFileAttributes>> consumer = invocation.getArgument(1);
+      return consumer.test(asList(files));
+    });
+  }
+
+  private SftpFileAttributes file(String path, long size, int minutesAgo) throws IllegalAccessException {
+    SftpFileAttributes attributes = new SftpFileAttributes();
+    FieldUtils.writeField(attributes, "fileName", path.substring(path.lastIndexOf('/') + 1), true);
+    FieldUtils.writeField(attributes, "directory", false, true);
+    FieldUtils.writeField(attributes, "path", path, true);
+    FieldUtils.writeField(attributes, "size", size, true);
+    FieldUtils.writeField(attributes, "timestamp", ZonedDateTime.now().minusMinutes(minutesAgo), true);
+    return attributes;
+  }
+
   private static class RejectPollItem implements PollContext.PollItem {
 
     private Result result;
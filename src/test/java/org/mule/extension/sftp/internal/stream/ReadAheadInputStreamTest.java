@@ -0,0 +1,206 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import org.mule.tck.size.SmallTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+@SmallTest
+public class ReadAheadInputStreamTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void contentIsReadInOrder() throws Exception {
+    byte[] content = new byte[100_000];
+    new Random(42).nextBytes(content);
+
+    ByteArrayOutputStream read = new ByteArrayOutputStream();
+    try (InputStream stream = new ReadAheadInputStream(new ByteArrayInputStream(content), executor, 3, 1000)) {
+      byte[] buffer = new byte[777];
+      int count;
+      while ((count = stream.read(buffer)) != -1) {
+        read.write(buffer, 0, count);
+      }
+      assertEquals(-1, stream.read());
+    }
+
+    assertArrayEquals(content, read.toByteArray());
+  }
+
+  @Test
+  void readFailureIsRethrown() throws Exception {
+    InputStream failing = new InputStream() {
+
+      @Override
+      public int read() throws IOException {
+        throw new IOException("connection lost");
+      }
+    };
+
+    try (InputStream stream = new ReadAheadInputStream(failing, executor, 2, 16)) {
+      IOException e = assertThrows(IOException.class, stream::read);
+      assertEquals("connection lost", e.getMessage());
+    }
+  }
+
+  @Test
+  void readFailureIsRethrownOnEveryLaterRead() throws Exception {
+    InputStream failing = new InputStream() {
+
+      @Override
+      public int read() throws IOException {
+        throw new IOException("connection lost");
+      }
+    };
+
+    try (InputStream stream = new ReadAheadInputStream(failing, executor, 2, 16)) {
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        assertThrows(IOException.class, stream::read);
+        IOException e = assertThrows(IOException.class, stream::read);
+        assertEquals("connection lost", e.getMessage());
+      });
+    }
+  }
+
+  @Test
+  void interruptedReaderEndsTheStreamWithAFailure() throws Exception {
+    InputStream endless = new InputStream() {
+
+      @Override
+      public int read() {
+        return 0;
+      }
+    };
+
+    try (InputStream stream = new ReadAheadInputStream(endless, executor, 2, 16)) {
+      // lets the reader fill both buffers and wait for a free one
+      Thread.sleep(100);
+      executor.shutdownNow();
+
+      assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+        byte[] buffer = new byte[16];
+        assertEquals(16, stream.read(buffer));
+        assertEquals(16, stream.read(buffer));
+        assertThrows(InterruptedIOException.class, () -> stream.read(buffer));
+      });
+    }
+  }
+
+  @Test
+  void closeClosesTheDelegate() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    InputStream delegate = new ByteArrayInputStream(new byte[1024]) {
+
+      @Override
+      public void close() {
+        closed.set(true);
+      }
+    };
+
+    InputStream stream = new ReadAheadInputStream(delegate, executor, 2, 16);
+    assertEquals(0, stream.read());
+    stream.close();
+
+    assertTrue(closed.get());
+    assertThrows(IOException.class, stream::read);
+  }
+
+  @Test
+  void closeStopsAReaderWaitingForAFreeBuffer() throws Exception {
+    InputStream endless = new InputStream() {
+
+      @Override
+      public int read() {
+        return 0;
+      }
+    };
+
+    InputStream stream = new ReadAheadInputStream(endless, executor, 2, 16);
+    assertEquals(0, stream.read());
+    assertTimeoutPreemptively(Duration.ofSeconds(5), stream::close);
+  }
+
+  @Test
+  void closeWaitsForTheReadInProgressBeforeClosingTheDelegate() throws Exception {
+    CountDownLatch reading = new CountDownLatch(1);
+    CountDownLatch readReleased = new CountDownLatch(1);
+    AtomicBoolean inRead = new AtomicBoolean();
+    AtomicBoolean closedWhileReading = new AtomicBoolean();
+    InputStream delegate = new InputStream() {
+
+      @Override
+      public int read() {
+        return 0;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        inRead.set(true);
+        reading.countDown();
+        try {
+          readReleased.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+        inRead.set(false);
+        return len;
+      }
+
+      @Override
+      public void close() {
+        closedWhileReading.set(inRead.get());
+      }
+    };
+
+    InputStream stream = new ReadAheadInputStream(delegate, executor, 2, 16);
+    assertTrue(reading.await(5, SECONDS));
+    CompletableFuture<Void> closing = CompletableFuture.runAsync(() -> {
+      try {
+        stream.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    Thread.sleep(100);
+    assertFalse(closing.isDone());
+
+    readReleased.countDown();
+    closing.get(5, SECONDS);
+    assertFalse(closedWhileReading.get());
+  }
+}
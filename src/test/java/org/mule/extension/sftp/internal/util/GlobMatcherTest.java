@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.util;
+
+import static org.mule.extension.sftp.api.PredicateType.LOCAL_FILE_SYSTEM;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class GlobMatcherTest {
+
+  private static final String PATTERN_CHARS = "ab/.*?[]{},!^-\\Aa";
+  private static final String NAME_CHARS = "abAB/.-^,\n\r 😀";
+
+  @Test
+  public void supportsTheGlobSyntax() {
+    assertMatches("*.txt", "hello.txt", "a.TXT");
+    assertMatches("**/*.csv", "a/b/c.csv", "c.csv");
+    assertMatches("file?.{csv,txt}", "file1.txt", "file12.txt");
+    assertMatches("[a-c][!0-9].log", "bx.log", "b1.log");
+    assertMatches("\\*.txt", "*.txt", "a.txt");
+    assertMatches("[!-]", "a", "-");
+    assertMatches("{a,b,}c", "c", "abc");
+  }
+
+  @Test
+  public void patternsWithCornerCasesAreNotCompiled() {
+    assertFalse(GlobMatcher.compile("[]", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("[a-]", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("[a&&b]", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("{a,{b}}", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("{a,b", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("a\\", true, true).isPresent());
+    assertFalse(GlobMatcher.compile("{a,b}{c,d}{e,f}{g,h}{i,j}{k,l}{m,n}", true, true).isPresent());
+  }
+
+  @Test
+  public void matchesLikeTheRegex() {
+    Random random = new Random(7);
+    int compiled = 0;
+    for (int i = 0; i < 5000; i++) {
+      String glob = randomString(random, PATTERN_CHARS, 8);
+      Optional<GlobMatcher> sensitive = GlobMatcher.compile(glob, true, true);
+      Optional<GlobMatcher> insensitive = GlobMatcher.compile(glob, false, true);
+      String regex;
+      try {
+        regex = UriUtils.toRegexPattern(glob);
+        Pattern.compile(regex);
+      } catch (PatternSyntaxException e) {
+        assertFalse(glob, sensitive.isPresent());
+        continue;
+      }
+      if (!sensitive.isPresent()) {
+        continue;
+      }
+      compiled++;
+      Predicate<String> sensitiveRegex = Pattern.compile(regex).asPredicate();
+      Predicate<String> insensitiveRegex = Pattern.compile(regex, CASE_INSENSITIVE).asPredicate();
+      for (int j = 0; j < 50; j++) {
+        String name = randomString(random, NAME_CHARS, 8);
+        assertEquals(glob + " on " + name, sensitiveRegex.test(name), sensitive.get().test(name));
+        assertEquals(glob + " on " + name, insensitiveRegex.test(name), insensitive.get().test(name));
+      }
+    }
+    assertTrue(compiled > 2500);
+  }
+
+  @Test
+  public void matchesLikeTheDefaultFileSystem() {
+    Random random = new Random(11);
+    for (int i = 0; i < 2000; i++) {
+      String glob = "glob:" + randomString(random, PATTERN_CHARS, 8);
+      PathMatcher pathMatcher;
+      try {
+        pathMatcher = FileSystems.getDefault().getPathMatcher(glob);
+      } catch (PatternSyntaxException e) {
+        continue;
+      }
+      Predicate<String> predicate = LOCAL_FILE_SYSTEM.getPredicate(glob, true);
+      for (int j = 0; j < 50; j++) {
+        String name = randomString(random, NAME_CHARS, 8);
+        assertEquals(glob + " on " + name, outcome(() -> pathMatcher.matches(Paths.get(name))),
+                     outcome(() -> predicate.test(name)));
+      }
+    }
+  }
+
+  private String outcome(Supplier<Boolean> match) {
+    try {
+      return match.get().toString();
+    } catch (InvalidPathException e) {
+      // names the platform can't encode are rejected the same way by both
+      return e.getClass().getName();
+    }
+  }
+
+  private void assertMatches(String glob, String matching, String notMatching) {
+    GlobMatcher matcher = GlobMatcher.compile(glob, true, true).get();
+    assertTrue(matcher.test(matching));
+    assertFalse(matcher.test(notMatching));
+  }
+
+  private String randomString(Random random, String chars, int maxLength) {
+    StringBuilder builder = new StringBuilder();
+    int length = random.nextInt(maxLength + 1);
+    for (int i = 0; i < length; i++) {
+      builder.append(chars.charAt(random.nextInt(chars.length())));
+    }
+    return builder.toString();
+  }
+}
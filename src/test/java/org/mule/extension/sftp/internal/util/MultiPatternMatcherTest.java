@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.internal.util;
+
+import static org.mule.extension.sftp.api.PredicateType.EXTERNAL_FILE_SYSTEM;
+
+import static java.util.Arrays.asList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.mule.extension.sftp.api.matcher.PathMatcherPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+public class MultiPatternMatcherTest {
+
+  private static final String[] PATTERN_PARTS = {"*", "**", ".csv", "a", "B", "/", "{x,y}", "{,.", "}", ",", "?", "[ab]", "\\*"};
+  private static final String NAME_CHARS = "aAbBxy/.csv,}*\n";
+
+  @Test
+  public void matchesAnyPattern() {
+    MultiPatternMatcher matcher =
+        MultiPatternMatcher.compile(asList("*.csv", "*.{xml,json}", "report_*", "exact.txt", "regex:dat[0-9]+"),
+                                    EXTERNAL_FILE_SYSTEM, true);
+    assertTrue(matcher.test("a.csv"));
+    assertTrue(matcher.test("b.json"));
+    assertTrue(matcher.test("report_2024.pdf"));
+    assertTrue(matcher.test("exact.txt"));
+    assertTrue(matcher.test("dat12"));
+    assertFalse(matcher.test("a.CSV"));
+    assertFalse(matcher.test("dir/a.csv"));
+    assertFalse(matcher.test("exact.txt.bak"));
+    assertFalse(matcher.test("other.txt"));
+  }
+
+  @Test
+  public void matchesCaseInsensitively() {
+    MultiPatternMatcher matcher = MultiPatternMatcher.compile(asList("*.csv", "IN_*"), EXTERNAL_FILE_SYSTEM, false);
+    assertTrue(matcher.test("a.CSV"));
+    assertTrue(matcher.test("in_file"));
+    assertFalse(matcher.test("out_file"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void blankNamesAreRejected() {
+    MultiPatternMatcher.compile(asList("*.csv"), EXTERNAL_FILE_SYSTEM, true).test(" ");
+  }
+
+  @Test
+  public void compiledMatchersAreShared() {
+    assertSame(MultiPatternMatcher.compile(asList("*.csv", "*.txt"), EXTERNAL_FILE_SYSTEM, true),
+               MultiPatternMatcher.compile(asList("*.csv", "*.txt"), EXTERNAL_FILE_SYSTEM, true));
+  }
+
+  @Test
+  public void matchesLikeEachPatternOnItsOwn() {
+    Random random = new Random(3);
+    for (int i = 0; i < 3000; i++) {
+      List<String> patterns = new ArrayList<>();
+      for (int j = random.nextInt(5); j >= 0; j--) {
+        patterns.add(randomPattern(random));
+      }
+      boolean caseSensitive = random.nextBoolean();
+      List<PathMatcherPredicate> predicates = new ArrayList<>();
+      try {
+        for (String pattern : patterns) {
+          predicates.add(new PathMatcherPredicate(pattern, EXTERNAL_FILE_SYSTEM, caseSensitive));
+        }
+      } catch (PatternSyntaxException e) {
+        continue;
+      }
+      MultiPatternMatcher matcher = MultiPatternMatcher.compile(patterns, EXTERNAL_FILE_SYSTEM, caseSensitive);
+      for (int j = 0; j < 50; j++) {
+        String name = randomName(random);
+        if (isBlank(name)) {
+          continue;
+        }
+        assertEquals(patterns + " on " + name, predicates.stream().anyMatch(predicate -> predicate.test(name)),
+                     matcher.test(name));
+      }
+    }
+  }
+
+  private String randomPattern(Random random) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = random.nextInt(4); i >= 0; i--) {
+      builder.append(PATTERN_PARTS[random.nextInt(PATTERN_PARTS.length)]);
+    }
+    return builder.toString();
+  }
+
+  private String randomName(Random random) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = random.nextInt(10); i > 0; i--) {
+      builder.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.sftp.matcher;
+
+import static org.mule.extension.sftp.api.matcher.MatchPolicy.EXCLUDE;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.sftp.api.PredicateType;
+import org.mule.extension.sftp.api.SftpFileAttributes;
+import org.mule.extension.sftp.api.SftpFileMatcher;
+import org.mule.extension.sftp.api.matcher.PathMatcherPredicate;
+
+import java.time.ZonedDateTime;
+import java.util.function.Predicate;
+
+import org.junit.Test;
+
+/**
+ * Sftp file matcher tests
+ *
+ * @since 2.5
+ */
+public class SftpFileMatcherTest {
+
+  @Test
+  public void compiledPatternsAreShared() {
+    PathMatcherPredicate first = new PathMatcherPredicate("regex:.*\\.csv", PredicateType.EXTERNAL_FILE_SYSTEM, true);
+    PathMatcherPredicate second = new PathMatcherPredicate("regex:.*\\.csv", PredicateType.EXTERNAL_FILE_SYSTEM, true);
+    assertSame(first.getDelegate(), second.getDelegate());
+    assertNotSame(first.getDelegate(),
+                  new PathMatcherPredicate("regex:.*\\.csv", PredicateType.EXTERNAL_FILE_SYSTEM, false).getDelegate());
+    assertNotSame(first.getDelegate(),
+                  new PathMatcherPredicate("regex:.*\\.csv", PredicateType.LOCAL_FILE_SYSTEM, true).getDelegate());
+  }
+
+  @Test
+  public void patternsAreOnlyEvaluatedOnFilesWhichPassTheOtherCriteria() {
+    SftpFileMatcher matcher = new SftpFileMatcher().setFilenamePattern("*.csv").setMinSize(10L).setDirectories(EXCLUDE);
+    matcher.setCasesensitive(true);
+    Predicate<SftpFileAttributes> predicate = matcher.build();
+
+    SftpFileAttributes small = file("small.csv", 5, 0);
+    assertFalse(predicate.test(small));
+    verify(small, never()).getName();
+
+    SftpFileAttributes directory = file("directory.csv", 20, 0);
+    when(directory.isDirectory()).thenReturn(true);
+    assertFalse(predicate.test(directory));
+    verify(directory, never()).getName();
+
+    assertTrue(predicate.test(file("big.csv", 20, 0)));
+    assertFalse(predicate.test(file("big.CSV", 20, 0)));
+  }
+
+  @Test
+  public void timeCriteriaAreCombinedWithTheOtherOnes() {
+    SftpFileMatcher matcher = new SftpFileMatcher().setFilenamePattern("*.csv");
+    matcher.setCasesensitive(true);
+    matcher.setNotUpdatedInTheLast(5L);
+    matcher.setTimeUnit(MINUTES);
+    Predicate<SftpFileAttributes> predicate = matcher.build();
+
+    SftpFileAttributes recent = file("recent.csv", 20, 1);
+    assertFalse(predicate.test(recent));
+    verify(recent, never()).getName();
+
+    assertTrue(predicate.test(file("old.csv", 20, 10)));
+    assertFalse(predicate.test(file("old.txt", 20, 10)));
+  }
+
+  @Test
+  public void filesHaveToMatchAnIncludedPatternAndNoExcludedOne() {
+    SftpFileMatcher matcher = new SftpFileMatcher()
+        .setIncludedFilenamePatterns(asList("*.csv", "*.{xml,json}", "report_*"))
+        .setExcludedFilenamePatterns(asList("*_draft.*", "regex:.*\\.tmp\\..*"));
+    matcher.setCasesensitive(true);
+    Predicate<SftpFileAttributes> predicate = matcher.build();
+
+    assertTrue(predicate.test(file("orders.csv", 20, 0)));
+    assertTrue(predicate.test(file("orders.json", 20, 0)));
+    assertTrue(predicate.test(file("report_2024.pdf", 20, 0)));
+    assertFalse(predicate.test(file("orders.txt", 20, 0)));
+    assertFalse(predicate.test(file("orders_draft.csv", 20, 0)));
+    assertFalse(predicate.test(file("orders.tmp.xml", 20, 0)));
+  }
+
+  private SftpFileAttributes file(String name, long size, long minutesAgo) {
+    SftpFileAttributes file = mock(SftpFileAttributes.class);
+    when(file.getName()).thenReturn(name);
+    when(file.getPath()).thenReturn("/some/dir/" + name);
+    when(file.getSize()).thenReturn(size);
+    when(file.isRegularFile()).thenReturn(true);
+    when(file.getTimestamp()).thenReturn(ZonedDateTime.now().minusMinutes(minutesAgo));
+    return file;
+  }
+}